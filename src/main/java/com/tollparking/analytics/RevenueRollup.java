@@ -0,0 +1,163 @@
+package com.tollparking.analytics;
+
+import com.tollparking.entity.ParkingListener;
+import com.tollparking.entity.Ticket;
+import com.tollparking.enums.VehicleType;
+import com.tollparking.metrics.LatencyHistogram;
+
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Revenue and dwell-time statistics kept up to date at each check-out: a listener of a Parking adding each billed
+ * ticket to the revenue and check-out counters of the quarter of an hour of its check-out, and to a histogram of the
+ * dwell times of its vehicle type. Every time zone starts its hours on a quarter of an hour, so the hourly and daily
+ * revenues of any zone are sums of a few counters, and a dashboard query takes microseconds whatever the number of
+ * tickets. The dwell-time percentiles are known within 3%.
+ *
+ * The counters are striped, so the gates checking out vehicles at the same time do not contend. A year of
+ * counters takes a few megabytes; removeBefore drops the oldest ones.
+ */
+public class RevenueRollup extends TicketAnalytics implements ParkingListener {
+
+    /**
+     * The duration of a period of the counters in seconds
+     */
+    private static final long QUARTER_SECONDS = 15 * 60;
+
+    /**
+     * The revenue and check-out counters of a quarter of an hour
+     */
+    private static final class Quarter {
+
+        /**
+         * The number of the quarter since the epoch
+         */
+        final long quarter;
+
+        /**
+         * The amounts in cents, indexed by vehicle type ordinal
+         */
+        final LongAdder[] revenue = new LongAdder[VEHICLE_TYPES.length];
+
+        /**
+         * The numbers of check-outs, indexed by vehicle type ordinal
+         */
+        final LongAdder[] counts = new LongAdder[VEHICLE_TYPES.length];
+
+        /**
+         * Creates the counters of a quarter
+         * @param quarter the number of the quarter since the epoch
+         */
+        Quarter(long quarter) {
+            this.quarter = quarter;
+            for (int type = 0; type < VEHICLE_TYPES.length; type++) {
+                this.revenue[type] = new LongAdder();
+                this.counts[type] = new LongAdder();
+            }
+        }
+    }
+
+    /**
+     * The counters, indexed by the number of their quarter since the epoch
+     */
+    private final ConcurrentHashMap<Long, Quarter> quarters = new ConcurrentHashMap<>();
+
+    /**
+     * The counters of the last quarter a ticket was added to, found without looking up the map
+     */
+    private volatile Quarter lastQuarter;
+
+    /**
+     * The dwell times in seconds, indexed by vehicle type ordinal
+     */
+    private final LatencyHistogram[] dwellTimes = new LatencyHistogram[VEHICLE_TYPES.length];
+
+    /**
+     * Creates empty counters. Add the rollup as a listener of a parking to count its check-outs.
+     */
+    public RevenueRollup() {
+        for (int type = 0; type < VEHICLE_TYPES.length; type++) {
+            this.dwellTimes[type] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Counts the check-out of a vehicle
+     * @param ticket the billed ticket of the vehicle
+     */
+    @Override
+    public void vehicleRemoved(Ticket ticket) {
+        add(ticket);
+    }
+
+    /**
+     * Counts a closed ticket, for example read from an audit log to fill the counters of the past check-outs
+     * @param ticket the billed ticket, with its end date and amount
+     */
+    public void add(Ticket ticket) {
+        add(ticket.getVehicleType(), ticket.getStartDate().getEpochSecond(), ticket.getEndDate().getEpochSecond(),
+                ticket.getAmountInCents());
+    }
+
+    /**
+     * Counts a closed ticket
+     * @param vehicleType the vehicle type
+     * @param startEpochSecond the start date in epoch seconds
+     * @param endEpochSecond the end date in epoch seconds
+     * @param amountInCents the billed amount in cents
+     */
+    public void add(VehicleType vehicleType, long startEpochSecond, long endEpochSecond, long amountInCents) {
+        long number = Math.floorDiv(endEpochSecond, QUARTER_SECONDS);
+        Quarter quarter = this.lastQuarter;
+        if (quarter == null || quarter.quarter != number) {
+            quarter = this.quarters.computeIfAbsent(number, Quarter::new);
+            this.lastQuarter = quarter;
+        }
+        quarter.revenue[vehicleType.ordinal()].add(amountInCents);
+        quarter.counts[vehicleType.ordinal()].increment();
+        this.dwellTimes[vehicleType.ordinal()].record(endEpochSecond - startEpochSecond);
+    }
+
+    /**
+     * Drops the counters of the check-outs before a date. The dwell times are kept.
+     * @param date the date, rounded down to a quarter of an hour
+     */
+    public void removeBefore(Instant date) {
+        long first = Math.floorDiv(date.getEpochSecond(), QUARTER_SECONDS);
+        this.quarters.keySet().removeIf(quarter -> quarter < first);
+        Quarter last = this.lastQuarter;
+        if (last != null && last.quarter < first) {
+            this.lastQuarter = null;
+        }
+    }
+
+    /**
+     * Sums the counters of the quarters of each period
+     */
+    @Override
+    void aggregate(long[] boundaries, long[] revenue, long[] counts) {
+        int periods = boundaries.length - 1;
+        for (int period = 0; period < periods; period++) {
+            long end = Math.floorDiv(boundaries[period + 1], QUARTER_SECONDS);
+            for (long number = Math.floorDiv(boundaries[period], QUARTER_SECONDS); number < end; number++) {
+                Quarter quarter = this.quarters.get(number);
+                if (quarter != null) {
+                    for (int type = 0; type < VEHICLE_TYPES.length; type++) {
+                        revenue[type * periods + period] += quarter.revenue[type].sum();
+                        counts[type * periods + period] += quarter.counts[type].sum();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the percentile of the dwell times read from the histogram of the vehicle type, within 3%
+     */
+    @Override
+    public long getDwellPercentile(VehicleType vehicleType, double percentile) {
+        return this.dwellTimes[vehicleType.ordinal()].snapshot().getValueAtPercentile(percentile);
+    }
+}
@@ -0,0 +1,167 @@
+package com.tollparking.analytics;
+
+import com.tollparking.enums.VehicleType;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+/**
+ * Revenue, check-out and dwell-time statistics of the closed tickets, per vehicle type. A ticket counts in the hour
+ * and the day of its check-out, when it is billed. The days and hours are those of a time zone, so a day can have 23
+ * or 25 hours when the clocks change.
+ */
+public abstract class TicketAnalytics {
+
+    /**
+     * The vehicle types, indexed by ordinal
+     */
+    static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+
+    /**
+     * Sums the amounts and counts the tickets checked out in each period
+     *
+     * @param boundaries the start of each period in epoch seconds, in ascending order, followed by the end of the last
+     * period; the boundaries are multiples of 15 minutes
+     * @param revenue filled with the amounts in cents, at index ordinal * periods + period
+     * @param counts filled with the numbers of tickets, at the same indexes
+     */
+    abstract void aggregate(long[] boundaries, long[] revenue, long[] counts);
+
+    /**
+     * Returns a percentile of the dwell times of a vehicle type
+     * @param vehicleType the vehicle type
+     * @param percentile the percentage, between 0 and 100
+     * @return the dwell time in seconds under which the percentage of the stays fall, or 0 if there is none
+     */
+    public abstract long getDwellPercentile(VehicleType vehicleType, double percentile);
+
+    /**
+     * Returns the revenue of each hour of a day
+     * @param day the day
+     * @param zone the time zone of the day
+     * @return the amounts in cents, indexed by vehicle type ordinal then by hour since the start of the day
+     */
+    public long[][] getHourlyRevenue(LocalDate day, ZoneId zone) {
+        long[] boundaries = hoursOf(day, zone);
+        long[] revenue = new long[VEHICLE_TYPES.length * (boundaries.length - 1)];
+        aggregate(boundaries, revenue, new long[revenue.length]);
+        return split(revenue, boundaries.length - 1);
+    }
+
+    /**
+     * Returns the revenue of each day of a period
+     * @param from the first day
+     * @param to the day after the last day
+     * @param zone the time zone of the days
+     * @return the amounts in cents, indexed by vehicle type ordinal then by day since the first day
+     * @throws IllegalArgumentException if the period has no day
+     */
+    public long[][] getDailyRevenue(LocalDate from, LocalDate to, ZoneId zone) {
+        long[] boundaries = daysOf(from, to, zone);
+        long[] revenue = new long[VEHICLE_TYPES.length * (boundaries.length - 1)];
+        aggregate(boundaries, revenue, new long[revenue.length]);
+        return split(revenue, boundaries.length - 1);
+    }
+
+    /**
+     * Returns the number of check-outs of each day of a period
+     * @param from the first day
+     * @param to the day after the last day
+     * @param zone the time zone of the days
+     * @return the numbers of tickets, indexed by vehicle type ordinal then by day since the first day
+     * @throws IllegalArgumentException if the period has no day
+     */
+    public long[][] getDailyCheckOuts(LocalDate from, LocalDate to, ZoneId zone) {
+        long[] boundaries = daysOf(from, to, zone);
+        long[] counts = new long[VEHICLE_TYPES.length * (boundaries.length - 1)];
+        aggregate(boundaries, new long[counts.length], counts);
+        return split(counts, boundaries.length - 1);
+    }
+
+    /**
+     * Returns the turnover of a vehicle type over a period: the average number of vehicles that used a slot each day
+     *
+     * @param vehicleType the vehicle type
+     * @param from the first day
+     * @param to the day after the last day
+     * @param zone the time zone of the days
+     * @param capacity the number of slots of the vehicle type
+     * @return the number of check-outs per slot and per day
+     * @throws IllegalArgumentException if the period has no day or the capacity is not positive
+     */
+    public double getTurnover(VehicleType vehicleType, LocalDate from, LocalDate to, ZoneId zone, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive");
+        }
+        long[] checkOuts = getDailyCheckOuts(from, to, zone)[vehicleType.ordinal()];
+        return (double) Arrays.stream(checkOuts).sum() / capacity / checkOuts.length;
+    }
+
+    /**
+     * Returns the boundaries of the hours of a day
+     * @param day the day
+     * @param zone the time zone of the day
+     * @return the start of each hour in epoch seconds followed by the start of the next day
+     */
+    static long[] hoursOf(LocalDate day, ZoneId zone) {
+        long start = day.atStartOfDay(zone).toEpochSecond();
+        long end = day.plusDays(1).atStartOfDay(zone).toEpochSecond();
+        int hours = (int) ((end - start + 3599) / 3600);
+        long[] boundaries = new long[hours + 1];
+        for (int hour = 0; hour < hours; hour++) {
+            boundaries[hour] = start + hour * 3600L;
+        }
+        boundaries[hours] = end;
+        return boundaries;
+    }
+
+    /**
+     * Returns the boundaries of the days of a period
+     * @param from the first day
+     * @param to the day after the last day
+     * @param zone the time zone of the days
+     * @return the start of each day in epoch seconds followed by the start of the day after the period
+     * @throws IllegalArgumentException if the period has no day
+     */
+    static long[] daysOf(LocalDate from, LocalDate to, ZoneId zone) {
+        long days = ChronoUnit.DAYS.between(from, to);
+        if (days <= 0) {
+            throw new IllegalArgumentException("The period must have at least one day");
+        }
+        long[] boundaries = new long[Math.toIntExact(days + 1)];
+        for (int day = 0; day <= days; day++) {
+            boundaries[day] = from.plusDays(day).atStartOfDay(zone).toEpochSecond();
+        }
+        return boundaries;
+    }
+
+    /**
+     * Finds the period of a date
+     * @param boundaries the boundaries of the periods
+     * @param epochSecond the date
+     * @return the index of the period, or -1 if the date is before the first period or after the last one
+     */
+    static int periodOf(long[] boundaries, long epochSecond) {
+        if (epochSecond < boundaries[0] || epochSecond >= boundaries[boundaries.length - 1]) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(boundaries, epochSecond);
+        return (index >= 0) ? index : -index - 2;
+    }
+
+    /**
+     * Splits a flat array indexed by ordinal * periods + period into an array per vehicle type
+     * @param values the flat array
+     * @param periods the number of periods
+     * @return the values indexed by vehicle type ordinal then by period
+     */
+    private static long[][] split(long[] values, int periods) {
+        long[][] split = new long[VEHICLE_TYPES.length][];
+        for (int type = 0; type < VEHICLE_TYPES.length; type++) {
+            split[type] = Arrays.copyOfRange(values, type * periods, (type + 1) * periods);
+        }
+        return split;
+    }
+}
@@ -0,0 +1,182 @@
+package com.tollparking.analytics;
+
+import com.tollparking.entity.Ticket;
+import com.tollparking.enums.VehicleType;
+import com.tollparking.journal.AuditLogReader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The history of the closed tickets, stored by column: the start and end dates in epoch seconds, the amount in cents
+ * and the vehicle type ordinal of ticket i are at index i of four primitive arrays. A query scans only the columns it
+ * needs, in chunks aggregated in parallel on the common fork-join pool, so a year of check-outs is aggregated in
+ * milliseconds.
+ *
+ * The history is filled, for example from an AuditLog, then queried: adding tickets while querying is not thread-safe.
+ * Several queries can run at the same time.
+ */
+public class TicketHistory extends TicketAnalytics {
+
+    /**
+     * The number of tickets aggregated by a task
+     */
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    /**
+     * The start dates in epoch seconds
+     */
+    private long[] startSeconds;
+
+    /**
+     * The end dates in epoch seconds
+     */
+    private long[] endSeconds;
+
+    /**
+     * The amounts in cents
+     */
+    private long[] amountsInCents;
+
+    /**
+     * The vehicle type ordinals
+     */
+    private byte[] vehicleTypes;
+
+    /**
+     * The number of tickets
+     */
+    private int size;
+
+    /**
+     * Creates an empty history
+     */
+    public TicketHistory() {
+        this(1024);
+    }
+
+    /**
+     * Creates an empty history
+     * @param expectedSize the number of tickets expected
+     */
+    public TicketHistory(int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        this.startSeconds = new long[capacity];
+        this.endSeconds = new long[capacity];
+        this.amountsInCents = new long[capacity];
+        this.vehicleTypes = new byte[capacity];
+    }
+
+    /**
+     * Reads the history of the tickets written in an audit log
+     * @param directory the directory of the audit log
+     * @return the history
+     * @throws IOException if the audit log cannot be read
+     */
+    public static TicketHistory fromAuditLog(Path directory) throws IOException {
+        TicketHistory history = new TicketHistory();
+        AuditLogReader.scan(directory, record -> {
+            history.add(record.getVehicleType(), Math.floorDiv(record.getStartEpochMicros(), 1_000_000L),
+                    Math.floorDiv(record.getEndEpochMicros(), 1_000_000L), record.getAmountInCents());
+            return true;
+        });
+        return history;
+    }
+
+    /**
+     * Adds a closed ticket
+     * @param ticket the billed ticket, with its end date and amount
+     */
+    public void add(Ticket ticket) {
+        add(ticket.getVehicleType(), ticket.getStartDate().getEpochSecond(), ticket.getEndDate().getEpochSecond(),
+                ticket.getAmountInCents());
+    }
+
+    /**
+     * Adds a closed ticket
+     * @param vehicleType the vehicle type
+     * @param startEpochSecond the start date in epoch seconds
+     * @param endEpochSecond the end date in epoch seconds
+     * @param amountInCents the billed amount in cents
+     */
+    public void add(VehicleType vehicleType, long startEpochSecond, long endEpochSecond, long amountInCents) {
+        if (this.size == this.startSeconds.length) {
+            int capacity = this.size * 2;
+            this.startSeconds = Arrays.copyOf(this.startSeconds, capacity);
+            this.endSeconds = Arrays.copyOf(this.endSeconds, capacity);
+            this.amountsInCents = Arrays.copyOf(this.amountsInCents, capacity);
+            this.vehicleTypes = Arrays.copyOf(this.vehicleTypes, capacity);
+        }
+        this.startSeconds[this.size] = startEpochSecond;
+        this.endSeconds[this.size] = endEpochSecond;
+        this.amountsInCents[this.size] = amountInCents;
+        this.vehicleTypes[this.size] = (byte) vehicleType.ordinal();
+        this.size++;
+    }
+
+    /**
+     * Returns the number of tickets
+     * @return the size of the history
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Aggregates the tickets by chunks in parallel, each chunk into its own arrays, then merges the arrays
+     */
+    @Override
+    void aggregate(long[] boundaries, long[] revenue, long[] counts) {
+        int periods = boundaries.length - 1;
+        int size = this.size;
+        long[] endSeconds = this.endSeconds;
+        long[] amountsInCents = this.amountsInCents;
+        byte[] vehicleTypes = this.vehicleTypes;
+        long[] totals = IntStream.range(0, (size + CHUNK_SIZE - 1) / CHUNK_SIZE).parallel()
+                .mapToObj(chunk -> {
+                    long[] partial = new long[2 * revenue.length];
+                    int end = Math.min(size, (chunk + 1) * CHUNK_SIZE);
+                    for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                        int period = periodOf(boundaries, endSeconds[i]);
+                        if (period >= 0) {
+                            int index = vehicleTypes[i] * periods + period;
+                            partial[index] += amountsInCents[i];
+                            partial[revenue.length + index]++;
+                        }
+                    }
+                    return partial;
+                })
+                .reduce((a, b) -> {
+                    for (int i = 0; i < a.length; i++) {
+                        a[i] += b[i];
+                    }
+                    return a;
+                })
+                .orElse(new long[2 * revenue.length]);
+        System.arraycopy(totals, 0, revenue, 0, revenue.length);
+        System.arraycopy(totals, revenue.length, counts, 0, counts.length);
+    }
+
+    /**
+     * Returns the exact percentile of the dwell times, sorting the dwell times of the vehicle type in parallel
+     */
+    @Override
+    public long getDwellPercentile(VehicleType vehicleType, double percentile) {
+        byte type = (byte) vehicleType.ordinal();
+        long[] startSeconds = this.startSeconds;
+        long[] endSeconds = this.endSeconds;
+        byte[] vehicleTypes = this.vehicleTypes;
+        long[] dwellTimes = IntStream.range(0, this.size).parallel()
+                .filter(i -> vehicleTypes[i] == type)
+                .mapToLong(i -> endSeconds[i] - startSeconds[i])
+                .toArray();
+        if (dwellTimes.length == 0) {
+            return 0;
+        }
+        Arrays.parallelSort(dwellTimes);
+        int rank = (int) Math.max(1, Math.ceil(percentile / 100 * dwellTimes.length));
+        return dwellTimes[Math.min(rank, dwellTimes.length) - 1];
+    }
+}
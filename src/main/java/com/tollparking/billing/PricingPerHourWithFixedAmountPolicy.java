@@ -3,6 +3,7 @@ package com.tollparking.billing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import com.tollparking.exception.InvalidAmountException;
@@ -12,6 +13,16 @@ public class PricingPerHourWithFixedAmountPolicy implements PricingPolicy {
 
     private static Logger LOG = LoggerFactory.getLogger(PricingPerHourWithFixedAmountPolicy.class);
 
+    /**
+     * The number of micro units (1/1_000_000 of the currency) in a cent
+     */
+    private static final long MICROS_PER_CENT = 10_000L;
+
+    /**
+     * Marks a precomputed amount that cannot be represented in micro units in a long
+     */
+    private static final long NOT_REPRESENTABLE = -1L;
+
     /**
      * the pricePerHour value of the policy
      */
@@ -22,6 +33,17 @@ public class PricingPerHourWithFixedAmountPolicy implements PricingPolicy {
      */
     private BigDecimal fixedAmount;
 
+    /**
+     * The price per minute (the price per hour divided by 60 and rounded HALF_UP to 6 decimals) in micro units,
+     * or NOT_REPRESENTABLE if it does not fit in a long
+     */
+    private final long pricePerMinuteMicros;
+
+    /**
+     * The fixed amount in micro units, or NOT_REPRESENTABLE if it has more than 6 decimals or does not fit in a long
+     */
+    private final long fixedAmountMicros;
+
     /**
      * Creates a pricing policy with the following parameters
      *
@@ -35,6 +57,8 @@ public class PricingPerHourWithFixedAmountPolicy implements PricingPolicy {
             throw new InvalidAmountException("The amounts cannot be negative");
         this.pricePerHour = pricePerHour;
         this.fixedAmount = fixedAmount;
+        this.pricePerMinuteMicros = toMicros(pricePerHour.divide(new BigDecimal("60"), 6, RoundingMode.HALF_UP));
+        this.fixedAmountMicros = toMicros(fixedAmount);
     }
 
     /**
@@ -49,18 +73,93 @@ public class PricingPerHourWithFixedAmountPolicy implements PricingPolicy {
      */
     @Override
     public BigDecimal calculatePrice(Instant startDate, Instant endDate) throws InvalidDateException {
+        long minutes = minutesBetween(startDate, endDate);
+        long cents = centsFor(minutes);
+        if (cents != NOT_REPRESENTABLE) {
+            return BigDecimal.valueOf(cents, 2);
+        }
+        return exactPrice(minutes);
+    }
+
+    /**
+     * Calculates the same price as {@link #calculatePrice(Instant, Instant)} in cents. The per minute rate is
+     * computed when the policy is created, so no BigDecimal is created unless the amounts are too large for a long.
+     *
+     * @param startDate the startDate of the period
+     * @param endDate the endDate of the period
+     * @return the amount of the bill in cents
+     * @throws InvalidDateException if either of the dates is null or if end date is after the start date
+     * @throws ArithmeticException if the amount in cents does not fit in a long
+     */
+    @Override
+    public long calculatePriceInCents(Instant startDate, Instant endDate) throws InvalidDateException {
+        long minutes = minutesBetween(startDate, endDate);
+        long cents = centsFor(minutes);
+        if (cents != NOT_REPRESENTABLE) {
+            return cents;
+        }
+        return exactPrice(minutes).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Validates the dates and returns the number of whole minutes between them
+     *
+     * @param startDate the startDate of the period
+     * @param endDate the endDate of the period
+     * @return the number of minutes in between the start date and end date
+     * @throws InvalidDateException if either of the dates is null or if end date is after the start date
+     */
+    private static long minutesBetween(Instant startDate, Instant endDate) throws InvalidDateException {
         if (startDate == null || endDate == null) {
             throw new InvalidDateException("The dates cannot be null");
         }
         if (startDate.isAfter(endDate)) {
             throw new InvalidDateException("The start date must be prior to the end date");
         }
-        long minutes = ChronoUnit.MINUTES.between(startDate, endDate);
-        BigDecimal pricePerMinute = this.pricePerHour.divide(new BigDecimal("60"), 6, java.math.RoundingMode.HALF_UP);
-        BigDecimal totalPrice = pricePerMinute.multiply(new BigDecimal(minutes));
-        BigDecimal result = totalPrice.add(fixedAmount).setScale(2, java.math.RoundingMode.HALF_UP);
-        return result;
+        return ChronoUnit.MINUTES.between(startDate, endDate);
+    }
+
+    /**
+     * Computes the price of a stay in cents with long arithmetic
+     *
+     * @param minutes the number of minutes of the stay
+     * @return the price in cents rounded HALF_UP, or NOT_REPRESENTABLE if the computation would overflow
+     */
+    private long centsFor(long minutes) {
+        if (this.pricePerMinuteMicros == NOT_REPRESENTABLE || this.fixedAmountMicros == NOT_REPRESENTABLE) {
+            return NOT_REPRESENTABLE;
+        }
+        long headroom = Long.MAX_VALUE - this.fixedAmountMicros - MICROS_PER_CENT / 2;
+        if (headroom < 0 || (this.pricePerMinuteMicros != 0 && minutes > headroom / this.pricePerMinuteMicros)) {
+            return NOT_REPRESENTABLE;
+        }
+        long totalMicros = this.pricePerMinuteMicros * minutes + this.fixedAmountMicros;
+        return (totalMicros + MICROS_PER_CENT / 2) / MICROS_PER_CENT;
     }
 
+    /**
+     * Computes the price of a stay with BigDecimal arithmetic, used when the amounts are too large for a long
+     *
+     * @param minutes the number of minutes of the stay
+     * @return the price with a 2 decimal precision
+     */
+    private BigDecimal exactPrice(long minutes) {
+        BigDecimal pricePerMinute = this.pricePerHour.divide(new BigDecimal("60"), 6, RoundingMode.HALF_UP);
+        BigDecimal totalPrice = pricePerMinute.multiply(new BigDecimal(minutes));
+        return totalPrice.add(fixedAmount).setScale(2, RoundingMode.HALF_UP);
+    }
 
+    /**
+     * Converts an amount in micro units
+     *
+     * @param amount a positive amount
+     * @return the amount in micro units, or NOT_REPRESENTABLE if it has more than 6 decimals or does not fit in a long
+     */
+    private static long toMicros(BigDecimal amount) {
+        try {
+            return amount.setScale(6).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            return NOT_REPRESENTABLE;
+        }
+    }
 }
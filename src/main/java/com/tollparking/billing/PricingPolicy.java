@@ -1,6 +1,9 @@
 package com.tollparking.billing;
 
+import com.tollparking.enums.VehicleType;
+
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.Instant;
 
 /**
@@ -15,4 +18,44 @@ public interface PricingPolicy {
      * @return a BigDecimal value with the amount to pay calculated between the start date and end date
      */
     BigDecimal calculatePrice(Instant startDate, Instant endDate);
+
+    /**
+     * The method calculates the price between two Instant dates in cents (the amount with 2 decimals, rounded
+     * HALF_UP, multiplied by 100). Policies can override it to price a stay without creating any BigDecimal.
+     *
+     * @param startDate the start date
+     * @param endDate the end date
+     * @return the amount to pay in cents
+     * @throws ArithmeticException if the amount in cents does not fit in a long
+     */
+    default long calculatePriceInCents(Instant startDate, Instant endDate) {
+        return calculatePrice(startDate, endDate).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * The method calculates the price between two Instant dates for a vehicle type. Policies with rates that depend
+     * on the vehicle type override it; by default the vehicle type is ignored.
+     *
+     * @param vehicleType the type of the vehicle
+     * @param startDate the start date
+     * @param endDate the end date
+     * @return a BigDecimal value with the amount to pay calculated between the start date and end date
+     */
+    default BigDecimal calculatePrice(VehicleType vehicleType, Instant startDate, Instant endDate) {
+        return calculatePrice(startDate, endDate);
+    }
+
+    /**
+     * The method calculates the price between two Instant dates for a vehicle type in cents. By default the vehicle
+     * type is ignored.
+     *
+     * @param vehicleType the type of the vehicle
+     * @param startDate the start date
+     * @param endDate the end date
+     * @return the amount to pay in cents
+     * @throws ArithmeticException if the amount in cents does not fit in a long
+     */
+    default long calculatePriceInCents(VehicleType vehicleType, Instant startDate, Instant endDate) {
+        return calculatePriceInCents(startDate, endDate);
+    }
 }
@@ -0,0 +1,658 @@
+package com.tollparking.billing;
+
+import com.tollparking.enums.VehicleType;
+import com.tollparking.exception.InvalidAmountException;
+import com.tollparking.exception.InvalidDateException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A pricing policy with tiers, time-of-day rates and daily caps, possibly different for each vehicle type:
+ * - a first period billed at a fixed price (for example 2.00 for the first hour, or 0 for a grace period)
+ * - then the time billed by increments (for example each started quarter of an hour)
+ * - at an hourly rate that depends on the day of the week and the time of the day (night, weekend, ...)
+ * - with an optional cap on what is billed for each 24 hours from the arrival
+ *
+ * The rules are compiled when the policy is built into a table of the week, minute by minute, collapsed into
+ * segments of constant rate with the cumulative price at the start of each segment. Pricing a stay of any length then
+ * takes a few binary searches in the segments and does not create any object, except the BigDecimal returned by
+ * calculatePrice.
+ *
+ * The time-of-day rates are applied in the time zone of the policy, with the offset in force at the arrival.
+ */
+public class TieredPricingPolicy implements PricingPolicy {
+
+    /**
+     * The number of minutes in a day
+     */
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    /**
+     * The number of minutes in a week
+     */
+    private static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+    /**
+     * The number of minutes between Monday 00:00 and Thursday 1970-01-01T00:00, the origin of the epoch minutes
+     */
+    private static final int EPOCH_MINUTE_OF_WEEK = 3 * MINUTES_PER_DAY;
+
+    /**
+     * The number of micro units (1/1_000_000 of the currency) in a cent
+     */
+    private static final long MICROS_PER_CENT = 10_000L;
+
+    /**
+     * The daily cap of a rate table without cap
+     */
+    private static final long NO_CAP = Long.MAX_VALUE;
+
+    /**
+     * The vehicle types, indexed by ordinal
+     */
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+
+    /**
+     * The rate tables of the vehicle types, indexed by ordinal
+     */
+    private final RateTable[] rateTables;
+
+    /**
+     * The rate table used when the vehicle type is not known
+     */
+    private final RateTable defaultRateTable;
+
+    /**
+     * The rules of the time zone of the time-of-day rates
+     */
+    private final ZoneRules zoneRules;
+
+    /**
+     * The offset of the time zone in seconds if it never changes
+     */
+    private final Integer fixedOffsetSeconds;
+
+    /**
+     * Creates a policy from compiled rate tables
+     * @param rateTables the rate tables of the vehicle types
+     * @param defaultRateTable the rate table used when the vehicle type is not known
+     * @param zone the time zone of the time-of-day rates
+     */
+    private TieredPricingPolicy(RateTable[] rateTables, RateTable defaultRateTable, ZoneId zone) {
+        this.rateTables = rateTables;
+        this.defaultRateTable = defaultRateTable;
+        this.zoneRules = zone.getRules();
+        this.fixedOffsetSeconds = this.zoneRules.isFixedOffset()
+                ? this.zoneRules.getOffset(Instant.EPOCH).getTotalSeconds() : null;
+    }
+
+    /**
+     * Creates a builder of a policy where everything is free until rates are set
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Calculates the price of a stay with the rates set for all the vehicle types
+     *
+     * @param startDate the startDate of the period
+     * @param endDate the endDate of the period
+     * @return the amount of the bill with a 2 decimal precision
+     * @throws InvalidDateException if either of the dates is null or if end date is after the start date
+     */
+    @Override
+    public BigDecimal calculatePrice(Instant startDate, Instant endDate) {
+        return BigDecimal.valueOf(priceInCents(this.defaultRateTable, startDate, endDate), 2);
+    }
+
+    /**
+     * Calculates the price of a stay in cents with the rates set for all the vehicle types
+     *
+     * @param startDate the startDate of the period
+     * @param endDate the endDate of the period
+     * @return the amount of the bill in cents
+     * @throws InvalidDateException if either of the dates is null or if end date is after the start date
+     * @throws ArithmeticException if the amount does not fit in a long
+     */
+    @Override
+    public long calculatePriceInCents(Instant startDate, Instant endDate) {
+        return priceInCents(this.defaultRateTable, startDate, endDate);
+    }
+
+    /**
+     * Calculates the price of a stay with the rates of a vehicle type
+     *
+     * @param vehicleType the type of the vehicle
+     * @param startDate the startDate of the period
+     * @param endDate the endDate of the period
+     * @return the amount of the bill with a 2 decimal precision
+     * @throws InvalidDateException if either of the dates is null or if end date is after the start date
+     */
+    @Override
+    public BigDecimal calculatePrice(VehicleType vehicleType, Instant startDate, Instant endDate) {
+        return BigDecimal.valueOf(priceInCents(rateTableOf(vehicleType), startDate, endDate), 2);
+    }
+
+    /**
+     * Calculates the price of a stay in cents with the rates of a vehicle type
+     *
+     * @param vehicleType the type of the vehicle
+     * @param startDate the startDate of the period
+     * @param endDate the endDate of the period
+     * @return the amount of the bill in cents
+     * @throws InvalidDateException if either of the dates is null or if end date is after the start date
+     * @throws ArithmeticException if the amount does not fit in a long
+     */
+    @Override
+    public long calculatePriceInCents(VehicleType vehicleType, Instant startDate, Instant endDate) {
+        return priceInCents(rateTableOf(vehicleType), startDate, endDate);
+    }
+
+    /**
+     * Returns the rate table of a vehicle type
+     * @param vehicleType the vehicle type, or null if it is not known
+     * @return the rate table
+     */
+    private RateTable rateTableOf(VehicleType vehicleType) {
+        return (vehicleType == null) ? this.defaultRateTable : this.rateTables[vehicleType.ordinal()];
+    }
+
+    /**
+     * Validates the dates and prices a stay in cents, rounded HALF_UP
+     *
+     * @param rateTable the rates to apply
+     * @param startDate the startDate of the period
+     * @param endDate the endDate of the period
+     * @return the amount of the bill in cents
+     * @throws InvalidDateException if either of the dates is null or if end date is after the start date
+     */
+    private long priceInCents(RateTable rateTable, Instant startDate, Instant endDate) {
+        if (startDate == null || endDate == null) {
+            throw new InvalidDateException("The dates cannot be null");
+        }
+        if (startDate.isAfter(endDate)) {
+            throw new InvalidDateException("The start date must be prior to the end date");
+        }
+        long seconds = endDate.getEpochSecond() - startDate.getEpochSecond();
+        if (endDate.getNano() < startDate.getNano()) {
+            seconds--;
+        }
+        int offsetSeconds = (this.fixedOffsetSeconds != null)
+                ? this.fixedOffsetSeconds : this.zoneRules.getOffset(startDate).getTotalSeconds();
+        long localStartMinute = Math.floorDiv(startDate.getEpochSecond() + offsetSeconds, 60L);
+        long micros = rateTable.priceInMicros(localStartMinute, seconds / 60);
+        return Math.addExact(micros, MICROS_PER_CENT / 2) / MICROS_PER_CENT;
+    }
+
+    /**
+     * The compiled rules of a vehicle type. The rates of the week are segments of constant rate per minute, starting
+     * on Monday 00:00; the price of any period is the difference of the cumulative prices at its ends.
+     */
+    private static final class RateTable {
+
+        /**
+         * The minute of the week where each segment starts, in increasing order from 0
+         */
+        private final int[] segmentStarts;
+
+        /**
+         * The rate of each segment in micro units per minute
+         */
+        private final long[] rates;
+
+        /**
+         * The price of the week from Monday 00:00 to the start of each segment in micro units
+         */
+        private final long[] cumulativePrices;
+
+        /**
+         * The price of a whole week in micro units
+         */
+        private final long weekPrice;
+
+        /**
+         * The length of the first period in minutes
+         */
+        private final long firstPeriodMinutes;
+
+        /**
+         * The price of the first period in micro units
+         */
+        private final long firstPeriodPrice;
+
+        /**
+         * The number of minutes by which the time after the first period is billed
+         */
+        private final long incrementMinutes;
+
+        /**
+         * The maximum price of each 24 hours from the arrival in micro units, or NO_CAP
+         */
+        private final long dailyCap;
+
+        /**
+         * Compiles the rates of a vehicle type
+         * @param rules the rules of the vehicle type
+         */
+        RateTable(Rules rules) {
+            long[] minuteRates = new long[MINUTES_PER_WEEK];
+            Arrays.fill(minuteRates, rules.hourlyRate);
+            for (Window window : rules.windows) {
+                for (DayOfWeek day : window.days) {
+                    int from = (day.getValue() - 1) * MINUTES_PER_DAY + window.fromMinute;
+                    int length = Math.floorMod(window.toMinute - window.fromMinute - 1, MINUTES_PER_DAY) + 1;
+                    for (int minute = from; minute < from + length; minute++) {
+                        minuteRates[minute % MINUTES_PER_WEEK] = window.rate;
+                    }
+                }
+            }
+
+            int segments = 1;
+            for (int minute = 1; minute < MINUTES_PER_WEEK; minute++) {
+                if (minuteRates[minute] != minuteRates[minute - 1]) {
+                    segments++;
+                }
+            }
+            this.segmentStarts = new int[segments];
+            this.rates = new long[segments];
+            this.cumulativePrices = new long[segments];
+            this.rates[0] = minuteRates[0];
+            int segment = 0;
+            long price = 0;
+            for (int minute = 1; minute < MINUTES_PER_WEEK; minute++) {
+                price = Math.addExact(price, minuteRates[minute - 1]);
+                if (minuteRates[minute] != minuteRates[minute - 1]) {
+                    segment++;
+                    this.segmentStarts[segment] = minute;
+                    this.rates[segment] = minuteRates[minute];
+                    this.cumulativePrices[segment] = price;
+                }
+            }
+            this.weekPrice = Math.addExact(price, minuteRates[MINUTES_PER_WEEK - 1]);
+            this.firstPeriodMinutes = rules.firstPeriodMinutes;
+            this.firstPeriodPrice = rules.firstPeriodPrice;
+            this.incrementMinutes = rules.incrementMinutes;
+            this.dailyCap = rules.dailyCap;
+        }
+
+        /**
+         * Prices a stay
+         * @param start the local minute of the arrival since 1970-01-01T00:00
+         * @param minutes the number of whole minutes of the stay
+         * @return the price in micro units
+         */
+        long priceInMicros(long start, long minutes) {
+            long billed = this.firstPeriodMinutes;
+            if (minutes > this.firstPeriodMinutes) {
+                long increments = (minutes - this.firstPeriodMinutes + this.incrementMinutes - 1) / this.incrementMinutes;
+                billed = Math.addExact(this.firstPeriodMinutes, Math.multiplyExact(increments, this.incrementMinutes));
+            }
+            if (this.dailyCap == NO_CAP) {
+                return priceBetween(start, 0, billed);
+            }
+
+            // each day of the stay is capped; the days after the first repeat every week
+            long total = cappedPriceBetween(start, 0, Math.min(billed, MINUTES_PER_DAY));
+            if (billed <= MINUTES_PER_DAY) {
+                return total;
+            }
+            long fullDays = (billed - MINUTES_PER_DAY) / MINUTES_PER_DAY;
+            long day = 1;
+            if (fullDays >= 7) {
+                long week = 0;
+                for (long d = 1; d <= 7; d++) {
+                    week = Math.addExact(week, cappedPriceBetween(start, d * MINUTES_PER_DAY, (d + 1) * MINUTES_PER_DAY));
+                }
+                total = Math.addExact(total, Math.multiplyExact(fullDays / 7, week));
+                day += fullDays / 7 * 7;
+            }
+            for (; day <= fullDays; day++) {
+                total = Math.addExact(total, cappedPriceBetween(start, day * MINUTES_PER_DAY, (day + 1) * MINUTES_PER_DAY));
+            }
+            if (day * MINUTES_PER_DAY < billed) {
+                total = Math.addExact(total, cappedPriceBetween(start, day * MINUTES_PER_DAY, billed));
+            }
+            return total;
+        }
+
+        /**
+         * Prices a part of a stay, capped at the daily cap
+         * @param start the local minute of the arrival
+         * @param from the first minute of the part, counted from the arrival
+         * @param to the minute after the part, counted from the arrival
+         * @return the price in micro units
+         */
+        private long cappedPriceBetween(long start, long from, long to) {
+            return Math.min(this.dailyCap, priceBetween(start, from, to));
+        }
+
+        /**
+         * Prices a part of a stay: the first period at its fixed price, the rest at the rates of the week
+         * @param start the local minute of the arrival
+         * @param from the first minute of the part, counted from the arrival
+         * @param to the minute after the part, counted from the arrival
+         * @return the price in micro units
+         */
+        private long priceBetween(long start, long from, long to) {
+            long price = 0;
+            if (from == 0) {
+                price = this.firstPeriodPrice;
+            }
+            from = Math.max(from, this.firstPeriodMinutes);
+            if (to > from) {
+                price = Math.addExact(price, cumulativePrice(start + to) - cumulativePrice(start + from));
+            }
+            return price;
+        }
+
+        /**
+         * Returns the price of the rates of the week from 1969-12-29T00:00 (a Monday) to a local minute
+         * @param minute the local minute since 1970-01-01T00:00
+         * @return the price in micro units
+         */
+        private long cumulativePrice(long minute) {
+            long shifted = minute + EPOCH_MINUTE_OF_WEEK;
+            long weeks = Math.floorDiv(shifted, MINUTES_PER_WEEK);
+            int minuteOfWeek = Math.floorMod(shifted, MINUTES_PER_WEEK);
+            int segment = Arrays.binarySearch(this.segmentStarts, minuteOfWeek);
+            if (segment < 0) {
+                segment = -segment - 2;
+            }
+            long inWeek = this.cumulativePrices[segment]
+                    + (minuteOfWeek - this.segmentStarts[segment]) * this.rates[segment];
+            return Math.addExact(Math.multiplyExact(weeks, this.weekPrice), inWeek);
+        }
+    }
+
+    /**
+     * A time-of-day rate
+     */
+    private static final class Window {
+
+        /**
+         * The days when the window starts
+         */
+        private final Set<DayOfWeek> days;
+
+        /**
+         * The minute of the day when the window starts
+         */
+        private final int fromMinute;
+
+        /**
+         * The minute of the day when the window ends, on the next day if it is not after fromMinute
+         */
+        private final int toMinute;
+
+        /**
+         * The rate in micro units per minute
+         */
+        private final long rate;
+
+        /**
+         * Creates a time-of-day rate
+         * @param days the days when the window starts
+         * @param fromMinute the minute of the day when the window starts
+         * @param toMinute the minute of the day when the window ends
+         * @param rate the rate in micro units per minute
+         */
+        Window(Set<DayOfWeek> days, int fromMinute, int toMinute, long rate) {
+            this.days = days;
+            this.fromMinute = fromMinute;
+            this.toMinute = toMinute;
+            this.rate = rate;
+        }
+    }
+
+    /**
+     * The rules of a vehicle type, as set on the builder
+     */
+    private static final class Rules {
+
+        /**
+         * The length of the first period in minutes
+         */
+        private long firstPeriodMinutes;
+
+        /**
+         * The price of the first period in micro units
+         */
+        private long firstPeriodPrice;
+
+        /**
+         * The number of minutes by which the time after the first period is billed
+         */
+        private long incrementMinutes = 1;
+
+        /**
+         * The rate outside the time-of-day windows in micro units per minute
+         */
+        private long hourlyRate;
+
+        /**
+         * The time-of-day rates, a window overriding the windows before it
+         */
+        private final List<Window> windows = new ArrayList<>();
+
+        /**
+         * The maximum price of each 24 hours from the arrival in micro units, or NO_CAP
+         */
+        private long dailyCap = NO_CAP;
+    }
+
+    /**
+     * Builds a TieredPricingPolicy. The rules apply to all the vehicle types, until forVehicleTypes selects the
+     * vehicle types the next rules apply to:
+     * <pre>
+     * TieredPricingPolicy.builder()
+     *         .firstPeriod(Duration.ofHours(1), new BigDecimal("2.00"))
+     *         .increment(Duration.ofMinutes(15))
+     *         .hourlyRate(new BigDecimal("2.40"))
+     *         .hourlyRate(EnumSet.allOf(DayOfWeek.class), LocalTime.of(20, 0), LocalTime.of(7, 0), new BigDecimal("1.00"))
+     *         .dailyCap(new BigDecimal("20.00"))
+     *         .forVehicleTypes(VehicleType.ELECTRIC_50KW)
+     *         .hourlyRate(new BigDecimal("3.60"))
+     *         .build();
+     * </pre>
+     */
+    public static final class Builder {
+
+        /**
+         * The rules of each vehicle type, indexed by ordinal, then the rules used when the vehicle type is not known
+         */
+        private final Rules[] rules = new Rules[VEHICLE_TYPES.length + 1];
+
+        /**
+         * The indexes in rules of the rules the next calls apply to
+         */
+        private int[] selected;
+
+        /**
+         * The time zone of the time-of-day rates
+         */
+        private ZoneId zone = ZoneOffset.UTC;
+
+        /**
+         * Creates a builder of a policy where everything is free
+         */
+        private Builder() {
+            for (int i = 0; i < this.rules.length; i++) {
+                this.rules[i] = new Rules();
+            }
+            forAllVehicleTypes();
+        }
+
+        /**
+         * Applies the next rules to some vehicle types only
+         * @param vehicleTypes the vehicle types
+         * @return this builder
+         */
+        public Builder forVehicleTypes(VehicleType... vehicleTypes) {
+            this.selected = Arrays.stream(vehicleTypes).mapToInt(VehicleType::ordinal).distinct().toArray();
+            return this;
+        }
+
+        /**
+         * Applies the next rules to all the vehicle types, as before any call to forVehicleTypes
+         * @return this builder
+         */
+        public Builder forAllVehicleTypes() {
+            this.selected = new int[this.rules.length];
+            Arrays.setAll(this.selected, i -> i);
+            return this;
+        }
+
+        /**
+         * Sets the time zone of the time-of-day rates, UTC by default. It applies to all the vehicle types.
+         * @param zone the time zone
+         * @return this builder
+         */
+        public Builder zone(ZoneId zone) {
+            this.zone = Objects.requireNonNull(zone);
+            return this;
+        }
+
+        /**
+         * Bills the beginning of each stay at a fixed price. No first period is set by default.
+         * @param length the length of the first period, at most a day
+         * @param price the price of the first period, billed even for a shorter stay
+         * @return this builder
+         * @throws IllegalArgumentException if the length is negative or longer than a day
+         * @throws InvalidAmountException if the price is negative
+         */
+        public Builder firstPeriod(Duration length, BigDecimal price) {
+            long minutes = length.toMinutes();
+            if (length.isNegative() || minutes > MINUTES_PER_DAY) {
+                throw new IllegalArgumentException("The first period must last between 0 and 24 hours");
+            }
+            long micros = toMicros(price);
+            for (int i : this.selected) {
+                this.rules[i].firstPeriodMinutes = minutes;
+                this.rules[i].firstPeriodPrice = micros;
+            }
+            return this;
+        }
+
+        /**
+         * Bills the time after the first period by increments: each started increment is billed whole. The time is
+         * billed by the minute by default.
+         * @param increment the increment, a whole number of minutes
+         * @return this builder
+         * @throws IllegalArgumentException if the increment is shorter than a minute
+         */
+        public Builder increment(Duration increment) {
+            long minutes = increment.toMinutes();
+            if (minutes < 1) {
+                throw new IllegalArgumentException("The increment must be at least a minute");
+            }
+            for (int i : this.selected) {
+                this.rules[i].incrementMinutes = minutes;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the hourly rate outside the time-of-day windows, 0 by default
+         * @param pricePerHour the price of an hour
+         * @return this builder
+         * @throws InvalidAmountException if the price is negative
+         */
+        public Builder hourlyRate(BigDecimal pricePerHour) {
+            long rate = toMicros(perMinute(pricePerHour));
+            for (int i : this.selected) {
+                this.rules[i].hourlyRate = rate;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the hourly rate of a time-of-day window, for example the nights or the weekends. A window overrides
+         * the windows set before it where they overlap.
+         *
+         * @param days the days when the window starts
+         * @param from the time when the window starts, truncated to the minute
+         * @param to the time when the window ends, truncated to the minute; on the next day if it is not after from,
+         * so from 00:00 to 00:00 covers the whole day
+         * @param pricePerHour the price of an hour in the window
+         * @return this builder
+         * @throws InvalidAmountException if the price is negative
+         */
+        public Builder hourlyRate(Set<DayOfWeek> days, LocalTime from, LocalTime to, BigDecimal pricePerHour) {
+            long rate = toMicros(perMinute(pricePerHour));
+            Window window = new Window(days.isEmpty() ? EnumSet.noneOf(DayOfWeek.class) : EnumSet.copyOf(days),
+                    from.getHour() * 60 + from.getMinute(), to.getHour() * 60 + to.getMinute(), rate);
+            for (int i : this.selected) {
+                this.rules[i].windows.add(window);
+            }
+            return this;
+        }
+
+        /**
+         * Caps what is billed for each 24 hours from the arrival, first period included. There is no cap by default.
+         * @param cap the maximum price of 24 hours
+         * @return this builder
+         * @throws InvalidAmountException if the cap is negative
+         */
+        public Builder dailyCap(BigDecimal cap) {
+            long micros = toMicros(cap);
+            for (int i : this.selected) {
+                this.rules[i].dailyCap = micros;
+            }
+            return this;
+        }
+
+        /**
+         * Compiles the rules into a policy
+         * @return the policy
+         */
+        public TieredPricingPolicy build() {
+            RateTable[] rateTables = new RateTable[VEHICLE_TYPES.length];
+            for (int i = 0; i < rateTables.length; i++) {
+                rateTables[i] = new RateTable(this.rules[i]);
+            }
+            return new TieredPricingPolicy(rateTables, new RateTable(this.rules[VEHICLE_TYPES.length]), this.zone);
+        }
+
+        /**
+         * Divides an hourly price by 60, rounded HALF_UP to 6 decimals like the other policies
+         * @param pricePerHour the price of an hour
+         * @return the price of a minute
+         */
+        private static BigDecimal perMinute(BigDecimal pricePerHour) {
+            return pricePerHour.divide(new BigDecimal("60"), 6, RoundingMode.HALF_UP);
+        }
+
+        /**
+         * Converts an amount in micro units
+         * @param amount the amount
+         * @return the amount in micro units, rounded HALF_UP
+         * @throws InvalidAmountException if the amount is negative or too large
+         */
+        private static long toMicros(BigDecimal amount) {
+            if (amount.signum() < 0) {
+                throw new InvalidAmountException("The amounts cannot be negative");
+            }
+            try {
+                return amount.setScale(6, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+            } catch (ArithmeticException e) {
+                throw new InvalidAmountException("The amount " + amount + " is too large");
+            }
+        }
+    }
+}
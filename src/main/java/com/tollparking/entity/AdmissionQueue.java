@@ -0,0 +1,120 @@
+package com.tollparking.entity;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The vehicles of a type waiting for a slot, in order of arrival. The number of waiting vehicles is bounded, and a
+ * waiting vehicle leaves the queue either admitted in a freed slot or given up after its timeout, whichever comes
+ * first. The queue is locked only by the vehicles joining or leaving it: the gates read its size without a lock.
+ */
+final class AdmissionQueue {
+
+    /**
+     * A vehicle waiting for a slot
+     */
+    static final class Waiter {
+
+        /**
+         * The future completed when the vehicle is admitted or gives up
+         */
+        final CompletableFuture<ParkingResult> future = new CompletableFuture<>();
+
+        /**
+         * Set by whoever takes the waiter out of the queue first: the gate admitting it, or its timeout
+         */
+        private final AtomicBoolean taken = new AtomicBoolean();
+
+        /**
+         * Takes the waiter, so that it is either admitted or given up but never both
+         * @return true if the waiter was still waiting
+         */
+        boolean take() {
+            return this.taken.compareAndSet(false, true);
+        }
+    }
+
+    /**
+     * The waiting vehicles, the first arrived first
+     */
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+
+    /**
+     * The number of waiting vehicles, readable without the lock
+     */
+    private volatile int size;
+
+    /**
+     * The maximum number of waiting vehicles
+     */
+    private volatile int maxWaiters;
+
+    /**
+     * Creates an empty queue
+     * @param maxWaiters the maximum number of waiting vehicles
+     */
+    AdmissionQueue(int maxWaiters) {
+        this.maxWaiters = maxWaiters;
+    }
+
+    /**
+     * Indicates if vehicles are waiting, in which case a slot is given to them before a vehicle arriving now
+     * @return true if the queue is not empty
+     */
+    boolean hasWaiters() {
+        return this.size > 0;
+    }
+
+    /**
+     * Returns the number of waiting vehicles
+     * @return the size of the queue
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Sets the maximum number of waiting vehicles. The vehicles already waiting beyond a lower maximum keep waiting.
+     * @param maxWaiters the maximum number of waiting vehicles
+     */
+    void setMaxWaiters(int maxWaiters) {
+        this.maxWaiters = maxWaiters;
+    }
+
+    /**
+     * Adds a vehicle at the end of the queue
+     * @return the waiter, or null if the queue is full
+     */
+    synchronized Waiter offer() {
+        if (this.waiters.size() >= this.maxWaiters) {
+            return null;
+        }
+        Waiter waiter = new Waiter();
+        this.waiters.addLast(waiter);
+        this.size = this.waiters.size();
+        return waiter;
+    }
+
+    /**
+     * Takes the first vehicle still waiting out of the queue
+     * @return the waiter, already taken, or null if no vehicle is waiting
+     */
+    synchronized Waiter poll() {
+        Waiter waiter;
+        do {
+            waiter = this.waiters.pollFirst();
+        } while (waiter != null && !waiter.take());
+        this.size = this.waiters.size();
+        return waiter;
+    }
+
+    /**
+     * Removes a vehicle giving up, already taken
+     * @param waiter the waiter
+     */
+    synchronized void remove(Waiter waiter) {
+        this.waiters.remove(waiter);
+        this.size = this.waiters.size();
+    }
+}
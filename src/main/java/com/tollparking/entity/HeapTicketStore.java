@@ -0,0 +1,152 @@
+package com.tollparking.entity;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * The default TicketStore of a Parking, keeping the tickets on the heap.
+ *
+ * Tickets with a numeric id are kept in LongTicketIndex stripes: the id selects a stripe and only that stripe is
+ * locked, so gates working on different tickets rarely wait for each other. Tickets with a string id are kept in a
+ * ConcurrentHashMap.
+ */
+public class HeapTicketStore implements TicketStore {
+
+    /**
+     * The stripes of the numeric ids
+     */
+    private final LongTicketIndex[] stripes;
+
+    /**
+     * The number of bits selecting a stripe
+     */
+    private final int stripeBits;
+
+    /**
+     * The tickets with a string id
+     */
+    private final Map<String, Ticket> stringTickets = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a store sized for the expected number of tickets, so that it does not have to grow while gates wait
+     * @param expectedSize the expected number of open tickets, usually the capacity of the parking
+     */
+    public HeapTicketStore(int expectedSize) {
+        int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 8 - 1) << 1;
+        this.stripeBits = Integer.numberOfTrailingZeros(stripeCount);
+        this.stripes = new LongTicketIndex[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new LongTicketIndex(expectedSize / stripeCount + 1);
+        }
+    }
+
+    @Override
+    public boolean add(Ticket ticket) {
+        if (!ticket.hasNumericId()) {
+            return this.stringTickets.putIfAbsent(ticket.getId(), ticket) == null;
+        }
+        LongTicketIndex stripe = stripeFor(ticket.getNumericId());
+        synchronized (stripe) {
+            return stripe.putIfAbsent(ticket.getNumericId(), ticket);
+        }
+    }
+
+    @Override
+    public Ticket remove(Ticket ticket) {
+        if (!ticket.hasNumericId()) {
+            return this.stringTickets.remove(ticket.getId());
+        }
+        return remove(ticket.getNumericId());
+    }
+
+    @Override
+    public Ticket remove(long ticketId) {
+        LongTicketIndex stripe = stripeFor(ticketId);
+        synchronized (stripe) {
+            return stripe.remove(ticketId);
+        }
+    }
+
+    @Override
+    public Ticket remove(String ticketId) {
+        Ticket ticket = this.stringTickets.remove(ticketId);
+        if (ticket == null && isNumericId(ticketId)) {
+            ticket = remove(Long.parseLong(ticketId));
+        }
+        return ticket;
+    }
+
+    @Override
+    public Ticket get(long ticketId) {
+        LongTicketIndex stripe = stripeFor(ticketId);
+        synchronized (stripe) {
+            return stripe.get(ticketId);
+        }
+    }
+
+    @Override
+    public Ticket get(String ticketId) {
+        Ticket ticket = this.stringTickets.get(ticketId);
+        if (ticket == null && isNumericId(ticketId)) {
+            ticket = get(Long.parseLong(ticketId));
+        }
+        return ticket;
+    }
+
+    @Override
+    public int size() {
+        int size = this.stringTickets.size();
+        for (LongTicketIndex stripe : this.stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Calls an action for each stored ticket. Each stripe is locked while its tickets are given to the action, so the
+     * action must be short.
+     * @param action the action to call
+     */
+    @Override
+    public void forEach(Consumer<? super Ticket> action) {
+        this.stringTickets.values().forEach(action);
+        for (LongTicketIndex stripe : this.stripes) {
+            synchronized (stripe) {
+                stripe.forEach(action);
+            }
+        }
+    }
+
+    /**
+     * Returns the stripe of a numeric id
+     * @param ticketId the numeric id
+     * @return the stripe holding the id
+     */
+    private LongTicketIndex stripeFor(long ticketId) {
+        return this.stripes[(int) (LongTicketIndex.mix(ticketId) >>> (64 - this.stripeBits))];
+    }
+
+    /**
+     * Indicates if a string is the decimal representation of a long, without throwing an exception if it is not
+     * @param ticketId the string
+     * @return true if the string can be parsed with Long.parseLong
+     */
+    static boolean isNumericId(String ticketId) {
+        int length = ticketId.length();
+        int start = (length > 1 && ticketId.charAt(0) == '-') ? 1 : 0;
+        if (length == start || length - start > 19) {
+            return false;
+        }
+        for (int i = start; i < length; i++) {
+            char c = ticketId.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        // 19 digits can still overflow a long
+        return length - start < 19 || ticketId.compareTo(start == 0 ? "9223372036854775807" : "-9223372036854775808") <= 0;
+    }
+}
@@ -0,0 +1,217 @@
+package com.tollparking.entity;
+
+import java.util.function.Consumer;
+
+/**
+ * A map from numeric ticket ids to tickets using open addressing with linear probing.
+ *
+ * The ids are kept in a long[] and the tickets in a parallel array, so there is no boxing and no node object per
+ * entry. Deleted entries are removed by shifting back the following entries of the probe sequence, so lookups never
+ * scan tombstones. This class is not thread-safe.
+ */
+public class LongTicketIndex {
+
+    /**
+     * The maximum fill ratio before the table is doubled
+     */
+    private static final float LOAD_FACTOR = 0.6f;
+
+    /**
+     * The ids of the entries
+     */
+    private long[] keys;
+
+    /**
+     * The tickets of the entries; null marks a free position
+     */
+    private Ticket[] values;
+
+    /**
+     * The number of entries
+     */
+    private int size;
+
+    /**
+     * The number of entries above which the table is doubled
+     */
+    private int resizeThreshold;
+
+    /**
+     * Creates an index able to hold the expected number of tickets without resizing
+     * @param expectedSize the expected number of tickets
+     */
+    public LongTicketIndex(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Finds a ticket
+     * @param id the numeric id of the ticket
+     * @return the ticket, or null if it is not in the index
+     */
+    public Ticket get(long id) {
+        int mask = this.keys.length - 1;
+        for (int i = indexFor(id, mask); this.values[i] != null; i = (i + 1) & mask) {
+            if (this.keys[i] == id) {
+                return this.values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds a ticket if no ticket with the same id is in the index
+     * @param id the numeric id of the ticket
+     * @param ticket the ticket
+     * @return true if the ticket was added; false if the id is already in the index
+     */
+    public boolean putIfAbsent(long id, Ticket ticket) {
+        int mask = this.keys.length - 1;
+        int i = indexFor(id, mask);
+        for (; this.values[i] != null; i = (i + 1) & mask) {
+            if (this.keys[i] == id) {
+                return false;
+            }
+        }
+        this.keys[i] = id;
+        this.values[i] = ticket;
+        if (++this.size > this.resizeThreshold) {
+            resize(this.keys.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * Removes a ticket
+     * @param id the numeric id of the ticket
+     * @return the removed ticket, or null if it is not in the index
+     */
+    public Ticket remove(long id) {
+        int mask = this.keys.length - 1;
+        for (int i = indexFor(id, mask); this.values[i] != null; i = (i + 1) & mask) {
+            if (this.keys[i] == id) {
+                Ticket removed = this.values[i];
+                shiftBack(i, mask);
+                this.size--;
+                return removed;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of tickets in the index
+     * @return the number of tickets
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Calls an action for each ticket of the index
+     * @param action the action to call
+     */
+    public void forEach(Consumer<? super Ticket> action) {
+        for (Ticket ticket : this.values) {
+            if (ticket != null) {
+                action.accept(ticket);
+            }
+        }
+    }
+
+    /**
+     * Frees a position and moves back the following entries that would no longer be reachable from their home position
+     * @param free the position to free
+     * @param mask the mask of the table size
+     */
+    private void shiftBack(int free, int mask) {
+        int i = free;
+        while (true) {
+            i = (i + 1) & mask;
+            if (this.values[i] == null) {
+                break;
+            }
+            int home = indexFor(this.keys[i], mask);
+            // the entry at i can move to the free position if its home is not in the cyclic range (free, i]
+            if (((i - home) & mask) >= ((i - free) & mask)) {
+                this.keys[free] = this.keys[i];
+                this.values[free] = this.values[i];
+                free = i;
+            }
+        }
+        this.keys[free] = 0;
+        this.values[free] = null;
+    }
+
+    /**
+     * Moves all the entries to a table of the given size
+     * @param tableSize the new table size, a power of 2
+     */
+    private void resize(int tableSize) {
+        long[] oldKeys = this.keys;
+        Ticket[] oldValues = this.values;
+        allocate(tableSize);
+        int mask = tableSize - 1;
+        for (int j = 0; j < oldValues.length; j++) {
+            if (oldValues[j] != null) {
+                int i = indexFor(oldKeys[j], mask);
+                while (this.values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                this.keys[i] = oldKeys[j];
+                this.values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /**
+     * Allocates empty tables
+     * @param tableSize the table size, a power of 2
+     */
+    private void allocate(int tableSize) {
+        this.keys = new long[tableSize];
+        this.values = new Ticket[tableSize];
+        this.resizeThreshold = (int) (tableSize * LOAD_FACTOR);
+    }
+
+    /**
+     * Returns the smallest power of 2 table holding the expected number of entries under the load factor
+     * @param expectedSize the expected number of entries
+     * @return the table size
+     */
+    private static int tableSizeFor(int expectedSize) {
+        long needed = (long) Math.ceil(Math.max(expectedSize, 2) / (double) LOAD_FACTOR) + 1;
+        int tableSize = 1;
+        while (tableSize < needed && tableSize < (1 << 30)) {
+            tableSize <<= 1;
+        }
+        return tableSize;
+    }
+
+    /**
+     * Returns the home position of an id. The bits of the id are mixed first because the ids of a
+     * MonotonicTicketIdGenerator only differ in a few low and middle bits.
+     *
+     * @param id the id
+     * @param mask the mask of the table size
+     * @return the home position
+     */
+    static int indexFor(long id, int mask) {
+        return (int) mix(id) & mask;
+    }
+
+    /**
+     * Mixes the bits of an id (finalizer of MurmurHash3)
+     * @param id the id
+     * @return the mixed bits
+     */
+    static long mix(long id) {
+        long h = id;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,141 @@
+package com.tollparking.entity;
+
+import com.tollparking.enums.VehicleType;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Issues tickets identified by a positive 64 bit number made of:
+ * - 41 bits: milliseconds since 2020-01-01T00:00:00Z (enough until 2089)
+ * - 10 bits: the gate (0 to 1023) that issued the ticket
+ * - 12 bits: a sequence number (4096 tickets per millisecond)
+ *
+ * The ids issued by a generator always increase. When more than 4096 tickets are issued in the same millisecond, or
+ * when the system clock goes back, the generator keeps counting from the last issued id instead of repeating one.
+ */
+public class MonotonicTicketIdGenerator implements TicketIdGenerator {
+
+    /**
+     * The epoch of the timestamps: 2020-01-01T00:00:00Z
+     */
+    public static final long EPOCH_MILLIS = 1577836800000L;
+
+    /**
+     * The number of bits of the sequence number
+     */
+    private static final int SEQUENCE_BITS = 12;
+
+    /**
+     * The number of bits of the gate
+     */
+    private static final int GATE_BITS = 10;
+
+    /**
+     * The greatest gate number
+     */
+    public static final int MAX_GATE = (1 << GATE_BITS) - 1;
+
+    /**
+     * The gate that issues the tickets
+     */
+    private final long gate;
+
+    /**
+     * The clock giving the timestamps of the ids
+     */
+    private final Clock clock;
+
+    /**
+     * The last issued timestamp and sequence number: timestamp &lt;&lt; SEQUENCE_BITS | sequence
+     */
+    private final AtomicLong lastTimestampAndSequence = new AtomicLong();
+
+    /**
+     * Creates a generator for a gate
+     *
+     * @param gate the number of the gate, between 0 and MAX_GATE
+     * @throws IllegalArgumentException if the gate number is out of range
+     */
+    public MonotonicTicketIdGenerator(int gate) {
+        this(gate, Clock.systemUTC());
+    }
+
+    /**
+     * Creates a generator for a gate whose ids are timestamped by a given clock, for example the virtual clock of a
+     * simulation
+     *
+     * @param gate the number of the gate, between 0 and MAX_GATE
+     * @param clock the clock giving the timestamps
+     * @throws IllegalArgumentException if the gate number is out of range
+     */
+    public MonotonicTicketIdGenerator(int gate, Clock clock) {
+        if (gate < 0 || gate > MAX_GATE) {
+            throw new IllegalArgumentException("The gate must be between 0 and " + MAX_GATE);
+        }
+        this.gate = gate;
+        this.clock = Objects.requireNonNull(clock);
+    }
+
+    /**
+     * Issues a ticket with a new numeric id
+     *
+     * @param vehicleType the type of the vehicle entering the parking
+     * @return a new ticket
+     */
+    @Override
+    public Ticket newTicket(VehicleType vehicleType) {
+        return new Ticket(nextId(), vehicleType);
+    }
+
+    /**
+     * Issues a ticket with a new numeric id and a given start date
+     *
+     * @param vehicleType the type of the vehicle entering the parking
+     * @param startDate the date when the vehicle entered the parking
+     * @return a new ticket
+     */
+    @Override
+    public Ticket newTicket(VehicleType vehicleType, Instant startDate) {
+        return new Ticket(nextId(), vehicleType, startDate);
+    }
+
+    /**
+     * Returns a new id
+     * @return a positive id, greater than all the ids previously returned by this generator
+     */
+    public long nextId() {
+        long now = this.clock.millis() - EPOCH_MILLIS;
+        long last;
+        long next;
+        do {
+            last = this.lastTimestampAndSequence.get();
+            // a new millisecond restarts the sequence; otherwise the sequence overflows into the timestamp
+            next = (now > (last >>> SEQUENCE_BITS)) ? now << SEQUENCE_BITS : last + 1;
+        } while (!this.lastTimestampAndSequence.compareAndSet(last, next));
+
+        long timestamp = next >>> SEQUENCE_BITS;
+        long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+        return (timestamp << (GATE_BITS + SEQUENCE_BITS)) | (this.gate << SEQUENCE_BITS) | sequence;
+    }
+
+    /**
+     * Returns the gate that issued an id
+     * @param id an id issued by a MonotonicTicketIdGenerator
+     * @return the number of the gate
+     */
+    public static int gateOf(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_GATE);
+    }
+
+    /**
+     * Returns the time when an id was issued
+     * @param id an id issued by a MonotonicTicketIdGenerator
+     * @return the time of the id, with a millisecond precision
+     */
+    public static Instant timestampOf(long id) {
+        return Instant.ofEpochMilli(EPOCH_MILLIS + (id >>> (GATE_BITS + SEQUENCE_BITS)));
+    }
+}
@@ -0,0 +1,77 @@
+package com.tollparking.entity;
+
+import com.tollparking.enums.VehicleType;
+
+/**
+ * The occupancy of the slots of a vehicle type, pushed by the OccupancyPublisher of a Parking when it changes
+ */
+public final class OccupancyEvent {
+
+    /**
+     * The vehicle type
+     */
+    private final VehicleType vehicleType;
+
+    /**
+     * The number of vehicles of the type in the parking
+     */
+    private final int occupancy;
+
+    /**
+     * The number of slots of the type
+     */
+    private final int capacity;
+
+    /**
+     * Creates an event
+     * @param vehicleType the vehicle type
+     * @param occupancy the number of vehicles of the type in the parking
+     * @param capacity the number of slots of the type
+     */
+    OccupancyEvent(VehicleType vehicleType, int occupancy, int capacity) {
+        this.vehicleType = vehicleType;
+        this.occupancy = occupancy;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the vehicle type
+     * @return the vehicle type whose occupancy changed
+     */
+    public VehicleType getVehicleType() {
+        return vehicleType;
+    }
+
+    /**
+     * Returns the number of vehicles of the type in the parking
+     * @return the number of occupied slots
+     */
+    public int getOccupancy() {
+        return occupancy;
+    }
+
+    /**
+     * Returns the number of slots of the type
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of free slots of the type, as shown on the displays at the entrance
+     * @return the number of free slots, 0 if vehicles restored after a restart exceed the capacity
+     */
+    public int getFreeSlots() {
+        return Math.max(0, capacity - occupancy);
+    }
+
+    /**
+     * Returns the String representation of an event
+     * @return the vehicle type, occupancy and capacity
+     */
+    @Override
+    public String toString() {
+        return vehicleType + " " + occupancy + "/" + capacity;
+    }
+}
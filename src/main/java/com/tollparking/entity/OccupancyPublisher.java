@@ -0,0 +1,322 @@
+package com.tollparking.entity;
+
+import com.tollparking.enums.VehicleType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes the changes of the occupancy of a Parking to its subscribers, for example the displays at the entrance, the
+ * mobile apps or a pricing backend, instead of having them poll the parking.
+ *
+ * The updates are coalesced: a check-in or check-out only marks the vehicle type of each subscriber as changed, and
+ * the event delivered reads the occupancy of the type at delivery time. A slow subscriber therefore receives the
+ * latest occupancy of each type once it requests more, never a queue of the changes it missed, and a stuck subscriber
+ * costs the gates a few atomic operations per check-in, never a wait or a growing queue. The events are delivered on
+ * an executor, in order for each subscriber, and only as many as the subscriber requested. By default the executor is
+ * a daemon thread dedicated to the publishers, so a slow subscriber never holds back the common fork-join pool.
+ *
+ * A new subscriber first receives the occupancy of every vehicle type, as it requests them.
+ */
+public class OccupancyPublisher implements Flow.Publisher<OccupancyEvent> {
+
+    private static Logger LOG = LoggerFactory.getLogger(OccupancyPublisher.class);
+
+    /**
+     * The vehicle types, indexed by ordinal
+     */
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+
+    /**
+     * The bits of all the vehicle types
+     */
+    private static final int ALL_TYPES = (1 << VEHICLE_TYPES.length) - 1;
+
+    /**
+     * The time the thread of the default executor stays alive without events to deliver
+     */
+    private static final long DEFAULT_KEEP_ALIVE_SECONDS = 60;
+
+    /**
+     * The executor delivering the events of the publishers not given an executor
+     */
+    private static final Executor DEFAULT_EXECUTOR = newDefaultExecutor();
+
+    /**
+     * The parking whose occupancy is published
+     */
+    private final Parking parking;
+
+    /**
+     * The executor delivering the events
+     */
+    private volatile Executor executor;
+
+    /**
+     * The subscriptions not cancelled
+     */
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates a publisher delivering its events on the default executor
+     * @param parking the parking whose occupancy is published
+     */
+    OccupancyPublisher(Parking parking) {
+        this(parking, DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * Creates a publisher
+     * @param parking the parking whose occupancy is published
+     * @param executor the executor delivering the events
+     */
+    OccupancyPublisher(Parking parking, Executor executor) {
+        this.parking = parking;
+        this.executor = executor;
+    }
+
+    /**
+     * Creates the default executor: a single daemon thread, started with the first event and stopped when idle
+     * @return the executor
+     */
+    private static Executor newDefaultExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, DEFAULT_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "parking-occupancy-publisher");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Sets the executor delivering the events. The deliveries already scheduled run on the previous executor.
+     * @param executor the executor
+     */
+    void setExecutor(Executor executor) {
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    /**
+     * Subscribes to the changes of the occupancy of the parking
+     * @param subscriber the subscriber, given its subscription on the executor of the publisher
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super OccupancyEvent> subscriber) {
+        Subscription subscription = new Subscription(Objects.requireNonNull(subscriber));
+        this.subscriptions.add(subscription);
+        subscription.changed(ALL_TYPES);
+        subscription.schedule();
+    }
+
+    /**
+     * Returns the number of subscribers
+     * @return the number of subscriptions not cancelled
+     */
+    public int getSubscriberCount() {
+        return this.subscriptions.size();
+    }
+
+    /**
+     * Marks the occupancy of a vehicle type as changed for every subscriber. Called by the parking after a vehicle
+     * was parked or removed.
+     * @param vehicleType the vehicle type
+     */
+    void occupancyChanged(VehicleType vehicleType) {
+        int bit = 1 << vehicleType.ordinal();
+        for (Subscription subscription : this.subscriptions) {
+            if (subscription.changed(bit)) {
+                subscription.scheduleIfRequested();
+            }
+        }
+    }
+
+    /**
+     * The subscription of a subscriber, delivering its events
+     */
+    private final class Subscription implements Flow.Subscription, Runnable {
+
+        /**
+         * The subscriber
+         */
+        private final Flow.Subscriber<? super OccupancyEvent> subscriber;
+
+        /**
+         * The bits of the vehicle types whose occupancy changed since their last event
+         */
+        private final AtomicInteger changedTypes = new AtomicInteger();
+
+        /**
+         * The number of events requested and not yet delivered, Long.MAX_VALUE for no limit
+         */
+        private final AtomicLong requested = new AtomicLong();
+
+        /**
+         * The number of times the delivery was scheduled since it last ran out of work
+         */
+        private final AtomicInteger pendingRuns = new AtomicInteger();
+
+        /**
+         * True once the subscriber cancelled or failed
+         */
+        private volatile boolean cancelled;
+
+        /**
+         * The error of an invalid request, given to the subscriber by the delivery
+         */
+        private volatile IllegalArgumentException invalidRequest;
+
+        /**
+         * True once onSubscribe was called, read by the delivery only
+         */
+        private boolean subscribed;
+
+        /**
+         * The occupancy and capacity of each vehicle type in the last event, read by the delivery only
+         */
+        private final long[] lastDelivered = new long[VEHICLE_TYPES.length];
+
+        /**
+         * Creates a subscription
+         * @param subscriber the subscriber
+         */
+        Subscription(Flow.Subscriber<? super OccupancyEvent> subscriber) {
+            this.subscriber = subscriber;
+            Arrays.fill(this.lastDelivered, -1);
+        }
+
+        /**
+         * Marks vehicle types as changed
+         * @param bits the bits of the vehicle types
+         * @return true if a type was not already marked
+         */
+        boolean changed(int bits) {
+            int current;
+            do {
+                current = this.changedTypes.get();
+                if ((current & bits) == bits) {
+                    // an event still to deliver will read the latest occupancy
+                    return false;
+                }
+            } while (!this.changedTypes.compareAndSet(current, current | bits));
+            return true;
+        }
+
+        /**
+         * Schedules the delivery if the subscriber can receive events
+         */
+        void scheduleIfRequested() {
+            if (this.requested.get() > 0) {
+                schedule();
+            }
+        }
+
+        /**
+         * Schedules the delivery unless it is already scheduled or running
+         */
+        void schedule() {
+            if (this.pendingRuns.getAndIncrement() == 0) {
+                OccupancyPublisher.this.executor.execute(this);
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                this.invalidRequest = new IllegalArgumentException("The number of events requested must be positive");
+            } else {
+                this.requested.accumulateAndGet(n, (current, added) -> {
+                    long sum = current + added;
+                    return (sum < 0) ? Long.MAX_VALUE : sum;
+                });
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            this.cancelled = true;
+            OccupancyPublisher.this.subscriptions.remove(this);
+        }
+
+        /**
+         * Delivers the events of the changed vehicle types, as many as requested, until no run is pending
+         */
+        @Override
+        public void run() {
+            int runs = 1;
+            while (true) {
+                if (!this.subscribed) {
+                    this.subscribed = true;
+                    if (!deliver(() -> this.subscriber.onSubscribe(this))) {
+                        return;
+                    }
+                }
+                if (this.cancelled) {
+                    return;
+                }
+                if (this.invalidRequest != null) {
+                    cancel();
+                    this.subscriber.onError(this.invalidRequest);
+                    return;
+                }
+                long requested = this.requested.get();
+                long delivered = 0;
+                int changedTypes;
+                while (delivered < requested && !this.cancelled && (changedTypes = this.changedTypes.get()) != 0) {
+                    int ordinal = Integer.numberOfTrailingZeros(changedTypes);
+                    // unmarked before reading the occupancy, so that a change after the read is marked again
+                    this.changedTypes.getAndUpdate(types -> types & ~(1 << ordinal));
+                    VehicleType vehicleType = VEHICLE_TYPES[ordinal];
+                    int occupancy = OccupancyPublisher.this.parking.getOccupancy(vehicleType);
+                    int capacity = OccupancyPublisher.this.parking.getCapacity(vehicleType);
+                    long state = ((long) capacity << 32) | (occupancy & 0xffffffffL);
+                    if (state == this.lastDelivered[ordinal]) {
+                        continue;
+                    }
+                    this.lastDelivered[ordinal] = state;
+                    OccupancyEvent event = new OccupancyEvent(vehicleType, occupancy, capacity);
+                    if (!deliver(() -> this.subscriber.onNext(event))) {
+                        return;
+                    }
+                    delivered++;
+                }
+                if (delivered > 0 && requested != Long.MAX_VALUE) {
+                    this.requested.addAndGet(-delivered);
+                }
+                runs = this.pendingRuns.addAndGet(-runs);
+                if (runs == 0) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Calls the subscriber, cancelling the subscription if it fails
+         * @param signal the call
+         * @return true if the subscriber did not fail
+         */
+        private boolean deliver(Runnable signal) {
+            try {
+                signal.run();
+                return true;
+            } catch (RuntimeException e) {
+                LOG.error("Error in a subscriber of the occupancy, cancelling its subscription", e);
+                cancel();
+                return false;
+            }
+        }
+    }
+}
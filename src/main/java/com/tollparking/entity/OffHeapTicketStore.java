@@ -0,0 +1,489 @@
+package com.tollparking.entity;
+
+import com.tollparking.enums.VehicleType;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * A TicketStore keeping the open tickets outside of the heap, for parkings or networks holding millions of vehicles:
+ * the garbage collector then has no object to trace per parked vehicle, and its pauses do not grow with the number
+ * of open tickets.
+ *
+ * Each ticket is a fixed-width record of 40 bytes in a direct ByteBuffer: its id, numeric or UUID, vehicle type,
+ * slot number and start date. The records form open-addressing tables with linear probing, split in stripes locked
+ * separately like the HeapTicketStore. A Ticket object is only created when a ticket is returned, so the store gives
+ * a new copy of the ticket each time: modifying a returned ticket does not modify the stored one.
+ *
+ * Tickets whose string id is not a UUID in its canonical form are kept on the heap.
+ */
+public class OffHeapTicketStore implements TicketStore {
+
+    /**
+     * The size of a record
+     */
+    static final int RECORD_SIZE = 40;
+
+    /**
+     * The offset of the vehicle type ordinal + 1, or 0 for a free record (byte)
+     */
+    private static final int TYPE = 0;
+
+    /**
+     * The offset of the kind of id, NUMERIC_ID or UUID_ID (byte)
+     */
+    private static final int KIND = 1;
+
+    /**
+     * The offset of the slot number (int)
+     */
+    private static final int SLOT = 4;
+
+    /**
+     * The offset of the numeric id, or the most significant bits of the UUID (long)
+     */
+    private static final int HIGH = 8;
+
+    /**
+     * The offset of the least significant bits of the UUID, 0 for a numeric id (long)
+     */
+    private static final int LOW = 16;
+
+    /**
+     * The offset of the seconds of the start date (long)
+     */
+    private static final int START_SECONDS = 24;
+
+    /**
+     * The offset of the nanoseconds of the start date, or -1 if the ticket has no start date (int)
+     */
+    private static final int START_NANOS = 32;
+
+    /**
+     * The kind of a numeric id
+     */
+    private static final byte NUMERIC_ID = 0;
+
+    /**
+     * The kind of a UUID string id
+     */
+    private static final byte UUID_ID = 1;
+
+    /**
+     * The maximum fill ratio before a table is doubled
+     */
+    private static final float LOAD_FACTOR = 0.6f;
+
+    /**
+     * The vehicle types, indexed by ordinal
+     */
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+
+    /**
+     * An open-addressing table of records
+     */
+    private static final class Stripe {
+
+        /**
+         * The records
+         */
+        ByteBuffer table;
+
+        /**
+         * The number of records of the table minus 1
+         */
+        int mask;
+
+        /**
+         * The number of tickets
+         */
+        int size;
+
+        /**
+         * The number of tickets above which the table is doubled
+         */
+        int resizeThreshold;
+
+        /**
+         * Creates a table able to hold the expected number of tickets without resizing
+         * @param expectedSize the expected number of tickets
+         */
+        Stripe(int expectedSize) {
+            long needed = (long) Math.ceil(Math.max(expectedSize, 2) / (double) LOAD_FACTOR) + 1;
+            int records = 2;
+            while (records < needed && records < Integer.MAX_VALUE / RECORD_SIZE / 2) {
+                records <<= 1;
+            }
+            allocate(records);
+        }
+
+        /**
+         * Allocates an empty table
+         * @param records the number of records, a power of 2
+         */
+        void allocate(int records) {
+            this.table = ByteBuffer.allocateDirect(records * RECORD_SIZE).order(ByteOrder.nativeOrder());
+            this.mask = records - 1;
+            this.resizeThreshold = (int) (records * LOAD_FACTOR);
+        }
+
+        /**
+         * Finds the record of an id
+         * @param kind the kind of id
+         * @param high the numeric id or the most significant bits of the UUID
+         * @param low the least significant bits of the UUID
+         * @return the offset of the record, or -1 if the id is not in the table
+         */
+        int find(byte kind, long high, long low) {
+            ByteBuffer table = this.table;
+            for (int i = homeOf(high, low, this.mask); table.get(i * RECORD_SIZE + TYPE) != 0; i = (i + 1) & this.mask) {
+                int offset = i * RECORD_SIZE;
+                if (table.getLong(offset + HIGH) == high && table.getLong(offset + LOW) == low
+                        && table.get(offset + KIND) == kind) {
+                    return offset;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Adds a ticket if its id is not in the table
+         * @param kind the kind of id
+         * @param high the numeric id or the most significant bits of the UUID
+         * @param low the least significant bits of the UUID
+         * @param ticket the ticket
+         * @return true if the ticket was added
+         * @throws IllegalStateException if the table cannot grow any more
+         */
+        boolean putIfAbsent(byte kind, long high, long low, Ticket ticket) {
+            ByteBuffer table = this.table;
+            int i = homeOf(high, low, this.mask);
+            for (; table.get(i * RECORD_SIZE + TYPE) != 0; i = (i + 1) & this.mask) {
+                int offset = i * RECORD_SIZE;
+                if (table.getLong(offset + HIGH) == high && table.getLong(offset + LOW) == low
+                        && table.get(offset + KIND) == kind) {
+                    return false;
+                }
+            }
+            if (this.size == this.mask) {
+                throw new IllegalStateException("The ticket store is full");
+            }
+            int offset = i * RECORD_SIZE;
+            Instant startDate = ticket.getStartDate();
+            table.put(offset + KIND, kind)
+                    .putInt(offset + SLOT, ticket.getSlotNumber())
+                    .putLong(offset + HIGH, high)
+                    .putLong(offset + LOW, low)
+                    .putLong(offset + START_SECONDS, (startDate == null) ? 0 : startDate.getEpochSecond())
+                    .putInt(offset + START_NANOS, (startDate == null) ? -1 : startDate.getNano())
+                    .put(offset + TYPE, (byte) (ticket.getVehicleType().ordinal() + 1));
+            if (++this.size > this.resizeThreshold) {
+                resize();
+            }
+            return true;
+        }
+
+        /**
+         * Frees a record and moves back the following records that would no longer be reachable from their home
+         * position, as in LongTicketIndex
+         * @param free the offset of the record to free
+         */
+        void remove(int free) {
+            ByteBuffer table = this.table;
+            int freeIndex = free / RECORD_SIZE;
+            int i = freeIndex;
+            while (true) {
+                i = (i + 1) & this.mask;
+                int offset = i * RECORD_SIZE;
+                if (table.get(offset + TYPE) == 0) {
+                    break;
+                }
+                int home = homeOf(table.getLong(offset + HIGH), table.getLong(offset + LOW), this.mask);
+                if (((i - home) & this.mask) >= ((i - freeIndex) & this.mask)) {
+                    copy(table, offset, table, freeIndex * RECORD_SIZE);
+                    freeIndex = i;
+                }
+            }
+            table.put(freeIndex * RECORD_SIZE + TYPE, (byte) 0);
+            this.size--;
+        }
+
+        /**
+         * Moves all the records to a table twice as large
+         */
+        void resize() {
+            ByteBuffer old = this.table;
+            int oldRecords = this.mask + 1;
+            if (oldRecords > Integer.MAX_VALUE / RECORD_SIZE / 2) {
+                // the largest table of a direct buffer: filled until a single free record is left
+                this.resizeThreshold = Integer.MAX_VALUE;
+                return;
+            }
+            allocate(oldRecords * 2);
+            for (int j = 0; j < oldRecords; j++) {
+                int from = j * RECORD_SIZE;
+                if (old.get(from + TYPE) != 0) {
+                    int i = homeOf(old.getLong(from + HIGH), old.getLong(from + LOW), this.mask);
+                    while (this.table.get(i * RECORD_SIZE + TYPE) != 0) {
+                        i = (i + 1) & this.mask;
+                    }
+                    copy(old, from, this.table, i * RECORD_SIZE);
+                }
+            }
+        }
+    }
+
+    /**
+     * The stripes of the tickets
+     */
+    private final Stripe[] stripes;
+
+    /**
+     * The number of bits selecting a stripe
+     */
+    private final int stripeBits;
+
+    /**
+     * The tickets whose string id is not a UUID
+     */
+    private final Map<String, Ticket> stringTickets = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a store sized for the expected number of tickets, so that it does not have to grow while gates wait
+     * @param expectedSize the expected number of open tickets, usually the capacity of the parking
+     */
+    public OffHeapTicketStore(int expectedSize) {
+        int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 8 - 1) << 1;
+        this.stripeBits = Integer.numberOfTrailingZeros(stripeCount);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new Stripe(expectedSize / stripeCount + 1);
+        }
+    }
+
+    @Override
+    public boolean add(Ticket ticket) {
+        if (ticket.hasNumericId()) {
+            return add(NUMERIC_ID, ticket.getNumericId(), 0, ticket);
+        }
+        UUID uuid = uuidOf(ticket.getId());
+        if (uuid == null) {
+            return this.stringTickets.putIfAbsent(ticket.getId(), ticket) == null;
+        }
+        return add(UUID_ID, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), ticket);
+    }
+
+    @Override
+    public Ticket remove(Ticket ticket) {
+        return ticket.hasNumericId() ? remove(ticket.getNumericId()) : remove(ticket.getId());
+    }
+
+    @Override
+    public Ticket remove(long ticketId) {
+        return remove(NUMERIC_ID, ticketId, 0);
+    }
+
+    @Override
+    public Ticket remove(String ticketId) {
+        UUID uuid = uuidOf(ticketId);
+        if (uuid != null) {
+            return remove(UUID_ID, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        }
+        Ticket ticket = this.stringTickets.remove(ticketId);
+        if (ticket == null && HeapTicketStore.isNumericId(ticketId)) {
+            ticket = remove(Long.parseLong(ticketId));
+        }
+        return ticket;
+    }
+
+    @Override
+    public Ticket get(long ticketId) {
+        return get(NUMERIC_ID, ticketId, 0);
+    }
+
+    @Override
+    public Ticket get(String ticketId) {
+        UUID uuid = uuidOf(ticketId);
+        if (uuid != null) {
+            return get(UUID_ID, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        }
+        Ticket ticket = this.stringTickets.get(ticketId);
+        if (ticket == null && HeapTicketStore.isNumericId(ticketId)) {
+            ticket = get(Long.parseLong(ticketId));
+        }
+        return ticket;
+    }
+
+    @Override
+    public int size() {
+        int size = this.stringTickets.size();
+        for (Stripe stripe : this.stripes) {
+            synchronized (stripe) {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Calls an action for each stored ticket, creating the Ticket objects of a stripe while it is locked, then calling
+     * the action without the lock
+     * @param action the action to call
+     */
+    @Override
+    public void forEach(Consumer<? super Ticket> action) {
+        this.stringTickets.values().forEach(action);
+        for (Stripe stripe : this.stripes) {
+            Ticket[] tickets;
+            synchronized (stripe) {
+                tickets = new Ticket[stripe.size];
+                int count = 0;
+                for (int offset = 0; count < tickets.length; offset += RECORD_SIZE) {
+                    if (stripe.table.get(offset + TYPE) != 0) {
+                        tickets[count++] = ticketAt(stripe.table, offset);
+                    }
+                }
+            }
+            for (Ticket ticket : tickets) {
+                action.accept(ticket);
+            }
+        }
+    }
+
+    /**
+     * Adds a ticket to its stripe
+     * @param kind the kind of id
+     * @param high the numeric id or the most significant bits of the UUID
+     * @param low the least significant bits of the UUID
+     * @param ticket the ticket
+     * @return true if the ticket was added; false if a ticket with the same id is already stored
+     */
+    private boolean add(byte kind, long high, long low, Ticket ticket) {
+        Stripe stripe = stripeFor(high, low);
+        synchronized (stripe) {
+            return stripe.putIfAbsent(kind, high, low, ticket);
+        }
+    }
+
+    /**
+     * Removes a ticket from its stripe
+     * @param kind the kind of id
+     * @param high the numeric id or the most significant bits of the UUID
+     * @param low the least significant bits of the UUID
+     * @return a copy of the removed ticket, or null if no ticket with this id is stored
+     */
+    private Ticket remove(byte kind, long high, long low) {
+        Stripe stripe = stripeFor(high, low);
+        synchronized (stripe) {
+            int offset = stripe.find(kind, high, low);
+            if (offset < 0) {
+                return null;
+            }
+            Ticket ticket = ticketAt(stripe.table, offset);
+            stripe.remove(offset);
+            return ticket;
+        }
+    }
+
+    /**
+     * Finds a ticket in its stripe
+     * @param kind the kind of id
+     * @param high the numeric id or the most significant bits of the UUID
+     * @param low the least significant bits of the UUID
+     * @return a copy of the ticket, or null if no ticket with this id is stored
+     */
+    private Ticket get(byte kind, long high, long low) {
+        Stripe stripe = stripeFor(high, low);
+        synchronized (stripe) {
+            int offset = stripe.find(kind, high, low);
+            return (offset < 0) ? null : ticketAt(stripe.table, offset);
+        }
+    }
+
+    /**
+     * Returns the stripe of an id
+     * @param high the numeric id or the most significant bits of the UUID
+     * @param low the least significant bits of the UUID
+     * @return the stripe holding the id
+     */
+    private Stripe stripeFor(long high, long low) {
+        return this.stripes[(int) (hash(high, low) >>> (64 - this.stripeBits))];
+    }
+
+    /**
+     * Creates the Ticket of a record
+     * @param table the table
+     * @param offset the offset of the record
+     * @return the ticket
+     */
+    private static Ticket ticketAt(ByteBuffer table, int offset) {
+        VehicleType vehicleType = VEHICLE_TYPES[table.get(offset + TYPE) - 1];
+        int nanos = table.getInt(offset + START_NANOS);
+        Instant startDate = (nanos < 0) ? null : Instant.ofEpochSecond(table.getLong(offset + START_SECONDS), nanos);
+        Ticket ticket = (table.get(offset + KIND) == NUMERIC_ID)
+                ? new Ticket(table.getLong(offset + HIGH), vehicleType, startDate)
+                : new Ticket(new UUID(table.getLong(offset + HIGH), table.getLong(offset + LOW)).toString(),
+                        vehicleType, startDate);
+        ticket.setSlotNumber(table.getInt(offset + SLOT));
+        return ticket;
+    }
+
+    /**
+     * Copies a record
+     * @param from the table of the record
+     * @param fromOffset the offset of the record
+     * @param to the table to copy to
+     * @param toOffset the offset to copy to
+     */
+    private static void copy(ByteBuffer from, int fromOffset, ByteBuffer to, int toOffset) {
+        for (int i = 0; i < RECORD_SIZE; i += 8) {
+            to.putLong(toOffset + i, from.getLong(fromOffset + i));
+        }
+    }
+
+    /**
+     * Returns the home position of an id in a table
+     * @param high the numeric id or the most significant bits of the UUID
+     * @param low the least significant bits of the UUID
+     * @param mask the number of records of the table minus 1
+     * @return the index of the home record
+     */
+    private static int homeOf(long high, long low, int mask) {
+        return (int) hash(high, low) & mask;
+    }
+
+    /**
+     * Mixes the bits of an id
+     * @param high the numeric id or the most significant bits of the UUID
+     * @param low the least significant bits of the UUID
+     * @return the hash of the id
+     */
+    private static long hash(long high, long low) {
+        return LongTicketIndex.mix(high ^ LongTicketIndex.mix(low));
+    }
+
+    /**
+     * Parses a string id written as a UUID in its canonical form
+     * @param ticketId the string id
+     * @return the UUID, or null if the string is not the canonical form of a UUID
+     */
+    private static UUID uuidOf(String ticketId) {
+        if (ticketId.length() != 36) {
+            return null;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = ticketId.charAt(i);
+            boolean valid = (i == 8 || i == 13 || i == 18 || i == 23)
+                    ? c == '-' : (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f');
+            if (!valid) {
+                return null;
+            }
+        }
+        return UUID.fromString(ticketId);
+    }
+}
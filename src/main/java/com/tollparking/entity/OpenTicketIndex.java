@@ -0,0 +1,135 @@
+package com.tollparking.entity;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * The open tickets of a parking ordered by start time, in buckets of a minute. The tickets of the current minute go
+ * to the same bucket, found without looking up the sorted map, so adding and removing a ticket costs a hash set
+ * update. Taking the tickets started before a minute visits only their buckets: the cost is proportional to the
+ * number of expired tickets, not to the number of vehicles in the parking.
+ *
+ * A ticket added to a minute already taken goes to a list of late tickets returned by the next call to pollBefore.
+ * A ticket may be returned once more after it was removed; the caller checks that it is still open.
+ */
+final class OpenTicketIndex {
+
+    /**
+     * The tickets started during a minute
+     */
+    private static final class Bucket {
+
+        /**
+         * The number of the minute since the epoch
+         */
+        final long minute;
+
+        /**
+         * The tickets started during the minute
+         */
+        final Set<Ticket> tickets = ConcurrentHashMap.newKeySet();
+
+        /**
+         * Creates an empty bucket
+         * @param minute the number of the minute since the epoch
+         */
+        Bucket(long minute) {
+            this.minute = minute;
+        }
+    }
+
+    /**
+     * The buckets, ordered by minute
+     */
+    private final ConcurrentSkipListMap<Long, Bucket> buckets = new ConcurrentSkipListMap<>();
+
+    /**
+     * The bucket a ticket was last added to, found without looking up the map
+     */
+    private volatile Bucket lastBucket;
+
+    /**
+     * The minutes before this one have been taken: their tickets go to the late tickets
+     */
+    private volatile long polledBefore = Long.MIN_VALUE;
+
+    /**
+     * The tickets added to a minute already taken
+     */
+    private final ConcurrentLinkedQueue<Ticket> lateTickets = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Adds an open ticket
+     * @param ticket the ticket, with its start date
+     */
+    void add(Ticket ticket) {
+        long minute = minuteOf(ticket);
+        if (minute < this.polledBefore) {
+            this.lateTickets.add(ticket);
+            return;
+        }
+        Bucket bucket = this.lastBucket;
+        if (bucket == null || bucket.minute != minute) {
+            bucket = this.buckets.computeIfAbsent(minute, Bucket::new);
+            this.lastBucket = bucket;
+        }
+        bucket.tickets.add(ticket);
+        if (minute < this.polledBefore) {
+            // the bucket may have been taken before the ticket was added to it
+            this.lateTickets.add(ticket);
+        }
+    }
+
+    /**
+     * Removes a ticket, for example because its vehicle left
+     * @param ticket the ticket
+     */
+    void remove(Ticket ticket) {
+        Bucket bucket = this.buckets.get(minuteOf(ticket));
+        if (bucket != null) {
+            bucket.tickets.remove(ticket);
+        }
+    }
+
+    /**
+     * Takes out the tickets started before a minute, and the late tickets. Must not be called by two threads at once.
+     *
+     * @param minute the number of the minute since the epoch
+     * @param action called for each ticket taken out
+     * @return the number of tickets taken out
+     */
+    int pollBefore(long minute, Consumer<Ticket> action) {
+        if (minute > this.polledBefore) {
+            this.polledBefore = minute;
+        }
+        int count = 0;
+        for (Ticket ticket; (ticket = this.lateTickets.poll()) != null; count++) {
+            action.accept(ticket);
+        }
+        for (Map.Entry<Long, Bucket> entry; (entry = this.buckets.firstEntry()) != null && entry.getKey() < minute; ) {
+            Bucket bucket = entry.getValue();
+            this.buckets.remove(entry.getKey(), bucket);
+            if (this.lastBucket == bucket) {
+                this.lastBucket = null;
+            }
+            for (Ticket ticket : bucket.tickets) {
+                action.accept(ticket);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of the minute since the epoch when a ticket started
+     * @param ticket the ticket
+     * @return the minute of its start date
+     */
+    static long minuteOf(Ticket ticket) {
+        return Math.floorDiv(ticket.getStartDate().getEpochSecond(), 60);
+    }
+}
@@ -5,33 +5,132 @@ import com.tollparking.exception.TicketNotFoundException;
 import com.tollparking.exception.InvalidCapacityException;
 import com.tollparking.billing.PricingPerHourPolicy;
 import com.tollparking.billing.PricingPolicy;
+import com.tollparking.metrics.ParkingMetrics;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
 
-import java.util.Set;
-import java.util.UUID;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.EnumMap;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.math.BigDecimal;
 
+/**
+ * A toll parking. A single instance can be shared by all the entry and exit gates: checking in and checking out
+ * vehicles is thread-safe and does not take any global lock.
+ */
 public class Parking {
 
     private static Logger LOG = LoggerFactory.getLogger(Parking.class);
 
     /**
-     * The pricing policy associated to a parking
+     * The default maximum number of vehicles of a type waiting for a slot
      */
-    private PricingPolicy pricingPolicy;
+    public static final int DEFAULT_MAX_WAITERS = 1000;
+
+    /**
+     * The start time of a check-in or check-out whose latency is not tracked
+     */
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+
+    /**
+     * The maximum number of tickets not found logged per second
+     */
+    private static final int NOT_FOUND_LOG_RATE = 10;
+
+    /**
+     * The log of the tickets not found: scanners reading a ticket twice can make many of them
+     */
+    private static final RateLimitedLog NOT_FOUND_LOG = new RateLimitedLog(LOG, NOT_FOUND_LOG_RATE, 1, TimeUnit.SECONDS);
+
+    /**
+     * The timer giving up the vehicles waiting for a slot once their timeout is over. The timeout of a vehicle
+     * admitted before it is cancelled and removed at once, so the timer only holds the vehicles still waiting.
+     */
+    private static final ScheduledThreadPoolExecutor WAIT_TIMER = newWaitTimer();
+
+    /**
+     * The pricing policy of each vehicle type. The map is never modified once published: a new policy is set by
+     * publishing a modified copy, so a check-out reads a consistent set of policies without any lock.
+     */
+    private volatile Map<VehicleType, PricingPolicy> pricingPolicies;
+
+    /**
+     * The lock ordering the updates of the pricing policies, never taken by the check-outs
+     */
+    private final Object pricingLock = new Object();
 
     /**
      * A map holding the number of slots for each vehicle type: A Slot contains data about the maximum capacity and the current capacity
      */
-    private Map<VehicleType, SlotCapacity> vehicleTypeCapacityMap = new HashMap<>();
+    private final Map<VehicleType, SlotCapacity> vehicleTypeCapacityMap = new EnumMap<>(VehicleType.class);
+
+    /**
+     * The shrinks of the capacity of each vehicle type waiting for vehicles to leave, oldest first
+     */
+    private final Map<VehicleType, ArrayDeque<QueuedShrink>> shrinkQueues = new EnumMap<>(VehicleType.class);
+
+    /**
+     * The lock ordering the calls changing the capacities, held while the listeners are notified of a change
+     */
+    private final Object reconfigurationLock = new Object();
 
     /**
-     * A set of tickets isues for each car that enters the parking
+     * The lock ordering the changes of the capacities and of their shrink queues, taken by the check-outs only
+     * while a shrink is pending
      */
-    private Set<Ticket> ticketSet = new java.util.HashSet<>();
+    private final Object capacityLock = new Object();
+
+    /**
+     * The vehicles waiting for a slot, for each vehicle type
+     */
+    private final Map<VehicleType, AdmissionQueue> admissionQueues = new EnumMap<>(VehicleType.class);
+
+    /**
+     * The publisher of the changes of the occupancy
+     */
+    private final OccupancyPublisher occupancyPublisher = new OccupancyPublisher(this);
+
+    /**
+     * The tickets isued for each car that enters the parking, indexed by id
+     */
+    private volatile TicketStore ticketStore;
+
+    /**
+     * The generator of the ids of the tickets issued by the parking
+     */
+    private volatile TicketIdGenerator ticketIdGenerator = new MonotonicTicketIdGenerator(0);
+
+    /**
+     * The clock giving the start and end dates of the tickets
+     */
+    private volatile Clock clock = Clock.systemUTC();
+
+    /**
+     * The listeners notified when a vehicle is checked in or checked out
+     */
+    private final List<ParkingListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * The metrics of the check-ins and check-outs
+     */
+    private final ParkingMetrics metrics = new ParkingMetrics(this);
 
     /**
      * Creates a new parking with a default pricing policy (PricingPerHourPolicy with an amount set to BigDecimal.ZERO)
@@ -49,8 +148,13 @@ public class Parking {
         this.vehicleTypeCapacityMap.put(VehicleType.FUEL, new SlotCapacity(standardSlotCapacity));
         this.vehicleTypeCapacityMap.put(VehicleType.ELECTRIC_20KW, new SlotCapacity(kw20SlotCapacity));
         this.vehicleTypeCapacityMap.put(VehicleType.ELECTRIC_50KW, new SlotCapacity(kw50SlotCapacity));
+        this.ticketStore = new HeapTicketStore(standardSlotCapacity + kw20SlotCapacity + kw50SlotCapacity);
+        for (VehicleType vehicleType : VehicleType.values()) {
+            this.admissionQueues.put(vehicleType, new AdmissionQueue(DEFAULT_MAX_WAITERS));
+            this.shrinkQueues.put(vehicleType, new ArrayDeque<>());
+        }
 
-        this.pricingPolicy = new PricingPerHourPolicy(BigDecimal.ZERO);
+        this.pricingPolicies = policiesFor(new PricingPerHourPolicy(BigDecimal.ZERO));
     }
 
     /**
@@ -68,7 +172,7 @@ public class Parking {
     public Parking(int standardSlotCapacity, int kw20SlotCapacity, int kw50SlotCapacity, PricingPolicy pricingPolicy) throws InvalidCapacityException {
         this(standardSlotCapacity, kw20SlotCapacity, kw50SlotCapacity);
         if (pricingPolicy != null) {
-            this.pricingPolicy = pricingPolicy;
+            this.pricingPolicies = policiesFor(pricingPolicy);
         }
     }
 
@@ -76,24 +180,257 @@ public class Parking {
      * Checks in a vehicle in the parking
      *
      * @param vehicleType the vehicle type to park
-     * @return  null if there are no spaces available for the given vehicle type or a Ticket having a unique id and a startDate set to
-     * the current date.
+     * @return  null if there are no spaces available for the given vehicle type or a Ticket having a unique id, a startDate set to
+     * the current date and the number of the slot given to the vehicle.
      * */
     public Ticket parkVehicle(VehicleType vehicleType) {
-        if (vehicleType == null) return null;
+        return tryParkVehicle(vehicleType).getTicket();
+    }
 
-        Integer maxCapacity = this.vehicleTypeCapacityMap.get(vehicleType).capacity;
-        Integer currentCapacity = this.vehicleTypeCapacityMap.get(vehicleType).currentCapacity;
-        if (maxCapacity == currentCapacity)
-            return null;
+    /**
+     * Checks in a vehicle in the parking and tells why it is refused, if it is
+     *
+     * @param vehicleType the vehicle type to park
+     * @return PARKED with a Ticket having a unique id, a startDate set to the current date and the number of the slot
+     * given to the vehicle; NO_SPACE_AVAILABLE if there are no spaces available for the vehicle type, or if vehicles
+     * of the type are waiting for a slot; or INVALID_VEHICLE_TYPE if the vehicle type is null
+     */
+    public ParkingResult tryParkVehicle(VehicleType vehicleType) {
+        if (vehicleType == null) return ParkingResult.INVALID_VEHICLE_TYPE;
+
+        long start = startTime();
+        SlotCapacity slotCapacity = this.vehicleTypeCapacityMap.get(vehicleType);
+        if (this.admissionQueues.get(vehicleType).hasWaiters() || !slotCapacity.tryReserve()) {
+            this.metrics.recordRejected(vehicleType, elapsedSince(start));
+            return ParkingResult.NO_SPACE_AVAILABLE;
+        }
+        return ParkingResult.parked(issueTicket(vehicleType, slotCapacity, start));
+    }
+
+    /**
+     * Checks in a vehicle in the parking, waiting for a slot if the vehicle type is full. The waiting vehicles of a
+     * type are admitted in order of arrival, each in the slot freed by a check-out, and no vehicle arriving while
+     * others wait gets a slot before them. Nothing polls the parking while the vehicle waits.
+     *
+     * The future is completed in the thread of the check-out freeing the slot, so the actions depending on it should
+     * be quick or run with the async methods of CompletableFuture. Cancelling the future gives up waiting.
+     *
+     * @param vehicleType the vehicle type to park
+     * @param timeout the maximum time to wait for a slot; zero or negative not to wait
+     * @return a future completed with PARKED and the Ticket of the vehicle; NO_SPACE_AVAILABLE if no slot was freed
+     * before the timeout or if too many vehicles of the type are already waiting; or INVALID_VEHICLE_TYPE if the
+     * vehicle type is null
+     */
+    public CompletableFuture<ParkingResult> tryParkVehicleAsync(VehicleType vehicleType, Duration timeout) {
+        if (vehicleType == null) return CompletableFuture.completedFuture(ParkingResult.INVALID_VEHICLE_TYPE);
+
+        long start = startTime();
+        SlotCapacity slotCapacity = this.vehicleTypeCapacityMap.get(vehicleType);
+        AdmissionQueue queue = this.admissionQueues.get(vehicleType);
+        if (!queue.hasWaiters() && slotCapacity.tryReserve()) {
+            return CompletableFuture.completedFuture(ParkingResult.parked(issueTicket(vehicleType, slotCapacity, start)));
+        }
+        AdmissionQueue.Waiter waiter = (timeout.isNegative() || timeout.isZero()) ? null : queue.offer();
+        if (waiter == null) {
+            this.metrics.recordRejected(vehicleType, elapsedSince(start));
+            return CompletableFuture.completedFuture(ParkingResult.NO_SPACE_AVAILABLE);
+        }
+        ScheduledFuture<?> timer = WAIT_TIMER.schedule(() -> giveUp(vehicleType, waiter), timeout.toNanos(),
+                TimeUnit.NANOSECONDS);
+        waiter.future.whenComplete((result, e) -> {
+            timer.cancel(false);
+            if (e != null && waiter.take()) {
+                queue.remove(waiter);
+            }
+        });
+        // a slot freed before the vehicle joined the queue was not handed to it
+        admitWaiters(vehicleType);
+        return waiter.future;
+    }
+
+    /**
+     * Checks in a vehicle in the parking, blocking the calling thread until a slot is free or the timeout is over.
+     * The thread waits without polling, so many gates can wait at the same time, for example on virtual threads.
+     *
+     * @param vehicleType the vehicle type to park
+     * @param timeout the maximum time to wait for a slot
+     * @return a Ticket for the vehicle, or null if no slot was freed before the timeout, if too many vehicles of the
+     * type are already waiting, or if the vehicle type is null
+     * @throws InterruptedException if the thread is interrupted while waiting; the vehicle is not parked
+     */
+    public Ticket parkVehicle(VehicleType vehicleType, Duration timeout) throws InterruptedException {
+        CompletableFuture<ParkingResult> future = tryParkVehicleAsync(vehicleType, timeout);
+        try {
+            return future.get().getTicket();
+        } catch (InterruptedException e) {
+            if (future.cancel(false)) {
+                throw e;
+            }
+            // admitted just before the interruption
+            Thread.currentThread().interrupt();
+            return future.join().getTicket();
+        } catch (ExecutionException e) {
+            throw (e.getCause() instanceof RuntimeException)
+                    ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+        }
+    }
 
-        Ticket ticket = new Ticket(UUID.randomUUID().toString(), vehicleType);
-        this.ticketSet.add(ticket);
-        currentCapacity++;
-        this.vehicleTypeCapacityMap.get(vehicleType).setCurrentCapacity(currentCapacity);
+    /**
+     * Returns the number of vehicles of a type waiting for a slot
+     * @param vehicleType the vehicle type
+     * @return the number of waiting vehicles
+     */
+    public int getWaitingCount(VehicleType vehicleType) {
+        return this.admissionQueues.get(vehicleType).size();
+    }
+
+    /**
+     * Sets the maximum number of vehicles of each type waiting for a slot, DEFAULT_MAX_WAITERS by default. A vehicle
+     * arriving when the queue of its type is full is refused at once.
+     *
+     * @param maxWaiters the maximum number of waiting vehicles of each type
+     */
+    public void setMaxWaiters(int maxWaiters) {
+        if (maxWaiters < 0) {
+            throw new IllegalArgumentException("The maximum number of waiting vehicles must be positive");
+        }
+        for (AdmissionQueue queue : this.admissionQueues.values()) {
+            queue.setMaxWaiters(maxWaiters);
+        }
+    }
+
+    /**
+     * Issues the ticket of a vehicle whose place is taken and notifies the listeners
+     *
+     * @param vehicleType the vehicle type
+     * @param slotCapacity the slots of the vehicle type, where a place was taken for the vehicle
+     * @param start the time the check-in started, see {@link #startTime()}
+     * @return the ticket
+     */
+    private Ticket issueTicket(VehicleType vehicleType, SlotCapacity slotCapacity, long start) {
+        Ticket ticket = this.ticketIdGenerator.newTicket(vehicleType, this.clock.instant());
+        ticket.setSlotNumber(slotCapacity.allocateSlot());
+        this.ticketStore.add(ticket);
+        try {
+            for (ParkingListener listener : this.listeners) {
+                listener.vehicleParked(ticket);
+            }
+        } catch (RuntimeException e) {
+            this.ticketStore.remove(ticket);
+            slotCapacity.releaseSlot(ticket.getSlotNumber());
+            if (slotCapacity.release()) {
+                placesRemoved(vehicleType, 1);
+            }
+            throw e;
+        }
+        this.metrics.recordParked(vehicleType, elapsedSince(start));
+        this.occupancyPublisher.occupancyChanged(vehicleType);
         return ticket;
     }
 
+    /**
+     * Indicates if a walk-in vehicle of a type would be parked at once: no vehicle of the type is waiting and a place
+     * not held back for the reservations is free
+     *
+     * @param vehicleType the vehicle type
+     * @return true if a place is free for the vehicle type
+     */
+    boolean hasFreePlace(VehicleType vehicleType) {
+        return !this.admissionQueues.get(vehicleType).hasWaiters()
+                && this.vehicleTypeCapacityMap.get(vehicleType).hasFreePlace();
+    }
+
+    /**
+     * Checks in a vehicle that reserved its place, using the places held back for the reservations if needed
+     *
+     * @param vehicleType the vehicle type to park
+     * @return a Ticket for the vehicle, or null if all the slots of the vehicle type are occupied
+     */
+    Ticket parkReservedVehicle(VehicleType vehicleType) {
+        long start = startTime();
+        SlotCapacity slotCapacity = this.vehicleTypeCapacityMap.get(vehicleType);
+        if (!slotCapacity.tryReserveHeldBack()) {
+            this.metrics.recordRejected(vehicleType, elapsedSince(start));
+            return null;
+        }
+        return issueTicket(vehicleType, slotCapacity, start);
+    }
+
+    /**
+     * Holds back places of a vehicle type for the reservations in their time window, or gives them back to the
+     * walk-in vehicles, admitting the vehicles waiting for them
+     *
+     * @param vehicleType the vehicle type
+     * @param count the number of places to hold back, negative to give them back
+     */
+    void holdBack(VehicleType vehicleType, int count) {
+        SlotCapacity slotCapacity = this.vehicleTypeCapacityMap.get(vehicleType);
+        slotCapacity.holdBack(count);
+        if (count < 0) {
+            int removed = slotCapacity.removeFreePlaces();
+            if (removed > 0) {
+                placesRemoved(vehicleType, removed);
+            }
+            admitWaiters(vehicleType);
+        }
+    }
+
+    /**
+     * Gives a freed place to the waiting vehicles of a type, in order of arrival, as long as places are free
+     * @param vehicleType the vehicle type
+     */
+    private void admitWaiters(VehicleType vehicleType) {
+        AdmissionQueue queue = this.admissionQueues.get(vehicleType);
+        SlotCapacity slotCapacity = this.vehicleTypeCapacityMap.get(vehicleType);
+        while (queue.hasWaiters() && slotCapacity.tryReserve()) {
+            AdmissionQueue.Waiter waiter = queue.poll();
+            if (waiter == null) {
+                // the waiters gave up meanwhile; the loop checks again for a vehicle that arrived since
+                if (slotCapacity.release()) {
+                    placesRemoved(vehicleType, 1);
+                }
+            } else {
+                admit(vehicleType, slotCapacity, waiter);
+            }
+        }
+    }
+
+    /**
+     * Parks a waiting vehicle in the place taken for it
+     *
+     * @param vehicleType the vehicle type
+     * @param slotCapacity the slots of the vehicle type, where a place was taken for the vehicle
+     * @param waiter the vehicle, already taken out of the queue
+     */
+    private void admit(VehicleType vehicleType, SlotCapacity slotCapacity, AdmissionQueue.Waiter waiter) {
+        Ticket ticket;
+        try {
+            ticket = issueTicket(vehicleType, slotCapacity, NOT_TIMED);
+        } catch (RuntimeException e) {
+            // the place was freed again by issueTicket: the next vehicles may take it
+            waiter.future.completeExceptionally(e);
+            admitWaiters(vehicleType);
+            return;
+        }
+        if (!waiter.future.complete(ParkingResult.parked(ticket))) {
+            // the future was cancelled while the vehicle was admitted: nobody has its ticket
+            tryRemoveVehicle(ticket);
+        }
+    }
+
+    /**
+     * Takes a waiting vehicle out of the queue once its timeout is over, unless it was admitted
+     * @param vehicleType the vehicle type
+     * @param waiter the waiting vehicle
+     */
+    private void giveUp(VehicleType vehicleType, AdmissionQueue.Waiter waiter) {
+        if (waiter.take()) {
+            this.admissionQueues.get(vehicleType).remove(waiter);
+            this.metrics.recordRejected(vehicleType, -1);
+            waiter.future.complete(ParkingResult.NO_SPACE_AVAILABLE);
+        }
+    }
+
     /**
      * Removes a vehicle from the parking
      *
@@ -102,18 +439,836 @@ public class Parking {
      * @throws TicketNotFoundException if the ticket given is not found
      */
     public Ticket removeVehicle(Ticket ticket) throws TicketNotFoundException {
-        if (ticketSet.isEmpty() || ticket == null || !ticketSet.contains(ticket)) {
-            LOG.error(String.format("Error in removing vehicle with ticket: %s", ticket));
-            throw new TicketNotFoundException(String.format("Ticket not found in the system"));
+        ParkingResult result = tryRemoveVehicle(ticket);
+        if (!result.isSuccess()) {
+            throw ticketNotFound("Error in removing vehicle with ticket: {}", ticket);
+        }
+        return result.getTicket();
+    }
+
+    /**
+     * Removes a vehicle from the parking knowing only the numeric id of its ticket, for example read from a barcode
+     *
+     * @param ticketId the numeric id of the ticket received at parking time
+     * @return the ticket with the amount to be paid calculated
+     * @throws TicketNotFoundException if no ticket with this id is found
+     */
+    public Ticket removeVehicle(long ticketId) throws TicketNotFoundException {
+        ParkingResult result = tryRemoveVehicle(ticketId);
+        if (!result.isSuccess()) {
+            throw ticketNotFound("Error in removing vehicle with ticket id: {}", ticketId);
+        }
+        return result.getTicket();
+    }
+
+    /**
+     * Removes a vehicle from the parking knowing only the id printed on its ticket
+     *
+     * @param ticketId the id of the ticket received at parking time: a string id or the decimal representation of a
+     * numeric id
+     * @return the ticket with the amount to be paid calculated
+     * @throws TicketNotFoundException if no ticket with this id is found
+     */
+    public Ticket removeVehicle(String ticketId) throws TicketNotFoundException {
+        ParkingResult result = tryRemoveVehicle(ticketId);
+        if (!result.isSuccess()) {
+            throw ticketNotFound("Error in removing vehicle with ticket id: {}", ticketId);
+        }
+        return result.getTicket();
+    }
+
+    /**
+     * Removes a vehicle from the parking without throwing if its ticket is not found, for example because a scanner
+     * read it twice
+     *
+     * @param ticket received at parking time
+     * @return REMOVED with the ticket and the amount to be paid calculated, or TICKET_NOT_FOUND
+     */
+    public ParkingResult tryRemoveVehicle(Ticket ticket) {
+        long start = startTime();
+        if (!takeStoredTicket(ticket)) {
+            return ParkingResult.TICKET_NOT_FOUND;
         }
+        return ParkingResult.removed(checkOut(ticket, start));
+    }
+
+    /**
+     * Removes the stored ticket having the id of a ticket received at parking time, and copies on the received ticket
+     * the start date and slot recorded at check-in, so that it is billed and freed as it was parked
+     *
+     * @param ticket the ticket received at parking time
+     * @return true if the stored ticket was removed; false if none has this id, or if it was issued for another
+     * vehicle type, in which case it stays in the parking
+     */
+    private boolean takeStoredTicket(Ticket ticket) {
+        Ticket storedTicket = (ticket == null) ? null : this.ticketStore.remove(ticket);
+        if (storedTicket == null) {
+            return false;
+        }
+        if (storedTicket.getVehicleType() != ticket.getVehicleType()) {
+            // a forged or altered ticket must not free a place of another vehicle type
+            this.ticketStore.add(storedTicket);
+            return false;
+        }
+        ticket.setStartDate(storedTicket.getStartDate());
+        ticket.setSlotNumber(storedTicket.getSlotNumber());
+        return true;
+    }
+
+    /**
+     * Removes a vehicle from the parking knowing only the numeric id of its ticket, without throwing if it is not
+     * found
+     *
+     * @param ticketId the numeric id of the ticket received at parking time
+     * @return REMOVED with the ticket and the amount to be paid calculated, or TICKET_NOT_FOUND
+     */
+    public ParkingResult tryRemoveVehicle(long ticketId) {
+        long start = startTime();
+        Ticket ticket = this.ticketStore.remove(ticketId);
+        if (ticket == null) {
+            return ParkingResult.TICKET_NOT_FOUND;
+        }
+        return ParkingResult.removed(checkOut(ticket, start));
+    }
+
+    /**
+     * Removes a vehicle from the parking knowing only the id printed on its ticket, without throwing if it is not
+     * found
+     *
+     * @param ticketId a string id or the decimal representation of a numeric id
+     * @return REMOVED with the ticket and the amount to be paid calculated, or TICKET_NOT_FOUND
+     */
+    public ParkingResult tryRemoveVehicle(String ticketId) {
+        long start = startTime();
+        Ticket ticket = (ticketId == null) ? null : this.ticketStore.remove(ticketId);
+        if (ticket == null) {
+            return ParkingResult.TICKET_NOT_FOUND;
+        }
+        return ParkingResult.removed(checkOut(ticket, start));
+    }
+
+    /**
+     * Logs a ticket not found, at most NOT_FOUND_LOG_RATE times per second, and creates the exception to throw.
+     * The exception has no stack trace: the caller knows where it called the parking.
+     *
+     * @param format the logged message, with a {} placeholder for the ticket
+     * @param ticket the ticket or ticket id not found
+     * @return the exception
+     */
+    private static TicketNotFoundException ticketNotFound(String format, Object ticket) {
+        NOT_FOUND_LOG.error(format, ticket);
+        return new TicketNotFoundException("Ticket not found in the system", false);
+    }
+
+    /**
+     * Checks in a batch of vehicles, for example sent together by a gate controller. The places of each vehicle type
+     * are reserved for the whole batch at once; when there are not enough places, the first vehicles of the batch
+     * get them. The listeners are notified once for the batch and, if one of them fails, no vehicle of the batch is
+     * parked.
+     *
+     * @param vehicleTypes the vehicle types to park
+     * @return a list of the same size and order as vehicleTypes, holding the ticket of each parked vehicle, or null
+     * for a vehicle refused because there are no spaces available for its type (or because its type is null)
+     */
+    public List<Ticket> parkVehicles(List<VehicleType> vehicleTypes) {
+        VehicleType[] types = VehicleType.values();
+        int[] requested = new int[types.length];
+        for (VehicleType vehicleType : vehicleTypes) {
+            if (vehicleType != null) {
+                requested[vehicleType.ordinal()]++;
+            }
+        }
+        int[] granted = new int[types.length];
+        for (int i = 0; i < types.length; i++) {
+            if (requested[i] > 0 && !this.admissionQueues.get(types[i]).hasWaiters()) {
+                granted[i] = this.vehicleTypeCapacityMap.get(types[i]).tryReserve(requested[i]);
+            }
+        }
+
+        TicketIdGenerator generator = this.ticketIdGenerator;
+        Instant startDate = this.clock.instant();
+        int[] remaining = granted.clone();
+        List<Ticket> results = new ArrayList<>(vehicleTypes.size());
+        List<Ticket> parked = new ArrayList<>(vehicleTypes.size());
+        for (VehicleType vehicleType : vehicleTypes) {
+            Ticket ticket = null;
+            if (vehicleType != null && remaining[vehicleType.ordinal()] > 0) {
+                remaining[vehicleType.ordinal()]--;
+                ticket = generator.newTicket(vehicleType, startDate);
+                ticket.setSlotNumber(this.vehicleTypeCapacityMap.get(vehicleType).allocateSlot());
+                this.ticketStore.add(ticket);
+                parked.add(ticket);
+            }
+            results.add(ticket);
+        }
+        if (!parked.isEmpty()) {
+            notifyBatchParked(parked);
+        }
+        for (int i = 0; i < types.length; i++) {
+            if (requested[i] > 0) {
+                this.metrics.recordBatchParked(types[i], granted[i], requested[i] - granted[i]);
+            }
+            if (granted[i] > 0) {
+                this.occupancyPublisher.occupancyChanged(types[i]);
+            }
+        }
+        return results;
+    }
 
-        ticket.setEndDate();
-        ticket.setAmount(this.pricingPolicy.calculatePrice(ticket.getStartDate(), ticket.getEndDate()));
+    /**
+     * Notifies the listeners of the vehicles parked by a batch and rolls the batch back if one of them fails
+     * @param parked the tickets issued for the parked vehicles
+     */
+    private void notifyBatchParked(List<Ticket> parked) {
+        try {
+            List<Ticket> batch = Collections.unmodifiableList(parked);
+            for (ParkingListener listener : this.listeners) {
+                listener.vehiclesParked(batch);
+            }
+        } catch (RuntimeException e) {
+            for (Ticket ticket : parked) {
+                this.ticketStore.remove(ticket);
+                SlotCapacity slotCapacity = this.vehicleTypeCapacityMap.get(ticket.getVehicleType());
+                slotCapacity.releaseSlot(ticket.getSlotNumber());
+                if (slotCapacity.release()) {
+                    placesRemoved(ticket.getVehicleType(), 1);
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Checks out a batch of vehicles. All the vehicles of the batch leave at the same date and are billed together;
+     * the listeners are notified once for the batch and, if one of them fails, no vehicle of the batch is removed.
+     *
+     * @param tickets the tickets received at parking time
+     * @return a list of the same size and order as tickets, holding each ticket with the amount to be paid
+     * calculated, or null for a ticket that is not found (or found twice in the batch)
+     */
+    public List<Ticket> removeVehicles(Collection<Ticket> tickets) {
+        List<Ticket> results = new ArrayList<>(tickets.size());
+        List<Ticket> removed = new ArrayList<>(tickets.size());
+        for (Ticket ticket : tickets) {
+            if (!takeStoredTicket(ticket)) {
+                results.add(null);
+                continue;
+            }
+            removed.add(ticket);
+            results.add(ticket);
+        }
+        if (removed.size() < tickets.size()) {
+            NOT_FOUND_LOG.error("Error in removing vehicles of a batch: {} tickets not found",
+                    tickets.size() - removed.size());
+        }
+        if (removed.isEmpty()) {
+            return results;
+        }
 
-        this.ticketSet.remove(ticket);
-        Integer currentCapacity = this.vehicleTypeCapacityMap.get(ticket.getVehicleType()).currentCapacity;
-        currentCapacity--;
-        this.vehicleTypeCapacityMap.get(ticket.getVehicleType()).setCurrentCapacity(currentCapacity);
+        try {
+            Instant endDate = this.clock.instant();
+            Map<VehicleType, PricingPolicy> policies = this.pricingPolicies;
+            for (Ticket ticket : removed) {
+                ticket.setEndDate(endDate);
+                PricingPolicy policy = policies.get(ticket.getVehicleType());
+                ticket.setAmountInCents(policy.calculatePriceInCents(ticket.getVehicleType(), ticket.getStartDate(),
+                        endDate));
+            }
+            List<Ticket> batch = Collections.unmodifiableList(removed);
+            for (ParkingListener listener : this.listeners) {
+                listener.vehiclesRemoved(batch);
+            }
+        } catch (RuntimeException e) {
+            // the vehicles are still in the parking if they cannot be billed
+            for (Ticket ticket : removed) {
+                this.ticketStore.add(ticket);
+            }
+            throw e;
+        }
+
+        VehicleType[] types = VehicleType.values();
+        int[] released = new int[types.length];
+        for (Ticket ticket : removed) {
+            this.vehicleTypeCapacityMap.get(ticket.getVehicleType()).releaseSlot(ticket.getSlotNumber());
+            released[ticket.getVehicleType().ordinal()]++;
+            this.metrics.recordBatchRemoved(ticket.getVehicleType(), ticket.getAmountInCents());
+        }
+        for (int i = 0; i < types.length; i++) {
+            if (released[i] > 0) {
+                int closed = this.vehicleTypeCapacityMap.get(types[i]).release(released[i]);
+                if (closed > 0) {
+                    placesRemoved(types[i], closed);
+                }
+                if (this.admissionQueues.get(types[i]).hasWaiters()) {
+                    admitWaiters(types[i]);
+                }
+                this.occupancyPublisher.occupancyChanged(types[i]);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Finds the ticket of a vehicle in the parking
+     * @param ticketId the numeric id of the ticket
+     * @return the ticket, or null if no vehicle with this ticket is in the parking
+     */
+    public Ticket findTicket(long ticketId) {
+        return this.ticketStore.get(ticketId);
+    }
+
+    /**
+     * Finds the ticket of a vehicle in the parking
+     * @param ticketId a string id or the decimal representation of a numeric id
+     * @return the ticket, or null if no vehicle with this ticket is in the parking
+     */
+    public Ticket findTicket(String ticketId) {
+        return (ticketId == null) ? null : this.ticketStore.get(ticketId);
+    }
+
+    /**
+     * Bills a ticket already removed from the ticket store and frees its slot
+     *
+     * @param ticket the removed ticket
+     * @param start the time the check-out started, see {@link #startTime()}
+     * @return the billed ticket
+     */
+    private Ticket checkOut(Ticket ticket, long start) {
+        try {
+            ticket.setEndDate(this.clock.instant());
+            PricingPolicy policy = this.pricingPolicies.get(ticket.getVehicleType());
+            if (start == NOT_TIMED) {
+                ticket.setAmountInCents(policy.calculatePriceInCents(ticket.getVehicleType(), ticket.getStartDate(),
+                        ticket.getEndDate()));
+            } else {
+                long pricingStart = System.nanoTime();
+                ticket.setAmountInCents(policy.calculatePriceInCents(ticket.getVehicleType(), ticket.getStartDate(),
+                        ticket.getEndDate()));
+                this.metrics.recordPriced(System.nanoTime() - pricingStart);
+            }
+            for (ParkingListener listener : this.listeners) {
+                listener.vehicleRemoved(ticket);
+            }
+        } catch (RuntimeException e) {
+            // the vehicle is still in the parking if it cannot be billed
+            this.ticketStore.add(ticket);
+            throw e;
+        }
+
+        VehicleType vehicleType = ticket.getVehicleType();
+        SlotCapacity slotCapacity = this.vehicleTypeCapacityMap.get(vehicleType);
+        slotCapacity.releaseSlot(ticket.getSlotNumber());
+        this.metrics.recordRemoved(vehicleType, ticket.getAmountInCents(), elapsedSince(start));
+        AdmissionQueue queue = this.admissionQueues.get(vehicleType);
+        // a pending shrink and the places held back for the reservations take the place before the waiting vehicles
+        AdmissionQueue.Waiter waiter = (queue.hasWaiters() && slotCapacity.getPendingShrink() == 0
+                && slotCapacity.canHandOver()) ? queue.poll() : null;
+        if (waiter != null) {
+            // the place of the vehicle passes to the first waiting vehicle without being freed
+            admit(vehicleType, slotCapacity, waiter);
+        } else {
+            if (slotCapacity.release()) {
+                placesRemoved(vehicleType, 1);
+            }
+            if (queue.hasWaiters()) {
+                admitWaiters(vehicleType);
+            }
+            this.occupancyPublisher.occupancyChanged(vehicleType);
+        }
         return ticket;
     }
+
+    /**
+     * Puts back in the parking the tickets of vehicles that were parked before a restart.
+     * The tickets are counted in the slots of their vehicle type even if the capacity is exceeded and the listeners
+     * are not notified. Each vehicle keeps the slot recorded on its ticket; a ticket without a slot, or whose slot is
+     * taken or no longer exists, is given a free slot if one is left. This method must be called before the parking is
+     * opened to the gates.
+     *
+     * @param tickets the open tickets to restore
+     */
+    public void restoreTickets(Collection<Ticket> tickets) {
+        List<Ticket> withoutSlot = new ArrayList<>();
+        for (Ticket ticket : tickets) {
+            if (this.ticketStore.add(ticket)) {
+                SlotCapacity slotCapacity = this.vehicleTypeCapacityMap.get(ticket.getVehicleType());
+                slotCapacity.occupy();
+                if (!slotCapacity.occupySlot(ticket.getSlotNumber())) {
+                    withoutSlot.add(ticket);
+                }
+            }
+        }
+        for (Ticket ticket : withoutSlot) {
+            ticket.setSlotNumber(this.vehicleTypeCapacityMap.get(ticket.getVehicleType()).allocateSlot());
+        }
+        for (VehicleType vehicleType : VehicleType.values()) {
+            this.occupancyPublisher.occupancyChanged(vehicleType);
+        }
+    }
+
+    /**
+     * Returns the tickets of the vehicles in the parking. The tickets can be read while gates check vehicles in and
+     * out: the result contains at least all the check-ins and check-outs completed before this method was called.
+     *
+     * @return a copy of the open tickets
+     */
+    public List<Ticket> getOpenTickets() {
+        List<Ticket> tickets = new ArrayList<>(this.ticketStore.size());
+        this.ticketStore.forEach(tickets::add);
+        return tickets;
+    }
+
+    /**
+     * Indicates if a vehicle is parked in a slot, for example to know if a charger is busy
+     * @param vehicleType the vehicle type of the slot
+     * @param slotNumber the number of the slot among the slots of the vehicle type
+     * @return true if a vehicle is parked in the slot
+     */
+    public boolean isSlotOccupied(VehicleType vehicleType, int slotNumber) {
+        return this.vehicleTypeCapacityMap.get(vehicleType).isSlotOccupied(slotNumber);
+    }
+
+    /**
+     * Returns the maximum number of vehicles of a type
+     * @param vehicleType the vehicle type
+     * @return the number of slots for the vehicle type, including the slots of a pending shrink still occupied
+     */
+    public int getCapacity(VehicleType vehicleType) {
+        return this.vehicleTypeCapacityMap.get(vehicleType).capacity;
+    }
+
+    /**
+     * Returns the number of places of a vehicle type still to remove from its capacity, waiting for their vehicles
+     * to leave
+     * @param vehicleType the vehicle type
+     * @return the number of places of the pending shrinks, 0 if the capacity is the one asked
+     */
+    public int getPendingShrink(VehicleType vehicleType) {
+        return this.vehicleTypeCapacityMap.get(vehicleType).getPendingShrink();
+    }
+
+    /**
+     * Changes the number of slots of a vehicle type while the gates check vehicles in and out, for example to close
+     * a floor for cleaning. A growth opens the new slots at once, cancelling first the shrinks still pending, latest
+     * first, up to the latest move of slots to another type, which is never cancelled. A shrink never evicts a
+     * vehicle: the free places are removed at once and the occupied ones as their vehicles leave, before any waiting
+     * vehicle gets them; the shrinks wait in a queue, in order. The highest numbered slots are closed at once, their
+     * vehicles keeping them until they leave.
+     *
+     * @param vehicleType the vehicle type
+     * @param capacity the new number of slots of the vehicle type
+     * @throws InvalidCapacityException if the capacity is negative
+     */
+    public void setCapacity(VehicleType vehicleType, int capacity) throws InvalidCapacityException {
+        Objects.requireNonNull(vehicleType);
+        if (capacity < 0) {
+            throw new InvalidCapacityException("The number of slots must be positive");
+        }
+        synchronized (this.reconfigurationLock) {
+            int change = capacity - getTargetCapacity(vehicleType);
+            if (change == 0) {
+                return;
+            }
+            Map<VehicleType, Integer> capacities = new EnumMap<>(VehicleType.class);
+            capacities.put(vehicleType, capacity);
+            notifyCapacitiesChanged(capacities);
+            synchronized (this.capacityLock) {
+                if (change > 0) {
+                    grow(vehicleType, change);
+                } else {
+                    shrink(vehicleType, -change, null);
+                }
+            }
+        }
+        capacitiesChanged();
+    }
+
+    /**
+     * Moves slots from a vehicle type to another, for example to convert fuel bays to chargers. The slots are
+     * removed from the first type as in {@link #setCapacity(VehicleType, int)}, and each slot removed is added to
+     * the second type at once: a bay still occupied is converted when its vehicle leaves.
+     *
+     * @param from the vehicle type losing the slots
+     * @param to the vehicle type gaining the slots
+     * @param count the number of slots to move
+     * @throws InvalidCapacityException if the count is negative or greater than the capacity of the first type
+     */
+    public void moveCapacity(VehicleType from, VehicleType to, int count) throws InvalidCapacityException {
+        Objects.requireNonNull(from);
+        Objects.requireNonNull(to);
+        synchronized (this.reconfigurationLock) {
+            int capacity = this.vehicleTypeCapacityMap.get(from).getTargetCapacity();
+            if (count < 0 || count > capacity) {
+                throw new InvalidCapacityException("Between 0 and " + capacity + " slots of " + from + " can be moved");
+            }
+            if (from == to || count == 0) {
+                return;
+            }
+            Map<VehicleType, Integer> capacities = new EnumMap<>(VehicleType.class);
+            capacities.put(from, getTargetCapacity(from) - count);
+            capacities.put(to, getTargetCapacity(to) + count);
+            notifyCapacitiesChanged(capacities);
+            synchronized (this.capacityLock) {
+                shrink(from, count, to);
+            }
+        }
+        capacitiesChanged();
+    }
+
+    /**
+     * Returns the number of slots of a vehicle type once its pending shrinks and the moves of slots to it are over
+     * @param vehicleType the vehicle type
+     * @return the number of slots asked for the vehicle type
+     */
+    public int getTargetCapacity(VehicleType vehicleType) {
+        synchronized (this.capacityLock) {
+            int capacity = this.vehicleTypeCapacityMap.get(vehicleType).getTargetCapacity();
+            for (ArrayDeque<QueuedShrink> queue : this.shrinkQueues.values()) {
+                for (QueuedShrink shrink : queue) {
+                    if (shrink.destination == vehicleType) {
+                        capacity += shrink.remaining;
+                    }
+                }
+            }
+            return capacity;
+        }
+    }
+
+    /**
+     * Notifies the listeners of a change of capacity before it is applied, so that a listener failing cancels it
+     * @param capacities the number of slots of each vehicle type changed, once the change is over
+     */
+    private void notifyCapacitiesChanged(Map<VehicleType, Integer> capacities) {
+        Map<VehicleType, Integer> changed = Collections.unmodifiableMap(capacities);
+        for (ParkingListener listener : this.listeners) {
+            listener.capacitiesChanged(changed);
+        }
+    }
+
+    /**
+     * Adds places to a vehicle type, cancelling first the shrinks queued last that close their places. The moves
+     * queued are not cancelled. Called under the capacity lock.
+     * @param vehicleType the vehicle type
+     * @param count the number of places to add
+     */
+    private void grow(VehicleType vehicleType, int count) {
+        SlotCapacity slotCapacity = this.vehicleTypeCapacityMap.get(vehicleType);
+        ArrayDeque<QueuedShrink> queue = this.shrinkQueues.get(vehicleType);
+        int closing = 0;
+        for (Iterator<QueuedShrink> shrinks = queue.descendingIterator(); shrinks.hasNext(); ) {
+            QueuedShrink shrink = shrinks.next();
+            if (shrink.destination != null) {
+                break;
+            }
+            closing += shrink.remaining;
+        }
+        int cancelled = slotCapacity.cancelShrink(Math.min(count, closing));
+        for (int left = cancelled; left > 0; ) {
+            QueuedShrink last = queue.peekLast();
+            int taken = Math.min(left, last.remaining);
+            last.remaining -= taken;
+            left -= taken;
+            if (last.remaining == 0) {
+                queue.pollLast();
+            }
+        }
+        if (count > cancelled) {
+            slotCapacity.grow(count - cancelled);
+        }
+    }
+
+    /**
+     * Adds to a vehicle type the places moved from another one. The places go first to the oldest shrinks of the
+     * type still pending, and on to their destination if they are moves, so that chained moves complete. Called under
+     * the capacity lock.
+     * @param vehicleType the vehicle type getting the places
+     * @param count the number of places moved
+     */
+    private void receiveMoved(VehicleType vehicleType, int count) {
+        SlotCapacity slotCapacity = this.vehicleTypeCapacityMap.get(vehicleType);
+        int forwarded = slotCapacity.cancelShrink(count);
+        if (forwarded > 0) {
+            dequeueShrinks(vehicleType, forwarded);
+        }
+        if (count > forwarded) {
+            slotCapacity.grow(count - forwarded);
+        }
+    }
+
+    /**
+     * Queues a shrink of the places of a vehicle type and removes the free places at once. Called under the capacity
+     * lock.
+     * @param vehicleType the vehicle type
+     * @param count the number of places to remove
+     * @param destination the vehicle type getting the places removed, or null
+     */
+    private void shrink(VehicleType vehicleType, int count, VehicleType destination) {
+        this.shrinkQueues.get(vehicleType).add(new QueuedShrink(count, destination));
+        int removed = this.vehicleTypeCapacityMap.get(vehicleType).shrink(count);
+        if (removed > 0) {
+            dequeueShrinks(vehicleType, removed);
+        }
+    }
+
+    /**
+     * Accounts for places of a vehicle type removed by its pending shrinks, freed by a check-out or a reservation
+     * @param vehicleType the vehicle type
+     * @param count the number of places removed
+     */
+    private void placesRemoved(VehicleType vehicleType, int count) {
+        synchronized (this.capacityLock) {
+            dequeueShrinks(vehicleType, count);
+        }
+        capacitiesChanged();
+    }
+
+    /**
+     * Takes the places removed out of the oldest queued shrinks of a vehicle type, giving them to the destination of
+     * the moves. Called under the capacity lock.
+     * @param vehicleType the vehicle type
+     * @param count the number of places removed
+     */
+    private void dequeueShrinks(VehicleType vehicleType, int count) {
+        ArrayDeque<QueuedShrink> queue = this.shrinkQueues.get(vehicleType);
+        while (count > 0) {
+            QueuedShrink first = queue.peekFirst();
+            int taken = Math.min(count, first.remaining);
+            first.remaining -= taken;
+            count -= taken;
+            if (first.remaining == 0) {
+                queue.pollFirst();
+            }
+            if (first.destination != null) {
+                receiveMoved(first.destination, taken);
+            }
+        }
+    }
+
+    /**
+     * Admits the vehicles waiting for the places added and publishes the new capacities
+     */
+    private void capacitiesChanged() {
+        for (VehicleType vehicleType : VehicleType.values()) {
+            if (this.admissionQueues.get(vehicleType).hasWaiters()) {
+                admitWaiters(vehicleType);
+            }
+            this.occupancyPublisher.occupancyChanged(vehicleType);
+        }
+    }
+
+    /**
+     * Returns the number of vehicles of a type currently in the parking
+     * @param vehicleType the vehicle type
+     * @return the number of occupied slots for the vehicle type
+     */
+    public int getOccupancy(VehicleType vehicleType) {
+        return this.vehicleTypeCapacityMap.get(vehicleType).currentCapacity;
+    }
+
+    /**
+     * Reads the clock at the start of a check-in or check-out if the latencies are tracked
+     * @return the value of System.nanoTime(), or NOT_TIMED if the latencies are not tracked
+     */
+    private long startTime() {
+        return this.metrics.isLatencyTracked() ? System.nanoTime() : NOT_TIMED;
+    }
+
+    /**
+     * Creates the timer of the waiting vehicles, on a daemon thread not to keep the JVM alive
+     * @return the timer, removing the timeouts cancelled
+     */
+    private static ScheduledThreadPoolExecutor newWaitTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "parking-wait-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    /**
+     * Returns the number of timeouts of waiting vehicles not over yet, of all the parkings
+     * @return the number of timeouts scheduled
+     */
+    static int getScheduledWaitTimeouts() {
+        return WAIT_TIMER.getQueue().size();
+    }
+
+    /**
+     * Measures the duration of a check-in or check-out
+     * @param start the value returned by startTime() when it started
+     * @return the duration in nanoseconds, or -1 if the latencies are not tracked
+     */
+    private static long elapsedSince(long start) {
+        return (start == NOT_TIMED) ? -1 : Math.max(0, System.nanoTime() - start);
+    }
+
+    /**
+     * Returns the metrics of the parking: occupancy, check-ins, refusals, check-outs, revenue and latencies
+     * @return the metrics, to read with snapshot() or to register in JMX
+     */
+    public ParkingMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Returns the pricing policy of a vehicle type
+     * @param vehicleType the vehicle type
+     * @return the policy billing the vehicles of this type
+     */
+    public PricingPolicy getPricingPolicy(VehicleType vehicleType) {
+        return this.pricingPolicies.get(vehicleType);
+    }
+
+    /**
+     * Sets the pricing policy of all the vehicle types. The vehicles already checked out stay billed with the
+     * previous policies; a check-out in progress uses either the previous or the new policies, never a mix of both.
+     *
+     * @param pricingPolicy the policy billing all the vehicles
+     */
+    public void setPricingPolicy(PricingPolicy pricingPolicy) {
+        Objects.requireNonNull(pricingPolicy);
+        synchronized (this.pricingLock) {
+            this.pricingPolicies = policiesFor(pricingPolicy);
+        }
+    }
+
+    /**
+     * Sets the pricing policy of a vehicle type, for example a higher price for the 50KW slots. The policy is
+     * published atomically without blocking the check-outs: a check-out in progress uses either the previous or the
+     * new policy.
+     *
+     * @param vehicleType the vehicle type
+     * @param pricingPolicy the policy billing the vehicles of this type
+     */
+    public void setPricingPolicy(VehicleType vehicleType, PricingPolicy pricingPolicy) {
+        Objects.requireNonNull(vehicleType);
+        Objects.requireNonNull(pricingPolicy);
+        synchronized (this.pricingLock) {
+            Map<VehicleType, PricingPolicy> policies = new EnumMap<>(this.pricingPolicies);
+            policies.put(vehicleType, pricingPolicy);
+            this.pricingPolicies = Collections.unmodifiableMap(policies);
+        }
+    }
+
+    /**
+     * Creates the map of the pricing policies where all the vehicle types have the same policy
+     * @param pricingPolicy the policy of all the vehicle types
+     * @return an unmodifiable map of the policies
+     */
+    private static Map<VehicleType, PricingPolicy> policiesFor(PricingPolicy pricingPolicy) {
+        Map<VehicleType, PricingPolicy> policies = new EnumMap<>(VehicleType.class);
+        for (VehicleType vehicleType : VehicleType.values()) {
+            policies.put(vehicleType, pricingPolicy);
+        }
+        return Collections.unmodifiableMap(policies);
+    }
+
+    /**
+     * Returns the clock giving the start and end dates of the tickets
+     * @return the clock of the parking
+     */
+    public Clock getClock() {
+        return this.clock;
+    }
+
+    /**
+     * Sets the clock giving the start and end dates of the tickets. By default the parking uses the system clock in
+     * UTC; a simulation replaying traffic faster than real time sets a clock it advances itself.
+     *
+     * @param clock the clock
+     */
+    public void setClock(Clock clock) {
+        this.clock = Objects.requireNonNull(clock);
+    }
+
+    /**
+     * Sets the generator of the ids of the tickets issued by the parking. By default the tickets have a
+     * numeric id generated by a MonotonicTicketIdGenerator for gate 0.
+     *
+     * @param ticketIdGenerator the generator, for example a UuidTicketIdGenerator for UUID string ids
+     */
+    public void setTicketIdGenerator(TicketIdGenerator ticketIdGenerator) {
+        this.ticketIdGenerator = Objects.requireNonNull(ticketIdGenerator);
+    }
+
+    /**
+     * Sets the store of the open tickets. By default the tickets are kept on the heap by a HeapTicketStore; a parking
+     * holding millions of vehicles can keep them off the heap with an OffHeapTicketStore. The store can only be
+     * changed while the parking is empty, before it is opened to the gates.
+     *
+     * @param ticketStore the store, empty
+     * @throws IllegalStateException if vehicles are in the parking or the store is not empty
+     */
+    public void setTicketStore(TicketStore ticketStore) {
+        Objects.requireNonNull(ticketStore);
+        if (this.ticketStore.size() > 0 || ticketStore.size() > 0) {
+            throw new IllegalStateException("The ticket store can only be changed while the parking is empty");
+        }
+        this.ticketStore = ticketStore;
+    }
+
+    /**
+     * Returns the publisher of the occupancy of the parking: its subscribers receive the number of vehicles and of
+     * slots of a vehicle type each time it changes, coalesced to the latest value when they do not keep up, without
+     * ever slowing the gates down
+     *
+     * @return the publisher
+     */
+    public Flow.Publisher<OccupancyEvent> getOccupancyPublisher() {
+        return this.occupancyPublisher;
+    }
+
+    /**
+     * Sets the executor delivering the events of the occupancy publisher. By default they are delivered on a daemon
+     * thread dedicated to the publishers of the parkings.
+     *
+     * @param executor the executor, for example the event loop of the application serving the displays
+     */
+    public void setOccupancyExecutor(Executor executor) {
+        this.occupancyPublisher.setExecutor(executor);
+    }
+
+    /**
+     * Adds a listener notified each time a vehicle is checked in or checked out
+     * @param listener the listener to add
+     */
+    public void addListener(ParkingListener listener) {
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener previously added
+     * @param listener the listener to remove
+     */
+    public void removeListener(ParkingListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * A shrink of the capacity of a vehicle type, waiting for vehicles to leave
+     */
+    private static final class QueuedShrink {
+
+        /**
+         * The number of places still to remove, changed under the capacity lock
+         */
+        int remaining;
+
+        /**
+         * The vehicle type getting the places removed, or null if they are closed
+         */
+        final VehicleType destination;
+
+        /**
+         * Creates a queued shrink
+         * @param remaining the number of places to remove
+         * @param destination the vehicle type getting the places removed, or null if they are closed
+         */
+        QueuedShrink(int remaining, VehicleType destination) {
+            this.remaining = remaining;
+            this.destination = destination;
+        }
+    }
 }
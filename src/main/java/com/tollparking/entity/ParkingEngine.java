@@ -0,0 +1,418 @@
+package com.tollparking.entity;
+
+import com.tollparking.enums.VehicleType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An event-driven front of a Parking for many contended gates. The gates do not call the parking: they publish their
+ * check-ins and check-outs into a pre-allocated ring buffer, and a single writer thread takes them out in batches and
+ * applies each batch with one parkVehicles and one removeVehicles call. The slot counters, the ticket store and the
+ * listeners of the parking are then only touched by one thread, so the gates no longer fight over their cache lines;
+ * a gate only pays for claiming a place in the ring, a single atomic increment. The result of each command is
+ * returned through a CompletableFuture, to wait for or to chain a callback to. The callbacks run on the writer
+ * thread and must not block; the commands they publish are applied with the next batch.
+ *
+ * The commands of a batch were published concurrently: the check-outs of a batch are applied before its check-ins,
+ * so that the slots they free can be given to the vehicles arriving. A gate publishing into a full ring waits for the
+ * writer to make room, which slows the gates down rather than dropping their commands.
+ *
+ * While the engine runs, the parking should only be changed through it, so that a single thread writes to it.
+ */
+public class ParkingEngine implements Closeable {
+
+    private static Logger LOG = LoggerFactory.getLogger(ParkingEngine.class);
+
+    /**
+     * The default number of commands of the ring buffer
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 4096;
+
+    /**
+     * The largest number of commands applied in a batch
+     */
+    static final int MAX_BATCH_SIZE = 256;
+
+    /**
+     * The number of times the writer polls an empty ring before sleeping
+     */
+    private static final int SPINS_BEFORE_SLEEP = 100;
+
+    /**
+     * The sequence given to the commands published once the engine is closed
+     */
+    private static final long CLOSED = Long.MIN_VALUE / 2;
+
+    /**
+     * A check-in or check-out in the ring buffer, reused by the gates publishing into its place
+     */
+    private static final class Command {
+
+        /**
+         * The type of the vehicle to park, or null for a check-out
+         */
+        VehicleType vehicleType;
+
+        /**
+         * The ticket of the vehicle to remove, or null for a check-in
+         */
+        Ticket ticket;
+
+        /**
+         * The future completed with the result of the command
+         */
+        CompletableFuture<ParkingResult> result;
+    }
+
+    /**
+     * The parking owned by the writer thread
+     */
+    private final Parking parking;
+
+    /**
+     * The commands, in a ring
+     */
+    private final Command[] commands;
+
+    /**
+     * The state of each place of the ring: the sequence a gate may claim it with, or that sequence + 1 once the
+     * command of the gate is published
+     */
+    private final AtomicLongArray sequences;
+
+    /**
+     * The number of places of the ring minus 1
+     */
+    private final int mask;
+
+    /**
+     * The next sequence claimed by a gate, or a negative number once the engine is closed
+     */
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    /**
+     * The sequence of the next command applied by the writer, written by the writer thread only
+     */
+    private long head;
+
+    /**
+     * The sequence at which the writer stops, once the engine is closed; -1 while it runs
+     */
+    private volatile long endSequence = -1;
+
+    /**
+     * True while the writer sleeps, waiting for the gates to publish
+     */
+    private volatile boolean writerSleeping;
+
+    /**
+     * The thread applying the commands
+     */
+    private final Thread writer;
+
+    /**
+     * The commands published by the writer thread itself, from a callback chained to a result: they are applied
+     * with the next batch, as the writer cannot wait for room in the ring
+     */
+    private final ArrayDeque<Command> writerCommands = new ArrayDeque<>();
+
+    /**
+     * The types of the vehicles to park of the current batch
+     */
+    private final List<VehicleType> vehicleTypes = new ArrayList<>(MAX_BATCH_SIZE);
+
+    /**
+     * The futures of the check-ins of the current batch
+     */
+    private final List<CompletableFuture<ParkingResult>> parkResults = new ArrayList<>(MAX_BATCH_SIZE);
+
+    /**
+     * The tickets of the vehicles to remove of the current batch
+     */
+    private final List<Ticket> tickets = new ArrayList<>(MAX_BATCH_SIZE);
+
+    /**
+     * The futures of the check-outs of the current batch
+     */
+    private final List<CompletableFuture<ParkingResult>> removeResults = new ArrayList<>(MAX_BATCH_SIZE);
+
+    /**
+     * The number of batches applied
+     */
+    private volatile long batchCount;
+
+    /**
+     * The number of commands applied
+     */
+    private volatile long commandCount;
+
+    /**
+     * Creates an engine
+     * @param parking the parking owned by the writer thread
+     * @param bufferSize the number of commands of the ring buffer, a power of 2
+     */
+    private ParkingEngine(Parking parking, int bufferSize) {
+        this.parking = parking;
+        this.commands = new Command[bufferSize];
+        this.sequences = new AtomicLongArray(bufferSize);
+        for (int i = 0; i < bufferSize; i++) {
+            this.commands[i] = new Command();
+            this.sequences.set(i, i);
+        }
+        this.mask = bufferSize - 1;
+        this.writer = new Thread(this::run, "parking-engine-writer");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Starts an engine applying the commands of the gates to a parking
+     *
+     * @param parking the parking, changed only through the engine until it is closed
+     * @param bufferSize the number of commands of the ring buffer, a power of 2, for example DEFAULT_BUFFER_SIZE
+     * @return the started engine
+     * @throws IllegalArgumentException if the buffer size is not a positive power of 2
+     */
+    public static ParkingEngine start(Parking parking, int bufferSize) {
+        Objects.requireNonNull(parking);
+        if (bufferSize <= 0 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("The buffer size must be a positive power of 2");
+        }
+        ParkingEngine engine = new ParkingEngine(parking, bufferSize);
+        engine.writer.start();
+        return engine;
+    }
+
+    /**
+     * Publishes the check-in of a vehicle
+     *
+     * @param vehicleType the vehicle type
+     * @return a future completed with PARKED and the ticket of the vehicle, or NO_SPACE_AVAILABLE, or
+     * INVALID_VEHICLE_TYPE if the vehicle type is null; completed exceptionally if a listener of the parking failed
+     * or the engine is closed
+     */
+    public CompletableFuture<ParkingResult> parkVehicle(VehicleType vehicleType) {
+        if (vehicleType == null) {
+            return CompletableFuture.completedFuture(ParkingResult.INVALID_VEHICLE_TYPE);
+        }
+        return publish(vehicleType, null);
+    }
+
+    /**
+     * Publishes the check-out of a vehicle
+     *
+     * @param ticket the ticket received at parking time
+     * @return a future completed with REMOVED and the billed ticket, or TICKET_NOT_FOUND; completed exceptionally if
+     * a listener of the parking failed or the engine is closed
+     */
+    public CompletableFuture<ParkingResult> removeVehicle(Ticket ticket) {
+        if (ticket == null) {
+            return CompletableFuture.completedFuture(ParkingResult.TICKET_NOT_FOUND);
+        }
+        return publish(null, ticket);
+    }
+
+    /**
+     * Claims a place in the ring, waiting for the writer to free it, and publishes a command into it
+     *
+     * @param vehicleType the type of the vehicle to park, or null for a check-out
+     * @param ticket the ticket of the vehicle to remove, or null for a check-in
+     * @return the future completed with the result of the command
+     */
+    private CompletableFuture<ParkingResult> publish(VehicleType vehicleType, Ticket ticket) {
+        CompletableFuture<ParkingResult> result = new CompletableFuture<>();
+        if (Thread.currentThread() == this.writer) {
+            Command command = new Command();
+            command.vehicleType = vehicleType;
+            command.ticket = ticket;
+            command.result = result;
+            this.writerCommands.add(command);
+            return result;
+        }
+        long sequence = this.nextSequence.getAndIncrement();
+        if (sequence < 0) {
+            result.completeExceptionally(new IllegalStateException("The parking engine is closed"));
+            return result;
+        }
+        int index = (int) sequence & this.mask;
+        for (int spins = 0; this.sequences.get(index) != sequence; spins++) {
+            // the ring is full: wait for the writer to apply the command published a lap earlier
+            if (spins < SPINS_BEFORE_SLEEP) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(1_000);
+            }
+        }
+        Command command = this.commands[index];
+        command.vehicleType = vehicleType;
+        command.ticket = ticket;
+        command.result = result;
+        this.sequences.set(index, sequence + 1);
+        if (this.writerSleeping) {
+            LockSupport.unpark(this.writer);
+        }
+        return result;
+    }
+
+    /**
+     * Applies the published commands in batches until the engine is closed and all the commands claimed before are
+     * applied
+     */
+    private void run() {
+        int idleSpins = 0;
+        while (true) {
+            int count = 0;
+            for (; count < MAX_BATCH_SIZE && !this.writerCommands.isEmpty(); count++) {
+                addToBatch(this.writerCommands.poll());
+            }
+            for (; count < MAX_BATCH_SIZE && isPublished(this.head); count++, this.head++) {
+                int index = (int) this.head & this.mask;
+                Command command = this.commands[index];
+                addToBatch(command);
+                command.vehicleType = null;
+                command.ticket = null;
+                command.result = null;
+                // frees the place for the gate claiming it on the next lap
+                this.sequences.set(index, this.head + this.commands.length);
+            }
+            if (count > 0) {
+                applyRemovals(this.tickets, this.removeResults);
+                applyParkings(this.vehicleTypes, this.parkResults);
+                this.batchCount++;
+                this.commandCount += count;
+                idleSpins = 0;
+            } else if (this.head == this.endSequence) {
+                return;
+            } else if (idleSpins++ < SPINS_BEFORE_SLEEP) {
+                Thread.onSpinWait();
+            } else {
+                this.writerSleeping = true;
+                if (!isPublished(this.head) && this.endSequence != this.head) {
+                    LockSupport.park(this);
+                }
+                this.writerSleeping = false;
+            }
+        }
+    }
+
+    /**
+     * Adds a command to the current batch
+     * @param command the command
+     */
+    private void addToBatch(Command command) {
+        if (command.ticket == null) {
+            this.vehicleTypes.add(command.vehicleType);
+            this.parkResults.add(command.result);
+        } else {
+            this.tickets.add(command.ticket);
+            this.removeResults.add(command.result);
+        }
+    }
+
+    /**
+     * Indicates if the command of a sequence is published
+     * @param sequence the sequence
+     * @return true if the gate that claimed the sequence has published its command
+     */
+    private boolean isPublished(long sequence) {
+        return this.sequences.get((int) sequence & this.mask) == sequence + 1;
+    }
+
+    /**
+     * Removes the vehicles of a batch and completes their futures
+     * @param tickets the tickets of the vehicles to remove
+     * @param results the futures of the check-outs, in the same order
+     */
+    private void applyRemovals(List<Ticket> tickets, List<CompletableFuture<ParkingResult>> results) {
+        if (tickets.isEmpty()) {
+            return;
+        }
+        try {
+            List<Ticket> removed = this.parking.removeVehicles(tickets);
+            for (int i = 0; i < removed.size(); i++) {
+                Ticket ticket = removed.get(i);
+                results.get(i).complete((ticket == null) ? ParkingResult.TICKET_NOT_FOUND
+                        : ParkingResult.removed(ticket));
+            }
+        } catch (RuntimeException e) {
+            LOG.error("Error in removing a batch of {} vehicles", tickets.size(), e);
+            results.forEach(result -> result.completeExceptionally(e));
+        } finally {
+            tickets.clear();
+            results.clear();
+        }
+    }
+
+    /**
+     * Parks the vehicles of a batch and completes their futures
+     * @param vehicleTypes the types of the vehicles to park
+     * @param results the futures of the check-ins, in the same order
+     */
+    private void applyParkings(List<VehicleType> vehicleTypes, List<CompletableFuture<ParkingResult>> results) {
+        if (vehicleTypes.isEmpty()) {
+            return;
+        }
+        try {
+            List<Ticket> parked = this.parking.parkVehicles(vehicleTypes);
+            for (int i = 0; i < parked.size(); i++) {
+                Ticket ticket = parked.get(i);
+                results.get(i).complete((ticket == null) ? ParkingResult.NO_SPACE_AVAILABLE
+                        : ParkingResult.parked(ticket));
+            }
+        } catch (RuntimeException e) {
+            LOG.error("Error in parking a batch of {} vehicles", vehicleTypes.size(), e);
+            results.forEach(result -> result.completeExceptionally(e));
+        } finally {
+            vehicleTypes.clear();
+            results.clear();
+        }
+    }
+
+    /**
+     * Returns the number of batches applied by the writer
+     * @return the number of batches
+     */
+    public long getBatchCount() {
+        return this.batchCount;
+    }
+
+    /**
+     * Returns the number of commands applied by the writer; divided by the number of batches, it gives the average
+     * size of a batch
+     * @return the number of commands
+     */
+    public long getCommandCount() {
+        return this.commandCount;
+    }
+
+    /**
+     * Applies the commands already published and stops the writer thread. The commands published afterwards are
+     * completed exceptionally.
+     */
+    @Override
+    public void close() {
+        long sequence = this.nextSequence.get();
+        while (sequence >= 0 && !this.nextSequence.compareAndSet(sequence, CLOSED)) {
+            sequence = this.nextSequence.get();
+        }
+        if (sequence < 0) {
+            return;
+        }
+        this.endSequence = sequence;
+        LockSupport.unpark(this.writer);
+        try {
+            this.writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
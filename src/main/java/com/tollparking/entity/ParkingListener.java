@@ -0,0 +1,60 @@
+package com.tollparking.entity;
+
+import com.tollparking.enums.VehicleType;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A listener notified by a Parking each time a vehicle is checked in or checked out, and when its capacity is changed.
+ *
+ * The methods are called on the gate thread, after the parking state has been changed and before the ticket is
+ * returned to the gate, so they must be thread-safe. If a listener throws an exception, the change is rolled back
+ * and the exception is given to the gate.
+ */
+public interface ParkingListener {
+
+    /**
+     * Called when a vehicle has been parked
+     * @param ticket the ticket issued for the vehicle
+     */
+    default void vehicleParked(Ticket ticket) {
+    }
+
+    /**
+     * Called when a vehicle has been removed from the parking
+     * @param ticket the billed ticket of the vehicle
+     */
+    default void vehicleRemoved(Ticket ticket) {
+    }
+
+    /**
+     * Called when a batch of vehicles has been parked, instead of {@link #vehicleParked(Ticket)} for each of them.
+     * Listeners that can handle a batch at once, like a journal forcing its records on disk, should override it.
+     * @param tickets the tickets issued for the vehicles, in the order of the batch
+     */
+    default void vehiclesParked(List<Ticket> tickets) {
+        for (Ticket ticket : tickets) {
+            vehicleParked(ticket);
+        }
+    }
+
+    /**
+     * Called when a batch of vehicles has been removed from the parking, instead of {@link #vehicleRemoved(Ticket)}
+     * for each of them.
+     * @param tickets the billed tickets of the vehicles, in the order of the batch
+     */
+    default void vehiclesRemoved(List<Ticket> tickets) {
+        for (Ticket ticket : tickets) {
+            vehicleRemoved(ticket);
+        }
+    }
+
+    /**
+     * Called when the capacity of vehicle types is changed, before the change is applied: if the listener throws an
+     * exception, the capacity is not changed.
+     * @param capacities the number of slots of each vehicle type changed, once its pending shrinks and moves are over
+     */
+    default void capacitiesChanged(Map<VehicleType, Integer> capacities) {
+    }
+}
@@ -0,0 +1,377 @@
+package com.tollparking.entity;
+
+import com.tollparking.enums.VehicleType;
+import com.tollparking.exception.TicketNotFoundException;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A network of parking lots managed together: a vehicle is sent to a lot with a free slot for its type and checked
+ * out from the lot that issued its ticket.
+ *
+ * Each lot issues tickets with a MonotonicTicketIdGenerator whose gate number is the index of the lot, so the lot of a
+ * ticket is read from its id in constant time. For each vehicle type, a bitmask with a bit per lot tells which lots
+ * have a free slot: a check-in finds a lot in a few word reads instead of asking every lot, and the bits only change
+ * when a lot becomes full or stops being full. The gates of different lots share no lock, so the throughput grows with
+ * the number of lots.
+ *
+ * The vehicles must be checked in and out through the network, which keeps the bitmasks up to date; the lots can be
+ * read directly. A lot may also gain room outside the network, by a change of capacity, a reservation hold given back
+ * or a waiting vehicle giving up: before refusing a vehicle, the network checks every lot again.
+ */
+public class ParkingNetwork {
+
+    /**
+     * The greatest number of lots, one per gate number of the ticket ids
+     */
+    public static final int MAX_LOTS = MonotonicTicketIdGenerator.MAX_GATE + 1;
+
+    /**
+     * The vehicle types, indexed by ordinal
+     */
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+
+    /**
+     * The lots, indexed by the gate number of their ticket ids
+     */
+    private final Parking[] lots;
+
+    /**
+     * For each vehicle type, indexed by ordinal, the bitmask of the lots with a free slot: bit i of word i / 64
+     */
+    private final AtomicLongArray[] freeLots;
+
+    /**
+     * Creates a network of lots. The lots are given a ticket id generator identifying them and must not be used by
+     * another network.
+     *
+     * @param lots the lots, the index of a lot in the list being its number in the network
+     * @throws IllegalArgumentException if there are no lots or more than MAX_LOTS
+     */
+    public ParkingNetwork(List<Parking> lots) {
+        if (lots.isEmpty() || lots.size() > MAX_LOTS) {
+            throw new IllegalArgumentException("A network must have between 1 and " + MAX_LOTS + " lots");
+        }
+        this.lots = lots.toArray(new Parking[0]);
+        for (int lot = 0; lot < this.lots.length; lot++) {
+            this.lots[lot].setTicketIdGenerator(new MonotonicTicketIdGenerator(lot, this.lots[lot].getClock()));
+        }
+        this.freeLots = new AtomicLongArray[VEHICLE_TYPES.length];
+        for (VehicleType vehicleType : VEHICLE_TYPES) {
+            this.freeLots[vehicleType.ordinal()] = new AtomicLongArray((this.lots.length + 63) >>> 6);
+            for (int lot = 0; lot < this.lots.length; lot++) {
+                refresh(vehicleType, lot);
+            }
+        }
+    }
+
+    /**
+     * Checks in a vehicle in a lot with a free slot, the gates of a thread preferring the same lot
+     *
+     * @param vehicleType the vehicle type to park
+     * @return a Ticket issued by the lot, or null if no lot has a free slot for the vehicle type
+     */
+    public Ticket parkVehicle(VehicleType vehicleType) {
+        return tryParkVehicle(vehicleType).getTicket();
+    }
+
+    /**
+     * Checks in a vehicle in a lot with a free slot and tells why it is refused, if it is
+     *
+     * @param vehicleType the vehicle type to park
+     * @return PARKED with a Ticket issued by the lot, NO_SPACE_AVAILABLE if no lot has a free slot for the vehicle
+     * type, or INVALID_VEHICLE_TYPE if the vehicle type is null
+     */
+    public ParkingResult tryParkVehicle(VehicleType vehicleType) {
+        return tryParkVehicle((int) (Thread.currentThread().getId() % this.lots.length), vehicleType);
+    }
+
+    /**
+     * Checks in a vehicle in a given lot if it has a free slot, otherwise in the next lot with a free slot
+     *
+     * @param preferredLot the number of the lot to try first, for example the lot the driver asked for
+     * @param vehicleType the vehicle type to park
+     * @return PARKED with a Ticket issued by the lot, NO_SPACE_AVAILABLE if no lot has a free slot for the vehicle
+     * type, or INVALID_VEHICLE_TYPE if the vehicle type is null
+     * @throws IndexOutOfBoundsException if there is no such lot
+     */
+    public ParkingResult tryParkVehicle(int preferredLot, VehicleType vehicleType) {
+        if (preferredLot < 0 || preferredLot >= this.lots.length) {
+            throw new IndexOutOfBoundsException("No lot " + preferredLot);
+        }
+        if (vehicleType == null) return ParkingResult.INVALID_VEHICLE_TYPE;
+
+        AtomicLongArray free = this.freeLots[vehicleType.ordinal()];
+        for (int pass = 0; pass < 2; pass++) {
+            int lot = preferredLot;
+            for (int attempt = 0; attempt < this.lots.length; attempt++) {
+                lot = nextFreeLot(free, lot);
+                if (lot < 0) {
+                    break;
+                }
+                ParkingResult result = this.lots[lot].tryParkVehicle(vehicleType);
+                if (result.isSuccess()) {
+                    if (!this.lots[lot].hasFreePlace(vehicleType)) {
+                        refresh(vehicleType, lot);
+                    }
+                    return result;
+                }
+                // another gate took the last slot: the lot is full
+                refresh(vehicleType, lot);
+                lot = (lot + 1 == this.lots.length) ? 0 : lot + 1;
+            }
+            if (pass == 0 && !refreshAll(vehicleType)) {
+                break;
+            }
+        }
+        // asking the preferred lot counts the refusal in its metrics, or parks if a slot was freed meanwhile
+        ParkingResult result = this.lots[preferredLot].tryParkVehicle(vehicleType);
+        if (result.isSuccess()) {
+            refresh(vehicleType, preferredLot);
+        }
+        return result;
+    }
+
+    /**
+     * Removes a vehicle from the lot that issued its ticket
+     *
+     * @param ticket received at parking time
+     * @return the ticket with the amount to be paid calculated
+     * @throws TicketNotFoundException if the ticket is not found in its lot
+     */
+    public Ticket removeVehicle(Ticket ticket) throws TicketNotFoundException {
+        ParkingResult result = tryRemoveVehicle(ticket);
+        if (!result.isSuccess()) {
+            throw new TicketNotFoundException("Ticket not found in the network", false);
+        }
+        return result.getTicket();
+    }
+
+    /**
+     * Removes a vehicle from the lot that issued its ticket, knowing only the id of the ticket
+     *
+     * @param ticketId the numeric id of the ticket received at parking time
+     * @return the ticket with the amount to be paid calculated
+     * @throws TicketNotFoundException if the ticket is not found in its lot
+     */
+    public Ticket removeVehicle(long ticketId) throws TicketNotFoundException {
+        ParkingResult result = tryRemoveVehicle(ticketId);
+        if (!result.isSuccess()) {
+            throw new TicketNotFoundException("Ticket not found in the network", false);
+        }
+        return result.getTicket();
+    }
+
+    /**
+     * Removes a vehicle from the lot that issued its ticket, without throwing if the ticket is not found
+     *
+     * @param ticket received at parking time
+     * @return REMOVED with the ticket and the amount to be paid calculated, or TICKET_NOT_FOUND
+     */
+    public ParkingResult tryRemoveVehicle(Ticket ticket) {
+        if (ticket == null || !ticket.hasNumericId()) {
+            return ParkingResult.TICKET_NOT_FOUND;
+        }
+        int lot = findLot(ticket.getNumericId());
+        return (lot < 0) ? ParkingResult.TICKET_NOT_FOUND : removed(lot, this.lots[lot].tryRemoveVehicle(ticket));
+    }
+
+    /**
+     * Removes a vehicle from the lot that issued its ticket, knowing only the id of the ticket, without throwing if
+     * the ticket is not found
+     *
+     * @param ticketId the numeric id of the ticket received at parking time
+     * @return REMOVED with the ticket and the amount to be paid calculated, or TICKET_NOT_FOUND
+     */
+    public ParkingResult tryRemoveVehicle(long ticketId) {
+        int lot = findLot(ticketId);
+        return (lot < 0) ? ParkingResult.TICKET_NOT_FOUND : removed(lot, this.lots[lot].tryRemoveVehicle(ticketId));
+    }
+
+    /**
+     * Removes a vehicle from the lot that issued its ticket, knowing only the id printed on the ticket, without
+     * throwing if the ticket is not found
+     *
+     * @param ticketId the decimal representation of the numeric id of the ticket
+     * @return REMOVED with the ticket and the amount to be paid calculated, or TICKET_NOT_FOUND
+     */
+    public ParkingResult tryRemoveVehicle(String ticketId) {
+        long id;
+        try {
+            id = Long.parseLong(ticketId);
+        } catch (NumberFormatException e) {
+            return ParkingResult.TICKET_NOT_FOUND;
+        }
+        return tryRemoveVehicle(id);
+    }
+
+    /**
+     * Returns the lot that issued a ticket
+     * @param ticketId the numeric id of the ticket
+     * @return the number of the lot, or -1 if the id cannot have been issued by a lot of the network
+     */
+    public int findLot(long ticketId) {
+        int lot = MonotonicTicketIdGenerator.gateOf(ticketId);
+        return (ticketId > 0 && lot < this.lots.length) ? lot : -1;
+    }
+
+    /**
+     * Returns a lot of the network
+     * @param lot the number of the lot
+     * @return the lot
+     * @throws IndexOutOfBoundsException if there is no such lot
+     */
+    public Parking getLot(int lot) {
+        return this.lots[lot];
+    }
+
+    /**
+     * Returns the number of lots
+     * @return the number of lots of the network
+     */
+    public int getLotCount() {
+        return this.lots.length;
+    }
+
+    /**
+     * Returns the number of lots with a free slot for a vehicle type. The count is exact once the check-ins and
+     * check-outs in progress are over.
+     *
+     * @param vehicleType the vehicle type
+     * @return the number of lots that are not full
+     */
+    public int getFreeLotCount(VehicleType vehicleType) {
+        AtomicLongArray free = this.freeLots[vehicleType.ordinal()];
+        int count = 0;
+        for (int word = 0; word < free.length(); word++) {
+            count += Long.bitCount(free.get(word));
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of vehicles of a type in all the lots
+     * @param vehicleType the vehicle type
+     * @return the number of occupied slots for the vehicle type
+     */
+    public int getOccupancy(VehicleType vehicleType) {
+        int occupancy = 0;
+        for (Parking lot : this.lots) {
+            occupancy += lot.getOccupancy(vehicleType);
+        }
+        return occupancy;
+    }
+
+    /**
+     * Returns the number of slots of a type in all the lots
+     * @param vehicleType the vehicle type
+     * @return the number of slots for the vehicle type
+     */
+    public int getCapacity(VehicleType vehicleType) {
+        int capacity = 0;
+        for (Parking lot : this.lots) {
+            capacity += lot.getCapacity(vehicleType);
+        }
+        return capacity;
+    }
+
+    /**
+     * Marks the lot of a removed vehicle as having a free slot
+     * @param lot the number of the lot
+     * @param result the result of the check-out
+     * @return the result
+     */
+    private ParkingResult removed(int lot, ParkingResult result) {
+        if (result.isSuccess()) {
+            setFree(this.freeLots[result.getTicket().getVehicleType().ordinal()], lot);
+        }
+        return result;
+    }
+
+    /**
+     * Updates the bit of a lot from its free places. The bit is cleared before the places are read: a slot freed
+     * after the read sets the bit again, so a lot with a free slot is never left marked as full.
+     *
+     * @param vehicleType the vehicle type
+     * @param lot the number of the lot
+     */
+    void refresh(VehicleType vehicleType, int lot) {
+        AtomicLongArray free = this.freeLots[vehicleType.ordinal()];
+        clearFree(free, lot);
+        if (this.lots[lot].hasFreePlace(vehicleType)) {
+            setFree(free, lot);
+        }
+    }
+
+    /**
+     * Updates the bits of all the lots, to find the room gained outside the network
+     * @param vehicleType the vehicle type
+     * @return true if a lot has a free slot
+     */
+    private boolean refreshAll(VehicleType vehicleType) {
+        boolean found = false;
+        for (int lot = 0; lot < this.lots.length; lot++) {
+            refresh(vehicleType, lot);
+            found |= this.lots[lot].hasFreePlace(vehicleType);
+        }
+        return found;
+    }
+
+    /**
+     * Finds the next lot marked as having a free slot, going round the lots
+     * @param free the bitmask of the lots with a free slot
+     * @param from the number of the first lot to look at
+     * @return the number of the lot, or -1 if no lot is marked
+     */
+    private int nextFreeLot(AtomicLongArray free, int from) {
+        int words = free.length();
+        int word = from >>> 6;
+        long bits = free.get(word) & (-1L << from);
+        for (int i = 0; i <= words; i++) {
+            if (bits != 0) {
+                int lot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                if (lot < this.lots.length) {
+                    return lot;
+                }
+            }
+            word = (word + 1 == words) ? 0 : word + 1;
+            bits = free.get(word);
+        }
+        return -1;
+    }
+
+    /**
+     * Sets the bit of a lot, without writing if it is already set
+     * @param free the bitmask of the lots with a free slot
+     * @param lot the number of the lot
+     */
+    private static void setFree(AtomicLongArray free, int lot) {
+        int word = lot >>> 6;
+        long bit = 1L << lot;
+        long bits;
+        do {
+            bits = free.get(word);
+            if ((bits & bit) != 0) {
+                return;
+            }
+        } while (!free.compareAndSet(word, bits, bits | bit));
+    }
+
+    /**
+     * Clears the bit of a lot, without writing if it is already cleared
+     * @param free the bitmask of the lots with a free slot
+     * @param lot the number of the lot
+     */
+    private static void clearFree(AtomicLongArray free, int lot) {
+        int word = lot >>> 6;
+        long bit = 1L << lot;
+        long bits;
+        do {
+            bits = free.get(word);
+            if ((bits & bit) == 0) {
+                return;
+            }
+        } while (!free.compareAndSet(word, bits, bits & ~bit));
+    }
+}
@@ -0,0 +1,123 @@
+package com.tollparking.entity;
+
+/**
+ * The outcome of a check-in or a check-out returned by the non-throwing methods of the Parking, such as
+ * tryParkVehicle and tryRemoveVehicle. A refusal is a normal outcome at the gates (a full parking, a ticket read twice
+ * by a scanner), so it is reported by a status instead of an exception; the results of refusals are shared constants
+ * and cost nothing to return.
+ */
+public final class ParkingResult {
+
+    /**
+     * The outcomes of a check-in or a check-out
+     */
+    public enum Status {
+        /**
+         * The vehicle is parked
+         */
+        PARKED,
+        /**
+         * The vehicle is removed and its ticket billed
+         */
+        REMOVED,
+        /**
+         * The vehicle is refused because there is no space available for its type
+         */
+        NO_SPACE_AVAILABLE,
+        /**
+         * The vehicle type is missing
+         */
+        INVALID_VEHICLE_TYPE,
+        /**
+         * No vehicle with this ticket is in the parking: the ticket is unknown or already checked out
+         */
+        TICKET_NOT_FOUND
+    }
+
+    /**
+     * The result of a vehicle refused because there is no space available
+     */
+    static final ParkingResult NO_SPACE_AVAILABLE = new ParkingResult(Status.NO_SPACE_AVAILABLE, null);
+
+    /**
+     * The result of a check-in without vehicle type
+     */
+    static final ParkingResult INVALID_VEHICLE_TYPE = new ParkingResult(Status.INVALID_VEHICLE_TYPE, null);
+
+    /**
+     * The result of a check-out with a ticket not found
+     */
+    static final ParkingResult TICKET_NOT_FOUND = new ParkingResult(Status.TICKET_NOT_FOUND, null);
+
+    /**
+     * The outcome
+     */
+    private final Status status;
+
+    /**
+     * The ticket issued or billed, or null if the vehicle was refused
+     */
+    private final Ticket ticket;
+
+    /**
+     * Creates a result
+     * @param status the outcome
+     * @param ticket the ticket issued or billed, or null if the vehicle was refused
+     */
+    private ParkingResult(Status status, Ticket ticket) {
+        this.status = status;
+        this.ticket = ticket;
+    }
+
+    /**
+     * Creates the result of a check-in
+     * @param ticket the issued ticket
+     * @return the result
+     */
+    static ParkingResult parked(Ticket ticket) {
+        return new ParkingResult(Status.PARKED, ticket);
+    }
+
+    /**
+     * Creates the result of a check-out
+     * @param ticket the billed ticket
+     * @return the result
+     */
+    static ParkingResult removed(Ticket ticket) {
+        return new ParkingResult(Status.REMOVED, ticket);
+    }
+
+    /**
+     * Returns the outcome
+     * @return the status of the check-in or check-out
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Indicates if the vehicle was parked or removed
+     * @return true if the check-in or check-out succeeded; false if the vehicle was refused
+     */
+    public boolean isSuccess() {
+        return ticket != null;
+    }
+
+    /**
+     * Returns the ticket
+     * @return the issued ticket after a check-in, the billed ticket after a check-out, or null if the vehicle was
+     * refused
+     */
+    public Ticket getTicket() {
+        return ticket;
+    }
+
+    /**
+     * Returns the String representation of a result
+     * @return the status and the ticket, if any
+     */
+    @Override
+    public String toString() {
+        return (ticket == null) ? status.name() : status + " " + ticket;
+    }
+}
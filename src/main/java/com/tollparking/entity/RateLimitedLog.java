@@ -0,0 +1,86 @@
+package com.tollparking.entity;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logs at most a number of messages per period, so that a burst of the same error (for example a scanner reading the
+ * same ticket again and again) does not slow the gates down with formatting and I/O. The first message after a burst
+ * tells how many messages were dropped.
+ */
+class RateLimitedLog {
+
+    /**
+     * The logger writing the messages
+     */
+    private final Logger logger;
+
+    /**
+     * The maximum number of messages logged per period
+     */
+    private final int maxMessages;
+
+    /**
+     * The length of a period in nanoseconds
+     */
+    private final long periodNanos;
+
+    /**
+     * The value of System.nanoTime() when the current period started
+     */
+    private final AtomicLong periodStart;
+
+    /**
+     * The number of messages logged or dropped during the current period
+     */
+    private final AtomicInteger messages = new AtomicInteger();
+
+    /**
+     * The number of messages dropped since the last logged message
+     */
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * Creates a rate-limited log
+     * @param logger the logger writing the messages
+     * @param maxMessages the maximum number of messages logged per period
+     * @param period the length of a period
+     * @param unit the unit of the period
+     */
+    RateLimitedLog(Logger logger, int maxMessages, long period, TimeUnit unit) {
+        this.logger = logger;
+        this.maxMessages = maxMessages;
+        this.periodNanos = unit.toNanos(period);
+        this.periodStart = new AtomicLong(System.nanoTime() - this.periodNanos);
+    }
+
+    /**
+     * Logs an error unless too many errors were logged during the period
+     * @param format the message, with a {} placeholder for the argument
+     * @param argument the argument, formatted only if the message is logged
+     */
+    void error(String format, Object argument) {
+        if (!this.logger.isErrorEnabled()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long start = this.periodStart.get();
+        if (now - start >= this.periodNanos && this.periodStart.compareAndSet(start, now)) {
+            this.messages.set(0);
+        }
+        if (this.messages.incrementAndGet() > this.maxMessages) {
+            this.dropped.increment();
+            return;
+        }
+        long droppedCount = this.dropped.sumThenReset();
+        if (droppedCount == 0) {
+            this.logger.error(format, argument);
+        } else {
+            this.logger.error(format + " ({} similar messages dropped)", argument, droppedCount);
+        }
+    }
+}
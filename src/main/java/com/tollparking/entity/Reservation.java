@@ -0,0 +1,87 @@
+package com.tollparking.entity;
+
+import com.tollparking.enums.VehicleType;
+
+import java.time.Instant;
+
+/**
+ * A place booked for a vehicle type during a time window, made with a ReservationBook and redeemed for a Ticket when
+ * the vehicle arrives
+ */
+public final class Reservation {
+
+    /**
+     * The id of the reservation, given by the book
+     */
+    private final long id;
+
+    /**
+     * The type of the vehicle
+     */
+    private final VehicleType vehicleType;
+
+    /**
+     * The start of the time window
+     */
+    private final Instant startDate;
+
+    /**
+     * The end of the time window, excluded
+     */
+    private final Instant endDate;
+
+    /**
+     * Creates a reservation
+     * @param id the id of the reservation
+     * @param vehicleType the type of the vehicle
+     * @param startDate the start of the time window
+     * @param endDate the end of the time window, excluded
+     */
+    Reservation(long id, VehicleType vehicleType, Instant startDate, Instant endDate) {
+        this.id = id;
+        this.vehicleType = vehicleType;
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    /**
+     * Returns the id of the reservation
+     * @return the id, to give to the gate when the vehicle arrives
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Returns the type of the vehicle
+     * @return the vehicle type
+     */
+    public VehicleType getVehicleType() {
+        return vehicleType;
+    }
+
+    /**
+     * Returns the start of the time window
+     * @return the first instant the reservation can be redeemed
+     */
+    public Instant getStartDate() {
+        return startDate;
+    }
+
+    /**
+     * Returns the end of the time window
+     * @return the instant the reservation expires if it was not redeemed
+     */
+    public Instant getEndDate() {
+        return endDate;
+    }
+
+    /**
+     * Returns the String representation of a reservation
+     * @return the id, vehicle type and time window
+     */
+    @Override
+    public String toString() {
+        return "reservation " + id + " " + vehicleType + " from " + startDate + " to " + endDate;
+    }
+}
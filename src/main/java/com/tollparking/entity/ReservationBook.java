@@ -0,0 +1,393 @@
+package com.tollparking.entity;
+
+import com.tollparking.enums.VehicleType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The reservations of the places of a parking for time windows, for example a 50 kW charger booked from 14:00 to
+ * 16:00. The reservations of each vehicle type are counted per bucket of 15 minutes in a segment tree, so checking
+ * that a window has room or booking it costs O(log n) whatever the length of the window. A window may not hold more
+ * reservations than the slots of its vehicle type.
+ *
+ * During its window, a reservation not yet redeemed holds back a place of its vehicle type: the walk-in vehicles
+ * cannot take it and the vehicle of the reservation gets it by calling redeem when it arrives. The vehicles parked
+ * before the window starts are not moved out, so the place of a reservation is only guaranteed if they leave in time.
+ * When the window of a reservation ends without the vehicle, its place is given back to the walk-in vehicles.
+ *
+ * The book has its own lock: the check-ins only read the number of places held back. The windows start and end
+ * when the book is refreshed, periodically on a background thread once started, or when refresh is called. A
+ * parking has a single book.
+ */
+public class ReservationBook implements Closeable {
+
+    private static Logger LOG = LoggerFactory.getLogger(ReservationBook.class);
+
+    /**
+     * The duration of a time bucket, in seconds: the windows are rounded outwards to whole buckets
+     */
+    static final long BUCKET_SECONDS = 15 * 60;
+
+    /**
+     * The parking whose places are booked
+     */
+    private final Parking parking;
+
+    /**
+     * The number of buckets ahead of the current time a reservation may end in
+     */
+    private final long horizonBuckets;
+
+    /**
+     * The reservations of each vehicle type per bucket, from originBucket
+     */
+    private final Map<VehicleType, ReservationIndex> indexes = new EnumMap<>(VehicleType.class);
+
+    /**
+     * The number of the bucket since the epoch of the first bucket of the indexes
+     */
+    private long originBucket;
+
+    /**
+     * The reservations whose window has not ended, by id
+     */
+    private final Map<Long, Reservation> reservations = new HashMap<>();
+
+    /**
+     * The reservations whose window has not started, by start date
+     */
+    private final PriorityQueue<Reservation> notStarted =
+            new PriorityQueue<>(Comparator.comparing(Reservation::getStartDate));
+
+    /**
+     * The reservations whose window has not ended, by end date
+     */
+    private final PriorityQueue<Reservation> notEnded =
+            new PriorityQueue<>(Comparator.comparing(Reservation::getEndDate));
+
+    /**
+     * The ids of the reservations in their window, not yet redeemed, holding back a place
+     */
+    private final Set<Long> holding = new HashSet<>();
+
+    /**
+     * The ids of the reservations redeemed whose window has not ended
+     */
+    private final Set<Long> redeemed = new HashSet<>();
+
+    /**
+     * The id of the next reservation
+     */
+    private long nextId = 1;
+
+    /**
+     * The number of reservations whose window ended without the vehicle
+     */
+    private long noShowCount;
+
+    /**
+     * The thread refreshing the book, once started
+     */
+    private ScheduledExecutorService executor;
+
+    /**
+     * Creates a book
+     * @param parking the parking whose places are booked
+     * @param horizon how far ahead of the current time a reservation may end
+     */
+    private ReservationBook(Parking parking, Duration horizon) {
+        this.parking = parking;
+        this.horizonBuckets = (horizon.getSeconds() + BUCKET_SECONDS - 1) / BUCKET_SECONDS;
+        int size = Integer.highestOneBit((int) (2 * this.horizonBuckets + 1)) << 1;
+        for (VehicleType vehicleType : VehicleType.values()) {
+            this.indexes.put(vehicleType, new ReservationIndex(size));
+        }
+        this.originBucket = bucketOf(parking.getClock().instant());
+    }
+
+    /**
+     * Opens the book of the reservations of a parking. Call start to refresh it periodically, or refresh.
+     *
+     * @param parking the parking whose places are booked
+     * @param horizon how far ahead of the current time a reservation may end, for example 90 days
+     * @return the opened book
+     * @throws IllegalArgumentException if the horizon is not positive or longer than a year
+     */
+    public static ReservationBook open(Parking parking, Duration horizon) {
+        Objects.requireNonNull(parking);
+        if (horizon.isNegative() || horizon.isZero() || horizon.compareTo(Duration.ofDays(366)) > 0) {
+            throw new IllegalArgumentException("The horizon must be positive and at most a year");
+        }
+        return new ReservationBook(parking, horizon);
+    }
+
+    /**
+     * Refreshes the book periodically on a background thread until the book is closed
+     * @param period the time between two refreshes, for example a minute
+     * @throws IllegalStateException if the book is already started
+     */
+    public synchronized void start(Duration period) {
+        if (this.executor != null) {
+            throw new IllegalStateException("The reservation book is already started");
+        }
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "parking-reservation-book");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                LOG.error("Error in refreshing the reservations", e);
+            }
+        }, period.toNanos(), period.toNanos(), TimeUnit.NANOSECONDS);
+        this.executor = executor;
+    }
+
+    /**
+     * Indicates if a place of a vehicle type can be booked for a time window
+     *
+     * @param vehicleType the vehicle type
+     * @param startDate the start of the window
+     * @param endDate the end of the window, excluded
+     * @return true if every bucket of the window has fewer reservations than slots
+     * @throws IllegalArgumentException if the window is empty, already over or ends beyond the horizon
+     */
+    public synchronized boolean isAvailable(VehicleType vehicleType, Instant startDate, Instant endDate) {
+        Instant now = this.parking.getClock().instant();
+        checkWindow(vehicleType, startDate, endDate, now);
+        return maxReserved(vehicleType, startDate, endDate, now) < this.parking.getCapacity(vehicleType);
+    }
+
+    /**
+     * Books a place of a vehicle type for a time window
+     *
+     * @param vehicleType the vehicle type
+     * @param startDate the start of the window
+     * @param endDate the end of the window, excluded
+     * @return the reservation, or null if a bucket of the window has as many reservations as slots
+     * @throws IllegalArgumentException if the window is empty, already over or ends beyond the horizon
+     */
+    public synchronized Reservation reserve(VehicleType vehicleType, Instant startDate, Instant endDate) {
+        Instant now = this.parking.getClock().instant();
+        checkWindow(vehicleType, startDate, endDate, now);
+        if (maxReserved(vehicleType, startDate, endDate, now) >= this.parking.getCapacity(vehicleType)) {
+            return null;
+        }
+        Reservation reservation = new Reservation(this.nextId++, vehicleType, startDate, endDate);
+        addToIndex(reservation, 1, now);
+        this.reservations.put(reservation.getId(), reservation);
+        this.notStarted.add(reservation);
+        this.notEnded.add(reservation);
+        if (!startDate.isAfter(now)) {
+            refresh();
+        }
+        return reservation;
+    }
+
+    /**
+     * Cancels a reservation not yet redeemed, freeing its window and the place it holds back
+     * @param reservationId the id of the reservation
+     * @return true if the reservation was cancelled; false if it is unknown, redeemed or over
+     */
+    public synchronized boolean cancel(long reservationId) {
+        Reservation reservation = this.reservations.get(reservationId);
+        if (reservation == null || this.redeemed.contains(reservationId)) {
+            return false;
+        }
+        this.reservations.remove(reservationId);
+        addToIndex(reservation, -1, this.parking.getClock().instant());
+        if (this.holding.remove(reservationId)) {
+            this.parking.holdBack(reservation.getVehicleType(), -1);
+        }
+        return true;
+    }
+
+    /**
+     * Checks in the vehicle of a reservation during its window, in the place held back for it
+     *
+     * @param reservationId the id of the reservation
+     * @return a Ticket for the vehicle, or null if the reservation is unknown, already redeemed, not in its window,
+     * or if the vehicles parked before the window still take all the slots of its vehicle type
+     */
+    public synchronized Ticket redeem(long reservationId) {
+        refresh();
+        Reservation reservation = this.reservations.get(reservationId);
+        if (reservation == null || !this.holding.contains(reservationId)) {
+            return null;
+        }
+        Ticket ticket = this.parking.parkReservedVehicle(reservation.getVehicleType());
+        if (ticket != null) {
+            this.holding.remove(reservationId);
+            this.redeemed.add(reservationId);
+            // the vehicle now takes the place held back for it
+            this.parking.holdBack(reservation.getVehicleType(), -1);
+        }
+        return ticket;
+    }
+
+    /**
+     * Starts and ends the windows of the reservations at the current time of the clock of the parking: holds back a
+     * place for each window started, and gives back the place of each window ended without the vehicle
+     */
+    public synchronized void refresh() {
+        Instant now = this.parking.getClock().instant();
+        for (Reservation reservation; (reservation = this.notStarted.peek()) != null
+                && !reservation.getStartDate().isAfter(now); ) {
+            this.notStarted.poll();
+            if (this.reservations.get(reservation.getId()) == reservation && reservation.getEndDate().isAfter(now)) {
+                this.holding.add(reservation.getId());
+                this.parking.holdBack(reservation.getVehicleType(), 1);
+            }
+        }
+        int noShows = 0;
+        for (Reservation reservation; (reservation = this.notEnded.peek()) != null
+                && !reservation.getEndDate().isAfter(now); ) {
+            this.notEnded.poll();
+            if (this.reservations.remove(reservation.getId(), reservation)) {
+                this.redeemed.remove(reservation.getId());
+                if (this.holding.remove(reservation.getId())) {
+                    this.parking.holdBack(reservation.getVehicleType(), -1);
+                    noShows++;
+                }
+            }
+        }
+        if (noShows > 0) {
+            this.noShowCount += noShows;
+            LOG.info("{} reservations expired without their vehicle", noShows);
+        }
+        moveOrigin(now);
+    }
+
+    /**
+     * Returns a reservation whose window has not ended
+     * @param reservationId the id of the reservation
+     * @return the reservation, or null if it is unknown, cancelled or over
+     */
+    public synchronized Reservation getReservation(long reservationId) {
+        return this.reservations.get(reservationId);
+    }
+
+    /**
+     * Returns the number of reservations whose window ended without their vehicle
+     * @return the number of no-shows
+     */
+    public synchronized long getNoShowCount() {
+        return this.noShowCount;
+    }
+
+    /**
+     * Stops the refreshes and gives the places held back to the walk-in vehicles
+     */
+    @Override
+    public synchronized void close() {
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+        }
+        for (Long reservationId : this.holding) {
+            this.parking.holdBack(this.reservations.get(reservationId).getVehicleType(), -1);
+        }
+        this.holding.clear();
+    }
+
+    /**
+     * Checks a time window
+     * @param vehicleType the vehicle type
+     * @param startDate the start of the window
+     * @param endDate the end of the window, excluded
+     * @param now the current time
+     * @throws IllegalArgumentException if the window is empty, already over or ends beyond the horizon
+     */
+    private void checkWindow(VehicleType vehicleType, Instant startDate, Instant endDate, Instant now) {
+        Objects.requireNonNull(vehicleType);
+        if (!endDate.isAfter(startDate) || !endDate.isAfter(now)) {
+            throw new IllegalArgumentException("The reservation must end after its start and after the current time");
+        }
+        if (endBucketOf(endDate) > bucketOf(now) + this.horizonBuckets + 1) {
+            throw new IllegalArgumentException("The reservation must end within the booking horizon");
+        }
+        moveOrigin(now);
+    }
+
+    /**
+     * Returns the number of reservations of the most reserved bucket of a window, from the current bucket
+     * @param vehicleType the vehicle type
+     * @param startDate the start of the window
+     * @param endDate the end of the window, excluded
+     * @param now the current time
+     * @return the maximum number of reservations of a bucket
+     */
+    private int maxReserved(VehicleType vehicleType, Instant startDate, Instant endDate, Instant now) {
+        long from = Math.max(bucketOf(startDate), bucketOf(now));
+        return this.indexes.get(vehicleType).max((int) (from - this.originBucket),
+                (int) (endBucketOf(endDate) - this.originBucket));
+    }
+
+    /**
+     * Adds a reservation to the index of its vehicle type, from the current bucket
+     * @param reservation the reservation
+     * @param delta 1 to add it, -1 to remove it
+     * @param now the current time
+     */
+    private void addToIndex(Reservation reservation, int delta, Instant now) {
+        long from = Math.max(Math.max(bucketOf(reservation.getStartDate()), bucketOf(now)), this.originBucket);
+        long to = endBucketOf(reservation.getEndDate());
+        this.indexes.get(reservation.getVehicleType()).add((int) (from - this.originBucket),
+                (int) (to - this.originBucket), delta);
+    }
+
+    /**
+     * Moves the first bucket of the indexes to the current bucket once the horizon would go beyond their last one,
+     * adding the reservations again
+     * @param now the current time
+     */
+    private void moveOrigin(Instant now) {
+        long bucket = bucketOf(now);
+        int size = this.indexes.get(VehicleType.FUEL).size();
+        if (bucket + this.horizonBuckets + 1 <= this.originBucket + size) {
+            return;
+        }
+        this.originBucket = bucket;
+        for (VehicleType vehicleType : VehicleType.values()) {
+            this.indexes.put(vehicleType, new ReservationIndex(size));
+        }
+        for (Reservation reservation : this.reservations.values()) {
+            addToIndex(reservation, 1, now);
+        }
+    }
+
+    /**
+     * Returns the bucket of an instant
+     * @param instant the instant
+     * @return the number of the bucket since the epoch
+     */
+    private static long bucketOf(Instant instant) {
+        return Math.floorDiv(instant.getEpochSecond(), BUCKET_SECONDS);
+    }
+
+    /**
+     * Returns the bucket after the last bucket of a window
+     * @param endDate the end of the window, excluded
+     * @return the number of the bucket since the epoch, rounded up
+     */
+    private static long endBucketOf(Instant endDate) {
+        long seconds = endDate.getEpochSecond() + (endDate.getNano() > 0 ? 1 : 0);
+        return -Math.floorDiv(-seconds, BUCKET_SECONDS);
+    }
+}
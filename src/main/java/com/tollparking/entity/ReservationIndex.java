@@ -0,0 +1,111 @@
+package com.tollparking.entity;
+
+/**
+ * The number of reservations of a vehicle type in each time bucket, in a segment tree: adding a reservation to a
+ * range of buckets and finding the most reserved bucket of a range both cost O(log n), whatever the length of the
+ * range. Each node holds the reservations added to its whole range and the maximum of its range; the additions are
+ * not pushed down to the children.
+ */
+final class ReservationIndex {
+
+    /**
+     * The number of buckets, a power of 2
+     */
+    private final int size;
+
+    /**
+     * The maximum number of reservations of a bucket of the range of each node, including the additions to the node
+     */
+    private final int[] max;
+
+    /**
+     * The reservations added to the whole range of each node
+     */
+    private final int[] added;
+
+    /**
+     * Creates an index without reservations
+     * @param size the number of buckets, a power of 2
+     */
+    ReservationIndex(int size) {
+        this.size = size;
+        this.max = new int[2 * size];
+        this.added = new int[2 * size];
+    }
+
+    /**
+     * Returns the number of buckets
+     * @return the number of buckets
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Adds reservations to a range of buckets
+     * @param from the first bucket
+     * @param to the bucket after the last one
+     * @param delta the number of reservations to add, negative to remove them
+     */
+    void add(int from, int to, int delta) {
+        if (from < to) {
+            add(1, 0, this.size, from, to, delta);
+        }
+    }
+
+    /**
+     * Adds reservations to the buckets of a node within a range
+     * @param node the node
+     * @param low the first bucket of the node
+     * @param high the bucket after the last one of the node
+     * @param from the first bucket of the range
+     * @param to the bucket after the last one of the range
+     * @param delta the number of reservations to add
+     */
+    private void add(int node, int low, int high, int from, int to, int delta) {
+        if (to <= low || high <= from) {
+            return;
+        }
+        if (from <= low && high <= to) {
+            this.added[node] += delta;
+            this.max[node] += delta;
+            return;
+        }
+        int middle = (low + high) >>> 1;
+        add(2 * node, low, middle, from, to, delta);
+        add(2 * node + 1, middle, high, from, to, delta);
+        this.max[node] = this.added[node] + Math.max(this.max[2 * node], this.max[2 * node + 1]);
+    }
+
+    /**
+     * Returns the number of reservations of the most reserved bucket of a range
+     * @param from the first bucket
+     * @param to the bucket after the last one
+     * @return the maximum number of reservations, or 0 if the range is empty
+     */
+    int max(int from, int to) {
+        return (from < to) ? max(1, 0, this.size, from, to) : 0;
+    }
+
+    /**
+     * Returns the maximum number of reservations of the buckets of a node within a range
+     * @param node the node
+     * @param low the first bucket of the node
+     * @param high the bucket after the last one of the node
+     * @param from the first bucket of the range
+     * @param to the bucket after the last one of the range
+     * @return the maximum, or Integer.MIN_VALUE if the node is outside of the range
+     */
+    private int max(int node, int low, int high, int from, int to) {
+        if (to <= low || high <= from) {
+            return Integer.MIN_VALUE;
+        }
+        if (from <= low && high <= to) {
+            return this.max[node];
+        }
+        int middle = (low + high) >>> 1;
+        // at least one child overlaps the range
+        return this.added[node] + Math.max(max(2 * node, low, middle, from, to),
+                max(2 * node + 1, middle, high, from, to));
+    }
+}
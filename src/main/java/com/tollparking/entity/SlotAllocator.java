@@ -0,0 +1,232 @@
+package com.tollparking.entity;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Allocates the numbered slots of one vehicle type.
+ *
+ * Each slot is a bit of an AtomicLongArray (1 = occupied), so a slot is taken or freed with a single compare-and-set
+ * and several gates can allocate at the same time without locking. The search for a free slot starts from the word
+ * where a slot was last freed or found, so when vehicles come and go it usually ends on the first word it reads.
+ *
+ * The number of slots can change while the gates allocate: the words are held in pages that are never moved, so a new
+ * page is added without copying the slots, and the slots past the number of slots are closed rather than removed,
+ * the vehicles parked there keeping their slot until they leave.
+ */
+public class SlotAllocator {
+
+    /**
+     * No slot: returned when all the slots are occupied
+     */
+    public static final int NO_SLOT = -1;
+
+    /**
+     * The number of words of a page, as a power of 2
+     */
+    private static final int PAGE_SHIFT = 6;
+
+    /**
+     * The mask giving the index of a word in its page
+     */
+    private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+
+    /**
+     * The occupied slots, 64 per word and 4096 per page. Replaced by a longer array when pages are added, holding
+     * the same pages.
+     */
+    private volatile AtomicLongArray[] pages;
+
+    /**
+     * The number of open slots, numbered from 0. Read before the pages, written after them.
+     */
+    private volatile int slotCount;
+
+    /**
+     * The largest number of slots ever open: the closed slots below it may still hold a vehicle
+     */
+    private volatile int slotLimit;
+
+    /**
+     * The word where the next search starts. It is only a hint: a stale value makes the search longer, never wrong.
+     */
+    private volatile int hint;
+
+    /**
+     * Creates an allocator with all the slots free
+     * @param slotCount the number of slots, numbered from 0
+     */
+    public SlotAllocator(int slotCount) {
+        this.pages = new AtomicLongArray[0];
+        resize(slotCount);
+    }
+
+    /**
+     * Takes a free slot. The open slots are searched first; a closed slot is only given when a place was granted
+     * just before its slots were closed.
+     * @return the number of the slot, or NO_SLOT if all the slots are occupied
+     */
+    public int allocate() {
+        int slotCount = this.slotCount;
+        int slotLimit = this.slotLimit;
+        AtomicLongArray[] pages = this.pages;
+        int slot = search(pages, 0, slotCount);
+        if (slot == NO_SLOT && slotLimit > slotCount) {
+            slot = search(pages, slotCount, slotLimit);
+        }
+        return slot;
+    }
+
+    /**
+     * Takes a free slot among a range of slots, starting from the hint if it is in the range
+     * @param pages the pages of the slots
+     * @param from the first slot of the range
+     * @param to the slot after the last one of the range
+     * @return the number of the slot, or NO_SLOT if all the slots of the range are occupied
+     */
+    private int search(AtomicLongArray[] pages, int from, int to) {
+        int firstWord = from >>> 6;
+        int endWord = (to + 63) >>> 6;
+        int wordCount = endWord - firstWord;
+        int start = this.hint;
+        if (start < firstWord || start >= endWord) {
+            start = firstWord;
+        }
+        for (int n = 0; n < wordCount; n++) {
+            int w = start + n;
+            if (w >= endWord) {
+                w -= wordCount;
+            }
+            AtomicLongArray page = pages[w >>> PAGE_SHIFT];
+            int i = w & PAGE_MASK;
+            long outside = bitsOutside(w, from, to);
+            long word = page.get(i);
+            while ((word | outside) != -1L) {
+                long bit = Long.lowestOneBit(~(word | outside));
+                if (page.compareAndSet(i, word, word | bit)) {
+                    if (w != start) {
+                        this.hint = w;
+                    }
+                    return (w << 6) + Long.numberOfTrailingZeros(bit);
+                }
+                word = page.get(i);
+            }
+        }
+        return NO_SLOT;
+    }
+
+    /**
+     * Returns the bits of a word standing for slots outside a range, never to allocate in a search of the range
+     * @param w the index of the word
+     * @param from the first slot of the range
+     * @param to the slot after the last one of the range
+     * @return the bits of the slots before from or from to on
+     */
+    private static long bitsOutside(int w, int from, int to) {
+        int first = w << 6;
+        long outside = 0;
+        if (from > first) {
+            outside = -1L >>> (64 - (from - first));
+        }
+        if (to - first < 64) {
+            outside |= -1L << (to - first);
+        }
+        return outside;
+    }
+
+    /**
+     * Takes a given slot, for example the slot of a ticket restored after a restart
+     * @param slot the number of the slot
+     * @return true if the slot was taken; false if it is already occupied or does not exist
+     */
+    public boolean occupy(int slot) {
+        if (slot < 0 || slot >= this.slotLimit) {
+            return false;
+        }
+        AtomicLongArray page = this.pages[slot >>> (PAGE_SHIFT + 6)];
+        int i = (slot >>> 6) & PAGE_MASK;
+        long bit = 1L << slot;
+        long word;
+        do {
+            word = page.get(i);
+            if ((word & bit) != 0) {
+                return false;
+            }
+        } while (!page.compareAndSet(i, word, word | bit));
+        return true;
+    }
+
+    /**
+     * Frees a slot
+     * @param slot the number of the slot
+     * @return true if the slot was freed; false if it was not occupied or does not exist
+     */
+    public boolean release(int slot) {
+        if (slot < 0 || slot >= this.slotLimit) {
+            return false;
+        }
+        AtomicLongArray page = this.pages[slot >>> (PAGE_SHIFT + 6)];
+        int i = (slot >>> 6) & PAGE_MASK;
+        long bit = 1L << slot;
+        long word;
+        do {
+            word = page.get(i);
+            if ((word & bit) == 0) {
+                return false;
+            }
+        } while (!page.compareAndSet(i, word, word & ~bit));
+        this.hint = slot >>> 6;
+        return true;
+    }
+
+    /**
+     * Indicates if a slot is occupied
+     * @param slot the number of the slot
+     * @return true if the slot is occupied; false if it is free or does not exist
+     */
+    public boolean isOccupied(int slot) {
+        if (slot < 0 || slot >= this.slotLimit) {
+            return false;
+        }
+        return (this.pages[slot >>> (PAGE_SHIFT + 6)].get((slot >>> 6) & PAGE_MASK) & (1L << slot)) != 0;
+    }
+
+    /**
+     * Returns the number of slots
+     * @return the number of open slots
+     */
+    public int getSlotCount() {
+        return this.slotCount;
+    }
+
+    /**
+     * Opens or closes slots, adding the pages missing. The vehicles parked in closed slots keep them until they leave,
+     * and the closed slots are opened again, free or not, when the number of slots grows back. Must not be called by
+     * two threads at the same time; the gates can allocate and free slots meanwhile.
+     * @param slotCount the new number of open slots
+     */
+    void resize(int slotCount) {
+        ensureSlots(slotCount);
+        this.slotCount = slotCount;
+    }
+
+    /**
+     * Adds the slots missing below a number of slots, closed if they are past the open slots, so that they can be
+     * given once the open slots are full. Must not be called by two threads at the same time.
+     * @param slotLimit the number of slots that must exist
+     */
+    void ensureSlots(int slotLimit) {
+        int pageCount = (((slotLimit + 63) >>> 6) + PAGE_MASK) >>> PAGE_SHIFT;
+        AtomicLongArray[] pages = this.pages;
+        if (pageCount > pages.length) {
+            AtomicLongArray[] grown = Arrays.copyOf(pages, pageCount);
+            for (int p = pages.length; p < pageCount; p++) {
+                grown[p] = new AtomicLongArray(1 << PAGE_SHIFT);
+            }
+            this.pages = grown;
+        }
+        if (slotLimit > this.slotLimit) {
+            this.slotLimit = slotLimit;
+        }
+    }
+}
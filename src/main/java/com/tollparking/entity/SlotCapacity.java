@@ -1,16 +1,57 @@
 package com.tollparking.entity;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
 public class SlotCapacity {
 
+    /**
+     * Updater used to change the current capacity with compare-and-set operations
+     */
+    private static final AtomicIntegerFieldUpdater<SlotCapacity> CURRENT_CAPACITY =
+            AtomicIntegerFieldUpdater.newUpdater(SlotCapacity.class, "currentCapacity");
+
+    /**
+     * Updater used to change the maximum capacity while the gates reserve places
+     */
+    private static final AtomicIntegerFieldUpdater<SlotCapacity> CAPACITY =
+            AtomicIntegerFieldUpdater.newUpdater(SlotCapacity.class, "capacity");
+
+    /**
+     * Updater used to take the places of the pending shrink as they are freed
+     */
+    private static final AtomicIntegerFieldUpdater<SlotCapacity> PENDING_SHRINK =
+            AtomicIntegerFieldUpdater.newUpdater(SlotCapacity.class, "pendingShrink");
+
     /**
      * The maximum capacity of the slot
      */
-    public int capacity;
+    public volatile int capacity;
+
+    /**
+     * The capacity once the pending shrink is over. Changed by a single thread at a time, under the lock of the
+     * parking.
+     */
+    private volatile int targetCapacity;
+
+    /**
+     * The number of places still to remove from the capacity, each removed when a vehicle frees it
+     */
+    private volatile int pendingShrink;
 
     /**
      * The current capacity of the slot
      */
-    public int currentCapacity;
+    public volatile int currentCapacity;
+
+    /**
+     * The number of places held back for the reservations in their time window, not given to the walk-in vehicles
+     */
+    private volatile int heldBack;
+
+    /**
+     * The numbered slots, telling which ones are occupied
+     */
+    private final SlotAllocator slots;
 
     /**
      * Creates a slot object of the specified capacity
@@ -18,7 +59,9 @@ public class SlotCapacity {
      */
     public SlotCapacity(int capacity) {
         this.capacity = capacity;
+        this.targetCapacity = capacity;
         this.currentCapacity = 0;
+        this.slots = new SlotAllocator(capacity);
     }
 
     /**
@@ -28,4 +71,258 @@ public class SlotCapacity {
     public void setCurrentCapacity(int currentCapacity) {
         this.currentCapacity = currentCapacity;
     }
+
+    /**
+     * Atomically takes one place if the maximum capacity is not reached.
+     * Several gates can call this method at the same time without overbooking the slot.
+     *
+     * @return true if a place was taken; false if the slot is full
+     */
+    public boolean tryReserve() {
+        int current;
+        do {
+            current = this.currentCapacity;
+            if (current >= this.capacity - this.heldBack) {
+                return false;
+            }
+        } while (!CURRENT_CAPACITY.compareAndSet(this, current, current + 1));
+        return true;
+    }
+
+    /**
+     * Indicates if a walk-in vehicle may take a place
+     *
+     * @return true if the occupancy is below the capacity minus the places held back
+     */
+    public boolean hasFreePlace() {
+        return this.currentCapacity < this.capacity - this.heldBack;
+    }
+
+    /**
+     * Indicates if the place of a vehicle leaving may pass to a walk-in vehicle without being freed: it may unless
+     * the vehicles left would fill the places not held back for the reservations
+     *
+     * @return true if the occupancy, the leaving vehicle excluded, is below the capacity minus the places held back
+     */
+    public boolean canHandOver() {
+        return this.currentCapacity - 1 < this.capacity - this.heldBack;
+    }
+
+    /**
+     * Atomically takes one place for a vehicle that reserved it, using the places held back if needed
+     *
+     * @return true if a place was taken; false if the slot is full
+     */
+    public boolean tryReserveHeldBack() {
+        int current;
+        do {
+            current = this.currentCapacity;
+            if (current >= this.capacity) {
+                return false;
+            }
+        } while (!CURRENT_CAPACITY.compareAndSet(this, current, current + 1));
+        return true;
+    }
+
+    /**
+     * Atomically takes as many places as possible, up to the requested count, with a single compare-and-set.
+     *
+     * @param count the number of places requested
+     * @return the number of places taken, between 0 and count
+     */
+    public int tryReserve(int count) {
+        int current;
+        int granted;
+        do {
+            current = this.currentCapacity;
+            granted = Math.min(count, this.capacity - this.heldBack - current);
+            if (granted <= 0) {
+                return 0;
+            }
+        } while (!CURRENT_CAPACITY.compareAndSet(this, current, current + granted));
+        return granted;
+    }
+
+    /**
+     * Changes the number of places held back for reservations. Called by a single ReservationBook.
+     * @param count the number of places to hold back, negative to give them back to the walk-in vehicles
+     */
+    void holdBack(int count) {
+        this.heldBack += count;
+    }
+
+    /**
+     * Returns the number of places held back for reservations
+     * @return the number of places not given to the walk-in vehicles
+     */
+    public int getHeldBack() {
+        return this.heldBack;
+    }
+
+    /**
+     * Atomically frees one place previously taken with {@link #tryReserve()}. If a shrink is pending, the place is
+     * removed from the capacity instead of being given to the next vehicle.
+     * @return true if the place was removed from the capacity
+     */
+    public boolean release() {
+        if (this.pendingShrink != 0 && takePendingShrink(1) == 1) {
+            // the capacity is lowered before the place is freed, so no gate can take it meanwhile
+            CAPACITY.decrementAndGet(this);
+            CURRENT_CAPACITY.decrementAndGet(this);
+            return true;
+        }
+        CURRENT_CAPACITY.decrementAndGet(this);
+        return false;
+    }
+
+    /**
+     * Atomically frees several places previously taken. If a shrink is pending, the places are removed from the
+     * capacity first.
+     * @param count the number of places to free
+     * @return the number of places removed from the capacity
+     */
+    public int release(int count) {
+        int removed = (this.pendingShrink != 0) ? takePendingShrink(count) : 0;
+        if (removed > 0) {
+            CAPACITY.addAndGet(this, -removed);
+        }
+        CURRENT_CAPACITY.addAndGet(this, -count);
+        return removed;
+    }
+
+    /**
+     * Takes places of the pending shrink
+     * @param count the maximum number of places to take
+     * @return the number of places taken, between 0 and count
+     */
+    private int takePendingShrink(int count) {
+        int pending;
+        int taken;
+        do {
+            pending = this.pendingShrink;
+            taken = Math.min(pending, count);
+            if (taken <= 0) {
+                return 0;
+            }
+        } while (!PENDING_SHRINK.compareAndSet(this, pending, pending - taken));
+        return taken;
+    }
+
+    /**
+     * Adds places to the capacity and opens their numbered slots. Called under the lock of the parking; the places of
+     * a pending shrink stay to remove.
+     * @param count the number of places to add
+     */
+    void grow(int count) {
+        this.targetCapacity += count;
+        // the slots are opened before the places, so that a place granted always finds a slot, even while a move
+        // still keeps places above the target capacity
+        this.slots.resize(this.targetCapacity);
+        this.slots.ensureSlots(this.capacity + count);
+        CAPACITY.addAndGet(this, count);
+    }
+
+    /**
+     * Cancels places of the pending shrink, which stay in the capacity. Called under the lock of the parking.
+     * @param count the maximum number of places to cancel
+     * @return the number of places cancelled, between 0 and count
+     */
+    int cancelShrink(int count) {
+        int cancelled = takePendingShrink(count);
+        if (cancelled > 0) {
+            this.targetCapacity += cancelled;
+            this.slots.resize(Math.max(0, this.targetCapacity));
+        }
+        return cancelled;
+    }
+
+    /**
+     * Removes places from the capacity: the free places at once, the occupied ones as their vehicles leave. The
+     * highest numbered slots are closed at once, their vehicles keeping them until they leave. Called under the lock
+     * of the parking.
+     * @param count the number of places to remove
+     * @return the number of places removed at once
+     */
+    int shrink(int count) {
+        this.targetCapacity -= count;
+        // the target is negative while the shrink waits for slots moved to the vehicle type
+        this.slots.resize(Math.max(0, this.targetCapacity));
+        PENDING_SHRINK.addAndGet(this, count);
+        return removeFreePlaces();
+    }
+
+    /**
+     * Removes from the capacity the free places that the pending shrink is waiting for, leaving the places held back
+     * for the reservations
+     * @return the number of places removed
+     */
+    int removeFreePlaces() {
+        int pending = this.pendingShrink;
+        if (pending == 0) {
+            return 0;
+        }
+        int taken = tryReserve(pending);
+        return (taken > 0) ? release(taken) : 0;
+    }
+
+    /**
+     * Returns the capacity once the pending shrink is over
+     * @return the number of places asked for the vehicle type
+     */
+    public int getTargetCapacity() {
+        return this.targetCapacity;
+    }
+
+    /**
+     * Returns the number of places still to remove from the capacity
+     * @return the number of places waiting for their vehicle to leave
+     */
+    public int getPendingShrink() {
+        return this.pendingShrink;
+    }
+
+    /**
+     * Atomically takes one place even if the maximum capacity is reached. Used to count vehicles that are already
+     * in the parking, for example when its state is restored after a restart.
+     */
+    public void occupy() {
+        CURRENT_CAPACITY.incrementAndGet(this);
+    }
+
+    /**
+     * Takes a free numbered slot. A place must have been taken before with {@link #tryReserve()}, so a slot is
+     * always found unless more vehicles than slots were restored with {@link #occupy()}.
+     *
+     * @return the number of the slot, or {@link SlotAllocator#NO_SLOT} if all the slots are occupied
+     */
+    public int allocateSlot() {
+        return this.slots.allocate();
+    }
+
+    /**
+     * Takes a given numbered slot
+     * @param slot the number of the slot
+     * @return true if the slot was taken; false if it is already occupied or does not exist
+     */
+    public boolean occupySlot(int slot) {
+        return this.slots.occupy(slot);
+    }
+
+    /**
+     * Frees a numbered slot
+     * @param slot the number of the slot
+     * @return true if the slot was freed; false if it was not occupied
+     */
+    public boolean releaseSlot(int slot) {
+        return this.slots.release(slot);
+    }
+
+    /**
+     * Indicates if a numbered slot is occupied
+     * @param slot the number of the slot
+     * @return true if a vehicle is parked in the slot
+     */
+    public boolean isSlotOccupied(int slot) {
+        return this.slots.isOccupied(slot);
+    }
 }
@@ -1,6 +1,7 @@
 package com.tollparking.entity;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.Instant;
 import com.tollparking.enums.VehicleType;
 import java.util.Objects;
@@ -11,10 +12,15 @@ import java.util.Objects;
 public class Ticket {
 
     /**
-     * Id of the ticket
+     * Id of the ticket, or null if the ticket has a numeric id
      */
     private String id;
 
+    /**
+     * Numeric id of the ticket, used when id is null
+     */
+    private long numericId;
+
     /**
      * The date when the ticket was issued (when the car entered the parking)
      */
@@ -30,17 +36,82 @@ public class Ticket {
      */
     private BigDecimal amount;
 
+    /**
+     * The amount in cents (rounded HALF_UP to 2 decimals like the pricing policies), 0 if there is no amount
+     */
+    private long amountInCents;
+
     /**
      * The vehicle type
      */
     VehicleType vehicleType;
 
+    /**
+     * The number of the slot given to the vehicle, among the slots of its vehicle type
+     */
+    private int slotNumber = SlotAllocator.NO_SLOT;
+
     public Ticket(String id, VehicleType vehicleType) {
+        this(id, vehicleType, Instant.now());
+    }
+
+    /**
+     * Creates a ticket issued at a given date
+     * @param id the id of the ticket
+     * @param vehicleType the vehicle type
+     * @param startDate the date when the vehicle entered the parking
+     */
+    public Ticket(String id, VehicleType vehicleType, Instant startDate) {
         this.id = id;
-        this.startDate = Instant.now();
+        this.startDate = startDate;
         this.vehicleType = vehicleType;
     }
 
+    /**
+     * Creates a ticket identified by a number, without allocating an id string
+     * @param numericId the id of the ticket
+     * @param vehicleType the vehicle type
+     */
+    public Ticket(long numericId, VehicleType vehicleType) {
+        this(numericId, vehicleType, Instant.now());
+    }
+
+    /**
+     * Creates a ticket identified by a number and issued at a given date
+     * @param numericId the id of the ticket
+     * @param vehicleType the vehicle type
+     * @param startDate the date when the vehicle entered the parking
+     */
+    public Ticket(long numericId, VehicleType vehicleType, Instant startDate) {
+        this.numericId = numericId;
+        this.startDate = startDate;
+        this.vehicleType = vehicleType;
+    }
+
+    /**
+     * Returns the id of the ticket
+     * @return the unique id of the ticket
+     */
+    public String getId() {
+        return (id != null) ? id : Long.toString(numericId);
+    }
+
+    /**
+     * Indicates if the ticket is identified by a number
+     * @return true if the ticket has a numeric id; false if it has a string id
+     */
+    public boolean hasNumericId() {
+        return id == null;
+    }
+
+    /**
+     * Returns the numeric id of the ticket
+     * @return the numeric id, or 0 if the ticket has a string id
+     */
+    public long getNumericId() {
+        return numericId;
+    }
+
     /**
      * Returns the type of the vehicle
      * @return the type of the vehicle for which the ticket has been issued
@@ -49,6 +120,22 @@ public class Ticket {
         return vehicleType;
     }
 
+    /**
+     * Returns the slot where the vehicle is parked
+     * @return the number of the slot among the slots of the vehicle type, or -1 if no slot is recorded
+     */
+    public int getSlotNumber() {
+        return slotNumber;
+    }
+
+    /**
+     * Sets the slot where the vehicle is parked
+     * @param slotNumber the number of the slot among the slots of the vehicle type
+     */
+    public void setSlotNumber(int slotNumber) {
+        this.slotNumber = slotNumber;
+    }
+
     /**
      * Sets the start date of the ticket
      * @return the date when the ticket was issues
@@ -102,6 +189,25 @@ public class Ticket {
      */
     public void setAmount(BigDecimal amount) {
         this.amount = amount;
+        this.amountInCents = (amount == null)
+                ? 0 : amount.setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValue();
+    }
+
+    /**
+     * Gets the amount of the ticket in cents
+     * @return the amount rounded to the cent, or 0 if the ticket has no amount
+     */
+    public long getAmountInCents() {
+        return amountInCents;
+    }
+
+    /**
+     * Sets the amount in cents, as calculated by {@link com.tollparking.billing.PricingPolicy#calculatePriceInCents}
+     * @param amountInCents the calculated amount for the entire stay in cents
+     */
+    public void setAmountInCents(long amountInCents) {
+        this.amount = BigDecimal.valueOf(amountInCents, 2);
+        this.amountInCents = amountInCents;
     }
 
     /**
@@ -115,7 +221,7 @@ public class Ticket {
         if (obj == null) return false;
         if (!(obj instanceof Ticket)) return false;
         Ticket ticket = (Ticket) obj;
-        return Objects.equals(this.id, ticket.id);
+        return this.numericId == ticket.numericId && Objects.equals(this.id, ticket.id);
     }
 
     /**
@@ -125,7 +231,7 @@ public class Ticket {
     @Override
     public int hashCode() {
         int hash = 17;
-        hash = 29 * hash + ((this.id == null)? 0: Objects.hashCode(this.id));
+        hash = 29 * hash + ((this.id == null)? Long.hashCode(this.numericId): Objects.hashCode(this.id));
         hash = 29 * hash + ((this.vehicleType == null) ? 0 : Objects.hashCode(this.vehicleType));
         return hash;
     }
@@ -136,10 +242,13 @@ public class Ticket {
      */
     @Override
     public String toString() {
-        StringBuilder sb = new StringBuilder()
-                .append("id: ")
-                .append(this.id)
-                .append(" startDate: ")
+        StringBuilder sb = new StringBuilder().append("id: ");
+        if (this.id != null) {
+            sb.append(this.id);
+        } else {
+            sb.append(this.numericId);
+        }
+        sb.append(" startDate: ")
                 .append(this.startDate)
                 .append(" endDate: ")
                 .append(this.endDate)
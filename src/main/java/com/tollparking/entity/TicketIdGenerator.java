@@ -0,0 +1,33 @@
+package com.tollparking.entity;
+
+import com.tollparking.enums.VehicleType;
+
+import java.time.Instant;
+
+/**
+ * Generates the ids of the tickets issued by a Parking
+ */
+public interface TicketIdGenerator {
+
+    /**
+     * Issues a ticket with a new unique id. Called concurrently by the gates.
+     *
+     * @param vehicleType the type of the vehicle entering the parking
+     * @return a new ticket
+     */
+    Ticket newTicket(VehicleType vehicleType);
+
+    /**
+     * Issues a ticket with a new unique id and a given start date, read by the Parking from its clock. Called
+     * concurrently by the gates.
+     *
+     * @param vehicleType the type of the vehicle entering the parking
+     * @param startDate the date when the vehicle entered the parking
+     * @return a new ticket
+     */
+    default Ticket newTicket(VehicleType vehicleType, Instant startDate) {
+        Ticket ticket = newTicket(vehicleType);
+        ticket.setStartDate(startDate);
+        return ticket;
+    }
+}
@@ -0,0 +1,63 @@
+package com.tollparking.entity;
+
+import java.util.function.Consumer;
+
+/**
+ * Stores the open tickets of a Parking and finds them by id. Implementations must be thread-safe.
+ */
+public interface TicketStore {
+
+    /**
+     * Adds a ticket
+     * @param ticket the ticket to add
+     * @return true if the ticket was added; false if a ticket with the same id is already stored
+     */
+    boolean add(Ticket ticket);
+
+    /**
+     * Removes the ticket having the same id as the given ticket
+     * @param ticket the ticket to remove
+     * @return the removed ticket, or null if no ticket with this id is stored
+     */
+    Ticket remove(Ticket ticket);
+
+    /**
+     * Removes a ticket by its numeric id
+     * @param ticketId the numeric id of the ticket
+     * @return the removed ticket, or null if no ticket with this id is stored
+     */
+    Ticket remove(long ticketId);
+
+    /**
+     * Removes a ticket by its id as printed on the ticket
+     * @param ticketId the string id, or the decimal representation of the numeric id, of the ticket
+     * @return the removed ticket, or null if no ticket with this id is stored
+     */
+    Ticket remove(String ticketId);
+
+    /**
+     * Finds a ticket by its numeric id
+     * @param ticketId the numeric id of the ticket
+     * @return the ticket, or null if no ticket with this id is stored
+     */
+    Ticket get(long ticketId);
+
+    /**
+     * Finds a ticket by its id as printed on the ticket
+     * @param ticketId the string id, or the decimal representation of the numeric id, of the ticket
+     * @return the ticket, or null if no ticket with this id is stored
+     */
+    Ticket get(String ticketId);
+
+    /**
+     * Returns the number of stored tickets
+     * @return the number of tickets
+     */
+    int size();
+
+    /**
+     * Calls an action for each stored ticket. Tickets added or removed during the iteration may or may not be seen.
+     * @param action the action to call
+     */
+    void forEach(Consumer<? super Ticket> action);
+}
@@ -0,0 +1,226 @@
+package com.tollparking.entity;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds the tickets of the vehicles parked for longer than a limit, for example cars abandoned for weeks or tickets
+ * never closed by a faulty gate, which otherwise keep their slot taken forever. Each expired ticket is either
+ * flagged, and reported once until its vehicle leaves, or checked out and billed as if the vehicle had left.
+ *
+ * The sweeper is a listener of the parking keeping the open tickets ordered by start time, so a sweep only visits
+ * the expired tickets, whatever the number of vehicles in the parking. A ticket is found expired at most a minute
+ * after it exceeds the limit. The sweeps run on a background thread once started, or when sweep() is called.
+ *
+ * Open the sweeper after restoring the tickets of the parking: the tickets restored later are not seen.
+ */
+public class TicketSweeper implements ParkingListener, Closeable {
+
+    private static Logger LOG = LoggerFactory.getLogger(TicketSweeper.class);
+
+    /**
+     * The parking whose tickets are swept
+     */
+    private final Parking parking;
+
+    /**
+     * The time after which a ticket is expired
+     */
+    private final Duration maxAge;
+
+    /**
+     * True to check out the expired tickets, false to flag them
+     */
+    private final boolean checkOut;
+
+    /**
+     * The open tickets not yet expired, ordered by start time
+     */
+    private final OpenTicketIndex index = new OpenTicketIndex();
+
+    /**
+     * The expired tickets flagged whose vehicle is still in the parking
+     */
+    private final Set<Ticket> flaggedTickets = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The number of expired tickets checked out by the sweeper
+     */
+    private volatile long checkedOutCount;
+
+    /**
+     * The thread running the sweeps, once started
+     */
+    private ScheduledExecutorService executor;
+
+    /**
+     * Creates a sweeper
+     *
+     * @param parking the parking whose tickets are swept
+     * @param maxAge the time after which a ticket is expired
+     * @param checkOut true to check out the expired tickets, false to flag them
+     */
+    private TicketSweeper(Parking parking, Duration maxAge, boolean checkOut) {
+        this.parking = parking;
+        this.maxAge = maxAge;
+        this.checkOut = checkOut;
+    }
+
+    /**
+     * Opens a sweeper of the tickets of a parking: registers it as a listener of the parking and indexes the tickets
+     * already open. Call start to sweep periodically, or sweep.
+     *
+     * @param parking the parking whose tickets are swept
+     * @param maxAge the time after which a ticket is expired, for example 30 days
+     * @param checkOut true to check out the expired tickets, billing them until the sweep; false to flag them
+     * @return the opened sweeper
+     * @throws IllegalArgumentException if the maximum age is not positive
+     */
+    public static TicketSweeper open(Parking parking, Duration maxAge, boolean checkOut) {
+        Objects.requireNonNull(parking);
+        if (maxAge.isNegative() || maxAge.isZero()) {
+            throw new IllegalArgumentException("The maximum age must be positive");
+        }
+        TicketSweeper sweeper = new TicketSweeper(parking, maxAge, checkOut);
+        parking.addListener(sweeper);
+        // a ticket removed meanwhile is indexed anyway and ignored when it expires
+        for (Ticket ticket : parking.getOpenTickets()) {
+            sweeper.index.add(ticket);
+        }
+        return sweeper;
+    }
+
+    /**
+     * Sweeps the tickets periodically on a background thread until the sweeper is closed
+     * @param period the time between two sweeps
+     * @throws IllegalStateException if the sweeper is already started
+     */
+    public synchronized void start(Duration period) {
+        if (this.executor != null) {
+            throw new IllegalStateException("The sweeper is already started");
+        }
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "parking-ticket-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                sweep();
+            } catch (RuntimeException e) {
+                LOG.error("Error in sweeping the expired tickets", e);
+            }
+        }, period.toNanos(), period.toNanos(), TimeUnit.NANOSECONDS);
+        this.executor = executor;
+    }
+
+    /**
+     * Flags or checks out the tickets expired at the current time of the clock of the parking
+     * @return the tickets flagged or checked out by this sweep, billed if they were checked out
+     */
+    public synchronized List<Ticket> sweep() {
+        Instant limit = this.parking.getClock().instant().minus(this.maxAge);
+        List<Ticket> expired = new ArrayList<>();
+        List<Ticket> notExpired = new ArrayList<>();
+        this.index.pollBefore(Math.floorDiv(limit.getEpochSecond(), 60), ticket -> {
+            if (!ticket.getStartDate().isBefore(limit)) {
+                // a late ticket while the clock was set back
+                notExpired.add(ticket);
+            } else if (this.checkOut) {
+                ParkingResult result = this.parking.tryRemoveVehicle(ticket);
+                if (result.isSuccess()) {
+                    expired.add(result.getTicket());
+                }
+            } else if (isOpen(ticket) && this.flaggedTickets.add(ticket)) {
+                expired.add(ticket);
+                if (!isOpen(ticket)) {
+                    // the vehicle left while it was flagged
+                    this.flaggedTickets.remove(ticket);
+                }
+            }
+        });
+        for (Ticket ticket : notExpired) {
+            this.index.add(ticket);
+        }
+        if (!expired.isEmpty()) {
+            if (this.checkOut) {
+                this.checkedOutCount += expired.size();
+            }
+            LOG.warn("{} tickets older than {} were {}", expired.size(), this.maxAge,
+                    this.checkOut ? "checked out" : "flagged");
+        }
+        return expired;
+    }
+
+    /**
+     * Indicates if a ticket is still open in the parking
+     * @param ticket the ticket
+     * @return true if the parking has this ticket
+     */
+    private boolean isOpen(Ticket ticket) {
+        return (ticket.hasNumericId() ? this.parking.findTicket(ticket.getNumericId())
+                : this.parking.findTicket(ticket.getId())) != null;
+    }
+
+    /**
+     * Indexes the ticket of a parked vehicle
+     * @param ticket the ticket issued for the vehicle
+     */
+    @Override
+    public void vehicleParked(Ticket ticket) {
+        this.index.add(ticket);
+    }
+
+    /**
+     * Forgets the ticket of a vehicle that left
+     * @param ticket the billed ticket of the vehicle
+     */
+    @Override
+    public void vehicleRemoved(Ticket ticket) {
+        this.index.remove(ticket);
+        if (!this.flaggedTickets.isEmpty()) {
+            this.flaggedTickets.remove(ticket);
+        }
+    }
+
+    /**
+     * Returns the flagged tickets whose vehicle is still in the parking
+     * @return an unmodifiable view of the flagged tickets
+     */
+    public Collection<Ticket> getFlaggedTickets() {
+        return Collections.unmodifiableSet(this.flaggedTickets);
+    }
+
+    /**
+     * Returns the number of expired tickets checked out by the sweeper
+     * @return the number of tickets checked out
+     */
+    public long getCheckedOutCount() {
+        return this.checkedOutCount;
+    }
+
+    /**
+     * Stops the sweeps and stops indexing the tickets of the parking
+     */
+    @Override
+    public synchronized void close() {
+        this.parking.removeListener(this);
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.tollparking.entity;
+
+import com.tollparking.enums.VehicleType;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Issues tickets identified by a random UUID string, as the first versions of the parking did
+ */
+public class UuidTicketIdGenerator implements TicketIdGenerator {
+
+    /**
+     * Issues a ticket with a random UUID
+     *
+     * @param vehicleType the type of the vehicle entering the parking
+     * @return a new ticket
+     */
+    @Override
+    public Ticket newTicket(VehicleType vehicleType) {
+        return new Ticket(UUID.randomUUID().toString(), vehicleType);
+    }
+
+    /**
+     * Issues a ticket with a random UUID and a given start date
+     *
+     * @param vehicleType the type of the vehicle entering the parking
+     * @param startDate the date when the vehicle entered the parking
+     * @return a new ticket
+     */
+    @Override
+    public Ticket newTicket(VehicleType vehicleType, Instant startDate) {
+        return new Ticket(UUID.randomUUID().toString(), vehicleType, startDate);
+    }
+}
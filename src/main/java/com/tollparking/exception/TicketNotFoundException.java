@@ -8,4 +8,15 @@ public class TicketNotFoundException extends Exception{
     public  TicketNotFoundException(String message) {
         super(message);
     }
+
+    /**
+     * Creates an exception, possibly without stack trace. Filling the stack trace is most of the cost of an
+     * exception: a parking throwing one for each ticket read twice at an exit does not need to know where.
+     *
+     * @param message the detail message
+     * @param writableStackTrace false to create the exception without stack trace
+     */
+    public TicketNotFoundException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
 }
@@ -0,0 +1,324 @@
+package com.tollparking.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.tollparking.entity.Parking;
+import com.tollparking.entity.ParkingResult;
+import com.tollparking.entity.Ticket;
+import com.tollparking.enums.VehicleType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An embedded HTTP server exposing a Parking to remote gates, built on the HTTP server of the JDK.
+ *
+ * Endpoints (all responses are JSON):
+ * <ul>
+ *     <li>POST /tickets?type=FUEL parks a vehicle: 201 with the ticket, or 409 if there is no space available</li>
+ *     <li>DELETE /tickets/{id} removes a vehicle: 200 with the billed ticket, or 404 if the ticket is not found</li>
+ *     <li>GET /tickets/{id} finds the ticket of a parked vehicle: 200 with the ticket, or 404</li>
+ *     <li>GET /occupancy returns the capacity and the occupancy of each vehicle type</li>
+ * </ul>
+ *
+ * Connections are accepted and read by the selector thread of the JDK server, so idle keep-alive connections of the
+ * gates do not hold a thread; each request is then served on the executor. On Java 21 and later the default executor
+ * starts a virtual thread per request, so requests waiting for the journal to force their record on disk are cheap;
+ * on older versions it is a fixed pool of platform threads.
+ *
+ * The JDK server is tuned with system properties read when the first server of the JVM is created, to be given at
+ * launch: -Dsun.net.httpserver.nodelay=true, as it writes the headers and the body of a response separately and
+ * Nagle's algorithm otherwise holds the body back ~40 ms until the client acknowledges the headers, and
+ * -Dsun.net.httpserver.maxIdleConnections with one connection per gate, as above 200 idle connections by default it
+ * closes the connection of a gate after each response.
+ */
+public class ParkingHttpServer implements Closeable {
+
+    private static Logger LOG = LoggerFactory.getLogger(ParkingHttpServer.class);
+
+    /**
+     * The number of connections waiting to be accepted before new ones are refused
+     */
+    private static final int BACKLOG = 4096;
+
+    /**
+     * The number of threads per processor of the executor used when virtual threads are not available
+     */
+    private static final int THREADS_PER_PROCESSOR = 8;
+
+    /**
+     * The served parking
+     */
+    private final Parking parking;
+
+    /**
+     * The JDK HTTP server
+     */
+    private final HttpServer server;
+
+    /**
+     * The executor serving the requests
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Creates a server serving requests with the default executor. The server must be started with {@link #start()}.
+     *
+     * @param parking the parking to expose
+     * @param address the address to listen on; port 0 chooses a free port
+     * @throws IOException if the server cannot listen on the address
+     */
+    public ParkingHttpServer(Parking parking, InetSocketAddress address) throws IOException {
+        this(parking, address, newExecutor());
+    }
+
+    /**
+     * Creates a server serving requests with the given executor. The server must be started with {@link #start()}.
+     *
+     * @param parking the parking to expose
+     * @param address the address to listen on; port 0 chooses a free port
+     * @param executor the executor serving the requests, shut down when the server is closed
+     * @throws IOException if the server cannot listen on the address
+     */
+    public ParkingHttpServer(Parking parking, InetSocketAddress address, ExecutorService executor) throws IOException {
+        this.parking = parking;
+        this.executor = executor;
+        this.server = HttpServer.create(address, BACKLOG);
+        this.server.setExecutor(executor);
+        this.server.createContext("/tickets", this::handleTickets);
+        this.server.createContext("/occupancy", this::handleOccupancy);
+    }
+
+    /**
+     * Creates the default executor: a virtual thread per request when the JVM supports it, otherwise a fixed pool of
+     * daemon threads
+     *
+     * @return the executor
+     */
+    public static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOG.info("Virtual threads are not available, serving requests on a pool of platform threads");
+            AtomicInteger count = new AtomicInteger();
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "parking-http-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * THREADS_PER_PROCESSOR, threadFactory);
+        }
+    }
+
+    /**
+     * Starts accepting requests
+     */
+    public void start() {
+        this.server.start();
+    }
+
+    /**
+     * Returns the port the server listens on
+     * @return the port
+     */
+    public int getPort() {
+        return this.server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests, then stops the executor once the requests being served are answered
+     */
+    @Override
+    public void close() {
+        this.server.stop(0);
+        this.executor.shutdown();
+        try {
+            this.executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Serves /tickets and /tickets/{id}
+     * @param exchange the request and its response
+     * @throws IOException if the response cannot be sent
+     */
+    private void handleTickets(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/tickets") || path.equals("/tickets/")) {
+                if (!method.equals("POST")) {
+                    send(exchange, 405, error("method not allowed"));
+                    return;
+                }
+                VehicleType vehicleType = vehicleType(exchange.getRequestURI().getRawQuery());
+                if (vehicleType == null) {
+                    send(exchange, 400, error("unknown vehicle type"));
+                    return;
+                }
+                Ticket ticket = this.parking.parkVehicle(vehicleType);
+                if (ticket == null) {
+                    send(exchange, 409, error("no space available"));
+                } else {
+                    send(exchange, 201, toJson(ticket));
+                }
+                return;
+            }
+            // the context also matches the paths that only start with /tickets, such as /tickets1234
+            if (!path.startsWith("/tickets/")) {
+                send(exchange, 404, error("not found"));
+                return;
+            }
+
+            String id = path.substring("/tickets/".length());
+            if (method.equals("GET")) {
+                Ticket ticket = this.parking.findTicket(id);
+                if (ticket == null) {
+                    send(exchange, 404, error("ticket not found"));
+                } else {
+                    send(exchange, 200, toJson(ticket));
+                }
+            } else if (method.equals("DELETE")) {
+                ParkingResult result = this.parking.tryRemoveVehicle(id);
+                if (result.isSuccess()) {
+                    send(exchange, 200, toJson(result.getTicket()));
+                } else {
+                    send(exchange, 404, error("ticket not found"));
+                }
+            } else {
+                send(exchange, 405, error("method not allowed"));
+            }
+        } catch (RuntimeException e) {
+            LOG.error("Error in serving {} {}", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            send(exchange, 500, error("internal error"));
+        }
+    }
+
+    /**
+     * Serves /occupancy
+     * @param exchange the request and its response
+     * @throws IOException if the response cannot be sent
+     */
+    private void handleOccupancy(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if (!path.equals("/occupancy") && !path.equals("/occupancy/")) {
+            send(exchange, 404, error("not found"));
+            return;
+        }
+        if (!exchange.getRequestMethod().equals("GET")) {
+            send(exchange, 405, error("method not allowed"));
+            return;
+        }
+        StringBuilder json = new StringBuilder(128).append('{');
+        for (VehicleType vehicleType : VehicleType.values()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append('"').append(vehicleType.name()).append("\":{\"capacity\":")
+                    .append(this.parking.getCapacity(vehicleType))
+                    .append(",\"occupancy\":")
+                    .append(this.parking.getOccupancy(vehicleType))
+                    .append('}');
+        }
+        send(exchange, 200, json.append('}').toString());
+    }
+
+    /**
+     * Reads the vehicle type from the query string
+     * @param query the raw query string, for example type=FUEL
+     * @return the vehicle type, or null if it is missing or unknown
+     */
+    private static VehicleType vehicleType(String query) {
+        if (query == null) {
+            return null;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith("type=")) {
+                try {
+                    return VehicleType.valueOf(parameter.substring("type=".length()));
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes a ticket as JSON. The id is written as a string, since numeric ids do not fit in a JavaScript number.
+     * @param ticket the ticket
+     * @return the JSON object
+     */
+    static String toJson(Ticket ticket) {
+        StringBuilder json = new StringBuilder(160).append("{\"id\":");
+        appendString(json, ticket.getId());
+        json.append(",\"vehicleType\":\"").append(ticket.getVehicleType().name())
+                .append("\",\"slot\":").append(ticket.getSlotNumber())
+                .append(",\"startDate\":\"").append(ticket.getStartDate()).append('"')
+                .append(",\"endDate\":");
+        if (ticket.getEndDate() == null) {
+            json.append("null");
+        } else {
+            json.append('"').append(ticket.getEndDate()).append('"');
+        }
+        json.append(",\"amount\":").append(ticket.getAmount() == null ? "null" : ticket.getAmount().toPlainString());
+        return json.append('}').toString();
+    }
+
+    /**
+     * Writes an error as JSON
+     * @param message the error message
+     * @return the JSON object
+     */
+    private static String error(String message) {
+        return "{\"error\":\"" + message + "\"}";
+    }
+
+    /**
+     * Appends a JSON string, escaping the characters that cannot appear in it
+     * @param json the JSON being written
+     * @param value the string
+     */
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * Sends a JSON response and closes the exchange
+     * @param exchange the request and its response
+     * @param status the HTTP status
+     * @param json the body
+     * @throws IOException if the response cannot be sent
+     */
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
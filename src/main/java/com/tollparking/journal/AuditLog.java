@@ -0,0 +1,489 @@
+package com.tollparking.journal;
+
+import com.tollparking.entity.Parking;
+import com.tollparking.entity.ParkingListener;
+import com.tollparking.entity.Ticket;
+import com.tollparking.enums.VehicleType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An append-only audit log of the billed tickets of a Parking, kept after the vehicles have left so that the billing
+ * can be reconciled.
+ *
+ * The check-outs only put their ticket in a bounded queue: a single background thread encodes the tickets into
+ * memory-mapped segment files (audit-NNN.bin), so a check-out does not wait for the disk while the queue has room.
+ * When the queue is full, because the disk cannot keep up, the check-outs wait for room by default, so that no billed
+ * ticket is lost; a log opened with the DROP overflow drops and counts them instead, reporting them as errors.
+ * A segment is forced on disk when it is full and when the log is closed; the records written in the memory of a
+ * segment survive a crash of the JVM but not of the machine.
+ *
+ * Segment format: a magic number (int), then the records, then zeros up to the size of the segment. Record format:
+ * vehicle type ordinal + 1 (byte, written last so that a record partially written reads as the end of the segment),
+ * the id length (short) followed by the UTF-8 bytes of the id or -1 followed by a numeric id (long), the start and
+ * end dates in microseconds since the epoch (long, long) and the amount in cents (long). Use AuditLogReader to read
+ * the records.
+ */
+public class AuditLog implements ParkingListener, Closeable {
+
+    private static Logger LOG = LoggerFactory.getLogger(AuditLog.class);
+
+    /**
+     * What a check-out does when the queue of the tickets to write is full
+     */
+    public enum Overflow {
+        /**
+         * The check-out waits until the writer thread makes room: no billed ticket is lost
+         */
+        BLOCK,
+        /**
+         * The ticket is dropped and counted so that the exit gates never wait for the disk
+         */
+        DROP
+    }
+
+    /**
+     * The default size of the segment files
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * The default number of tickets waiting to be written before the check-outs wait or the tickets are dropped
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 64 * 1024;
+
+    /**
+     * The smallest size of the segment files, holding a record with the longest id
+     */
+    static final int MIN_SEGMENT_SIZE = 64 * 1024;
+
+    /**
+     * The number written at the start of each segment
+     */
+    static final int MAGIC = 0x54504131;
+
+    /**
+     * The size of the segment header
+     */
+    static final int HEADER_SIZE = 4;
+
+    /**
+     * The size of a record without its id: vehicle type, dates and amount
+     */
+    static final int FIXED_RECORD_SIZE = 1 + 8 + 8 + 8;
+
+    /**
+     * The prefix of the segment files
+     */
+    static final String SEGMENT_PREFIX = "audit-";
+
+    /**
+     * The suffix of the segment files
+     */
+    static final String SEGMENT_SUFFIX = ".bin";
+
+    /**
+     * The longest time a check-out waits for room in the queue before checking again that the log is still open
+     */
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    /**
+     * The ticket put in the queue to stop the writer thread
+     */
+    private static final Ticket END_OF_LOG = new Ticket(0L, VehicleType.FUEL);
+
+    /**
+     * The directory of the log
+     */
+    private final Path directory;
+
+    /**
+     * The size of the new segment files
+     */
+    private final int segmentSize;
+
+    /**
+     * The parking whose check-outs are logged
+     */
+    private final Parking parking;
+
+    /**
+     * What a check-out does when the queue is full
+     */
+    private final Overflow overflow;
+
+    /**
+     * The billed tickets waiting to be written
+     */
+    private final BlockingQueue<Ticket> queue;
+
+    /**
+     * The number of tickets dropped because the queue was full or the log failed
+     */
+    private final LongAdder droppedCount = new LongAdder();
+
+    /**
+     * The number of records written in the segments
+     */
+    private volatile long writtenCount;
+
+    /**
+     * The error that stopped the writer thread, if any
+     */
+    private volatile IOException failure;
+
+    /**
+     * True once the log is closed
+     */
+    private volatile boolean closed;
+
+    /**
+     * The number of the segment being written, only used by the writer thread
+     */
+    private long segment;
+
+    /**
+     * The channel of the segment being written, only used by the writer thread
+     */
+    private FileChannel channel;
+
+    /**
+     * The mapped segment being written, positioned after the last record, only used by the writer thread
+     */
+    private MappedByteBuffer buffer;
+
+    /**
+     * The thread writing the records
+     */
+    private final Thread writer;
+
+    /**
+     * Creates a log appending to the given segment
+     *
+     * @param directory the directory of the log
+     * @param segmentSize the size of the new segment files
+     * @param queueCapacity the number of tickets waiting to be written before the check-outs wait or the tickets are
+     * dropped
+     * @param overflow what a check-out does when the queue is full
+     * @param parking the parking whose check-outs are logged
+     * @throws IOException if the last segment cannot be opened
+     */
+    private AuditLog(Path directory, int segmentSize, int queueCapacity, Overflow overflow, Parking parking)
+            throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.overflow = overflow;
+        this.parking = parking;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        List<Long> segments = list(directory);
+        openSegment(segments.isEmpty() ? 0 : segments.get(segments.size() - 1));
+        this.writer = new Thread(this::writeRecords, "parking-audit-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Opens the audit log of a parking with the default segment size and queue capacity, and registers it as a
+     * listener of the parking. The check-outs wait when the queue is full. The records are appended after the records
+     * already in the log.
+     *
+     * @param directory the directory of the log, created if it does not exist
+     * @param parking the parking whose check-outs are logged
+     * @return the opened log
+     * @throws IOException if the log cannot be opened
+     */
+    public static AuditLog open(Path directory, Parking parking) throws IOException {
+        return open(directory, parking, DEFAULT_SEGMENT_SIZE, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Opens the audit log of a parking and registers it as a listener of the parking. The records are appended after
+     * the records already in the log.
+     *
+     * @param directory the directory of the log, created if it does not exist
+     * @param parking the parking whose check-outs are logged
+     * @param segmentSize the size of the segment files, at least 64 KB
+     * @param queueCapacity the number of tickets waiting to be written before the check-outs wait
+     * @return the opened log
+     * @throws IOException if the log cannot be opened
+     * @throws IllegalArgumentException if the segment size or the queue capacity is too small
+     */
+    public static AuditLog open(Path directory, Parking parking, int segmentSize, int queueCapacity) throws IOException {
+        return open(directory, parking, segmentSize, queueCapacity, Overflow.BLOCK);
+    }
+
+    /**
+     * Opens the audit log of a parking and registers it as a listener of the parking. The records are appended after
+     * the records already in the log.
+     *
+     * @param directory the directory of the log, created if it does not exist
+     * @param parking the parking whose check-outs are logged
+     * @param segmentSize the size of the segment files, at least 64 KB
+     * @param queueCapacity the number of tickets waiting to be written before the check-outs wait or the tickets are
+     * dropped
+     * @param overflow BLOCK for the check-outs to wait when the queue is full, DROP to drop their tickets
+     * @return the opened log
+     * @throws IOException if the log cannot be opened
+     * @throws IllegalArgumentException if the segment size or the queue capacity is too small
+     */
+    public static AuditLog open(Path directory, Parking parking, int segmentSize, int queueCapacity, Overflow overflow)
+            throws IOException {
+        if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("The segment size must be at least " + MIN_SEGMENT_SIZE + " bytes");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("The queue capacity must be positive");
+        }
+        Files.createDirectories(directory);
+        AuditLog auditLog = new AuditLog(directory, segmentSize, queueCapacity, Objects.requireNonNull(overflow),
+                Objects.requireNonNull(parking));
+        parking.addListener(auditLog);
+        return auditLog;
+    }
+
+    /**
+     * Queues the billed ticket of a vehicle to be written. When the queue is full, waits for room or drops the ticket
+     * depending on the overflow of the log; a ticket is also dropped once the log is closed or failed.
+     * @param ticket the billed ticket of the vehicle
+     */
+    @Override
+    public void vehicleRemoved(Ticket ticket) {
+        if (this.closed || this.failure != null) {
+            this.droppedCount.increment();
+        } else if (!this.queue.offer(ticket) && (this.overflow == Overflow.DROP || !awaitRoom(ticket))) {
+            this.droppedCount.increment();
+        }
+    }
+
+    /**
+     * Waits for room in the queue to put a ticket, as long as the log is open. An interruption does not stop the
+     * wait, so that the ticket is not lost, and is restored afterwards.
+     * @param ticket the billed ticket
+     * @return true if the ticket was queued, false if the log was closed or failed first
+     */
+    private boolean awaitRoom(Ticket ticket) {
+        boolean interrupted = false;
+        try {
+            while (!this.closed && this.failure == null) {
+                try {
+                    if (this.queue.offer(ticket, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            return false;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of billed tickets dropped because the writer thread could not keep up with a DROP overflow,
+     * failed or was closed
+     * @return the number of tickets not written in the log
+     */
+    public long getDroppedCount() {
+        return this.droppedCount.sum();
+    }
+
+    /**
+     * Returns the number of records written in the segments since the log was opened
+     * @return the number of written records
+     */
+    public long getWrittenCount() {
+        return this.writtenCount;
+    }
+
+    /**
+     * Writes the queued tickets until the log is closed or fails
+     */
+    private void writeRecords() {
+        List<Ticket> batch = new ArrayList<>();
+        long reportedDropped = 0;
+        try {
+            while (true) {
+                batch.add(this.queue.take());
+                this.queue.drainTo(batch);
+                for (Ticket ticket : batch) {
+                    if (ticket == END_OF_LOG) {
+                        return;
+                    }
+                    write(ticket);
+                    this.writtenCount++;
+                }
+                batch.clear();
+                long dropped = this.droppedCount.sum();
+                if (dropped > reportedDropped) {
+                    LOG.error("{} billed tickets were dropped from the audit log", dropped - reportedDropped);
+                    reportedDropped = dropped;
+                }
+            }
+        } catch (IOException e) {
+            LOG.error("Error in writing the audit log", e);
+            this.failure = e;
+            this.droppedCount.add(batch.size() + this.queue.size());
+            this.queue.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes the record of a ticket in the current segment, starting a new segment if it is full
+     * @param ticket the billed ticket
+     * @throws IOException if a new segment cannot be created
+     */
+    private void write(Ticket ticket) throws IOException {
+        int size = FIXED_RECORD_SIZE + TicketCodec.idSize(ticket);
+        if (this.buffer.remaining() < size) {
+            this.buffer.force();
+            this.channel.close();
+            openSegment(this.segment + 1);
+        }
+        MappedByteBuffer buffer = this.buffer;
+        int start = buffer.position();
+        buffer.position(start + 1);
+        TicketCodec.putId(buffer, ticket);
+        buffer.putLong(toMicros(ticket.getStartDate()))
+                .putLong(toMicros(ticket.getEndDate()))
+                .putLong(ticket.getAmountInCents());
+        buffer.put(start, (byte) (ticket.getVehicleType().ordinal() + 1));
+    }
+
+    /**
+     * Maps a segment and positions it after its last record, creating it if it does not exist
+     * @param segment the number of the segment
+     * @throws IOException if the segment cannot be opened or is not an audit log segment
+     */
+    private void openSegment(long segment) throws IOException {
+        Path file = segmentFile(this.directory, segment);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            boolean created = channel.size() == 0;
+            if (!created) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                channel.read(header, 0);
+                if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+                    throw new IOException("Not an audit log segment: " + file);
+                }
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    Math.max(channel.size(), this.segmentSize));
+            if (created) {
+                buffer.putInt(0, MAGIC);
+            }
+            buffer.position(AuditLogReader.endOfRecords(buffer));
+            this.segment = segment;
+            this.channel = channel;
+            this.buffer = buffer;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Stops logging the check-outs of the parking, writes the queued tickets and forces the last segment on disk
+     * @throws IOException if the log failed or cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.parking.removeListener(this);
+        this.closed = true;
+        if (this.failure == null) {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    this.queue.put(END_OF_LOG);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            while (this.writer.isAlive()) {
+                try {
+                    this.writer.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        this.buffer.force();
+        this.channel.close();
+        if (this.failure != null) {
+            throw new IOException("The audit log could not be written", this.failure);
+        }
+    }
+
+    /**
+     * Converts a date to microseconds since the epoch
+     * @param date the date
+     * @return the number of microseconds, or 0 if the date is null
+     */
+    private static long toMicros(Instant date) {
+        return (date == null) ? 0 : date.getEpochSecond() * 1_000_000L + date.getNano() / 1000;
+    }
+
+    /**
+     * Lists the numbers of the segment files of a log
+     * @param directory the directory of the log
+     * @return the numbers of the segments, in ascending order
+     * @throws IOException if the directory cannot be read
+     */
+    static List<Long> list(Path directory) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return numbers;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    numbers.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    LOG.warn("Ignoring the unknown audit log file {}", file);
+                }
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    /**
+     * Returns the file of a segment
+     * @param directory the directory of the log
+     * @param segment the number of the segment
+     * @return the path of the segment file
+     */
+    static Path segmentFile(Path directory, long segment) {
+        return directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+}
@@ -0,0 +1,88 @@
+package com.tollparking.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the records of an AuditLog as a stream: the segments are mapped one at a time and each record is given to a
+ * visitor as soon as it is read, so a log of any size is scanned in constant memory. The log can be read while it is
+ * written; the records written during the scan may or may not be read.
+ */
+public final class AuditLogReader {
+
+    /**
+     * Receives the records of a scan
+     */
+    @FunctionalInterface
+    public interface Visitor {
+
+        /**
+         * Receives a record
+         * @param record the record, only valid during the call
+         * @return true to continue the scan, false to stop it
+         */
+        boolean visit(AuditRecord record);
+    }
+
+    private AuditLogReader() {
+    }
+
+    /**
+     * Scans all the records of a log, in the order they were written
+     *
+     * @param directory the directory of the log
+     * @param visitor the visitor receiving the records
+     * @return the number of records visited
+     * @throws IOException if a segment cannot be read or is not an audit log segment
+     */
+    public static long scan(Path directory, Visitor visitor) throws IOException {
+        AuditRecord record = new AuditRecord();
+        long count = 0;
+        for (long segment : AuditLog.list(directory)) {
+            Path file = AuditLog.segmentFile(directory, segment);
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            if (buffer.capacity() < AuditLog.HEADER_SIZE || buffer.getInt(0) != AuditLog.MAGIC) {
+                throw new IOException("Not an audit log segment: " + file);
+            }
+            buffer.position(AuditLog.HEADER_SIZE);
+            while (buffer.hasRemaining()) {
+                byte vehicleType = buffer.get(buffer.position());
+                if (vehicleType == 0) {
+                    break;
+                }
+                record.read(buffer, vehicleType);
+                count++;
+                if (!visitor.visit(record)) {
+                    return count;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the end of the records of a segment
+     * @param segment the mapped segment
+     * @return the position after the last record
+     */
+    static int endOfRecords(ByteBuffer segment) {
+        ByteBuffer records = segment.duplicate();
+        records.position(AuditLog.HEADER_SIZE);
+        AuditRecord record = new AuditRecord();
+        while (records.hasRemaining()) {
+            byte vehicleType = records.get(records.position());
+            if (vehicleType == 0) {
+                break;
+            }
+            record.read(records, vehicleType);
+        }
+        return records.position();
+    }
+}
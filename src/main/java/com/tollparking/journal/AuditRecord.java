@@ -0,0 +1,211 @@
+package com.tollparking.journal;
+
+import com.tollparking.enums.VehicleType;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * A record of the audit log: the id, vehicle type, dates and amount of a billed ticket.
+ *
+ * The reader uses a single record for a whole scan and moves it from record to record, so scanning the log does not
+ * allocate anything per record. A record is only valid during the call of the visitor it is given to; the
+ * values to keep must be copied.
+ */
+public final class AuditRecord {
+
+    /**
+     * The vehicle types, indexed by ordinal
+     */
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+
+    /**
+     * The segment being read
+     */
+    private ByteBuffer segment;
+
+    /**
+     * The position of the UTF-8 bytes of a string id in the segment, or -1 for a numeric id
+     */
+    private int idPosition;
+
+    /**
+     * The length of the UTF-8 bytes of a string id
+     */
+    private int idLength;
+
+    /**
+     * The numeric id of the ticket, if it has one
+     */
+    private long numericId;
+
+    /**
+     * The vehicle type of the ticket
+     */
+    private VehicleType vehicleType;
+
+    /**
+     * The start date in microseconds since the epoch
+     */
+    private long startEpochMicros;
+
+    /**
+     * The end date in microseconds since the epoch
+     */
+    private long endEpochMicros;
+
+    /**
+     * The billed amount in cents
+     */
+    private long amountInCents;
+
+    /**
+     * Creates a record read by an AuditLogReader
+     */
+    AuditRecord() {
+    }
+
+    /**
+     * Reads the record at the position of a segment and moves the segment after it
+     * @param segment the segment, positioned on the vehicle type byte of a record
+     * @param vehicleType the vehicle type byte of the record, already read
+     */
+    void read(ByteBuffer segment, byte vehicleType) {
+        this.segment = segment;
+        this.vehicleType = VEHICLE_TYPES[vehicleType - 1];
+        segment.position(segment.position() + 1);
+        short length = segment.getShort();
+        if (length < 0) {
+            this.idPosition = -1;
+            this.numericId = segment.getLong();
+        } else {
+            this.idPosition = segment.position();
+            this.idLength = length;
+            segment.position(this.idPosition + length);
+        }
+        this.startEpochMicros = segment.getLong();
+        this.endEpochMicros = segment.getLong();
+        this.amountInCents = segment.getLong();
+    }
+
+    /**
+     * Indicates if the ticket has a numeric id
+     * @return true for a numeric id, false for a string id
+     */
+    public boolean hasNumericId() {
+        return this.idPosition < 0;
+    }
+
+    /**
+     * Returns the numeric id of the ticket
+     * @return the numeric id
+     * @throws IllegalStateException if the ticket has a string id
+     */
+    public long getNumericId() {
+        if (this.idPosition >= 0) {
+            throw new IllegalStateException("The ticket has a string id");
+        }
+        return this.numericId;
+    }
+
+    /**
+     * Returns the id of the ticket, decoding it from the segment
+     * @return the string id, or the decimal representation of the numeric id
+     */
+    public String getTicketId() {
+        if (this.idPosition < 0) {
+            return Long.toString(this.numericId);
+        }
+        byte[] id = new byte[this.idLength];
+        for (int i = 0; i < id.length; i++) {
+            id[i] = this.segment.get(this.idPosition + i);
+        }
+        return new String(id, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the vehicle type of the ticket
+     * @return the vehicle type
+     */
+    public VehicleType getVehicleType() {
+        return this.vehicleType;
+    }
+
+    /**
+     * Returns the start date of the ticket in microseconds
+     * @return the number of microseconds since the epoch
+     */
+    public long getStartEpochMicros() {
+        return this.startEpochMicros;
+    }
+
+    /**
+     * Returns the end date of the ticket in microseconds
+     * @return the number of microseconds since the epoch
+     */
+    public long getEndEpochMicros() {
+        return this.endEpochMicros;
+    }
+
+    /**
+     * Returns the start date of the ticket
+     * @return the start date, to the microsecond
+     */
+    public Instant getStartDate() {
+        return toInstant(this.startEpochMicros);
+    }
+
+    /**
+     * Returns the end date of the ticket
+     * @return the end date, to the microsecond
+     */
+    public Instant getEndDate() {
+        return toInstant(this.endEpochMicros);
+    }
+
+    /**
+     * Returns the billed amount in cents
+     * @return the amount in cents
+     */
+    public long getAmountInCents() {
+        return this.amountInCents;
+    }
+
+    /**
+     * Returns the billed amount
+     * @return the amount with 2 decimals
+     */
+    public BigDecimal getAmount() {
+        return BigDecimal.valueOf(this.amountInCents, 2);
+    }
+
+    /**
+     * Converts microseconds since the epoch to a date
+     * @param epochMicros the number of microseconds
+     * @return the date
+     */
+    private static Instant toInstant(long epochMicros) {
+        return Instant.ofEpochSecond(Math.floorDiv(epochMicros, 1_000_000L), Math.floorMod(epochMicros, 1_000_000L) * 1000);
+    }
+
+    /**
+     * Returns the String representation of a record
+     * @return a string that "textually represents" this object
+     */
+    @Override
+    public String toString() {
+        return new StringBuilder().append("id: ")
+                .append(getTicketId())
+                .append(" vehicleType: ")
+                .append(this.vehicleType)
+                .append(" startDate: ")
+                .append(getStartDate())
+                .append(" endDate: ")
+                .append(getEndDate())
+                .append(" amount: ")
+                .append(getAmount())
+                .toString();
+    }
+}
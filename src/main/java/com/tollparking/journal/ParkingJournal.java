@@ -0,0 +1,851 @@
+package com.tollparking.journal;
+
+import com.tollparking.entity.Parking;
+import com.tollparking.entity.ParkingListener;
+import com.tollparking.entity.Ticket;
+import com.tollparking.enums.VehicleType;
+import com.tollparking.exception.InvalidCapacityException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only write-ahead journal of the vehicles parked in and removed from a Parking.
+ *
+ * The journal is a directory of segment files (journal-NNN.log) and snapshots (snapshot-NNN.bin). Each check-in and
+ * check-out is appended to the last segment and the gate waits until the record is forced on disk
+ * before it gets its ticket. A single background thread writes and forces the records: all the records appended by
+ * the gates while the previous batch was being forced are written with a single fsync (group commit), so the number
+ * of fsyncs per second does not limit the number of vehicles per second.
+ *
+ * A snapshot NNN contains the open tickets at the time it was taken and all the events of the segments before NNN,
+ * which are deleted once the snapshot is on disk. At startup, the last snapshot is loaded and only the segments from
+ * NNN are replayed.
+ *
+ * Record format: payload length (int), CRC32 of the payload (int), then the payload: event (byte), vehicle type
+ * ordinal (byte), start date epoch seconds (long) and nanos (int), then the id length (short) followed by the UTF-8
+ * bytes of the id, or -1 followed by a numeric id (long), then the slot number (int). Records written before slots
+ * were numbered end after the id and are replayed without a slot. A change of capacity is journaled before it is
+ * applied, with a record per vehicle type whose payload is: event (byte), vehicle type ordinal (byte), number of slots
+ * once the pending shrinks and moves are over (int).
+ *
+ * At startup, the open tickets are restored first, then the capacities journaled: the slots lost by a vehicle type
+ * and gained by another are moved again, so that the bays still occupied are converted as their vehicles leave.
+ */
+public class ParkingJournal implements ParkingListener, Closeable {
+
+    private static Logger LOG = LoggerFactory.getLogger(ParkingJournal.class);
+
+    /**
+     * Event written when a vehicle is parked
+     */
+    static final byte PARKED = 1;
+
+    /**
+     * Event written when a vehicle is removed
+     */
+    static final byte REMOVED = 2;
+
+    /**
+     * Event written when the capacity of a vehicle type is changed
+     */
+    static final byte CAPACITY = 3;
+
+    /**
+     * The size of the record header (payload length and CRC32)
+     */
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * The size of the fixed part of the payload
+     */
+    private static final int FIXED_PAYLOAD_SIZE = 1 + 1 + 8 + 4;
+
+    /**
+     * The size of the payload of a change of capacity
+     */
+    private static final int CAPACITY_PAYLOAD_SIZE = 1 + 1 + 4;
+
+    /**
+     * The size of the slot number written after the id
+     */
+    private static final int SLOT_SIZE = 4;
+
+    /**
+     * The initial size of the buffers collecting the records of a batch
+     */
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The prefix of the segment files
+     */
+    private static final String SEGMENT_PREFIX = "journal-";
+
+    /**
+     * The suffix of the segment files
+     */
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * The prefix of the snapshot files
+     */
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    /**
+     * The suffix of the snapshot files
+     */
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    /**
+     * The directory of the journal
+     */
+    private final Path directory;
+
+    /**
+     * The channel of the segment being appended to, only used by the flusher thread
+     */
+    private FileChannel channel;
+
+    /**
+     * The number of the segment being appended to
+     */
+    private long segment;
+
+    /**
+     * True when the flusher must start a new segment after the current batch
+     */
+    private boolean rollRequested;
+
+    /**
+     * Serializes the snapshots
+     */
+    private final Object snapshotLock = new Object();
+
+    /**
+     * The thread taking periodic snapshots, if started
+     */
+    private ScheduledExecutorService snapshotScheduler;
+
+    /**
+     * The parking whose events are journaled
+     */
+    private final Parking parking;
+
+    /**
+     * Guards the buffers and the sequences
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signaled when records are waiting to be written
+     */
+    private final Condition recordsAppended = this.lock.newCondition();
+
+    /**
+     * Signaled when a batch has been forced on disk
+     */
+    private final Condition batchForced = this.lock.newCondition();
+
+    /**
+     * The records appended since the last batch was taken by the flusher
+     */
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+    /**
+     * The buffer of the batch being written, given back by the flusher once the batch is forced
+     */
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+    /**
+     * The number of records appended to the journal
+     */
+    private long appendedSequence;
+
+    /**
+     * The number of records forced on disk
+     */
+    private long durableSequence;
+
+    /**
+     * The error that stopped the flusher, if any
+     */
+    private IOException failure;
+
+    /**
+     * True once the journal is closed
+     */
+    private boolean closed;
+
+    /**
+     * The thread writing and forcing the batches
+     */
+    private final Thread flusher;
+
+    /**
+     * Creates a journal appending to the given segment
+     *
+     * @param directory the directory of the journal
+     * @param segment the number of the segment
+     * @param channel the channel of the segment, positioned at the end of the last valid record
+     * @param parking the parking whose events are journaled
+     */
+    private ParkingJournal(Path directory, long segment, FileChannel channel, Parking parking) {
+        this.directory = directory;
+        this.segment = segment;
+        this.channel = channel;
+        this.parking = parking;
+        this.flusher = new Thread(this::flushBatches, "parking-journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Opens the journal of a parking. The last snapshot is loaded, the events of the following segments are replayed,
+     * the open tickets are restored in the parking and its capacities are changed to the ones journaled, then the
+     * journal is registered as a listener of the parking. A record partially written when the JVM stopped is
+     * discarded.
+     *
+     * @param directory the directory of the journal, created if it does not exist
+     * @param parking a new parking, not yet used by the gates
+     * @return the opened journal
+     * @throws IOException if the journal cannot be read or opened
+     */
+    public static ParkingJournal open(Path directory, Parking parking) throws IOException {
+        Files.createDirectories(directory);
+        Set<Ticket> openTickets = new LinkedHashSet<>();
+        int[] capacities = new int[VehicleType.values().length];
+        long segment = recover(directory, openTickets, capacities, Long.MAX_VALUE);
+        parking.restoreTickets(openTickets);
+        restoreCapacities(parking, capacities);
+
+        Path file = segmentFile(directory, segment);
+        long validLength = replay(file, new HashSet<>(), new int[capacities.length]);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() > validLength) {
+            LOG.warn("Discarding {} bytes after the last valid record of the journal {}", channel.size() - validLength, file);
+            channel.truncate(validLength);
+            channel.force(true);
+        }
+        channel.position(validLength);
+
+        ParkingJournal journal = new ParkingJournal(directory, segment, channel, parking);
+        parking.addListener(journal);
+        return journal;
+    }
+
+    /**
+     * Reads the tickets still open at the end of a journal
+     *
+     * @param directory the directory of the journal
+     * @return the open tickets
+     * @throws IOException if the journal cannot be read
+     */
+    public static List<Ticket> readOpenTickets(Path directory) throws IOException {
+        Set<Ticket> openTickets = new LinkedHashSet<>();
+        recover(directory, openTickets, new int[VehicleType.values().length], Long.MAX_VALUE);
+        return new ArrayList<>(openTickets);
+    }
+
+    /**
+     * Changes the capacities of a parking to the ones journaled. The slots lost by a vehicle type and gained by
+     * another are moved, the others are added or removed.
+     *
+     * @param parking the parking, whose open tickets are restored
+     * @param capacities the capacity journaled for each vehicle type, indexed by ordinal, -1 if none was journaled
+     * @throws IOException if a capacity journaled is invalid
+     */
+    private static void restoreCapacities(Parking parking, int[] capacities) throws IOException {
+        VehicleType[] vehicleTypes = VehicleType.values();
+        int[] changes = new int[vehicleTypes.length];
+        for (int i = 0; i < vehicleTypes.length; i++) {
+            if (capacities[i] >= 0) {
+                changes[i] = capacities[i] - parking.getTargetCapacity(vehicleTypes[i]);
+            }
+        }
+        try {
+            for (int from = 0; from < vehicleTypes.length; from++) {
+                for (int to = 0; to < vehicleTypes.length && changes[from] < 0; to++) {
+                    int moved = Math.min(-changes[from], changes[to]);
+                    if (moved > 0) {
+                        LOG.info("Moving {} slots of {} to {} as journaled", moved, vehicleTypes[from],
+                                vehicleTypes[to]);
+                        parking.moveCapacity(vehicleTypes[from], vehicleTypes[to], moved);
+                        changes[from] += moved;
+                        changes[to] -= moved;
+                    }
+                }
+            }
+            for (int i = 0; i < vehicleTypes.length; i++) {
+                if (changes[i] != 0) {
+                    LOG.info("Changing the capacity of {} to {} as journaled", vehicleTypes[i], capacities[i]);
+                    parking.setCapacity(vehicleTypes[i], capacities[i]);
+                }
+            }
+        } catch (InvalidCapacityException e) {
+            throw new IOException("Invalid capacity in the parking journal", e);
+        }
+    }
+
+    /**
+     * Loads the last snapshot of a journal and replays the segments written after it
+     *
+     * @param directory the directory of the journal
+     * @param openTickets the open tickets, filled from the snapshot and the segments
+     * @param capacities the capacity of each vehicle type, indexed by ordinal, filled from the snapshot and the
+     * segments, -1 if none was journaled
+     * @param endSegment the first segment not to replay, nor to take the snapshot of
+     * @return the number of the last segment replayed, where the new events must be appended
+     * @throws IOException if the journal cannot be read
+     */
+    private static long recover(Path directory, Set<Ticket> openTickets, int[] capacities, long endSegment)
+            throws IOException {
+        Arrays.fill(capacities, -1);
+        long firstSegment = 0;
+        List<Long> snapshots = list(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            if (snapshots.get(i) >= endSegment) {
+                continue;
+            }
+            Path file = snapshotFile(directory, snapshots.get(i));
+            try {
+                ParkingSnapshot snapshot = ParkingSnapshot.read(file);
+                openTickets.addAll(snapshot.getTickets());
+                for (VehicleType vehicleType : VehicleType.values()) {
+                    capacities[vehicleType.ordinal()] = snapshot.getCapacity(vehicleType);
+                }
+                firstSegment = snapshot.getFirstSegment();
+                break;
+            } catch (IOException e) {
+                LOG.warn("Ignoring the unreadable snapshot {}", file, e);
+            }
+        }
+
+        long lastSegment = firstSegment;
+        for (long segment : list(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (segment >= firstSegment && segment < endSegment) {
+                replay(segmentFile(directory, segment), openTickets, capacities);
+                lastSegment = segment;
+            }
+        }
+        return lastSegment;
+    }
+
+    /**
+     * Replays the events of a journal segment. The events are idempotent, so replaying a segment whose events are
+     * partly included in the snapshot gives the same open tickets.
+     *
+     * @param file the segment file
+     * @param openTickets the open tickets, updated with the events of the segment
+     * @param capacities the capacity of each vehicle type, indexed by ordinal, updated with the changes of capacity
+     * of the segment
+     * @return the length of the segment up to the end of the last valid record
+     * @throws IOException if the journal cannot be read
+     */
+    static long replay(Path file, Set<Ticket> openTickets, int[] capacities) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        long validLength = 0;
+        CRC32 crc = new CRC32();
+        byte[] payload = new byte[256];
+        try (InputStream in = Files.newInputStream(file);
+             DataInputStream data = new DataInputStream(new BufferedInputStream(in, INITIAL_BUFFER_SIZE))) {
+            while (true) {
+                int length;
+                int checksum;
+                try {
+                    length = data.readInt();
+                    checksum = data.readInt();
+                    if (length < CAPACITY_PAYLOAD_SIZE
+                            || length > FIXED_PAYLOAD_SIZE + 2 + Short.MAX_VALUE + SLOT_SIZE) {
+                        break;
+                    }
+                    if (payload.length < length) {
+                        payload = new byte[length];
+                    }
+                    data.readFully(payload, 0, length);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                apply(ByteBuffer.wrap(payload, 0, length), openTickets, capacities);
+                validLength += HEADER_SIZE + length;
+            }
+        }
+        return validLength;
+    }
+
+    /**
+     * Applies a record to the open tickets or to the capacities
+     *
+     * @param record the payload of the record
+     * @param openTickets the open tickets
+     * @param capacities the capacity of each vehicle type, indexed by ordinal
+     */
+    private static void apply(ByteBuffer record, Set<Ticket> openTickets, int[] capacities) {
+        byte event = record.get();
+        VehicleType vehicleType = VehicleType.values()[record.get()];
+        if (event == CAPACITY) {
+            capacities[vehicleType.ordinal()] = record.getInt();
+            return;
+        }
+        Instant startDate = Instant.ofEpochSecond(record.getLong(), record.getInt());
+        Ticket ticket = TicketCodec.getTicket(record, vehicleType, startDate);
+        if (record.remaining() >= SLOT_SIZE) {
+            ticket.setSlotNumber(record.getInt());
+        }
+        if (event == PARKED) {
+            openTickets.add(ticket);
+        } else {
+            openTickets.remove(ticket);
+        }
+    }
+
+    /**
+     * Journals the check-in of a vehicle
+     * @param ticket the ticket issued for the vehicle
+     * @throws UncheckedIOException if the record cannot be written on disk
+     */
+    @Override
+    public void vehicleParked(Ticket ticket) {
+        append(PARKED, ticket);
+    }
+
+    /**
+     * Journals the check-out of a vehicle
+     * @param ticket the billed ticket of the vehicle
+     * @throws UncheckedIOException if the record cannot be written on disk
+     */
+    @Override
+    public void vehicleRemoved(Ticket ticket) {
+        append(REMOVED, ticket);
+    }
+
+    /**
+     * Journals the check-in of a batch of vehicles, waiting for a single forced write
+     * @param tickets the tickets issued for the vehicles
+     * @throws UncheckedIOException if the records cannot be written on disk
+     */
+    @Override
+    public void vehiclesParked(List<Ticket> tickets) {
+        append(PARKED, tickets);
+    }
+
+    /**
+     * Journals the check-out of a batch of vehicles, waiting for a single forced write
+     * @param tickets the billed tickets of the vehicles
+     * @throws UncheckedIOException if the records cannot be written on disk
+     */
+    @Override
+    public void vehiclesRemoved(List<Ticket> tickets) {
+        append(REMOVED, tickets);
+    }
+
+    /**
+     * Journals a change of capacity before it is applied, waiting for a single forced write
+     * @param capacities the number of slots of each vehicle type changed
+     * @throws UncheckedIOException if the records cannot be written on disk
+     */
+    @Override
+    public void capacitiesChanged(Map<VehicleType, Integer> capacities) {
+        this.lock.lock();
+        try {
+            checkUsable();
+            for (Map.Entry<VehicleType, Integer> capacity : capacities.entrySet()) {
+                putCapacityRecord(capacity.getKey(), capacity.getValue());
+            }
+            awaitDurable(++this.appendedSequence);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a record and waits until it is forced on disk
+     *
+     * @param event the event of the record
+     * @param ticket the ticket of the record
+     * @throws UncheckedIOException if the record cannot be written on disk
+     */
+    private void append(byte event, Ticket ticket) {
+        this.lock.lock();
+        try {
+            checkUsable();
+            putRecord(event, ticket);
+            awaitDurable(++this.appendedSequence);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a record per ticket and waits until they are all forced on disk. The records are part of the same
+     * batch of the flusher thread.
+     *
+     * @param event the event of the records
+     * @param tickets the tickets of the records
+     * @throws UncheckedIOException if the records cannot be written on disk
+     */
+    private void append(byte event, List<Ticket> tickets) {
+        this.lock.lock();
+        try {
+            checkUsable();
+            for (Ticket ticket : tickets) {
+                putRecord(event, ticket);
+            }
+            awaitDurable(++this.appendedSequence);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Writes a record in the pending buffer. Must be called with the lock held.
+     *
+     * @param event the event of the record
+     * @param ticket the ticket of the record
+     */
+    private void putRecord(byte event, Ticket ticket) {
+        int length = FIXED_PAYLOAD_SIZE + TicketCodec.idSize(ticket) + SLOT_SIZE;
+        ensureRemaining(HEADER_SIZE + length);
+        ByteBuffer buffer = this.pending;
+        int recordStart = buffer.position();
+        buffer.putInt(length).putInt(0)
+                .put(event)
+                .put((byte) ticket.getVehicleType().ordinal())
+                .putLong(ticket.getStartDate().getEpochSecond())
+                .putInt(ticket.getStartDate().getNano());
+        TicketCodec.putId(buffer, ticket);
+        buffer.putInt(ticket.getSlotNumber());
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), recordStart + HEADER_SIZE, length);
+        buffer.putInt(recordStart + 4, (int) crc.getValue());
+    }
+
+    /**
+     * Writes a record of a change of capacity in the pending buffer. Must be called with the lock held.
+     *
+     * @param vehicleType the vehicle type
+     * @param capacity the number of slots of the vehicle type
+     */
+    private void putCapacityRecord(VehicleType vehicleType, int capacity) {
+        ensureRemaining(HEADER_SIZE + CAPACITY_PAYLOAD_SIZE);
+        ByteBuffer buffer = this.pending;
+        int recordStart = buffer.position();
+        buffer.putInt(CAPACITY_PAYLOAD_SIZE).putInt(0)
+                .put(CAPACITY)
+                .put((byte) vehicleType.ordinal())
+                .putInt(capacity);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), recordStart + HEADER_SIZE, CAPACITY_PAYLOAD_SIZE);
+        buffer.putInt(recordStart + 4, (int) crc.getValue());
+    }
+
+    /**
+     * Wakes up the flusher thread and waits until the records appended up to a sequence are forced on disk. Must be
+     * called with the lock held.
+     *
+     * @param sequence the sequence of the last appended records
+     * @throws UncheckedIOException if the records cannot be written on disk
+     */
+    private void awaitDurable(long sequence) {
+        this.recordsAppended.signal();
+        while (this.durableSequence < sequence) {
+            if (this.failure != null) {
+                throw new UncheckedIOException("The parking journal cannot be written", this.failure);
+            }
+            this.batchForced.awaitUninterruptibly();
+        }
+    }
+
+    /**
+     * Grows the pending buffer if it cannot hold a record of the given size
+     * @param size the size of the record
+     */
+    private void ensureRemaining(int size) {
+        if (this.pending.remaining() < size) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(this.pending.capacity() * 2, this.pending.position() + size));
+            this.pending.flip();
+            larger.put(this.pending);
+            this.pending = larger;
+        }
+    }
+
+    /**
+     * Checks that the journal can still accept records
+     * @throws UncheckedIOException if the journal is closed or failed
+     */
+    private void checkUsable() {
+        if (this.failure != null) {
+            throw new UncheckedIOException("The parking journal cannot be written", this.failure);
+        }
+        if (this.closed) {
+            throw new UncheckedIOException(new IOException("The parking journal is closed"));
+        }
+    }
+
+    /**
+     * The loop of the flusher thread: takes all the pending records, writes and forces them, then wakes up the gates
+     */
+    private void flushBatches() {
+        while (true) {
+            ByteBuffer batch;
+            long batchSequence;
+            boolean roll;
+            this.lock.lock();
+            try {
+                while (this.pending.position() == 0 && !this.closed && !this.rollRequested) {
+                    this.recordsAppended.awaitUninterruptibly();
+                }
+                if (this.pending.position() == 0 && !this.rollRequested) {
+                    return;
+                }
+                roll = this.rollRequested;
+                batch = this.pending;
+                this.pending = this.spare;
+                this.spare = null;
+                batchSequence = this.appendedSequence;
+            } finally {
+                this.lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    this.channel.write(batch);
+                }
+                this.channel.force(false);
+                if (roll) {
+                    startNextSegment();
+                }
+            } catch (IOException e) {
+                LOG.error("Error in writing the parking journal", e);
+                error = e;
+            }
+            batch.clear();
+
+            this.lock.lock();
+            try {
+                this.spare = batch;
+                if (error != null) {
+                    this.failure = error;
+                } else {
+                    this.durableSequence = batchSequence;
+                    if (roll) {
+                        this.rollRequested = false;
+                    }
+                }
+                this.batchForced.signalAll();
+                if (error != null) {
+                    return;
+                }
+            } finally {
+                this.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Opens the next segment and closes the current one. Called by the flusher thread once the current batch is on disk.
+     * @throws IOException if the next segment cannot be created
+     */
+    private void startNextSegment() throws IOException {
+        long next = this.segment + 1;
+        FileChannel nextChannel = FileChannel.open(segmentFile(this.directory, next), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.channel.close();
+        this.channel = nextChannel;
+        this.lock.lock();
+        try {
+            this.segment = next;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Makes the journal append to a new segment. The gates keep appending while the segment is rolled.
+     *
+     * @return the number of the new segment: every event whose record is in a previous segment was applied to the
+     * parking before this method returned
+     * @throws IOException if the new segment cannot be created
+     */
+    private long roll() throws IOException {
+        this.lock.lock();
+        try {
+            checkUsable();
+            this.rollRequested = true;
+            this.recordsAppended.signal();
+            while (this.rollRequested) {
+                if (this.failure != null) {
+                    throw new IOException("The parking journal cannot be written", this.failure);
+                }
+                this.batchForced.awaitUninterruptibly();
+            }
+            return this.segment;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Takes a snapshot of the parking and deletes the segments and snapshots it replaces. Check-ins and check-outs are
+     * not paused: the journal rolls to a new segment, the previous snapshot and the segments before the new one are
+     * replayed into a memory-mapped snapshot, and the events of the new segment are replayed on top of it at startup.
+     * The snapshot is built from the journal rather than from the live tickets of the parking, which a check-in or a
+     * check-out changes before its record is on disk: it holds only durable events.
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void snapshot() throws IOException {
+        synchronized (this.snapshotLock) {
+            long firstSegment = roll();
+            Set<Ticket> openTickets = new LinkedHashSet<>();
+            int[] capacities = new int[VehicleType.values().length];
+            recover(this.directory, openTickets, capacities, firstSegment);
+            ParkingSnapshot.write(snapshotFile(this.directory, firstSegment), firstSegment, openTickets, capacities);
+            for (long snapshot : list(this.directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+                if (snapshot < firstSegment) {
+                    Files.deleteIfExists(snapshotFile(this.directory, snapshot));
+                }
+            }
+            for (long segment : list(this.directory, SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+                if (segment < firstSegment) {
+                    Files.deleteIfExists(segmentFile(this.directory, segment));
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes a snapshot periodically in a background thread
+     *
+     * @param period the time between two snapshots
+     * @param unit the unit of the period
+     */
+    public synchronized void startSnapshots(long period, TimeUnit unit) {
+        if (this.snapshotScheduler != null) {
+            throw new IllegalStateException("The snapshots are already started");
+        }
+        this.snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "parking-journal-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.snapshotScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (IOException | RuntimeException e) {
+                LOG.error("Error in taking a snapshot of the parking", e);
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Lists the numbers of the segment or snapshot files of a journal
+     *
+     * @param directory the directory of the journal
+     * @param prefix the prefix of the files
+     * @param suffix the suffix of the files
+     * @return the numbers of the files, in ascending order
+     * @throws IOException if the directory cannot be read
+     */
+    private static List<Long> list(Path directory, String prefix, String suffix) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return numbers;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    numbers.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                } catch (NumberFormatException e) {
+                    LOG.warn("Ignoring the unknown journal file {}", file);
+                }
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    /**
+     * Returns the file of a segment
+     * @param directory the directory of the journal
+     * @param segment the number of the segment
+     * @return the path of the segment file
+     */
+    private static Path segmentFile(Path directory, long segment) {
+        return directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Returns the file of a snapshot
+     * @param directory the directory of the journal
+     * @param firstSegment the first segment to replay after the snapshot
+     * @return the path of the snapshot file
+     */
+    private static Path snapshotFile(Path directory, long firstSegment) {
+        return directory.resolve(String.format("%s%019d%s", SNAPSHOT_PREFIX, firstSegment, SNAPSHOT_SUFFIX));
+    }
+
+    /**
+     * Stops journaling the parking and the periodic snapshots, writes the pending records and closes the journal
+     * @throws IOException if the journal cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (this.snapshotScheduler != null) {
+                this.snapshotScheduler.shutdownNow();
+            }
+        }
+        this.parking.removeListener(this);
+        this.lock.lock();
+        try {
+            this.closed = true;
+            this.recordsAppended.signal();
+        } finally {
+            this.lock.unlock();
+        }
+        try {
+            this.flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.channel.close();
+    }
+}
@@ -0,0 +1,228 @@
+package com.tollparking.journal;
+
+import com.tollparking.entity.Ticket;
+import com.tollparking.enums.VehicleType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A compact binary image of the open tickets and of the slot capacities journaled for a Parking.
+ *
+ * A snapshot is written through a memory-mapped file and tells from which journal segment the events must be replayed
+ * on top of it. Format: magic (int), version (int), first segment to replay (long), number of vehicle types (int),
+ * capacity of each vehicle type once its pending shrinks and moves are over, -1 if none was journaled (int), number of
+ * tickets (int), the tickets (vehicle type ordinal (byte), start date epoch seconds (long) and nanos (int), id length
+ * (short) followed by the UTF-8 bytes of the id, or -1 followed by a numeric id (long), and the slot number (int)), and
+ * a CRC32 of everything before it (int). Version 1 snapshots, written before slots were numbered, have no slot number
+ * and are still read, as are version 2 snapshots; both hold the current capacity and occupancy of each vehicle type
+ * (int, int), which are ignored.
+ */
+public class ParkingSnapshot {
+
+    /**
+     * The first bytes of a snapshot file
+     */
+    private static final int MAGIC = 0x504B534E;
+
+    /**
+     * The version of the snapshot format
+     */
+    private static final int VERSION = 3;
+
+    /**
+     * The version of the snapshot format with the current capacity and occupancy of each vehicle type
+     */
+    private static final int VERSION_WITH_OCCUPANCIES = 2;
+
+    /**
+     * The version of the snapshot format without slot numbers
+     */
+    private static final int VERSION_WITHOUT_SLOTS = 1;
+
+    /**
+     * The size of a ticket record without its id
+     */
+    private static final int FIXED_TICKET_SIZE = 1 + 8 + 4 + 4;
+
+    /**
+     * The first journal segment whose events are not all included in the snapshot
+     */
+    private final long firstSegment;
+
+    /**
+     * The capacity of each vehicle type, indexed by ordinal
+     */
+    private final int[] capacities;
+
+    /**
+     * The open tickets
+     */
+    private final List<Ticket> tickets;
+
+    /**
+     * Creates a snapshot read from a file
+     *
+     * @param firstSegment the first journal segment to replay
+     * @param capacities the capacity of each vehicle type
+     * @param tickets the open tickets
+     */
+    private ParkingSnapshot(long firstSegment, int[] capacities, List<Ticket> tickets) {
+        this.firstSegment = firstSegment;
+        this.capacities = capacities;
+        this.tickets = tickets;
+    }
+
+    /**
+     * Writes a snapshot of the state replayed from the journal segments before firstSegment. The file is written
+     * under a temporary name and renamed once it is on disk, so a crash never leaves a partial snapshot.
+     *
+     * @param file the snapshot file
+     * @param firstSegment the first journal segment to replay on top of the snapshot
+     * @param openTickets the open tickets
+     * @param capacities the capacity of each vehicle type, indexed by ordinal, -1 if none was journaled
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void write(Path file, long firstSegment, Collection<Ticket> openTickets, int[] capacities)
+            throws IOException {
+        Ticket[] tickets = openTickets.toArray(new Ticket[0]);
+        VehicleType[] vehicleTypes = VehicleType.values();
+
+        long size = 4 + 4 + 8 + 4 + 4L * vehicleTypes.length + 4;
+        for (Ticket ticket : tickets) {
+            size += FIXED_TICKET_SIZE + TicketCodec.idSize(ticket);
+        }
+        size += 4;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("The snapshot is too large for a single mapped file: " + size + " bytes");
+        }
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(firstSegment).putInt(vehicleTypes.length);
+            for (VehicleType vehicleType : vehicleTypes) {
+                buffer.putInt(capacities[vehicleType.ordinal()]);
+            }
+            buffer.putInt(tickets.length);
+            for (Ticket ticket : tickets) {
+                buffer.put((byte) ticket.getVehicleType().ordinal())
+                        .putLong(ticket.getStartDate().getEpochSecond())
+                        .putInt(ticket.getStartDate().getNano());
+                TicketCodec.putId(buffer, ticket);
+                buffer.putInt(ticket.getSlotNumber());
+            }
+            buffer.putInt(checksum(buffer, buffer.position()));
+            buffer.force();
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads a snapshot
+     *
+     * @param file the snapshot file
+     * @return the snapshot
+     * @throws IOException if the snapshot cannot be read or is corrupted
+     */
+    public static ParkingSnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE || channel.size() < 4) {
+                throw new IOException("Invalid snapshot size: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int end = buffer.limit() - 4;
+            if (buffer.getInt(end) != checksum(buffer, end)) {
+                throw new IOException("Corrupted snapshot: " + file);
+            }
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Unknown snapshot format: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION && version != VERSION_WITH_OCCUPANCIES && version != VERSION_WITHOUT_SLOTS) {
+                throw new IOException("Unknown snapshot format: " + file);
+            }
+            long firstSegment = buffer.getLong();
+            int types = buffer.getInt();
+            if (types != VehicleType.values().length) {
+                throw new IOException("Snapshot of another number of vehicle types: " + file);
+            }
+            int[] capacities = new int[types];
+            for (int i = 0; i < types; i++) {
+                if (version == VERSION) {
+                    capacities[i] = buffer.getInt();
+                } else {
+                    capacities[i] = -1;
+                    buffer.getInt();
+                    buffer.getInt();
+                }
+            }
+            int count = buffer.getInt();
+            VehicleType[] vehicleTypes = VehicleType.values();
+            List<Ticket> tickets = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                VehicleType vehicleType = vehicleTypes[buffer.get()];
+                Instant startDate = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+                Ticket ticket = TicketCodec.getTicket(buffer, vehicleType, startDate);
+                if (version != VERSION_WITHOUT_SLOTS) {
+                    ticket.setSlotNumber(buffer.getInt());
+                }
+                tickets.add(ticket);
+            }
+            return new ParkingSnapshot(firstSegment, capacities, tickets);
+        }
+    }
+
+    /**
+     * Returns the first journal segment to replay on top of the snapshot
+     * @return the number of the segment
+     */
+    public long getFirstSegment() {
+        return firstSegment;
+    }
+
+    /**
+     * Returns the capacity of a vehicle type when the snapshot was taken
+     * @param vehicleType the vehicle type
+     * @return the number of slots of the vehicle type once its pending shrinks and moves are over, or -1 if none was
+     * journaled or the snapshot was written before the capacities were journaled
+     */
+    public int getCapacity(VehicleType vehicleType) {
+        return capacities[vehicleType.ordinal()];
+    }
+
+    /**
+     * Returns the open tickets of the snapshot
+     * @return the open tickets
+     */
+    public List<Ticket> getTickets() {
+        return tickets;
+    }
+
+    /**
+     * Computes the CRC32 of the beginning of a buffer
+     *
+     * @param buffer the buffer
+     * @param length the number of bytes to check
+     * @return the CRC32 of the first length bytes
+     */
+    private static int checksum(ByteBuffer buffer, int length) {
+        ByteBuffer content = buffer.duplicate();
+        content.position(0).limit(length);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return (int) crc.getValue();
+    }
+}
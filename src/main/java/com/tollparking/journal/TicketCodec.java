@@ -0,0 +1,93 @@
+package com.tollparking.journal;
+
+import com.tollparking.entity.Ticket;
+import com.tollparking.enums.VehicleType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Encodes the ticket ids written in the journal and in the snapshots: an id length (short) followed by the UTF-8
+ * bytes of a string id, or -1 followed by a numeric id (long).
+ */
+final class TicketCodec {
+
+    /**
+     * The id length written before a numeric id
+     */
+    private static final short NUMERIC_ID = -1;
+
+    private TicketCodec() {
+    }
+
+    /**
+     * Returns the number of bytes of an encoded id, including its length
+     * @param ticket the ticket
+     * @return the size of the encoded id
+     */
+    static int idSize(Ticket ticket) {
+        return 2 + (ticket.hasNumericId() ? 8 : utf8Length(ticket.getId()));
+    }
+
+    /**
+     * Writes the id of a ticket
+     * @param buffer the buffer to write to
+     * @param ticket the ticket
+     */
+    static void putId(ByteBuffer buffer, Ticket ticket) {
+        if (ticket.hasNumericId()) {
+            buffer.putShort(NUMERIC_ID).putLong(ticket.getNumericId());
+        } else {
+            byte[] id = ticket.getId().getBytes(StandardCharsets.UTF_8);
+            buffer.putShort((short) id.length).put(id);
+        }
+    }
+
+    /**
+     * Reads an id and creates the corresponding ticket
+     * @param buffer the buffer to read from
+     * @param vehicleType the vehicle type of the ticket
+     * @param startDate the start date of the ticket
+     * @return the ticket
+     */
+    static Ticket getTicket(ByteBuffer buffer, VehicleType vehicleType, Instant startDate) {
+        short length = buffer.getShort();
+        Ticket ticket;
+        if (length == NUMERIC_ID) {
+            ticket = new Ticket(buffer.getLong(), vehicleType);
+        } else {
+            byte[] id = new byte[length];
+            buffer.get(id);
+            ticket = new Ticket(new String(id, StandardCharsets.UTF_8), vehicleType);
+        }
+        ticket.setStartDate(startDate);
+        return ticket;
+    }
+
+    /**
+     * Computes the number of bytes of a string encoded in UTF-8 without encoding it
+     * @param value the string
+     * @return the length of the UTF-8 encoding
+     */
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // an unpaired surrogate is encoded as '?'
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
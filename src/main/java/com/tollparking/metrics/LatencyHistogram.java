@@ -0,0 +1,118 @@
+package com.tollparking.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations in nanoseconds.
+ *
+ * Like an HdrHistogram, each power of two is split in 32 linear sub-buckets, so a recorded value is known within
+ * about 3% and recording is a few shifts and one atomic increment. The buckets are striped by thread: gates recording
+ * at the same time usually increment different counters. Durations above 2^40 ns (about 18 minutes) are counted in
+ * the last bucket.
+ */
+public class LatencyHistogram {
+
+    /**
+     * The number of bits of the value kept in the index of its bucket
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /**
+     * The number of sub-buckets per power of two
+     */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The power of two above which values are counted in the last bucket
+     */
+    private static final int MAX_EXPONENT = 40;
+
+    /**
+     * The number of buckets of a stripe
+     */
+    static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS;
+
+    /**
+     * The maximum number of stripes
+     */
+    private static final int MAX_STRIPES = 16;
+
+    /**
+     * The counts of the buckets of all the stripes, stripe after stripe
+     */
+    private final AtomicLongArray counts;
+
+    /**
+     * The mask selecting the stripe of a thread
+     */
+    private final int stripeMask;
+
+    /**
+     * The sum of the recorded values
+     */
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Creates an empty histogram with a stripe per processor, up to 16
+     */
+    public LatencyHistogram() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int stripes = Math.min(MAX_STRIPES, Integer.highestOneBit(Math.max(1, processors - 1)) << 1);
+        this.stripeMask = stripes - 1;
+        this.counts = new AtomicLongArray(stripes * BUCKET_COUNT);
+    }
+
+    /**
+     * Records a duration
+     * @param nanos the duration in nanoseconds; negative durations are counted as 0
+     */
+    public void record(long nanos) {
+        int stripe = (int) Thread.currentThread().getId() & this.stripeMask;
+        this.counts.incrementAndGet(stripe * BUCKET_COUNT + indexOf(nanos));
+        this.sum.add(Math.max(0, nanos));
+    }
+
+    /**
+     * Reads the histogram. Values recorded during the snapshot may or may not be included.
+     * @return the counts of all the stripes merged
+     */
+    public LatencySnapshot snapshot() {
+        long[] merged = new long[BUCKET_COUNT];
+        for (int i = 0; i < this.counts.length(); i++) {
+            merged[i % BUCKET_COUNT] += this.counts.get(i);
+        }
+        return new LatencySnapshot(merged, this.sum.sum());
+    }
+
+    /**
+     * Returns the bucket of a value
+     * @param value the value
+     * @return the index of the bucket
+     */
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) Math.max(0, value);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKET_COUNT - 1));
+    }
+
+    /**
+     * Returns the highest value counted in a bucket
+     * @param index the index of the bucket
+     * @return the highest value of the bucket
+     */
+    static long highestValueAt(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long subBucket = index & (SUB_BUCKET_COUNT - 1);
+        return ((SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,111 @@
+package com.tollparking.metrics;
+
+/**
+ * The content of a LatencyHistogram at a point in time. The durations are in nanoseconds and the percentiles are the
+ * highest value of the bucket they fall in, so they are never under-estimated by more than the bucket precision.
+ */
+public class LatencySnapshot {
+
+    /**
+     * The count of each bucket
+     */
+    private final long[] counts;
+
+    /**
+     * The number of recorded values
+     */
+    private final long count;
+
+    /**
+     * The sum of the recorded values
+     */
+    private final long sum;
+
+    /**
+     * Creates a snapshot
+     * @param counts the count of each bucket
+     * @param sum the sum of the recorded values
+     */
+    LatencySnapshot(long[] counts, long sum) {
+        this.counts = counts;
+        this.sum = sum;
+        long total = 0;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+        this.count = total;
+    }
+
+    /**
+     * Returns the number of recorded durations
+     * @return the number of durations
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the mean of the recorded durations
+     * @return the mean in nanoseconds, or 0 if nothing was recorded
+     */
+    public double getMean() {
+        return (count == 0) ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Returns the longest recorded duration
+     * @return the maximum in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getMax() {
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if (counts[i] != 0) {
+                return LatencyHistogram.highestValueAt(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the median duration
+     * @return the 50th percentile in nanoseconds
+     */
+    public long getP50() {
+        return getValueAtPercentile(50);
+    }
+
+    /**
+     * Returns the 99th percentile of the durations
+     * @return the 99th percentile in nanoseconds
+     */
+    public long getP99() {
+        return getValueAtPercentile(99);
+    }
+
+    /**
+     * Returns the 99.9th percentile of the durations
+     * @return the 99.9th percentile in nanoseconds
+     */
+    public long getP999() {
+        return getValueAtPercentile(99.9);
+    }
+
+    /**
+     * Returns the duration under which a percentage of the recorded durations fall
+     * @param percentile the percentage, between 0 and 100
+     * @return the duration in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return LatencyHistogram.highestValueAt(i);
+            }
+        }
+        return getMax();
+    }
+}
@@ -0,0 +1,241 @@
+package com.tollparking.metrics;
+
+import com.tollparking.enums.VehicleType;
+
+/**
+ * The metrics of a Parking at a point in time. Two snapshots give the rates of check-ins, refusals and check-outs
+ * between them.
+ */
+public class MetricsSnapshot {
+
+    /**
+     * The value of System.nanoTime() when the snapshot was taken
+     */
+    private final long nanoTime;
+
+    /**
+     * The capacity of each vehicle type, indexed by ordinal
+     */
+    private final int[] capacities;
+
+    /**
+     * The occupancy of each vehicle type, indexed by ordinal
+     */
+    private final int[] occupancies;
+
+    /**
+     * The number of check-ins of each vehicle type, indexed by ordinal
+     */
+    private final long[] parked;
+
+    /**
+     * The number of refused check-ins of each vehicle type, indexed by ordinal
+     */
+    private final long[] rejected;
+
+    /**
+     * The number of check-outs of each vehicle type, indexed by ordinal
+     */
+    private final long[] removed;
+
+    /**
+     * The billed amount in cents
+     */
+    private final long revenueInCents;
+
+    /**
+     * The latencies of the check-ins
+     */
+    private final LatencySnapshot parkLatency;
+
+    /**
+     * The latencies of the check-outs
+     */
+    private final LatencySnapshot removeLatency;
+
+    /**
+     * The latencies of the price calculations
+     */
+    private final LatencySnapshot priceLatency;
+
+    /**
+     * Creates a snapshot
+     *
+     * @param nanoTime the value of System.nanoTime() when the snapshot was taken
+     * @param capacities the capacity of each vehicle type
+     * @param occupancies the occupancy of each vehicle type
+     * @param parked the number of check-ins of each vehicle type
+     * @param rejected the number of refused check-ins of each vehicle type
+     * @param removed the number of check-outs of each vehicle type
+     * @param revenueInCents the billed amount in cents
+     * @param parkLatency the latencies of the check-ins
+     * @param removeLatency the latencies of the check-outs
+     * @param priceLatency the latencies of the price calculations
+     */
+    MetricsSnapshot(long nanoTime, int[] capacities, int[] occupancies, long[] parked, long[] rejected, long[] removed,
+                    long revenueInCents, LatencySnapshot parkLatency, LatencySnapshot removeLatency,
+                    LatencySnapshot priceLatency) {
+        this.nanoTime = nanoTime;
+        this.capacities = capacities;
+        this.occupancies = occupancies;
+        this.parked = parked;
+        this.rejected = rejected;
+        this.removed = removed;
+        this.revenueInCents = revenueInCents;
+        this.parkLatency = parkLatency;
+        this.removeLatency = removeLatency;
+        this.priceLatency = priceLatency;
+    }
+
+    /**
+     * Returns the capacity of a vehicle type
+     * @param vehicleType the vehicle type
+     * @return the number of slots
+     */
+    public int getCapacity(VehicleType vehicleType) {
+        return capacities[vehicleType.ordinal()];
+    }
+
+    /**
+     * Returns the occupancy of a vehicle type
+     * @param vehicleType the vehicle type
+     * @return the number of parked vehicles
+     */
+    public int getOccupancy(VehicleType vehicleType) {
+        return occupancies[vehicleType.ordinal()];
+    }
+
+    /**
+     * Returns the number of vehicles of a type parked since the parking was created
+     * @param vehicleType the vehicle type
+     * @return the number of check-ins
+     */
+    public long getParkedCount(VehicleType vehicleType) {
+        return parked[vehicleType.ordinal()];
+    }
+
+    /**
+     * Returns the number of vehicles of a type refused because there was no space available
+     * @param vehicleType the vehicle type
+     * @return the number of refused check-ins
+     */
+    public long getRejectedCount(VehicleType vehicleType) {
+        return rejected[vehicleType.ordinal()];
+    }
+
+    /**
+     * Returns the number of vehicles of a type removed since the parking was created
+     * @param vehicleType the vehicle type
+     * @return the number of check-outs
+     */
+    public long getRemovedCount(VehicleType vehicleType) {
+        return removed[vehicleType.ordinal()];
+    }
+
+    /**
+     * Returns the number of vehicles parked since the parking was created
+     * @return the number of check-ins
+     */
+    public long getParkedCount() {
+        return sum(parked);
+    }
+
+    /**
+     * Returns the number of vehicles refused because there was no space available
+     * @return the number of refused check-ins
+     */
+    public long getRejectedCount() {
+        return sum(rejected);
+    }
+
+    /**
+     * Returns the number of vehicles removed since the parking was created
+     * @return the number of check-outs
+     */
+    public long getRemovedCount() {
+        return sum(removed);
+    }
+
+    /**
+     * Returns the amount billed since the parking was created
+     * @return the revenue in cents
+     */
+    public long getRevenueInCents() {
+        return revenueInCents;
+    }
+
+    /**
+     * Returns the latencies of the check-ins
+     * @return the latencies in nanoseconds
+     */
+    public LatencySnapshot getParkLatency() {
+        return parkLatency;
+    }
+
+    /**
+     * Returns the latencies of the check-outs, billing included
+     * @return the latencies in nanoseconds
+     */
+    public LatencySnapshot getRemoveLatency() {
+        return removeLatency;
+    }
+
+    /**
+     * Returns the latencies of the price calculations
+     * @return the latencies in nanoseconds
+     */
+    public LatencySnapshot getPriceLatency() {
+        return priceLatency;
+    }
+
+    /**
+     * Returns the number of check-ins per second since a previous snapshot
+     * @param previous a snapshot taken before this one
+     * @return the rate of check-ins
+     */
+    public double getParkRate(MetricsSnapshot previous) {
+        return rate(getParkedCount() - previous.getParkedCount(), previous);
+    }
+
+    /**
+     * Returns the number of refused check-ins per second since a previous snapshot
+     * @param previous a snapshot taken before this one
+     * @return the rate of refused check-ins
+     */
+    public double getRejectRate(MetricsSnapshot previous) {
+        return rate(getRejectedCount() - previous.getRejectedCount(), previous);
+    }
+
+    /**
+     * Returns the number of check-outs per second since a previous snapshot
+     * @param previous a snapshot taken before this one
+     * @return the rate of check-outs
+     */
+    public double getRemoveRate(MetricsSnapshot previous) {
+        return rate(getRemovedCount() - previous.getRemovedCount(), previous);
+    }
+
+    /**
+     * Divides a number of events by the seconds elapsed since a previous snapshot
+     * @param events the number of events
+     * @param previous the previous snapshot
+     * @return the number of events per second, or 0 if no time elapsed
+     */
+    private double rate(long events, MetricsSnapshot previous) {
+        long elapsed = nanoTime - previous.nanoTime;
+        return (elapsed <= 0) ? 0 : events * 1e9 / elapsed;
+    }
+
+    /**
+     * Sums counts
+     * @param counts the counts
+     * @return the sum
+     */
+    private static long sum(long[] counts) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+}
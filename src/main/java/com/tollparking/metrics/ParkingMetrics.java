@@ -0,0 +1,296 @@
+package com.tollparking.metrics;
+
+import com.tollparking.entity.Parking;
+import com.tollparking.enums.VehicleType;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of a Parking: occupancy, check-ins, refusals, check-outs, revenue and latencies.
+ *
+ * The parking records its events with the record methods. Counters are LongAdders and latencies go to striped
+ * LatencyHistograms, so gates recording at the same time rarely touch the same memory and nothing is aggregated until
+ * the metrics are read, with {@link #snapshot()} or through JMX once {@link #registerMBean(String)} is called.
+ *
+ * The counters are always recorded. Reading the clock costs more than a check-in itself, so the latencies are only
+ * measured while latency tracking is on: it is off by default and turned on by registerMBean or setLatencyTracked.
+ */
+public class ParkingMetrics implements ParkingMetricsMXBean {
+
+    /**
+     * The domain of the JMX names of the parkings
+     */
+    private static final String JMX_DOMAIN = "com.tollparking";
+
+    /**
+     * The parking measured
+     */
+    private final Parking parking;
+
+    /**
+     * The number of check-ins of each vehicle type, indexed by ordinal
+     */
+    private final LongAdder[] parked;
+
+    /**
+     * The number of refused check-ins of each vehicle type, indexed by ordinal
+     */
+    private final LongAdder[] rejected;
+
+    /**
+     * The number of check-outs of each vehicle type, indexed by ordinal
+     */
+    private final LongAdder[] removed;
+
+    /**
+     * The billed amount in cents
+     */
+    private final LongAdder revenueInCents = new LongAdder();
+
+    /**
+     * The latencies of the check-ins
+     */
+    private final LatencyHistogram parkLatency = new LatencyHistogram();
+
+    /**
+     * The latencies of the check-outs
+     */
+    private final LatencyHistogram removeLatency = new LatencyHistogram();
+
+    /**
+     * The latencies of the price calculations
+     */
+    private final LatencyHistogram priceLatency = new LatencyHistogram();
+
+    /**
+     * Whether the parking measures the latencies
+     */
+    private volatile boolean latencyTracked;
+
+    /**
+     * Creates the metrics of a parking
+     * @param parking the parking, read for its capacity and occupancy
+     */
+    public ParkingMetrics(Parking parking) {
+        this.parking = parking;
+        int types = VehicleType.values().length;
+        this.parked = newAdders(types);
+        this.rejected = newAdders(types);
+        this.removed = newAdders(types);
+    }
+
+    /**
+     * Indicates if the latencies are measured
+     * @return true if the parking reads the clock to record the latencies
+     */
+    @Override
+    public boolean isLatencyTracked() {
+        return this.latencyTracked;
+    }
+
+    /**
+     * Turns the measure of the latencies on or off
+     * @param latencyTracked true to record the latencies
+     */
+    @Override
+    public void setLatencyTracked(boolean latencyTracked) {
+        this.latencyTracked = latencyTracked;
+    }
+
+    /**
+     * Records a check-in
+     * @param vehicleType the vehicle type
+     * @param nanos the duration of the check-in, or a negative value if the latency is not tracked
+     */
+    public void recordParked(VehicleType vehicleType, long nanos) {
+        this.parked[vehicleType.ordinal()].increment();
+        if (nanos >= 0) {
+            this.parkLatency.record(nanos);
+        }
+    }
+
+    /**
+     * Records a check-in refused because there is no space available
+     * @param vehicleType the vehicle type
+     * @param nanos the duration of the check-in, or a negative value if the latency is not tracked
+     */
+    public void recordRejected(VehicleType vehicleType, long nanos) {
+        this.rejected[vehicleType.ordinal()].increment();
+        if (nanos >= 0) {
+            this.parkLatency.record(nanos);
+        }
+    }
+
+    /**
+     * Records a check-out
+     * @param vehicleType the vehicle type
+     * @param amountInCents the billed amount in cents
+     * @param nanos the duration of the check-out, or a negative value if the latency is not tracked
+     */
+    public void recordRemoved(VehicleType vehicleType, long amountInCents, long nanos) {
+        this.removed[vehicleType.ordinal()].increment();
+        this.revenueInCents.add(amountInCents);
+        if (nanos >= 0) {
+            this.removeLatency.record(nanos);
+        }
+    }
+
+    /**
+     * Records the check-ins and refusals of a batch. The latencies of batches are not recorded.
+     * @param vehicleType the vehicle type
+     * @param parkedCount the number of parked vehicles
+     * @param rejectedCount the number of refused vehicles
+     */
+    public void recordBatchParked(VehicleType vehicleType, int parkedCount, int rejectedCount) {
+        this.parked[vehicleType.ordinal()].add(parkedCount);
+        this.rejected[vehicleType.ordinal()].add(rejectedCount);
+    }
+
+    /**
+     * Records a check-out of a batch. The latencies of batches are not recorded.
+     * @param vehicleType the vehicle type
+     * @param amountInCents the billed amount in cents
+     */
+    public void recordBatchRemoved(VehicleType vehicleType, long amountInCents) {
+        this.removed[vehicleType.ordinal()].increment();
+        this.revenueInCents.add(amountInCents);
+    }
+
+    /**
+     * Records a price calculation
+     * @param nanos the duration of the calculation
+     */
+    public void recordPriced(long nanos) {
+        this.priceLatency.record(nanos);
+    }
+
+    /**
+     * Reads all the metrics
+     * @return the metrics at this time
+     */
+    public MetricsSnapshot snapshot() {
+        VehicleType[] types = VehicleType.values();
+        int[] capacities = new int[types.length];
+        int[] occupancies = new int[types.length];
+        for (VehicleType vehicleType : types) {
+            capacities[vehicleType.ordinal()] = this.parking.getCapacity(vehicleType);
+            occupancies[vehicleType.ordinal()] = this.parking.getOccupancy(vehicleType);
+        }
+        return new MetricsSnapshot(System.nanoTime(), capacities, occupancies, sums(this.parked), sums(this.rejected),
+                sums(this.removed), this.revenueInCents.sum(), this.parkLatency.snapshot(),
+                this.removeLatency.snapshot(), this.priceLatency.snapshot());
+    }
+
+    /**
+     * Registers the metrics in the platform MBean server, under com.tollparking:type=Parking,name=..., and turns the
+     * latency tracking on
+     * @param name the name of the parking
+     * @return the JMX name of the metrics
+     * @throws JMException if the metrics cannot be registered, for example if the name is already used
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+        ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=Parking,name=" + ObjectName.quote(name));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, objectName);
+        this.latencyTracked = true;
+        return objectName;
+    }
+
+    @Override
+    public Map<String, Integer> getOccupancy() {
+        Map<String, Integer> occupancy = new LinkedHashMap<>();
+        for (VehicleType vehicleType : VehicleType.values()) {
+            occupancy.put(vehicleType.name(), this.parking.getOccupancy(vehicleType));
+        }
+        return occupancy;
+    }
+
+    @Override
+    public Map<String, Integer> getCapacity() {
+        Map<String, Integer> capacity = new LinkedHashMap<>();
+        for (VehicleType vehicleType : VehicleType.values()) {
+            capacity.put(vehicleType.name(), this.parking.getCapacity(vehicleType));
+        }
+        return capacity;
+    }
+
+    @Override
+    public long getParkedCount() {
+        return total(this.parked);
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return total(this.rejected);
+    }
+
+    @Override
+    public long getRemovedCount() {
+        return total(this.removed);
+    }
+
+    @Override
+    public long getRevenueInCents() {
+        return this.revenueInCents.sum();
+    }
+
+    @Override
+    public LatencySnapshot getParkLatency() {
+        return this.parkLatency.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getRemoveLatency() {
+        return this.removeLatency.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getPriceLatency() {
+        return this.priceLatency.snapshot();
+    }
+
+    /**
+     * Creates counters
+     * @param count the number of counters
+     * @return the counters
+     */
+    private static LongAdder[] newAdders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Reads counters
+     * @param adders the counters
+     * @return the value of each counter
+     */
+    private static long[] sums(LongAdder[] adders) {
+        long[] sums = new long[adders.length];
+        for (int i = 0; i < adders.length; i++) {
+            sums[i] = adders[i].sum();
+        }
+        return sums;
+    }
+
+    /**
+     * Adds counters
+     * @param adders the counters
+     * @return the sum of the counters
+     */
+    private static long total(LongAdder[] adders) {
+        long total = 0;
+        for (LongAdder adder : adders) {
+            total += adder.sum();
+        }
+        return total;
+    }
+}
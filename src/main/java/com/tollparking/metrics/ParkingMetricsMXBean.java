@@ -0,0 +1,76 @@
+package com.tollparking.metrics;
+
+import java.util.Map;
+
+/**
+ * The metrics of a Parking as seen through JMX. The counts are cumulative: monitoring tools derive the rates from
+ * two successive readings.
+ */
+public interface ParkingMetricsMXBean {
+
+    /**
+     * Returns the number of parked vehicles of each vehicle type
+     * @return the occupancy by vehicle type name
+     */
+    Map<String, Integer> getOccupancy();
+
+    /**
+     * Returns the number of slots of each vehicle type
+     * @return the capacity by vehicle type name
+     */
+    Map<String, Integer> getCapacity();
+
+    /**
+     * Returns the number of vehicles parked since the parking was created
+     * @return the number of check-ins
+     */
+    long getParkedCount();
+
+    /**
+     * Returns the number of vehicles refused because there was no space available
+     * @return the number of refused check-ins
+     */
+    long getRejectedCount();
+
+    /**
+     * Returns the number of vehicles removed since the parking was created
+     * @return the number of check-outs
+     */
+    long getRemovedCount();
+
+    /**
+     * Returns the amount billed since the parking was created
+     * @return the revenue in cents
+     */
+    long getRevenueInCents();
+
+    /**
+     * Indicates if the latencies are measured
+     * @return true if the parking reads the clock to record the latencies
+     */
+    boolean isLatencyTracked();
+
+    /**
+     * Turns the measure of the latencies on or off
+     * @param latencyTracked true to record the latencies
+     */
+    void setLatencyTracked(boolean latencyTracked);
+
+    /**
+     * Returns the latencies of the check-ins
+     * @return the latencies in nanoseconds
+     */
+    LatencySnapshot getParkLatency();
+
+    /**
+     * Returns the latencies of the check-outs, billing included
+     * @return the latencies in nanoseconds
+     */
+    LatencySnapshot getRemoveLatency();
+
+    /**
+     * Returns the latencies of the price calculations
+     * @return the latencies in nanoseconds
+     */
+    LatencySnapshot getPriceLatency();
+}
@@ -0,0 +1,108 @@
+package com.tollparking.simulation;
+
+import com.tollparking.entity.Ticket;
+
+import java.util.Arrays;
+
+/**
+ * The vehicles parked during a simulation, ordered by departure date: a binary min-heap whose dates are kept in an
+ * array of longs, so comparing two departures does not read the tickets. Not thread-safe.
+ */
+class DepartureQueue {
+
+    /**
+     * The departure dates in milliseconds, in heap order
+     */
+    private long[] departures;
+
+    /**
+     * The tickets of the departing vehicles, in the same order as the dates
+     */
+    private Ticket[] tickets;
+
+    /**
+     * The number of departures in the queue
+     */
+    private int size;
+
+    /**
+     * Creates an empty queue
+     * @param expectedSize the number of vehicles expected in the parking at the same time
+     */
+    DepartureQueue(int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        this.departures = new long[capacity];
+        this.tickets = new Ticket[capacity];
+    }
+
+    /**
+     * Indicates if there is no departure left
+     * @return true if the queue is empty
+     */
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Returns the date of the next departure
+     * @return the earliest departure date in milliseconds; undefined if the queue is empty
+     */
+    long peekDeparture() {
+        return this.departures[0];
+    }
+
+    /**
+     * Adds a departure
+     * @param departure the departure date in milliseconds
+     * @param ticket the ticket of the vehicle
+     */
+    void add(long departure, Ticket ticket) {
+        if (this.size == this.departures.length) {
+            this.departures = Arrays.copyOf(this.departures, this.size * 2);
+            this.tickets = Arrays.copyOf(this.tickets, this.size * 2);
+        }
+        int child = this.size++;
+        while (child > 0) {
+            int parent = (child - 1) >>> 1;
+            if (this.departures[parent] <= departure) {
+                break;
+            }
+            this.departures[child] = this.departures[parent];
+            this.tickets[child] = this.tickets[parent];
+            child = parent;
+        }
+        this.departures[child] = departure;
+        this.tickets[child] = ticket;
+    }
+
+    /**
+     * Removes the next departure
+     * @return the ticket of the vehicle leaving first; undefined if the queue is empty
+     */
+    Ticket poll() {
+        Ticket first = this.tickets[0];
+        int last = --this.size;
+        long departure = this.departures[last];
+        Ticket ticket = this.tickets[last];
+        this.tickets[last] = null;
+        int parent = 0;
+        int half = last >>> 1;
+        while (parent < half) {
+            int child = 2 * parent + 1;
+            if (child + 1 < last && this.departures[child + 1] < this.departures[child]) {
+                child++;
+            }
+            if (departure <= this.departures[child]) {
+                break;
+            }
+            this.departures[parent] = this.departures[child];
+            this.tickets[parent] = this.tickets[child];
+            parent = child;
+        }
+        if (last > 0) {
+            this.departures[parent] = departure;
+            this.tickets[parent] = ticket;
+        }
+        return first;
+    }
+}
@@ -0,0 +1,147 @@
+package com.tollparking.simulation;
+
+import com.tollparking.entity.Parking;
+import com.tollparking.entity.Ticket;
+import com.tollparking.enums.VehicleType;
+import com.tollparking.exception.TicketNotFoundException;
+import com.tollparking.metrics.MetricsSnapshot;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Replays a TrafficTrace against a Parking in virtual time: a discrete-event simulation where each arrival parks a
+ * vehicle and each parked vehicle leaves when its stay is over. The parking reads the dates of its tickets from a
+ * VirtualClock moved from event to event, so a day of traffic is replayed in a fraction of a second, with the real
+ * check-in, billing and listener code.
+ *
+ * During the simulation the parking must not be used by anything else: the counts and the revenue of the report are
+ * read from its metrics. The vehicles parked before the simulation stay in the parking and count in its occupancy.
+ * Not thread-safe: a simulator runs one simulation at a time.
+ */
+public class ParkingSimulator {
+
+    /**
+     * The parking the traffic is replayed against
+     */
+    private final Parking parking;
+
+    /**
+     * The virtual time between two occupancy samples in milliseconds
+     */
+    private final long sampleIntervalMillis;
+
+    /**
+     * Creates a simulator
+     * @param parking the parking the traffic is replayed against
+     * @param sampleInterval the virtual time between two occupancy samples
+     * @throws IllegalArgumentException if the sample interval is shorter than a millisecond
+     */
+    public ParkingSimulator(Parking parking, Duration sampleInterval) {
+        if (sampleInterval.toMillis() <= 0) {
+            throw new IllegalArgumentException("The sample interval must be at least a millisecond");
+        }
+        this.parking = Objects.requireNonNull(parking);
+        this.sampleIntervalMillis = sampleInterval.toMillis();
+    }
+
+    /**
+     * Replays a trace. The arrivals are processed in order; before each arrival, the vehicles whose stay is over
+     * leave, and once the trace is over the vehicles still parked leave at the end of their stay. A departure and an
+     * arrival at the same date free the slot before taking it. The occupancy is sampled from the last multiple of the
+     * sample interval before the first arrival, each sample being taken before the events of its date. The clock of
+     * the parking is restored at the end.
+     *
+     * @param trace the arrivals to replay
+     * @return the occupancy curves, counts and revenue of the simulation
+     * @throws TicketNotFoundException if a vehicle parked by the simulation was removed by someone else
+     */
+    public SimulationReport run(TrafficTrace trace) throws TicketNotFoundException {
+        VehicleType[] types = VehicleType.values();
+        long firstArrival = (trace.size() == 0) ? 0 : trace.getArrivalMillis(0);
+        long startMillis = Math.floorDiv(firstArrival, this.sampleIntervalMillis) * this.sampleIntervalMillis;
+        VirtualClock clock = new VirtualClock(Instant.ofEpochMilli(startMillis));
+        Clock previousClock = this.parking.getClock();
+        DepartureQueue departures = new DepartureQueue(totalCapacity(types));
+        int[][] occupancy = new int[types.length][64];
+        int[] peakOccupancy = new int[types.length];
+        for (VehicleType vehicleType : types) {
+            peakOccupancy[vehicleType.ordinal()] = this.parking.getOccupancy(vehicleType);
+        }
+        int sampleCount = 0;
+        long nextSample = startMillis;
+        long eventCount = 0;
+
+        MetricsSnapshot before = this.parking.getMetrics().snapshot();
+        long wallStart = System.nanoTime();
+        this.parking.setClock(clock);
+        try {
+            int next = 0;
+            while (next < trace.size() || !departures.isEmpty()) {
+                boolean arrival = next < trace.size()
+                        && (departures.isEmpty() || trace.getArrivalMillis(next) < departures.peekDeparture());
+                long now = arrival ? trace.getArrivalMillis(next) : departures.peekDeparture();
+                while (nextSample <= now) {
+                    if (sampleCount == occupancy[0].length) {
+                        for (int i = 0; i < types.length; i++) {
+                            occupancy[i] = Arrays.copyOf(occupancy[i], sampleCount * 2);
+                        }
+                    }
+                    for (VehicleType vehicleType : types) {
+                        occupancy[vehicleType.ordinal()][sampleCount] = this.parking.getOccupancy(vehicleType);
+                    }
+                    sampleCount++;
+                    nextSample += this.sampleIntervalMillis;
+                }
+                clock.setMillis(now);
+                if (arrival) {
+                    VehicleType vehicleType = trace.getVehicleType(next);
+                    Ticket ticket = this.parking.parkVehicle(vehicleType);
+                    if (ticket != null) {
+                        departures.add(now + trace.getStayMillis(next), ticket);
+                        int current = this.parking.getOccupancy(vehicleType);
+                        if (current > peakOccupancy[vehicleType.ordinal()]) {
+                            peakOccupancy[vehicleType.ordinal()] = current;
+                        }
+                    }
+                    next++;
+                } else {
+                    this.parking.removeVehicle(departures.poll());
+                }
+                eventCount++;
+            }
+        } finally {
+            this.parking.setClock(previousClock);
+        }
+        long elapsedNanos = System.nanoTime() - wallStart;
+        MetricsSnapshot after = this.parking.getMetrics().snapshot();
+
+        long[] parked = new long[types.length];
+        long[] rejected = new long[types.length];
+        long[] removed = new long[types.length];
+        for (VehicleType vehicleType : types) {
+            parked[vehicleType.ordinal()] = after.getParkedCount(vehicleType) - before.getParkedCount(vehicleType);
+            rejected[vehicleType.ordinal()] = after.getRejectedCount(vehicleType) - before.getRejectedCount(vehicleType);
+            removed[vehicleType.ordinal()] = after.getRemovedCount(vehicleType) - before.getRemovedCount(vehicleType);
+        }
+        return new SimulationReport(startMillis, this.sampleIntervalMillis, occupancy, sampleCount, peakOccupancy,
+                parked, rejected, removed, after.getRevenueInCents() - before.getRevenueInCents(), eventCount,
+                elapsedNanos);
+    }
+
+    /**
+     * Returns the number of slots of the parking
+     * @param types the vehicle types
+     * @return the sum of the capacities of the vehicle types
+     */
+    private int totalCapacity(VehicleType[] types) {
+        int capacity = 0;
+        for (VehicleType vehicleType : types) {
+            capacity += this.parking.getCapacity(vehicleType);
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,266 @@
+package com.tollparking.simulation;
+
+import com.tollparking.enums.VehicleType;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * The outcome of a simulation: the occupancy of each vehicle type sampled at a fixed interval of virtual time, the
+ * check-ins, refusals and check-outs, the revenue, and how fast the events were replayed.
+ */
+public class SimulationReport {
+
+    /**
+     * The date of the first sample in milliseconds
+     */
+    private final long startMillis;
+
+    /**
+     * The virtual time between two samples in milliseconds
+     */
+    private final long sampleIntervalMillis;
+
+    /**
+     * The sampled occupancy of each vehicle type, indexed by ordinal then by sample
+     */
+    private final int[][] occupancy;
+
+    /**
+     * The number of samples
+     */
+    private final int sampleCount;
+
+    /**
+     * The highest occupancy of each vehicle type, indexed by ordinal
+     */
+    private final int[] peakOccupancy;
+
+    /**
+     * The number of check-ins of each vehicle type, indexed by ordinal
+     */
+    private final long[] parked;
+
+    /**
+     * The number of refused check-ins of each vehicle type, indexed by ordinal
+     */
+    private final long[] rejected;
+
+    /**
+     * The number of check-outs of each vehicle type, indexed by ordinal
+     */
+    private final long[] removed;
+
+    /**
+     * The billed amount in cents
+     */
+    private final long revenueInCents;
+
+    /**
+     * The number of replayed arrivals and departures
+     */
+    private final long eventCount;
+
+    /**
+     * The real time taken by the simulation in nanoseconds
+     */
+    private final long elapsedNanos;
+
+    /**
+     * Creates a report
+     *
+     * @param startMillis the date of the first sample in milliseconds
+     * @param sampleIntervalMillis the virtual time between two samples in milliseconds
+     * @param occupancy the sampled occupancy of each vehicle type
+     * @param sampleCount the number of samples
+     * @param peakOccupancy the highest occupancy of each vehicle type
+     * @param parked the number of check-ins of each vehicle type
+     * @param rejected the number of refused check-ins of each vehicle type
+     * @param removed the number of check-outs of each vehicle type
+     * @param revenueInCents the billed amount in cents
+     * @param eventCount the number of replayed arrivals and departures
+     * @param elapsedNanos the real time taken by the simulation in nanoseconds
+     */
+    SimulationReport(long startMillis, long sampleIntervalMillis, int[][] occupancy, int sampleCount,
+                     int[] peakOccupancy, long[] parked, long[] rejected, long[] removed, long revenueInCents,
+                     long eventCount, long elapsedNanos) {
+        this.startMillis = startMillis;
+        this.sampleIntervalMillis = sampleIntervalMillis;
+        this.occupancy = occupancy;
+        this.sampleCount = sampleCount;
+        this.peakOccupancy = peakOccupancy;
+        this.parked = parked;
+        this.rejected = rejected;
+        this.removed = removed;
+        this.revenueInCents = revenueInCents;
+        this.eventCount = eventCount;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns the number of occupancy samples
+     * @return the number of samples
+     */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Returns the virtual time between two samples
+     * @return the sample interval
+     */
+    public Duration getSampleInterval() {
+        return Duration.ofMillis(sampleIntervalMillis);
+    }
+
+    /**
+     * Returns the date of a sample
+     * @param sample the index of the sample, from 0 to getSampleCount() - 1
+     * @return the virtual date of the sample
+     */
+    public Instant getSampleDate(int sample) {
+        return Instant.ofEpochMilli(startMillis + sample * sampleIntervalMillis);
+    }
+
+    /**
+     * Returns the occupancy of a vehicle type at a sample
+     * @param vehicleType the vehicle type
+     * @param sample the index of the sample, from 0 to getSampleCount() - 1
+     * @return the number of parked vehicles of the type at the date of the sample
+     */
+    public int getOccupancy(VehicleType vehicleType, int sample) {
+        if (sample < 0 || sample >= sampleCount) {
+            throw new IndexOutOfBoundsException("No sample " + sample);
+        }
+        return occupancy[vehicleType.ordinal()][sample];
+    }
+
+    /**
+     * Returns the occupancy curve of a vehicle type
+     * @param vehicleType the vehicle type
+     * @return a copy of the occupancy at each sample
+     */
+    public int[] getOccupancyCurve(VehicleType vehicleType) {
+        return Arrays.copyOf(occupancy[vehicleType.ordinal()], sampleCount);
+    }
+
+    /**
+     * Returns the highest occupancy of a vehicle type during the simulation
+     * @param vehicleType the vehicle type
+     * @return the highest number of parked vehicles of the type
+     */
+    public int getPeakOccupancy(VehicleType vehicleType) {
+        return peakOccupancy[vehicleType.ordinal()];
+    }
+
+    /**
+     * Returns the number of vehicles of a type parked during the simulation
+     * @param vehicleType the vehicle type
+     * @return the number of check-ins
+     */
+    public long getParkedCount(VehicleType vehicleType) {
+        return parked[vehicleType.ordinal()];
+    }
+
+    /**
+     * Returns the number of vehicles of a type refused because there was no space available
+     * @param vehicleType the vehicle type
+     * @return the number of refused check-ins
+     */
+    public long getRejectedCount(VehicleType vehicleType) {
+        return rejected[vehicleType.ordinal()];
+    }
+
+    /**
+     * Returns the number of vehicles of a type removed during the simulation
+     * @param vehicleType the vehicle type
+     * @return the number of check-outs
+     */
+    public long getRemovedCount(VehicleType vehicleType) {
+        return removed[vehicleType.ordinal()];
+    }
+
+    /**
+     * Returns the number of vehicles parked during the simulation
+     * @return the number of check-ins
+     */
+    public long getParkedCount() {
+        return Arrays.stream(parked).sum();
+    }
+
+    /**
+     * Returns the number of vehicles refused because there was no space available
+     * @return the number of refused check-ins
+     */
+    public long getRejectedCount() {
+        return Arrays.stream(rejected).sum();
+    }
+
+    /**
+     * Returns the number of vehicles removed during the simulation
+     * @return the number of check-outs
+     */
+    public long getRemovedCount() {
+        return Arrays.stream(removed).sum();
+    }
+
+    /**
+     * Returns the amount billed during the simulation
+     * @return the revenue in cents
+     */
+    public long getRevenueInCents() {
+        return revenueInCents;
+    }
+
+    /**
+     * Returns the number of replayed events
+     * @return the number of arrivals and departures
+     */
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Returns the real time taken by the simulation
+     * @return the elapsed time
+     */
+    public Duration getElapsedTime() {
+        return Duration.ofNanos(elapsedNanos);
+    }
+
+    /**
+     * Returns the replay speed
+     * @return the number of arrivals and departures replayed per second of real time
+     */
+    public double getEventsPerSecond() {
+        return (elapsedNanos <= 0) ? 0 : eventCount * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Writes the occupancy curves in CSV: a header line, then a line per sample with its date and the occupancy of
+     * each vehicle type
+     * @param writer the writer of the CSV
+     * @throws IOException if the writer fails
+     */
+    public void writeOccupancy(Writer writer) throws IOException {
+        VehicleType[] types = VehicleType.values();
+        writer.write("date");
+        for (VehicleType vehicleType : types) {
+            writer.write(',');
+            writer.write(vehicleType.name());
+        }
+        writer.write('\n');
+        for (int sample = 0; sample < sampleCount; sample++) {
+            writer.write(getSampleDate(sample).toString());
+            for (VehicleType vehicleType : types) {
+                writer.write(',');
+                writer.write(Integer.toString(occupancy[vehicleType.ordinal()][sample]));
+            }
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+}
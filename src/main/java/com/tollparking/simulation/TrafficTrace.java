@@ -0,0 +1,272 @@
+package com.tollparking.simulation;
+
+import com.tollparking.enums.VehicleType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * The arrivals of vehicles at a parking, in the order of their arrival dates. Each arrival has a vehicle type and the
+ * time the vehicle stays in the parking if it is let in.
+ *
+ * A trace is recorded from real gates with add or read from a CSV file, one arrival per line:
+ * <pre>
+ * 2020-10-03T10:12:35Z,FUEL,5400000
+ * </pre>
+ * with the arrival date, the vehicle type and the stay in milliseconds. Lines starting with # are ignored. A trace can
+ * also be generated with random arrivals.
+ *
+ * The arrivals are stored in arrays of primitives, so a trace of millions of arrivals takes a few tens of megabytes.
+ */
+public class TrafficTrace {
+
+    /**
+     * The number of milliseconds in an hour
+     */
+    private static final long MILLIS_PER_HOUR = 3_600_000L;
+
+    /**
+     * The vehicle types, indexed by ordinal
+     */
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+
+    /**
+     * The arrival dates in milliseconds since 1970-01-01T00:00:00Z
+     */
+    private long[] arrivals;
+
+    /**
+     * The ordinals of the vehicle types
+     */
+    private byte[] vehicleTypes;
+
+    /**
+     * The stays in milliseconds
+     */
+    private long[] stays;
+
+    /**
+     * The number of arrivals
+     */
+    private int size;
+
+    /**
+     * Creates an empty trace
+     */
+    public TrafficTrace() {
+        this(1024);
+    }
+
+    /**
+     * Creates an empty trace
+     * @param expectedSize the number of arrivals the trace will hold
+     */
+    public TrafficTrace(int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        this.arrivals = new long[capacity];
+        this.vehicleTypes = new byte[capacity];
+        this.stays = new long[capacity];
+    }
+
+    /**
+     * Adds an arrival after the last one
+     * @param arrival the date when the vehicle arrives
+     * @param vehicleType the vehicle type
+     * @param stay the time the vehicle stays in the parking
+     * @throws IllegalArgumentException if the arrival is before the last arrival of the trace or the stay is negative
+     */
+    public void add(Instant arrival, VehicleType vehicleType, Duration stay) {
+        add(arrival.toEpochMilli(), vehicleType, stay.toMillis());
+    }
+
+    /**
+     * Adds an arrival after the last one
+     * @param arrivalMillis the date when the vehicle arrives, in milliseconds since 1970-01-01T00:00:00Z
+     * @param vehicleType the vehicle type
+     * @param stayMillis the time the vehicle stays in the parking, in milliseconds
+     * @throws IllegalArgumentException if the arrival is before the last arrival of the trace or the stay is negative
+     */
+    public void add(long arrivalMillis, VehicleType vehicleType, long stayMillis) {
+        if (this.size > 0 && arrivalMillis < this.arrivals[this.size - 1]) {
+            throw new IllegalArgumentException("The arrivals must be added in the order of their dates");
+        }
+        if (stayMillis < 0) {
+            throw new IllegalArgumentException("The stay cannot be negative");
+        }
+        if (this.size == this.arrivals.length) {
+            int capacity = this.size * 2;
+            this.arrivals = Arrays.copyOf(this.arrivals, capacity);
+            this.vehicleTypes = Arrays.copyOf(this.vehicleTypes, capacity);
+            this.stays = Arrays.copyOf(this.stays, capacity);
+        }
+        this.arrivals[this.size] = arrivalMillis;
+        this.vehicleTypes[this.size] = (byte) vehicleType.ordinal();
+        this.stays[this.size] = stayMillis;
+        this.size++;
+    }
+
+    /**
+     * Returns the number of arrivals
+     * @return the size of the trace
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the date of an arrival
+     * @param index the index of the arrival, from 0 to size() - 1
+     * @return the arrival date in milliseconds since 1970-01-01T00:00:00Z
+     */
+    public long getArrivalMillis(int index) {
+        return this.arrivals[index];
+    }
+
+    /**
+     * Returns the vehicle type of an arrival
+     * @param index the index of the arrival, from 0 to size() - 1
+     * @return the vehicle type
+     */
+    public VehicleType getVehicleType(int index) {
+        return VEHICLE_TYPES[this.vehicleTypes[index]];
+    }
+
+    /**
+     * Returns the stay of an arrival
+     * @param index the index of the arrival, from 0 to size() - 1
+     * @return the time the vehicle stays in the parking, in milliseconds
+     */
+    public long getStayMillis(int index) {
+        return this.stays[index];
+    }
+
+    /**
+     * Generates random arrivals. In each hour of the day (in UTC), the vehicles arrive at random at a given mean rate
+     * (a Poisson process), so a day of traffic can have its morning and evening peaks. The stays follow an
+     * exponential distribution. The same seed always generates the same trace.
+     *
+     * @param start the date of the start of the trace
+     * @param length the duration of the trace
+     * @param arrivalsPerHour the mean number of arrivals per hour, for each hour of the day from 00:00 UTC; a single
+     * value applies to all the hours
+     * @param mix the share of each vehicle type among the arrivals; the shares are relative and need not add up to 1
+     * @param meanStay the mean time a vehicle stays in the parking
+     * @param seed the seed of the random numbers
+     * @return the generated trace
+     * @throws IllegalArgumentException if there are not 1 or 24 rates or if a rate, share or duration is negative
+     */
+    public static TrafficTrace generate(Instant start, Duration length, double[] arrivalsPerHour,
+                                        Map<VehicleType, Double> mix, Duration meanStay, long seed) {
+        if ((arrivalsPerHour.length != 1 && arrivalsPerHour.length != 24) || length.isNegative() || meanStay.isNegative()) {
+            throw new IllegalArgumentException("There must be 1 or 24 arrival rates and the durations must be positive");
+        }
+        double[] cumulativeShares = new double[VEHICLE_TYPES.length];
+        double totalShare = 0;
+        for (VehicleType vehicleType : VEHICLE_TYPES) {
+            double share = mix.getOrDefault(vehicleType, 0.0);
+            if (share < 0) {
+                throw new IllegalArgumentException("The shares of the vehicle types cannot be negative");
+            }
+            totalShare += share;
+            cumulativeShares[vehicleType.ordinal()] = totalShare;
+        }
+        double meanRate = 0;
+        for (double rate : arrivalsPerHour) {
+            if (rate < 0) {
+                throw new IllegalArgumentException("The arrival rates cannot be negative");
+            }
+            meanRate += rate / arrivalsPerHour.length;
+        }
+
+        long startMillis = start.toEpochMilli();
+        long endMillis = startMillis + length.toMillis();
+        double meanStayMillis = meanStay.toMillis();
+        double expectedSize = meanRate * length.toMillis() / MILLIS_PER_HOUR;
+        TrafficTrace trace = new TrafficTrace((int) Math.min(Integer.MAX_VALUE - 8, expectedSize * 1.1));
+        if (totalShare == 0) {
+            return trace;
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        double time = startMillis;
+        while (time < endMillis) {
+            long hourStart = Math.floorDiv((long) time, MILLIS_PER_HOUR) * MILLIS_PER_HOUR;
+            int hourOfDay = (int) Math.floorMod(hourStart / MILLIS_PER_HOUR, 24L);
+            double rate = arrivalsPerHour[(arrivalsPerHour.length == 1) ? 0 : hourOfDay];
+            long hourEnd = hourStart + MILLIS_PER_HOUR;
+            double next = (rate == 0) ? hourEnd : time - Math.log(1 - random.nextDouble()) * MILLIS_PER_HOUR / rate;
+            if (next >= hourEnd) {
+                // no arrival left in this hour: the arrivals being memoryless, the next hour starts afresh
+                time = hourEnd;
+                continue;
+            }
+            time = next;
+            if (time >= endMillis) {
+                break;
+            }
+            double draw = random.nextDouble() * totalShare;
+            int type = 0;
+            while (type < VEHICLE_TYPES.length - 1 && draw >= cumulativeShares[type]) {
+                type++;
+            }
+            long stay = (long) (-Math.log(1 - random.nextDouble()) * meanStayMillis);
+            trace.add((long) time, VEHICLE_TYPES[type], stay);
+        }
+        return trace;
+    }
+
+    /**
+     * Reads a trace written in CSV, one arrival per line
+     * @param reader the reader of the CSV
+     * @return the trace
+     * @throws IOException if the reader fails
+     * @throws IllegalArgumentException if a line is not a valid arrival or the arrivals are not in order
+     */
+    public static TrafficTrace read(Reader reader) throws IOException {
+        BufferedReader lines = (reader instanceof BufferedReader) ? (BufferedReader) reader : new BufferedReader(reader);
+        TrafficTrace trace = new TrafficTrace();
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            if (fields.length != 3) {
+                throw new IllegalArgumentException("Line " + lineNumber + " must hold a date, a vehicle type and a stay");
+            }
+            try {
+                trace.add(Instant.parse(fields[0].trim()).toEpochMilli(), VehicleType.valueOf(fields[1].trim()),
+                        Long.parseLong(fields[2].trim()));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Line " + lineNumber + " is not a valid arrival: " + line, e);
+            }
+        }
+        return trace;
+    }
+
+    /**
+     * Writes the trace in CSV, one arrival per line
+     * @param writer the writer of the CSV
+     * @throws IOException if the writer fails
+     */
+    public void write(Writer writer) throws IOException {
+        for (int i = 0; i < this.size; i++) {
+            writer.write(Instant.ofEpochMilli(this.arrivals[i]).toString());
+            writer.write(',');
+            writer.write(VEHICLE_TYPES[this.vehicleTypes[i]].name());
+            writer.write(',');
+            writer.write(Long.toString(this.stays[i]));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+}
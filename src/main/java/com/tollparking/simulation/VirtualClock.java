@@ -0,0 +1,118 @@
+package com.tollparking.simulation;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Objects;
+
+/**
+ * A clock that only moves when it is told to. Given to a Parking with setClock, it lets a simulation issue and bill
+ * tickets at the dates of a trace instead of the current date.
+ *
+ * The time is written by the simulation thread and can be read by any thread.
+ */
+public class VirtualClock extends Clock {
+
+    /**
+     * The current time of the clock
+     */
+    private volatile Instant instant;
+
+    /**
+     * The time zone of the clock
+     */
+    private final ZoneId zone;
+
+    /**
+     * Creates a clock in UTC stopped at a given time
+     * @param instant the initial time
+     */
+    public VirtualClock(Instant instant) {
+        this(instant, ZoneOffset.UTC);
+    }
+
+    /**
+     * Creates a clock stopped at a given time
+     * @param instant the initial time
+     * @param zone the time zone
+     */
+    public VirtualClock(Instant instant, ZoneId zone) {
+        this.instant = Objects.requireNonNull(instant);
+        this.zone = Objects.requireNonNull(zone);
+    }
+
+    /**
+     * Moves the clock to a given time. The clock can go back, like a system clock adjusted by hand.
+     * @param instant the new time
+     */
+    public void setInstant(Instant instant) {
+        this.instant = Objects.requireNonNull(instant);
+    }
+
+    /**
+     * Moves the clock to a given time
+     * @param epochMillis the new time in milliseconds since 1970-01-01T00:00:00Z
+     */
+    public void setMillis(long epochMillis) {
+        this.instant = Instant.ofEpochMilli(epochMillis);
+    }
+
+    /**
+     * Moves the clock forward
+     * @param duration the time to add
+     */
+    public void advance(Duration duration) {
+        this.instant = this.instant.plus(duration);
+    }
+
+    @Override
+    public Instant instant() {
+        return this.instant;
+    }
+
+    @Override
+    public long millis() {
+        return this.instant.toEpochMilli();
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return this.zone;
+    }
+
+    /**
+     * Returns a clock sharing the time of this clock in another time zone
+     * @param zone the time zone
+     * @return a clock reading the time of this clock
+     */
+    @Override
+    public Clock withZone(ZoneId zone) {
+        if (zone.equals(this.zone)) {
+            return this;
+        }
+        VirtualClock base = this;
+        return new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return zone;
+            }
+
+            @Override
+            public Clock withZone(ZoneId otherZone) {
+                return base.withZone(otherZone);
+            }
+
+            @Override
+            public Instant instant() {
+                return base.instant();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "VirtualClock[" + this.instant + "," + this.zone + "]";
+    }
+}
@@ -0,0 +1,139 @@
+package com.tollparking.benchmark;
+
+import com.tollparking.entity.Parking;
+import com.tollparking.entity.Ticket;
+import com.tollparking.enums.VehicleType;
+import com.tollparking.exception.InvalidCapacityException;
+import com.tollparking.exception.TicketNotFoundException;
+import com.tollparking.journal.ParkingJournal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares the batch check-in / check-out of a burst of vehicles sent by a gate controller with a check-in / check-out
+ * per vehicle. Each operation parks and removes a whole burst, so both benchmarks do the same work per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchBenchmark {
+
+    /**
+     * The number of gate controllers sending bursts at the same time
+     */
+    private static final int GATES = 4;
+
+    /**
+     * The number of vehicles sent together by a gate controller
+     */
+    @Param({"16", "256"})
+    public int burst;
+
+    /**
+     * Whether each check-in and check-out is forced on disk by a journal before the gate gets its answer
+     */
+    @Param({"false", "true"})
+    public boolean journaled;
+
+    /**
+     * The parking shared by all the benchmark threads
+     */
+    private Parking parking;
+
+    /**
+     * The journal of the parking, if journaled
+     */
+    private ParkingJournal journal;
+
+    /**
+     * The directory of the journal, if journaled
+     */
+    private Path directory;
+
+    /**
+     * The vehicle types of a burst
+     */
+    private List<VehicleType> vehicleTypes;
+
+    /**
+     * Creates a parking large enough for a burst per gate controller
+     * @throws InvalidCapacityException if the capacity is negative
+     * @throws IOException if the journal cannot be opened
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws InvalidCapacityException, IOException {
+        this.parking = new Parking(this.burst * GATES, 0, 0);
+        this.vehicleTypes = Collections.nCopies(this.burst, VehicleType.FUEL);
+        if (this.journaled) {
+            this.directory = Files.createTempDirectory("parking-journal");
+            this.journal = ParkingJournal.open(this.directory, this.parking);
+        }
+    }
+
+    /**
+     * Closes and deletes the journal
+     * @throws IOException if the journal cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (this.journal != null) {
+            this.journal.close();
+            try (Stream<Path> files = Files.walk(this.directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Parks and removes a burst of vehicles with one call each
+     * @return the billed tickets
+     */
+    @Benchmark
+    @Threads(GATES)
+    public List<Ticket> batch() {
+        return this.parking.removeVehicles(this.parking.parkVehicles(this.vehicleTypes));
+    }
+
+    /**
+     * Parks and removes a burst of vehicles one by one
+     * @return the billed tickets
+     * @throws TicketNotFoundException if a ticket cannot be found
+     */
+    @Benchmark
+    @Threads(GATES)
+    public List<Ticket> oneByOne() throws TicketNotFoundException {
+        List<Ticket> tickets = new ArrayList<>(this.burst);
+        for (VehicleType vehicleType : this.vehicleTypes) {
+            tickets.add(this.parking.parkVehicle(vehicleType));
+        }
+        for (int i = 0; i < tickets.size(); i++) {
+            tickets.set(i, this.parking.removeVehicle(tickets.get(i)));
+        }
+        return tickets;
+    }
+}
@@ -0,0 +1,186 @@
+package com.tollparking.benchmark;
+
+import com.tollparking.entity.Parking;
+import com.tollparking.entity.ParkingEngine;
+import com.tollparking.entity.ParkingResult;
+import com.tollparking.entity.Ticket;
+import com.tollparking.enums.VehicleType;
+import com.tollparking.exception.InvalidCapacityException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the lock-based path of the Parking with the single-writer ParkingEngine, for 1 to 64 gates checking
+ * vehicles in and out at the same time. Each gate parks a vehicle and removes it, waiting for each result; a
+ * pipelined gate publishes its check-ins and check-outs without waiting for the previous ones.
+ *
+ * On a single core, in check-ins and check-outs per microsecond for 1 / 4 / 16 / 64 gates: 2.5 / 3.1 / 2.8 / 2.7 with
+ * the locks, 0.10 / 0.10 / 0.12 / 0.06 with the engine waiting for each result (a thread switch per command) and
+ * 0.58 / 0.46 / 0.49 / 0.20 with the engine pipelined. With one core the locks are never contended; the engine only
+ * pays off with several cores, where the gates wait for each other on the locks.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EngineBenchmark {
+
+    /**
+     * The number of check-ins and check-outs of an invocation, shared by the gates
+     */
+    private static final int OPERATIONS = 6_400;
+
+    /**
+     * The number of gates checking vehicles in and out at the same time
+     */
+    @Param({"1", "4", "16", "64"})
+    public int gates;
+
+    /**
+     * The parking called directly by the gates
+     */
+    private Parking lockedParking;
+
+    /**
+     * The parking behind the engine
+     */
+    private Parking engineParking;
+
+    /**
+     * The engine of the parking
+     */
+    private ParkingEngine engine;
+
+    /**
+     * The threads of the gates
+     */
+    private ExecutorService executor;
+
+    /**
+     * Creates the parkings, with room for every vehicle of an invocation, and the threads of the gates
+     * @throws InvalidCapacityException if the capacity is negative
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws InvalidCapacityException {
+        this.lockedParking = new Parking(OPERATIONS, 0, 0);
+        this.engineParking = new Parking(OPERATIONS, 0, 0);
+        this.engine = ParkingEngine.start(this.engineParking, ParkingEngine.DEFAULT_BUFFER_SIZE);
+        this.executor = Executors.newFixedThreadPool(this.gates);
+    }
+
+    /**
+     * Stops the engine and the threads of the gates
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.engine.close();
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Checks vehicles in and out of the parking from each gate, with the locks of the parking
+     * @return the number of vehicles removed
+     * @throws Exception if a gate fails
+     */
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public int lockBased() throws Exception {
+        return runGates(() -> {
+            int removed = 0;
+            for (int i = 0; i < OPERATIONS / this.gates; i++) {
+                Ticket ticket = this.lockedParking.parkVehicle(VehicleType.FUEL);
+                if (ticket != null && this.lockedParking.tryRemoveVehicle(ticket).isSuccess()) {
+                    removed++;
+                }
+            }
+            return removed;
+        });
+    }
+
+    /**
+     * Checks vehicles in and out of the parking from each gate through the engine, waiting for each result
+     * @return the number of vehicles removed
+     * @throws Exception if a gate fails
+     */
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public int engine() throws Exception {
+        return runGates(() -> {
+            int removed = 0;
+            for (int i = 0; i < OPERATIONS / this.gates; i++) {
+                ParkingResult parked = this.engine.parkVehicle(VehicleType.FUEL).join();
+                if (parked.isSuccess() && this.engine.removeVehicle(parked.getTicket()).join().isSuccess()) {
+                    removed++;
+                }
+            }
+            return removed;
+        });
+    }
+
+    /**
+     * Checks vehicles in and out of the parking from each gate through the engine, chaining each check-out to its
+     * check-in and waiting only for the last one
+     * @return the number of vehicles removed
+     * @throws Exception if a gate fails
+     */
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public int enginePipelined() throws Exception {
+        return runGates(() -> {
+            List<CompletableFuture<ParkingResult>> removals = new ArrayList<>(OPERATIONS / this.gates);
+            for (int i = 0; i < OPERATIONS / this.gates; i++) {
+                removals.add(this.engine.parkVehicle(VehicleType.FUEL).thenCompose(parked -> parked.isSuccess()
+                        ? this.engine.removeVehicle(parked.getTicket())
+                        : CompletableFuture.completedFuture(parked)));
+            }
+            int removed = 0;
+            for (CompletableFuture<ParkingResult> removal : removals) {
+                if (removal.join().isSuccess()) {
+                    removed++;
+                }
+            }
+            return removed;
+        });
+    }
+
+    /**
+     * Runs a task on each gate and waits for all of them
+     * @param gate the task of a gate, returning its number of vehicles removed
+     * @return the number of vehicles removed by all the gates
+     * @throws Exception if a gate fails
+     */
+    private int runGates(Callable<Integer> gate) throws Exception {
+        List<Future<Integer>> futures = new ArrayList<>(this.gates);
+        for (int i = 0; i < this.gates; i++) {
+            futures.add(this.executor.submit(gate));
+        }
+        int removed = 0;
+        for (Future<Integer> future : futures) {
+            removed += future.get();
+        }
+        return removed;
+    }
+}
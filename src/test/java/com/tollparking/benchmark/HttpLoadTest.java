@@ -0,0 +1,209 @@
+package com.tollparking.benchmark;
+
+import com.tollparking.entity.Parking;
+import com.tollparking.http.ParkingHttpServer;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A load generator for the HTTP API: many gates, each on its own connection, park a vehicle then remove it, again and
+ * again, and the latency of every request is recorded.
+ *
+ * Usage: {@code HttpLoadTest [gates] [requests] [url]}. Without url, a parking with one slot per gate is served
+ * in-process on a free port. Run it with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.tollparking.benchmark.HttpLoadTest -Dexec.args="10000 1000000"};
+ * tens of thousands of gates need a matching limit of open files ({@code ulimit -n}) on both sides.
+ */
+public class HttpLoadTest {
+
+    /**
+     * The address of the API
+     */
+    private final String url;
+
+    /**
+     * The total number of requests to send
+     */
+    private final int requests;
+
+    /**
+     * The client, opening a connection per request in flight
+     */
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
+
+    /**
+     * The number of requests sent so far
+     */
+    private final AtomicInteger sent = new AtomicInteger();
+
+    /**
+     * The number of requests that failed or got an unexpected status
+     */
+    private final AtomicInteger errors = new AtomicInteger();
+
+    /**
+     * The latency of each request in nanoseconds, in the order they completed
+     */
+    private final long[] latencies;
+
+    /**
+     * The number of completed requests
+     */
+    private final AtomicInteger completed = new AtomicInteger();
+
+    /**
+     * Released when all the requests are completed
+     */
+    private final CountDownLatch done;
+
+    /**
+     * Creates a load generator
+     * @param url the address of the API
+     * @param requests the total number of requests to send
+     */
+    private HttpLoadTest(String url, int requests) {
+        this.url = url;
+        this.requests = requests;
+        this.latencies = new long[requests];
+        this.done = new CountDownLatch(requests);
+    }
+
+    /**
+     * Runs the load test and prints the throughput and the latency percentiles
+     * @param args the number of gates, the number of requests and the optional address of the API
+     * @throws Exception if the server cannot be started
+     */
+    public static void main(String[] args) throws Exception {
+        int gates = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        ParkingHttpServer server = null;
+        String url;
+        if (args.length > 2) {
+            url = args[2];
+        } else {
+            server = new ParkingHttpServer(new Parking(gates, 0, 0), new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            server.start();
+            url = "http://localhost:" + server.getPort();
+        }
+
+        HttpLoadTest test = new HttpLoadTest(url, requests);
+        long start = System.nanoTime();
+        for (int gate = 0; gate < gates; gate++) {
+            test.parkNext();
+        }
+        test.done.await();
+        long elapsed = System.nanoTime() - start;
+        if (server != null) {
+            server.close();
+        }
+        test.report(gates, elapsed);
+    }
+
+    /**
+     * Parks a vehicle, then removes it, unless all the requests were sent
+     */
+    private void parkNext() {
+        if (this.sent.incrementAndGet() > this.requests) {
+            return;
+        }
+        long start = System.nanoTime();
+        this.client.sendAsync(request("POST", "/tickets?type=FUEL"), HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, failure) -> {
+                    record(start, failure == null && response.statusCode() == 201);
+                    if (failure == null && response.statusCode() == 201) {
+                        removeNext(ticketId(response.body()));
+                    } else {
+                        parkNext();
+                    }
+                });
+    }
+
+    /**
+     * Removes a vehicle, then parks another one, unless all the requests were sent
+     * @param ticketId the id of the ticket of the vehicle
+     */
+    private void removeNext(String ticketId) {
+        if (this.sent.incrementAndGet() > this.requests) {
+            return;
+        }
+        long start = System.nanoTime();
+        this.client.sendAsync(request("DELETE", "/tickets/" + ticketId), HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, failure) -> {
+                    record(start, failure == null && response.statusCode() == 200);
+                    parkNext();
+                });
+    }
+
+    /**
+     * Records the latency of a completed request
+     * @param start the time the request was sent
+     * @param success true if the request got the expected status
+     */
+    private void record(long start, boolean success) {
+        long latency = System.nanoTime() - start;
+        if (!success) {
+            this.errors.incrementAndGet();
+        }
+        this.latencies[this.completed.getAndIncrement()] = latency;
+        this.done.countDown();
+    }
+
+    /**
+     * Builds a request to the API
+     * @param method the HTTP method
+     * @param path the path and query
+     * @return the request
+     */
+    private HttpRequest request(String method, String path) {
+        return HttpRequest.newBuilder(URI.create(this.url + path))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .timeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    /**
+     * Reads the id of a ticket returned by the API
+     * @param json the ticket
+     * @return the id
+     */
+    private static String ticketId(String json) {
+        int start = json.indexOf("\"id\":\"") + "\"id\":\"".length();
+        return json.substring(start, json.indexOf('"', start));
+    }
+
+    /**
+     * Prints the throughput and the latency percentiles
+     * @param gates the number of gates
+     * @param elapsed the duration of the test in nanoseconds
+     */
+    private void report(int gates, long elapsed) {
+        long[] sorted = Arrays.copyOf(this.latencies, this.completed.get());
+        Arrays.sort(sorted);
+        System.out.printf("gates: %d, requests: %d, errors: %d, throughput: %.0f requests/s%n",
+                gates, sorted.length, this.errors.get(), sorted.length / (elapsed / 1e9));
+        System.out.printf("latency (ms): p50 %.3f, p99 %.3f, p99.9 %.3f, max %.3f%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999), sorted[sorted.length - 1] / 1e6);
+    }
+
+    /**
+     * Reads a percentile of sorted latencies
+     * @param sorted the latencies in nanoseconds, in increasing order
+     * @param fraction the percentile, between 0 and 1
+     * @return the latency in milliseconds
+     */
+    private static double percentile(long[] sorted, double fraction) {
+        return sorted[(int) Math.min(sorted.length - 1, (long) Math.ceil(fraction * sorted.length) - 1)] / 1e6;
+    }
+}
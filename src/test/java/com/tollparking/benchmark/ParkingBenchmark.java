@@ -0,0 +1,137 @@
+package com.tollparking.benchmark;
+
+import com.tollparking.entity.Parking;
+import com.tollparking.entity.Ticket;
+import com.tollparking.enums.VehicleType;
+import com.tollparking.exception.InvalidCapacityException;
+import com.tollparking.exception.TicketNotFoundException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the check-in / check-out path of the Parking.
+ *
+ * Every operation parks a vehicle and removes it again, so the occupancy of the parking stays at the level chosen
+ * with the fill parameter: on a FULL parking every check-in is refused.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParkingBenchmark {
+
+    /**
+     * The number of slots of the benchmarked vehicle type
+     */
+    @Param({"100", "10000", "1000000"})
+    public int capacity;
+
+    /**
+     * The occupancy of the parking before the benchmark starts
+     */
+    @Param({"EMPTY", "HALF", "FULL"})
+    public Fill fill;
+
+    /**
+     * Whether the latencies of the check-ins and check-outs are measured: run with -p latencyTracked=true,false to
+     * compare the cost of the latency tracking
+     */
+    @Param({"false"})
+    public boolean latencyTracked;
+
+    /**
+     * The parking shared by all the benchmark threads
+     */
+    private Parking parking;
+
+    /**
+     * The occupancy levels of the benchmarked parking
+     */
+    public enum Fill {
+        EMPTY(0), HALF(50), FULL(100);
+
+        /**
+         * The percentage of occupied slots
+         */
+        private final int percent;
+
+        Fill(int percent) {
+            this.percent = percent;
+        }
+    }
+
+    /**
+     * Creates the parking and parks vehicles until the requested occupancy is reached
+     * @throws InvalidCapacityException if the capacity is negative
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws InvalidCapacityException {
+        // leave room for one vehicle per thread unless the parking is meant to be full
+        int threads = Runtime.getRuntime().availableProcessors();
+        this.parking = new Parking(this.capacity + (this.fill == Fill.FULL ? 0 : threads), 0, 0);
+        this.parking.getMetrics().setLatencyTracked(this.latencyTracked);
+        long parked = (long) this.capacity * this.fill.percent / 100;
+        for (long i = 0; i < parked; i++) {
+            this.parking.parkVehicle(VehicleType.FUEL);
+        }
+    }
+
+    /**
+     * Parks and removes a vehicle from a single gate
+     * @return the billed ticket, or null if the vehicle was refused
+     * @throws TicketNotFoundException if the ticket cannot be found
+     */
+    @Benchmark
+    @Threads(1)
+    public Ticket checkInCheckOut_1Gate() throws TicketNotFoundException {
+        return checkInCheckOut();
+    }
+
+    /**
+     * Parks and removes vehicles from 4 gates at the same time
+     * @return the billed ticket, or null if the vehicle was refused
+     * @throws TicketNotFoundException if the ticket cannot be found
+     */
+    @Benchmark
+    @Threads(4)
+    public Ticket checkInCheckOut_4Gates() throws TicketNotFoundException {
+        return checkInCheckOut();
+    }
+
+    /**
+     * Parks and removes vehicles from as many gates as there are processors
+     * @return the billed ticket, or null if the vehicle was refused
+     * @throws TicketNotFoundException if the ticket cannot be found
+     */
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Ticket checkInCheckOut_maxGates() throws TicketNotFoundException {
+        return checkInCheckOut();
+    }
+
+    /**
+     * Parks a vehicle and removes it if it was accepted
+     * @return the billed ticket, or null if the vehicle was refused
+     * @throws TicketNotFoundException if the ticket cannot be found
+     */
+    private Ticket checkInCheckOut() throws TicketNotFoundException {
+        Ticket ticket = this.parking.parkVehicle(VehicleType.FUEL);
+        if (ticket == null) return null;
+        return this.parking.removeVehicle(ticket);
+    }
+}
@@ -0,0 +1,152 @@
+package com.tollparking.benchmark;
+
+import com.tollparking.billing.PricingPerHourPolicy;
+import com.tollparking.billing.PricingPerHourWithFixedAmountPolicy;
+import com.tollparking.billing.PricingPolicy;
+import com.tollparking.billing.TieredPricingPolicy;
+import com.tollparking.enums.VehicleType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the price calculation of the pricing policies for stays between 1 minute and 3 days
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PricingPolicyBenchmark {
+
+    /**
+     * The number of precomputed stays, must be a power of 2
+     */
+    private static final int STAYS = 1024;
+
+    /**
+     * The policy billing each hour spent in the parking
+     */
+    private PricingPolicy perHourPolicy;
+
+    /**
+     * The policy billing a fixed amount plus each hour spent in the parking
+     */
+    private PricingPolicy perHourWithFixedAmountPolicy;
+
+    /**
+     * The policy with a first hour, quarters, night and weekend rates, a daily cap and electric vehicle rates
+     */
+    private PricingPolicy tieredPolicy;
+
+    /**
+     * The start dates of the stays
+     */
+    private Instant[] startDates;
+
+    /**
+     * The end dates of the stays
+     */
+    private Instant[] endDates;
+
+    /**
+     * The index of the next stay to price
+     */
+    private int next;
+
+    /**
+     * Creates the policies and the stays to price
+     */
+    @Setup
+    public void setUp() {
+        this.perHourPolicy = new PricingPerHourPolicy(new BigDecimal("2.50"));
+        this.perHourWithFixedAmountPolicy = new PricingPerHourWithFixedAmountPolicy(new BigDecimal("16.23"), new BigDecimal("9.99"));
+        this.tieredPolicy = TieredPricingPolicy.builder()
+                .firstPeriod(Duration.ofHours(1), new BigDecimal("2.00"))
+                .increment(Duration.ofMinutes(15))
+                .hourlyRate(new BigDecimal("2.40"))
+                .hourlyRate(EnumSet.allOf(DayOfWeek.class), LocalTime.of(20, 0), LocalTime.of(7, 0), new BigDecimal("1.00"))
+                .hourlyRate(EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY), LocalTime.MIDNIGHT, LocalTime.MIDNIGHT,
+                        new BigDecimal("1.20"))
+                .dailyCap(new BigDecimal("20.00"))
+                .forVehicleTypes(VehicleType.ELECTRIC_20KW, VehicleType.ELECTRIC_50KW)
+                .hourlyRate(new BigDecimal("3.60"))
+                .build();
+        this.startDates = new Instant[STAYS];
+        this.endDates = new Instant[STAYS];
+        Random random = new Random(42);
+        Instant now = Instant.parse("2020-10-03T10:12:35Z");
+        for (int i = 0; i < STAYS; i++) {
+            this.startDates[i] = now;
+            this.endDates[i] = now.plus(1 + random.nextInt(3 * 24 * 60), ChronoUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Prices a stay with the PricingPerHourPolicy
+     * @return the price of the stay
+     */
+    @Benchmark
+    public BigDecimal pricingPerHour() {
+        int i = this.next++ & (STAYS - 1);
+        return this.perHourPolicy.calculatePrice(this.startDates[i], this.endDates[i]);
+    }
+
+    /**
+     * Prices a stay with the PricingPerHourWithFixedAmountPolicy
+     * @return the price of the stay
+     */
+    @Benchmark
+    public BigDecimal pricingPerHourWithFixedAmount() {
+        int i = this.next++ & (STAYS - 1);
+        return this.perHourWithFixedAmountPolicy.calculatePrice(this.startDates[i], this.endDates[i]);
+    }
+
+    /**
+     * Prices a stay in cents with the PricingPerHourWithFixedAmountPolicy
+     * @return the price of the stay in cents
+     */
+    @Benchmark
+    public long pricingPerHourWithFixedAmountInCents() {
+        int i = this.next++ & (STAYS - 1);
+        return this.perHourWithFixedAmountPolicy.calculatePriceInCents(this.startDates[i], this.endDates[i]);
+    }
+
+    /**
+     * Prices a stay with the TieredPricingPolicy
+     * @return the price of the stay
+     */
+    @Benchmark
+    public BigDecimal pricingTiered() {
+        int i = this.next++ & (STAYS - 1);
+        return this.tieredPolicy.calculatePrice(VehicleType.ELECTRIC_20KW, this.startDates[i], this.endDates[i]);
+    }
+
+    /**
+     * Prices a stay in cents with the TieredPricingPolicy
+     * @return the price of the stay in cents
+     */
+    @Benchmark
+    public long pricingTieredInCents() {
+        int i = this.next++ & (STAYS - 1);
+        return this.tieredPolicy.calculatePriceInCents(VehicleType.ELECTRIC_20KW, this.startDates[i], this.endDates[i]);
+    }
+}
@@ -0,0 +1,122 @@
+package com.tollparking.benchmark;
+
+import com.tollparking.entity.Parking;
+import com.tollparking.entity.Ticket;
+import com.tollparking.enums.VehicleType;
+import com.tollparking.journal.ParkingJournal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the cold start of a parking from its journal: loading the last snapshot and replaying the segment written
+ * after it.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class RecoveryBenchmark {
+
+    /**
+     * The number of open tickets in the snapshot
+     */
+    @Param({"100000", "1000000"})
+    public int openTickets;
+
+    /**
+     * The number of check-ins journaled after the snapshot
+     */
+    @Param({"10000"})
+    public int tailEvents;
+
+    /**
+     * The directory of the journal
+     */
+    private Path directory;
+
+    /**
+     * Writes a snapshot with the open tickets, then journals the tail events
+     * @throws Exception if the journal cannot be written
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        this.directory = Files.createTempDirectory("parking-journal");
+        Parking parking = newParking();
+        List<Ticket> tickets = new ArrayList<>(this.openTickets);
+        for (int i = 0; i < this.openTickets; i++) {
+            tickets.add(new Ticket(UUID.randomUUID().toString(), VehicleType.FUEL));
+        }
+        parking.restoreTickets(tickets);
+
+        ParkingJournal journal = ParkingJournal.open(this.directory, parking);
+        journal.snapshot();
+        Thread[] gates = new Thread[16];
+        for (int gate = 0; gate < gates.length; gate++) {
+            gates[gate] = new Thread(() -> {
+                for (int i = 0; i < this.tailEvents / gates.length; i++) {
+                    parking.parkVehicle(VehicleType.ELECTRIC_20KW);
+                }
+            });
+            gates[gate].start();
+        }
+        for (Thread gate : gates) {
+            gate.join();
+        }
+        journal.close();
+    }
+
+    /**
+     * Deletes the journal
+     * @throws IOException if the journal cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(this.directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    /**
+     * Restores a new parking from the journal
+     * @return the restored parking
+     * @throws Exception if the journal cannot be read
+     */
+    @Benchmark
+    public Parking coldStart() throws Exception {
+        Parking parking = newParking();
+        ParkingJournal.open(this.directory, parking).close();
+        return parking;
+    }
+
+    /**
+     * Creates a parking large enough for all the tickets
+     * @return a new parking
+     * @throws Exception if the capacity is negative
+     */
+    private Parking newParking() throws Exception {
+        return new Parking(this.openTickets, this.tailEvents, 0);
+    }
+}
@@ -0,0 +1,98 @@
+package com.tollparking.benchmark;
+
+import com.tollparking.entity.Parking;
+import com.tollparking.entity.ParkingResult;
+import com.tollparking.entity.Ticket;
+import com.tollparking.enums.VehicleType;
+import com.tollparking.exception.InvalidCapacityException;
+import com.tollparking.exception.TicketNotFoundException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the refusals at the gates: a ticket read twice or lost at an exit, and a vehicle arriving at a full parking.
+ *
+ * Before the non-throwing methods, removing an unknown ticket logged a formatted error and threw an exception with its
+ * stack trace: 0.05 ops/us and 2945 B/op with the console log of the tests, against 76 ops/us for a vehicle refused
+ * by the full parking.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RejectionBenchmark {
+
+    /**
+     * A parking whose FUEL slots are all taken
+     */
+    private Parking parking;
+
+    /**
+     * A ticket already checked out
+     */
+    private Ticket removedTicket;
+
+    /**
+     * Fills the parking and checks out a ticket
+     * @throws InvalidCapacityException if the capacity is negative
+     * @throws TicketNotFoundException if the ticket cannot be found
+     */
+    @Setup
+    public void setUp() throws InvalidCapacityException, TicketNotFoundException {
+        this.parking = new Parking(1, 0, 0);
+        this.removedTicket = this.parking.removeVehicle(this.parking.parkVehicle(VehicleType.FUEL));
+        this.parking.parkVehicle(VehicleType.FUEL);
+    }
+
+    /**
+     * Checks out a ticket already checked out, by its id
+     * @return the exception
+     */
+    @Benchmark
+    public Object removeUnknownTicket_exception() {
+        try {
+            return this.parking.removeVehicle(this.removedTicket.getNumericId());
+        } catch (TicketNotFoundException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Checks in a vehicle in the full parking
+     * @return null
+     */
+    @Benchmark
+    public Ticket parkInFullParking_null() {
+        return this.parking.parkVehicle(VehicleType.FUEL);
+    }
+
+    /**
+     * Checks out a ticket already checked out, by its id, without exception
+     * @return the result
+     */
+    @Benchmark
+    public ParkingResult removeUnknownTicket_result() {
+        return this.parking.tryRemoveVehicle(this.removedTicket.getNumericId());
+    }
+
+    /**
+     * Checks in a vehicle in the full parking, without exception
+     * @return the result
+     */
+    @Benchmark
+    public ParkingResult parkInFullParking_result() {
+        return this.parking.tryParkVehicle(VehicleType.FUEL);
+    }
+}
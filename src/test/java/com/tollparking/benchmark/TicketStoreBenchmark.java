@@ -0,0 +1,162 @@
+package com.tollparking.benchmark;
+
+import com.tollparking.entity.HeapTicketStore;
+import com.tollparking.entity.MonotonicTicketIdGenerator;
+import com.tollparking.entity.OffHeapTicketStore;
+import com.tollparking.entity.Ticket;
+import com.tollparking.enums.VehicleType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the lookup and the check-out of a ticket by its numeric id, as done by an exit gate that scans a code,
+ * with the striped primitive index of the parking, with the off-heap store and with a ConcurrentHashMap of boxed ids
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TicketStoreBenchmark {
+
+    /**
+     * The number of open tickets
+     */
+    @Param({"10000", "1000000"})
+    public int size;
+
+    /**
+     * The ids of the open tickets
+     */
+    private long[] ids;
+
+    /**
+     * The tickets stored in the striped primitive index
+     */
+    private HeapTicketStore heapStore;
+
+    /**
+     * The tickets stored off the heap
+     */
+    private OffHeapTicketStore offHeapStore;
+
+    /**
+     * The tickets stored in a map of boxed ids
+     */
+    private Map<Long, Ticket> concurrentMap;
+
+    /**
+     * Issues the tickets and stores them in all the structures
+     */
+    @Setup
+    public void setUp() {
+        MonotonicTicketIdGenerator generator = new MonotonicTicketIdGenerator(0);
+        this.ids = new long[this.size];
+        this.heapStore = new HeapTicketStore(this.size);
+        this.offHeapStore = new OffHeapTicketStore(this.size);
+        this.concurrentMap = new ConcurrentHashMap<>(this.size);
+        for (int i = 0; i < this.size; i++) {
+            Ticket ticket = generator.newTicket(VehicleType.FUEL);
+            this.ids[i] = ticket.getNumericId();
+            this.heapStore.add(ticket);
+            this.offHeapStore.add(ticket);
+            this.concurrentMap.put(ticket.getNumericId(), ticket);
+        }
+    }
+
+    /**
+     * Finds a random open ticket in the striped primitive index
+     * @return the ticket
+     */
+    @Benchmark
+    @Threads(4)
+    public Ticket getHeapStore() {
+        return this.heapStore.get(randomId());
+    }
+
+    /**
+     * Finds a random open ticket off the heap, creating its Ticket object
+     * @return the ticket
+     */
+    @Benchmark
+    @Threads(4)
+    public Ticket getOffHeapStore() {
+        return this.offHeapStore.get(randomId());
+    }
+
+    /**
+     * Finds a random open ticket in the map of boxed ids
+     * @return the ticket
+     */
+    @Benchmark
+    @Threads(4)
+    public Ticket getConcurrentHashMap() {
+        return this.concurrentMap.get(randomId());
+    }
+
+    /**
+     * Checks a random ticket out of the striped primitive index and back in, keeping the number of open tickets
+     * @return the ticket
+     */
+    @Benchmark
+    @Threads(4)
+    public Ticket removeAndAddHeapStore() {
+        Ticket ticket = this.heapStore.remove(randomId());
+        if (ticket != null) {
+            this.heapStore.add(ticket);
+        }
+        return ticket;
+    }
+
+    /**
+     * Checks a random ticket out of the off-heap store and back in, keeping the number of open tickets
+     * @return the ticket
+     */
+    @Benchmark
+    @Threads(4)
+    public Ticket removeAndAddOffHeapStore() {
+        Ticket ticket = this.offHeapStore.remove(randomId());
+        if (ticket != null) {
+            this.offHeapStore.add(ticket);
+        }
+        return ticket;
+    }
+
+    /**
+     * Checks a random ticket out of the map of boxed ids and back in, keeping the number of open tickets
+     * @return the ticket
+     */
+    @Benchmark
+    @Threads(4)
+    public Ticket removeAndAddConcurrentHashMap() {
+        Ticket ticket = this.concurrentMap.remove(randomId());
+        if (ticket != null) {
+            this.concurrentMap.put(ticket.getNumericId(), ticket);
+        }
+        return ticket;
+    }
+
+    /**
+     * Picks the id of an open ticket
+     * @return the id
+     */
+    private long randomId() {
+        return this.ids[ThreadLocalRandom.current().nextInt(this.ids.length)];
+    }
+}
@@ -0,0 +1,159 @@
+package com.tollparking.entity;
+
+import com.tollparking.billing.PricingPerHourPolicy;
+import com.tollparking.enums.VehicleType;
+import com.tollparking.journal.AuditLog;
+import com.tollparking.journal.AuditLogReader;
+import com.tollparking.simulation.VirtualClock;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the AuditLog and the AuditLogReader
+ * @link com.tollparking.journal.AuditLog
+ */
+public class AuditLogTest {
+
+    /**
+     * Test that the billed tickets are written with their id, vehicle type, dates and amount
+     * @param directory a temporary directory
+     * @throws Exception if the parking cannot be created or the log cannot be written
+     */
+    @Test
+    public void writeAndReadBilledTickets(@TempDir Path directory) throws Exception {
+        VirtualClock clock = new VirtualClock(Instant.parse("2020-10-03T10:00:00.123456Z"));
+        Parking parking = new Parking(2, 1, 0, new PricingPerHourPolicy(new BigDecimal("2.50")));
+        parking.setClock(clock);
+        AuditLog auditLog = AuditLog.open(directory, parking);
+        Ticket fuel = parking.parkVehicle(VehicleType.FUEL);
+        Ticket electric = parking.parkVehicle(VehicleType.ELECTRIC_20KW);
+        clock.advance(Duration.ofHours(2));
+        parking.removeVehicle(electric);
+        Ticket uuid = new UuidTicketIdGenerator().newTicket(VehicleType.FUEL, clock.instant());
+        uuid.setEndDate(clock.instant().plusSeconds(3600));
+        uuid.setAmount(new BigDecimal("1.005"));
+        auditLog.vehicleRemoved(uuid);
+        clock.advance(Duration.ofHours(1));
+        parking.removeVehicles(List.of(fuel));
+        auditLog.close();
+        assertEquals(3, auditLog.getWrittenCount());
+        assertEquals(0, auditLog.getDroppedCount());
+
+        List<String> records = new ArrayList<>();
+        long count = AuditLogReader.scan(directory, record -> records.add(record.toString()));
+        assertEquals(3, count);
+        assertEquals("id: " + electric.getNumericId() + " vehicleType: ELECTRIC_20KW"
+                + " startDate: 2020-10-03T10:00:00.123456Z endDate: 2020-10-03T12:00:00.123456Z amount: 5.00", records.get(0));
+        assertEquals("id: " + uuid.getId() + " vehicleType: FUEL"
+                + " startDate: 2020-10-03T12:00:00.123456Z endDate: 2020-10-03T13:00:00.123456Z amount: 1.01", records.get(1));
+        assertEquals("id: " + fuel.getNumericId() + " vehicleType: FUEL"
+                + " startDate: 2020-10-03T10:00:00.123456Z endDate: 2020-10-03T13:00:00.123456Z amount: 7.50", records.get(2));
+
+        parking.removeVehicle(parking.parkVehicle(VehicleType.FUEL));
+        assertEquals(3, AuditLogReader.scan(directory, record -> true));
+        auditLog.vehicleRemoved(fuel);
+        assertEquals(1, auditLog.getDroppedCount());
+    }
+
+    /**
+     * Test that the log rolls to new segments when they are full, that a reopened log appends after the last record
+     * and that a scan can be stopped by the visitor
+     * @param directory a temporary directory
+     * @throws Exception if the parking cannot be created or the log cannot be written
+     */
+    @Test
+    public void rollSegmentsAndReopen(@TempDir Path directory) throws Exception {
+        Parking parking = new Parking(10, 0, 0);
+        AuditLog auditLog = AuditLog.open(directory, parking, 64 * 1024, 100_000);
+        for (int i = 0; i < 5000; i++) {
+            parking.removeVehicle(parking.parkVehicle(VehicleType.FUEL));
+        }
+        auditLog.close();
+        assertTrue(segmentCount(directory) >= 3);
+
+        auditLog = AuditLog.open(directory, parking, 64 * 1024, 100_000);
+        for (int i = 0; i < 1000; i++) {
+            parking.removeVehicle(parking.parkVehicle(VehicleType.FUEL));
+        }
+        auditLog.close();
+
+        long[] previousId = {0};
+        boolean[] ordered = {true};
+        assertEquals(6000, AuditLogReader.scan(directory, record -> {
+            ordered[0] &= record.getNumericId() > previousId[0];
+            previousId[0] = record.getNumericId();
+            return true;
+        }));
+        assertTrue(ordered[0]);
+        int[] visited = {0};
+        assertEquals(10, AuditLogReader.scan(directory, record -> ++visited[0] < 10));
+    }
+
+    /**
+     * Test that the check-outs wait for room in a full queue by default, no billed ticket being lost, and that a log
+     * opened with the DROP overflow counts every ticket it does not write
+     * @param directory a temporary directory
+     * @throws Exception if the parking cannot be created or the log cannot be written
+     */
+    @Test
+    public void waitOrDropWhenQueueIsFull(@TempDir Path directory) throws Exception {
+        Parking parking = new Parking(10, 0, 0);
+        AuditLog auditLog = AuditLog.open(directory.resolve("block"), parking, 64 * 1024, 1);
+        for (int i = 0; i < 10_000; i++) {
+            parking.removeVehicle(parking.parkVehicle(VehicleType.FUEL));
+        }
+        auditLog.close();
+        assertEquals(10_000, auditLog.getWrittenCount());
+        assertEquals(0, auditLog.getDroppedCount());
+
+        auditLog = AuditLog.open(directory.resolve("drop"), parking, 64 * 1024, 1, AuditLog.Overflow.DROP);
+        for (int i = 0; i < 10_000; i++) {
+            parking.removeVehicle(parking.parkVehicle(VehicleType.FUEL));
+        }
+        auditLog.close();
+        assertEquals(10_000, auditLog.getWrittenCount() + auditLog.getDroppedCount());
+        assertEquals(auditLog.getWrittenCount(), AuditLogReader.scan(directory.resolve("drop"), record -> true));
+    }
+
+    /**
+     * Test the invalid segment sizes and the files that are not audit log segments
+     * @param directory a temporary directory
+     * @throws Exception if the parking cannot be created
+     */
+    @Test
+    public void rejectInvalidSegments(@TempDir Path directory) throws Exception {
+        Parking parking = new Parking(10, 0, 0);
+        assertThrows(IllegalArgumentException.class, () -> AuditLog.open(directory, parking, 1024, 10));
+        assertThrows(IllegalArgumentException.class, () -> AuditLog.open(directory, parking, 64 * 1024, 0));
+        Files.write(directory.resolve("audit-0000000000000000000.bin"), new byte[]{1, 2, 3, 4, 5});
+        assertThrows(IOException.class, () -> AuditLog.open(directory, parking));
+        assertThrows(IOException.class, () -> AuditLogReader.scan(directory, record -> true));
+        assertEquals(5, Files.size(directory.resolve("audit-0000000000000000000.bin")));
+    }
+
+    /**
+     * Counts the segment files of a log
+     * @param directory the directory of the log
+     * @return the number of segment files
+     * @throws IOException if the directory cannot be read
+     */
+    private static long segmentCount(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("audit-")).count();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.tollparking.entity;
+
+import com.tollparking.metrics.LatencyHistogram;
+import com.tollparking.metrics.LatencySnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the LatencyHistogram
+ * @link com.tollparking.metrics.LatencyHistogram
+ */
+public class LatencyHistogramTest {
+
+    /**
+     * Test that the percentiles are within the precision of the buckets of the exact percentiles
+     */
+    @Test
+    public void percentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(7);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * 20);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        LatencySnapshot snapshot = histogram.snapshot();
+
+        assertEquals(values.length, snapshot.getCount());
+        for (double percentile : new double[]{1, 50, 90, 99, 99.9, 100}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long measured = snapshot.getValueAtPercentile(percentile);
+            assertTrue(measured >= exact && measured <= exact + exact / 16 + 1,
+                    percentile + "th percentile: " + measured + " instead of " + exact);
+        }
+        assertEquals(snapshot.getValueAtPercentile(100), snapshot.getMax());
+        assertEquals(Arrays.stream(values).average().getAsDouble(), snapshot.getMean(), 1e-6);
+    }
+
+    /**
+     * Test an empty histogram and the values out of range
+     */
+    @Test
+    public void emptyAndOutOfRangeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.snapshot().getP99());
+        assertEquals(0, histogram.snapshot().getMean());
+
+        histogram.record(-5);
+        histogram.record(31);
+        histogram.record(Long.MAX_VALUE);
+        LatencySnapshot snapshot = histogram.snapshot();
+        assertEquals(3, snapshot.getCount());
+        assertEquals(0, snapshot.getValueAtPercentile(1));
+        assertEquals(31, snapshot.getP50());
+        assertTrue(snapshot.getMax() >= 1L << 39);
+    }
+}
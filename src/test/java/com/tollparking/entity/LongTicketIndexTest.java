@@ -0,0 +1,61 @@
+package com.tollparking.entity;
+
+import com.tollparking.enums.VehicleType;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the LongTicketIndex
+ * @link com.tollparking.entity.LongTicketIndex
+ */
+public class LongTicketIndexTest {
+
+    /**
+     * Test that random additions and removals, with many colliding ids, give the same result as a HashMap
+     */
+    @Test
+    public void randomOperationsMatchHashMap() {
+        LongTicketIndex index = new LongTicketIndex(4);
+        Map<Long, Ticket> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            long id = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(id), index.remove(id));
+            } else {
+                Ticket ticket = new Ticket(id, VehicleType.FUEL);
+                assertEquals(expected.putIfAbsent(id, ticket) == null, index.putIfAbsent(id, ticket));
+            }
+            assertEquals(expected.size(), index.size());
+        }
+        for (long id = 0; id < 5_000; id++) {
+            assertEquals(expected.get(id), index.get(id));
+        }
+        Map<Long, Ticket> iterated = new HashMap<>();
+        index.forEach(ticket -> iterated.put(ticket.getNumericId(), ticket));
+        assertEquals(expected, iterated);
+    }
+
+    /**
+     * Test that an index grows beyond its expected size and keeps its tickets
+     */
+    @Test
+    public void growBeyondExpectedSize() {
+        LongTicketIndex index = new LongTicketIndex(1);
+        for (long id = 0; id < 1_000; id++) {
+            assertTrue(index.putIfAbsent(id << 32, new Ticket(id << 32, VehicleType.FUEL)));
+        }
+        assertFalse(index.putIfAbsent(0, new Ticket(0, VehicleType.FUEL)));
+        assertEquals(1_000, index.size());
+        assertEquals(999L << 32, index.get(999L << 32).getNumericId());
+        assertNull(index.get(1_000L << 32));
+    }
+}
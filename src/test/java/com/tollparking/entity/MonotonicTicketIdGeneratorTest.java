@@ -0,0 +1,89 @@
+package com.tollparking.entity;
+
+import com.tollparking.enums.VehicleType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the MonotonicTicketIdGenerator
+ * @link com.tollparking.entity.MonotonicTicketIdGenerator
+ */
+public class MonotonicTicketIdGeneratorTest {
+
+    /**
+     * Test that the ids issued by a generator always increase, even above 4096 ids per millisecond
+     */
+    @Test
+    public void idsAlwaysIncrease() {
+        MonotonicTicketIdGenerator generator = new MonotonicTicketIdGenerator(3);
+        long previous = 0;
+        for (int i = 0; i < 100_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+    }
+
+    /**
+     * Test that the ids issued by several gates at the same time are unique
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void idsAreUniqueAcrossThreads() throws InterruptedException {
+        MonotonicTicketIdGenerator generator = new MonotonicTicketIdGenerator(0);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService gates = Executors.newFixedThreadPool(8);
+        for (int gate = 0; gate < 8; gate++) {
+            gates.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    ids.add(generator.nextId());
+                }
+            });
+        }
+        gates.shutdown();
+        assertTrue(gates.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(80_000, ids.size());
+    }
+
+    /**
+     * Test that the gate and the time can be read back from an id
+     */
+    @Test
+    public void decodeGateAndTimestamp() {
+        Instant before = Instant.now();
+        long id = new MonotonicTicketIdGenerator(1023).nextId();
+        assertEquals(1023, MonotonicTicketIdGenerator.gateOf(id));
+        Instant timestamp = MonotonicTicketIdGenerator.timestampOf(id);
+        assertTrue(Duration.between(before, timestamp).abs().toMillis() < 1000);
+    }
+
+    /**
+     * Test that the tickets issued have a numeric id
+     */
+    @Test
+    public void newTicketHasNumericId() {
+        Ticket ticket = new MonotonicTicketIdGenerator(7).newTicket(VehicleType.FUEL);
+        assertTrue(ticket.hasNumericId());
+        assertEquals(7, MonotonicTicketIdGenerator.gateOf(ticket.getNumericId()));
+    }
+
+    /**
+     * Test that a gate number out of range is refused
+     */
+    @Test
+    public void invalidGate() {
+        assertThrows(IllegalArgumentException.class, () -> new MonotonicTicketIdGenerator(-1));
+        assertThrows(IllegalArgumentException.class, () -> new MonotonicTicketIdGenerator(1024));
+    }
+}
@@ -0,0 +1,183 @@
+package com.tollparking.entity;
+
+import com.tollparking.enums.VehicleType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the OccupancyPublisher
+ * @link com.tollparking.entity.OccupancyPublisher
+ */
+public class OccupancyPublisherTest {
+
+    /**
+     * A subscriber recording its events and requesting them on demand
+     */
+    private static class RecordingSubscriber implements Flow.Subscriber<OccupancyEvent> {
+
+        /**
+         * The events received, as strings
+         */
+        final List<String> events = new ArrayList<>();
+
+        /**
+         * The error received, if any
+         */
+        Throwable error;
+
+        /**
+         * The subscription
+         */
+        Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(OccupancyEvent event) {
+            this.events.add(event.toString());
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            this.error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    /**
+     * Test that a subscriber not requesting events gets the latest occupancy of each changed type once it requests
+     * them, instead of every change it missed, and that it stops receiving events once cancelled
+     * @throws Exception if the parking cannot be created
+     */
+    @Test
+    public void coalesceChangesForSlowSubscriber() throws Exception {
+        Parking parking = new Parking(10, 5, 0);
+        OccupancyPublisher publisher = new OccupancyPublisher(parking, Runnable::run);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(3);
+        assertEquals(List.of("FUEL 0/10", "ELECTRIC_20KW 0/5", "ELECTRIC_50KW 0/0"), subscriber.events);
+
+        for (int i = 0; i < 7; i++) {
+            parking.parkVehicle(VehicleType.FUEL);
+            publisher.occupancyChanged(VehicleType.FUEL);
+        }
+        parking.parkVehicle(VehicleType.ELECTRIC_20KW);
+        publisher.occupancyChanged(VehicleType.ELECTRIC_20KW);
+        assertEquals(3, subscriber.events.size());
+
+        subscriber.subscription.request(1);
+        subscriber.subscription.request(5);
+        assertEquals(List.of("FUEL 7/10", "ELECTRIC_20KW 1/5"), subscriber.events.subList(3, 5));
+        publisher.occupancyChanged(VehicleType.FUEL);
+        assertEquals(5, subscriber.events.size());
+
+        subscriber.subscription.cancel();
+        parking.parkVehicle(VehicleType.FUEL);
+        publisher.occupancyChanged(VehicleType.FUEL);
+        assertEquals(5, subscriber.events.size());
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    /**
+     * Test that a request of no event is an error, and that a failing subscriber is cancelled
+     * @throws Exception if the parking cannot be created
+     */
+    @Test
+    public void cancelInvalidSubscribers() throws Exception {
+        Parking parking = new Parking(10, 0, 0);
+        OccupancyPublisher publisher = new OccupancyPublisher(parking, Runnable::run);
+        RecordingSubscriber invalid = new RecordingSubscriber();
+        publisher.subscribe(invalid);
+        invalid.subscription.request(0);
+        assertTrue(invalid.error instanceof IllegalArgumentException);
+
+        RecordingSubscriber failing = new RecordingSubscriber() {
+            @Override
+            public void onNext(OccupancyEvent event) {
+                throw new IllegalStateException("display unplugged");
+            }
+        };
+        publisher.subscribe(failing);
+        failing.subscription.request(Long.MAX_VALUE);
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    /**
+     * Test that the check-ins and check-outs of a parking are pushed to its subscribers, on the thread dedicated to
+     * the publishers by default
+     * @throws Exception if the parking cannot be created or the thread is interrupted
+     */
+    @Test
+    public void publishOccupancyOfParking() throws Exception {
+        Parking parking = new Parking(2, 0, 0);
+        BlockingQueue<OccupancyEvent> events = new LinkedBlockingQueue<>();
+        BlockingQueue<String> threads = new LinkedBlockingQueue<>();
+        parking.getOccupancyPublisher().subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(OccupancyEvent event) {
+                if (event.getVehicleType() == VehicleType.FUEL) {
+                    threads.add(Thread.currentThread().getName());
+                    events.add(event);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        assertEquals(2, events.poll(10, TimeUnit.SECONDS).getFreeSlots());
+
+        Ticket ticket = parking.parkVehicle(VehicleType.FUEL);
+        OccupancyEvent event = events.poll(10, TimeUnit.SECONDS);
+        assertNotNull(event);
+        assertEquals(1, event.getOccupancy());
+        parking.removeVehicle(ticket);
+        assertEquals(0, events.poll(10, TimeUnit.SECONDS).getOccupancy());
+        assertEquals(Set.of("parking-occupancy-publisher"), new HashSet<>(threads));
+    }
+
+    /**
+     * Test that the events are delivered on the executor set on the parking
+     * @throws Exception if the parking cannot be created
+     */
+    @Test
+    public void deliverOnExecutorOfParking() throws Exception {
+        Parking parking = new Parking(2, 0, 0);
+        parking.setOccupancyExecutor(Runnable::run);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        parking.getOccupancyPublisher().subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(List.of("FUEL 0/2", "ELECTRIC_20KW 0/0", "ELECTRIC_50KW 0/0"), subscriber.events);
+
+        parking.parkVehicle(VehicleType.FUEL);
+        assertEquals("FUEL 1/2", subscriber.events.get(3));
+    }
+}
@@ -0,0 +1,115 @@
+package com.tollparking.entity;
+
+import com.tollparking.enums.VehicleType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the OffHeapTicketStore
+ * @link com.tollparking.entity.OffHeapTicketStore
+ */
+public class OffHeapTicketStoreTest {
+
+    /**
+     * Test that random additions and removals of numeric, UUID and other string ids, growing the store beyond its
+     * expected size, give the same result as a HashMap
+     */
+    @Test
+    public void randomOperationsMatchHashMap() {
+        OffHeapTicketStore store = new OffHeapTicketStore(1);
+        Map<String, Ticket> expected = new HashMap<>();
+        Random random = new Random(42);
+        Instant startDate = Instant.parse("2020-10-03T10:00:00.123456789Z");
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(3_000);
+            Ticket ticket;
+            switch (key % 3) {
+                case 0:
+                    ticket = new Ticket((long) key << 40, VehicleType.ELECTRIC_20KW, startDate.plusSeconds(key));
+                    break;
+                case 1:
+                    ticket = new Ticket(new UUID(key, ~key).toString(), VehicleType.ELECTRIC_50KW);
+                    break;
+                default:
+                    ticket = new Ticket("ticket-" + key, VehicleType.FUEL, startDate);
+                    break;
+            }
+            String id = ticket.hasNumericId() ? Long.toString(ticket.getNumericId()) : ticket.getId();
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(id), store.remove(ticket));
+            } else {
+                ticket.setSlotNumber(key);
+                assertEquals(expected.putIfAbsent(id, ticket) == null, store.add(ticket));
+            }
+            assertEquals(expected.size(), store.size());
+        }
+        for (Ticket ticket : expected.values()) {
+            Ticket stored = ticket.hasNumericId() ? store.get(ticket.getNumericId()) : store.get(ticket.getId());
+            assertEquals(ticket, stored);
+            assertEquals(ticket.getVehicleType(), stored.getVehicleType());
+            assertEquals(ticket.getStartDate(), stored.getStartDate());
+            assertEquals(ticket.getSlotNumber(), stored.getSlotNumber());
+        }
+        Map<String, Ticket> iterated = new HashMap<>();
+        store.forEach(ticket -> iterated.put(ticket.hasNumericId() ? Long.toString(ticket.getNumericId())
+                : ticket.getId(), ticket));
+        assertEquals(expected, iterated);
+    }
+
+    /**
+     * Test that the ids are found whatever the way they are written, and that uppercase UUIDs are kept apart
+     */
+    @Test
+    public void findIdsWrittenAsStrings() {
+        OffHeapTicketStore store = new OffHeapTicketStore(10);
+        String uuid = UUID.randomUUID().toString();
+        assertTrue(store.add(new Ticket(uuid, VehicleType.FUEL)));
+        assertTrue(store.add(new Ticket(uuid.toUpperCase(), VehicleType.FUEL)));
+        assertTrue(store.add(new Ticket(-7L, VehicleType.FUEL)));
+        assertFalse(store.add(new Ticket(-7L, VehicleType.ELECTRIC_20KW)));
+
+        assertEquals(-7L, store.get("-7").getNumericId());
+        assertEquals(uuid, store.get(uuid).getId());
+        assertEquals(uuid.toUpperCase(), store.remove(uuid.toUpperCase()).getId());
+        assertNull(store.get(uuid.toUpperCase()));
+        assertNotNull(store.remove("-7"));
+        assertNull(store.get(-7L));
+        assertEquals(1, store.size());
+    }
+
+    /**
+     * Test that a parking checks vehicles in and out with its tickets off the heap, and that its store cannot be
+     * changed while vehicles are parked
+     * @throws Exception if the parking cannot be created or a ticket is not found
+     */
+    @Test
+    public void parkWithTicketsOffHeap() throws Exception {
+        Parking parking = new Parking(2, 1, 0);
+        parking.setTicketStore(new OffHeapTicketStore(3));
+        Ticket fuel = parking.parkVehicle(VehicleType.FUEL);
+        Ticket electric = parking.parkVehicle(VehicleType.ELECTRIC_20KW);
+        assertEquals(fuel.getSlotNumber(), parking.findTicket(fuel.getNumericId()).getSlotNumber());
+        assertEquals(2, parking.getOpenTickets().size());
+        assertThrows(IllegalStateException.class, () -> parking.setTicketStore(new HeapTicketStore(3)));
+
+        Ticket billed = parking.removeVehicle(new Ticket(fuel.getNumericId(), VehicleType.FUEL, fuel.getStartDate()));
+        assertEquals(fuel.getSlotNumber(), billed.getSlotNumber());
+        assertNotNull(billed.getAmount());
+        assertEquals(List.of(electric), parking.getOpenTickets());
+        assertTrue(parking.tryRemoveVehicle(Long.toString(electric.getNumericId())).isSuccess());
+        parking.setTicketStore(new HeapTicketStore(3));
+    }
+}
@@ -0,0 +1,92 @@
+package com.tollparking.entity;
+
+import com.tollparking.enums.VehicleType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the ParkingEngine
+ * @link com.tollparking.entity.ParkingEngine
+ */
+public class ParkingEngineTest {
+
+    /**
+     * Test that check-ins and check-outs are applied in order for a single gate, and that the refusals are reported
+     * @throws Exception if the parking cannot be created
+     */
+    @Test
+    public void applyCommandsOfAGate() throws Exception {
+        Parking parking = new Parking(1, 0, 0);
+        try (ParkingEngine engine = ParkingEngine.start(parking, 4)) {
+            ParkingResult parked = engine.parkVehicle(VehicleType.FUEL).join();
+            assertEquals(ParkingResult.Status.PARKED, parked.getStatus());
+            assertSame(ParkingResult.NO_SPACE_AVAILABLE, engine.parkVehicle(VehicleType.FUEL).join());
+            assertSame(ParkingResult.INVALID_VEHICLE_TYPE, engine.parkVehicle(null).join());
+
+            ParkingResult removed = engine.removeVehicle(parked.getTicket()).join();
+            assertEquals(ParkingResult.Status.REMOVED, removed.getStatus());
+            assertTrue(removed.getTicket().getAmount() != null);
+            assertSame(ParkingResult.TICKET_NOT_FOUND, engine.removeVehicle(parked.getTicket()).join());
+            assertEquals(0, parking.getOccupancy(VehicleType.FUEL));
+        }
+    }
+
+    /**
+     * Test that many gates and chained callbacks publishing into a small ring have all their commands applied, and
+     * that the commands published after the engine is closed fail
+     * @throws Exception if the parking cannot be created or a thread is interrupted
+     */
+    @Test
+    public void applyCommandsOfManyGates() throws Exception {
+        Parking parking = new Parking(50, 0, 0);
+        ParkingEngine engine = ParkingEngine.start(parking, 8);
+        AtomicInteger removedCount = new AtomicInteger();
+        List<Thread> gates = new ArrayList<>();
+        for (int gate = 0; gate < 8; gate++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    ParkingResult parked = engine.parkVehicle(VehicleType.FUEL).join();
+                    if (parked.isSuccess() && engine.removeVehicle(parked.getTicket()).join().isSuccess()) {
+                        removedCount.incrementAndGet();
+                    }
+                }
+            });
+            gates.add(thread);
+            thread.start();
+        }
+        for (Thread thread : gates) {
+            thread.join();
+        }
+        List<CompletableFuture<ParkingResult>> chained = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            chained.add(engine.parkVehicle(VehicleType.FUEL)
+                    .thenCompose(parked -> engine.removeVehicle(parked.getTicket())));
+        }
+        for (CompletableFuture<ParkingResult> removal : chained) {
+            assertEquals(ParkingResult.Status.REMOVED, removal.join().getStatus());
+        }
+        CompletableFuture<ParkingResult> last = engine.parkVehicle(VehicleType.FUEL);
+        engine.close();
+        engine.close();
+
+        assertEquals(ParkingResult.Status.PARKED, last.join().getStatus());
+        assertEquals(16_000, removedCount.get());
+        assertEquals(1, parking.getOccupancy(VehicleType.FUEL));
+        assertTrue(engine.getBatchCount() <= engine.getCommandCount());
+        assertEquals(32_081, engine.getCommandCount());
+        CompletionException closed = assertThrows(CompletionException.class,
+                () -> engine.parkVehicle(VehicleType.FUEL).join());
+        assertTrue(closed.getCause() instanceof IllegalStateException);
+        assertThrows(IllegalArgumentException.class, () -> ParkingEngine.start(parking, 3));
+    }
+}
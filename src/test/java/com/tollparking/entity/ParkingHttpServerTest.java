@@ -0,0 +1,117 @@
+package com.tollparking.entity;
+
+import com.tollparking.enums.VehicleType;
+import com.tollparking.http.ParkingHttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the ParkingHttpServer
+ * @link com.tollparking.http.ParkingHttpServer
+ */
+public class ParkingHttpServerTest {
+
+    /**
+     * The served parking
+     */
+    private Parking parking;
+
+    /**
+     * The server
+     */
+    private ParkingHttpServer server;
+
+    /**
+     * The client of the tests
+     */
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    /**
+     * Starts a server on a free port
+     * @throws Exception if the server cannot be started
+     */
+    @BeforeEach
+    public void startServer() throws Exception {
+        this.parking = new Parking(1, 1, 0);
+        this.server = new ParkingHttpServer(this.parking, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        this.server.start();
+    }
+
+    /**
+     * Stops the server
+     */
+    @AfterEach
+    public void stopServer() {
+        this.server.close();
+    }
+
+    /**
+     * Test that a vehicle is parked, found and removed through the HTTP API
+     * @throws Exception if a request fails
+     */
+    @Test
+    public void parkFindAndRemoveVehicle() throws Exception {
+        HttpResponse<String> parked = send("POST", "/tickets?type=FUEL");
+        assertEquals(201, parked.statusCode());
+        Ticket ticket = this.parking.getOpenTickets().get(0);
+        assertTrue(parked.body().startsWith("{\"id\":\"" + ticket.getId() + "\",\"vehicleType\":\"FUEL\",\"slot\":0,"));
+        assertEquals(409, send("POST", "/tickets?type=FUEL").statusCode());
+
+        HttpResponse<String> found = send("GET", "/tickets/" + ticket.getId());
+        assertEquals(200, found.statusCode());
+        assertTrue(found.body().endsWith("\"endDate\":null,\"amount\":null}"));
+        assertEquals(404, send("DELETE", "/tickets0" + ticket.getId()).statusCode());
+        assertEquals(404, send("GET", "/tickets0" + ticket.getId()).statusCode());
+
+        HttpResponse<String> removed = send("DELETE", "/tickets/" + ticket.getId());
+        assertEquals(200, removed.statusCode());
+        assertTrue(removed.body().endsWith("\"amount\":0.00}"));
+        assertEquals(404, send("DELETE", "/tickets/" + ticket.getId()).statusCode());
+        assertEquals(404, send("GET", "/tickets/" + ticket.getId()).statusCode());
+    }
+
+    /**
+     * Test the occupancy of each vehicle type and the rejected requests
+     * @throws Exception if a request fails
+     */
+    @Test
+    public void occupancyAndBadRequests() throws Exception {
+        this.parking.parkVehicle(VehicleType.ELECTRIC_20KW);
+        HttpResponse<String> occupancy = send("GET", "/occupancy");
+        assertEquals(200, occupancy.statusCode());
+        assertEquals("{\"FUEL\":{\"capacity\":1,\"occupancy\":0},\"ELECTRIC_20KW\":{\"capacity\":1,\"occupancy\":1},"
+                + "\"ELECTRIC_50KW\":{\"capacity\":0,\"occupancy\":0}}", occupancy.body());
+
+        assertEquals(400, send("POST", "/tickets?type=BICYCLE").statusCode());
+        assertEquals(400, send("POST", "/tickets").statusCode());
+        assertEquals(405, send("GET", "/tickets").statusCode());
+        assertEquals(405, send("PUT", "/tickets/1").statusCode());
+        assertEquals(405, send("POST", "/occupancy").statusCode());
+        assertEquals(404, send("GET", "/occupancy0").statusCode());
+    }
+
+    /**
+     * Sends a request to the server
+     * @param method the HTTP method
+     * @param path the path and query of the request
+     * @return the response
+     * @throws Exception if the request fails
+     */
+    private HttpResponse<String> send(String method, String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + this.server.getPort() + path))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        return this.client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,314 @@
+package com.tollparking.entity;
+
+import com.tollparking.enums.VehicleType;
+import com.tollparking.exception.InvalidCapacityException;
+import com.tollparking.exception.TicketNotFoundException;
+import com.tollparking.journal.ParkingJournal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the ParkingJournal
+ * @link com.tollparking.journal.ParkingJournal
+ */
+public class ParkingJournalTest {
+
+    /**
+     * Test that the open tickets and the slot capacities are restored after a restart
+     * @param directory a temporary directory
+     * @throws Exception if the parking cannot be created or the journal cannot be written
+     */
+    @Test
+    public void restoreOpenTicketsAfterRestart(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("journal");
+        Parking parking = new Parking(2, 1, 0);
+        ParkingJournal journal = ParkingJournal.open(file, parking);
+        Ticket fuel1 = parking.parkVehicle(VehicleType.FUEL);
+        Ticket fuel2 = parking.parkVehicle(VehicleType.FUEL);
+        Ticket electric = parking.parkVehicle(VehicleType.ELECTRIC_20KW);
+        parking.removeVehicle(fuel1);
+        journal.close();
+
+        Parking restarted = new Parking(2, 1, 0);
+        ParkingJournal.open(file, restarted).close();
+        assertNull(restarted.parkVehicle(VehicleType.ELECTRIC_20KW));
+        assertNotNull(restarted.parkVehicle(VehicleType.FUEL));
+        assertNull(restarted.parkVehicle(VehicleType.FUEL));
+
+        List<Ticket> openTickets = ParkingJournal.readOpenTickets(file);
+        assertEquals(2, openTickets.size());
+        assertEquals(fuel2.getStartDate(), openTickets.get(0).getStartDate());
+        assertEquals(fuel2.getSlotNumber(), openTickets.get(0).getSlotNumber());
+        assertEquals(electric.getStartDate(), openTickets.get(1).getStartDate());
+        assertTrue(restarted.isSlotOccupied(VehicleType.FUEL, fuel2.getSlotNumber()));
+        assertTrue(restarted.isSlotOccupied(VehicleType.ELECTRIC_20KW, electric.getSlotNumber()));
+        assertNotNull(restarted.removeVehicle(openTickets.get(1)));
+    }
+
+    /**
+     * Test that a record partially written when the JVM stopped is discarded and that the journal can be appended to
+     * @param directory a temporary directory
+     * @throws Exception if the parking cannot be created or the journal cannot be written
+     */
+    @Test
+    public void discardPartiallyWrittenRecord(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("journal");
+        Parking parking = new Parking(10, 0, 0);
+        ParkingJournal journal = ParkingJournal.open(file, parking);
+        Ticket ticket = parking.parkVehicle(VehicleType.FUEL);
+        journal.close();
+        Files.write(file.resolve("journal-0000000000000000000.log"), new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        Parking restarted = new Parking(10, 0, 0);
+        journal = ParkingJournal.open(file, restarted);
+        Ticket other = restarted.parkVehicle(VehicleType.FUEL);
+        journal.close();
+
+        List<Ticket> openTickets = ParkingJournal.readOpenTickets(file);
+        assertEquals(2, openTickets.size());
+        assertEquals(ticket.getId(), openTickets.get(0).getId());
+        assertEquals(other.getId(), openTickets.get(1).getId());
+    }
+
+    /**
+     * Test that the records of gates writing at the same time are all forced on disk
+     * @param directory a temporary directory
+     * @throws Exception if the parking cannot be created or the journal cannot be written
+     */
+    @Test
+    public void journalConcurrentGates(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("journal");
+        Parking parking = new Parking(10_000, 0, 0);
+        ParkingJournal journal = ParkingJournal.open(file, parking);
+        ExecutorService gates = Executors.newFixedThreadPool(8);
+        for (int gate = 0; gate < 8; gate++) {
+            gates.execute(() -> {
+                for (int i = 0; i < 200; i++) {
+                    Ticket ticket = parking.parkVehicle(VehicleType.FUEL);
+                    if (i % 2 == 0) {
+                        try {
+                            parking.removeVehicle(ticket);
+                        } catch (TicketNotFoundException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                }
+            });
+        }
+        gates.shutdown();
+        assertTrue(gates.awaitTermination(30, TimeUnit.SECONDS));
+        journal.close();
+
+        assertEquals(800, ParkingJournal.readOpenTickets(file).size());
+    }
+
+    /**
+     * Test that the check-ins and check-outs of a batch are journaled
+     * @param directory a temporary directory
+     * @throws Exception if the parking cannot be created or the journal cannot be written
+     */
+    @Test
+    public void journalBatches(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("journal");
+        Parking parking = new Parking(3, 1, 0);
+        ParkingJournal journal = ParkingJournal.open(file, parking);
+        List<Ticket> parked = parking.parkVehicles(java.util.Arrays.asList(VehicleType.FUEL, VehicleType.FUEL,
+                VehicleType.ELECTRIC_20KW, VehicleType.FUEL));
+        parking.removeVehicles(parked.subList(0, 2));
+        journal.close();
+
+        List<Ticket> openTickets = ParkingJournal.readOpenTickets(file);
+        assertEquals(2, openTickets.size());
+        assertEquals(parked.get(2).getId(), openTickets.get(0).getId());
+        assertEquals(parked.get(3).getId(), openTickets.get(1).getId());
+        assertEquals(parked.get(3).getSlotNumber(), openTickets.get(1).getSlotNumber());
+    }
+
+    /**
+     * Test that a ticket is not issued when its record cannot be journaled
+     * @param directory a temporary directory
+     * @throws InvalidCapacityException if the capacity is negative
+     * @throws IOException if the journal cannot be opened
+     */
+    @Test
+    public void parkVehicleWithClosedJournal(@TempDir Path directory) throws InvalidCapacityException, IOException {
+        Parking parking = new Parking(1, 0, 0);
+        ParkingJournal journal = ParkingJournal.open(directory.resolve("journal"), parking);
+        ParkingListener failingListener = new ParkingListener() {
+            @Override
+            public void vehicleParked(Ticket ticket) {
+                journal.vehicleParked(ticket);
+            }
+        };
+        journal.close();
+        parking.addListener(failingListener);
+        assertThrows(UncheckedIOException.class, () -> parking.parkVehicle(VehicleType.FUEL));
+
+        parking.removeListener(failingListener);
+        assertNotNull(parking.parkVehicle(VehicleType.FUEL));
+    }
+
+    /**
+     * Test that a snapshot replaces the previous segments and that only the events after it are replayed
+     * @param directory a temporary directory
+     * @throws Exception if the parking cannot be created or the journal cannot be written
+     */
+    @Test
+    public void snapshotTruncatesJournal(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("journal");
+        Parking parking = new Parking(5, 0, 0);
+        ParkingJournal journal = ParkingJournal.open(file, parking);
+        Ticket first = parking.parkVehicle(VehicleType.FUEL);
+        for (int i = 0; i < 4; i++) {
+            parking.parkVehicle(VehicleType.FUEL);
+        }
+        parking.removeVehicle(first);
+        journal.snapshot();
+        Ticket last = parking.parkVehicle(VehicleType.FUEL);
+        parking.removeVehicle(last);
+        journal.close();
+
+        assertEquals(java.util.Arrays.asList("journal-0000000000000000001.log", "snapshot-0000000000000000001.bin"),
+                Files.list(file).map(path -> path.getFileName().toString()).sorted().collect(Collectors.toList()));
+
+        Parking restarted = new Parking(5, 0, 0);
+        ParkingJournal.open(file, restarted).close();
+        assertEquals(4, restarted.getOccupancy(VehicleType.FUEL));
+        assertNotNull(restarted.parkVehicle(VehicleType.FUEL));
+        assertNull(restarted.parkVehicle(VehicleType.FUEL));
+    }
+
+    /**
+     * Test that a snapshot holds only the events on disk, not the tickets of the parking whose records are not
+     * journaled yet
+     * @param directory a temporary directory
+     * @throws Exception if the parking cannot be created or the journal cannot be written
+     */
+    @Test
+    public void snapshotOnlyDurableEvents(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("journal");
+        Parking parking = new Parking(5, 0, 0);
+        ParkingJournal journal = ParkingJournal.open(file, parking);
+        Ticket journaled = parking.parkVehicle(VehicleType.FUEL);
+        Ticket leaving = parking.parkVehicle(VehicleType.FUEL);
+        parking.removeListener(journal);
+        parking.parkVehicle(VehicleType.FUEL);
+        parking.removeVehicle(leaving);
+        journal.snapshot();
+        journal.close();
+
+        Set<String> restored = ParkingJournal.readOpenTickets(file).stream().map(Ticket::getId)
+                .collect(Collectors.toSet());
+        assertEquals(Set.of(journaled.getId(), leaving.getId()), restored);
+    }
+
+    /**
+     * Test that snapshots taken while gates check vehicles in and out restore exactly the open tickets
+     * @param directory a temporary directory
+     * @throws Exception if the parking cannot be created or the journal cannot be written
+     */
+    @Test
+    public void snapshotWhileGatesRun(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("journal");
+        Parking parking = new Parking(100_000, 0, 0);
+        ParkingJournal journal = ParkingJournal.open(file, parking);
+        journal.startSnapshots(1, TimeUnit.MILLISECONDS);
+        ExecutorService gates = Executors.newFixedThreadPool(4);
+        for (int gate = 0; gate < 4; gate++) {
+            gates.execute(() -> {
+                for (int i = 0; i < 500; i++) {
+                    Ticket ticket = parking.parkVehicle(VehicleType.FUEL);
+                    if (i % 3 == 0) {
+                        try {
+                            parking.removeVehicle(ticket);
+                        } catch (TicketNotFoundException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                }
+            });
+        }
+        gates.shutdown();
+        assertTrue(gates.awaitTermination(30, TimeUnit.SECONDS));
+        journal.close();
+
+        Set<String> expected = parking.getOpenTickets().stream()
+                .map(ticket -> ticket.getId() + "@" + ticket.getSlotNumber()).collect(Collectors.toSet());
+        Set<String> restored = ParkingJournal.readOpenTickets(file).stream()
+                .map(ticket -> ticket.getId() + "@" + ticket.getSlotNumber()).collect(Collectors.toSet());
+        assertEquals(expected, restored);
+    }
+
+    /**
+     * Test that the capacities changed at runtime are restored after a restart, the slots moved while occupied being
+     * converted once their vehicle leaves
+     * @param directory a temporary directory
+     * @throws Exception if the parking cannot be created or the journal cannot be written
+     */
+    @Test
+    public void restoreCapacityChanges(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("journal");
+        Parking parking = new Parking(3, 2, 0);
+        ParkingJournal journal = ParkingJournal.open(file, parking);
+        Ticket fuel = parking.parkVehicle(VehicleType.FUEL);
+        parking.parkVehicle(VehicleType.FUEL);
+        parking.parkVehicle(VehicleType.FUEL);
+        parking.setCapacity(VehicleType.ELECTRIC_20KW, 1);
+        parking.moveCapacity(VehicleType.FUEL, VehicleType.ELECTRIC_50KW, 1);
+        journal.close();
+
+        Parking restarted = new Parking(3, 2, 0);
+        ParkingJournal.open(file, restarted).close();
+        assertEquals(1, restarted.getCapacity(VehicleType.ELECTRIC_20KW));
+        assertEquals(3, restarted.getCapacity(VehicleType.FUEL));
+        assertEquals(1, restarted.getPendingShrink(VehicleType.FUEL));
+        assertEquals(2, restarted.getTargetCapacity(VehicleType.FUEL));
+        assertEquals(1, restarted.getTargetCapacity(VehicleType.ELECTRIC_50KW));
+
+        restarted.removeVehicle(ParkingJournal.readOpenTickets(file).stream()
+                .filter(ticket -> ticket.getId().equals(fuel.getId())).findFirst().get());
+        assertEquals(2, restarted.getCapacity(VehicleType.FUEL));
+        assertEquals(1, restarted.getCapacity(VehicleType.ELECTRIC_50KW));
+    }
+
+    /**
+     * Test that the capacities of a snapshot are restored
+     * @param directory a temporary directory
+     * @throws Exception if the parking cannot be created or the journal cannot be written
+     */
+    @Test
+    public void restoreCapacitiesFromSnapshot(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("journal");
+        Parking parking = new Parking(5, 1, 0);
+        ParkingJournal journal = ParkingJournal.open(file, parking);
+        parking.parkVehicle(VehicleType.FUEL);
+        parking.setCapacity(VehicleType.FUEL, 8);
+        parking.setCapacity(VehicleType.ELECTRIC_20KW, 3);
+        journal.snapshot();
+        journal.close();
+
+        Parking restarted = new Parking(5, 1, 0);
+        ParkingJournal.open(file, restarted).close();
+        assertEquals(8, restarted.getCapacity(VehicleType.FUEL));
+        assertEquals(3, restarted.getCapacity(VehicleType.ELECTRIC_20KW));
+        assertEquals(1, restarted.getOccupancy(VehicleType.FUEL));
+    }
+}
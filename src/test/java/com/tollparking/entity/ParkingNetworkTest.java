@@ -0,0 +1,190 @@
+package com.tollparking.entity;
+
+import com.tollparking.enums.VehicleType;
+import com.tollparking.exception.InvalidCapacityException;
+import com.tollparking.exception.TicketNotFoundException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ParkingNetworkTest tests the routing of the vehicles between the lots of a network
+ * @link ParkingNetwork.class
+ */
+public class ParkingNetworkTest {
+
+    /**
+     * Creates lots with the same capacities
+     * @param count the number of lots
+     * @param fuelCapacity the number of FUEL slots of each lot
+     * @return the lots
+     * @throws InvalidCapacityException if the capacity is negative
+     */
+    private static List<Parking> lots(int count, int fuelCapacity) throws InvalidCapacityException {
+        List<Parking> lots = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            lots.add(new Parking(fuelCapacity, 1, 0));
+        }
+        return lots;
+    }
+
+    /**
+     * Tests the creation of a network without lots or with too many lots - should throw IllegalArgumentException
+     * @throws InvalidCapacityException if the capacity is negative
+     */
+    @Test
+    public void createNetworkWithInvalidLotCount() throws InvalidCapacityException {
+        assertThrows(IllegalArgumentException.class, () -> new ParkingNetwork(Collections.emptyList()));
+        assertThrows(IllegalArgumentException.class, () -> new ParkingNetwork(lots(ParkingNetwork.MAX_LOTS + 1, 1)));
+    }
+
+    /**
+     * Tests that the vehicles go to the preferred lot, then to the next lots once it is full, and are refused once
+     * every lot is full
+     * @throws InvalidCapacityException if the capacity is negative
+     */
+    @Test
+    public void routeCheckInToLotWithFreeSlot() throws InvalidCapacityException {
+        ParkingNetwork network = new ParkingNetwork(lots(3, 2));
+        assertEquals(3, network.getFreeLotCount(VehicleType.FUEL));
+        assertEquals(0, network.getFreeLotCount(VehicleType.ELECTRIC_50KW));
+
+        int[] expectedLots = {1, 1, 2, 2, 0, 0};
+        for (int expectedLot : expectedLots) {
+            ParkingResult result = network.tryParkVehicle(1, VehicleType.FUEL);
+            assertEquals(ParkingResult.Status.PARKED, result.getStatus());
+            assertEquals(expectedLot, network.findLot(result.getTicket().getNumericId()));
+        }
+        assertEquals(0, network.getFreeLotCount(VehicleType.FUEL));
+        assertEquals(6, network.getOccupancy(VehicleType.FUEL));
+        assertEquals(6, network.getCapacity(VehicleType.FUEL));
+
+        assertEquals(ParkingResult.Status.NO_SPACE_AVAILABLE, network.tryParkVehicle(1, VehicleType.FUEL).getStatus());
+        assertEquals(1, network.getLot(1).getMetrics().snapshot().getRejectedCount(VehicleType.FUEL));
+        assertNull(network.parkVehicle(VehicleType.ELECTRIC_50KW));
+        assertEquals(ParkingResult.Status.INVALID_VEHICLE_TYPE, network.tryParkVehicle(null).getStatus());
+        assertThrows(IndexOutOfBoundsException.class, () -> network.tryParkVehicle(3, VehicleType.FUEL));
+    }
+
+    /**
+     * Tests that a check-out is sent to the lot of the ticket, which is marked as having a free slot again
+     * @throws InvalidCapacityException if the capacity is negative
+     * @throws TicketNotFoundException if the ticket cannot be found
+     */
+    @Test
+    public void routeCheckOutToLotOfTicket() throws InvalidCapacityException, TicketNotFoundException {
+        ParkingNetwork network = new ParkingNetwork(lots(3, 1));
+        Ticket first = network.tryParkVehicle(0, VehicleType.FUEL).getTicket();
+        Ticket second = network.tryParkVehicle(0, VehicleType.FUEL).getTicket();
+        Ticket third = network.tryParkVehicle(0, VehicleType.FUEL).getTicket();
+        assertEquals(0, network.getFreeLotCount(VehicleType.FUEL));
+
+        assertSame(second, network.removeVehicle(second.getNumericId()));
+        assertEquals(0, network.getLot(1).getOccupancy(VehicleType.FUEL));
+        assertEquals(1, network.getFreeLotCount(VehicleType.FUEL));
+        assertEquals(1, network.findLot(network.parkVehicle(VehicleType.FUEL).getNumericId()));
+
+        assertSame(third, network.tryRemoveVehicle(third.getId()).getTicket());
+        assertSame(first, network.removeVehicle(first));
+        assertEquals(2, network.getFreeLotCount(VehicleType.FUEL));
+
+        assertEquals(ParkingResult.Status.TICKET_NOT_FOUND, network.tryRemoveVehicle(first).getStatus());
+        assertEquals(ParkingResult.Status.TICKET_NOT_FOUND, network.tryRemoveVehicle("not a ticket").getStatus());
+        assertEquals(ParkingResult.Status.TICKET_NOT_FOUND,
+                network.tryRemoveVehicle(new Ticket("uuid", VehicleType.FUEL)).getStatus());
+        assertEquals(-1, network.findLot(new MonotonicTicketIdGenerator(5).nextId()));
+        assertThrows(TicketNotFoundException.class, () -> network.removeVehicle(first.getNumericId()));
+    }
+
+    /**
+     * Tests that a lot gaining room outside the network, by a change of capacity or a reservation hold given back, is
+     * found again instead of refusing the vehicles
+     * @throws InvalidCapacityException if the capacity is negative
+     */
+    @Test
+    public void findRoomGainedOutsideNetwork() throws InvalidCapacityException {
+        ParkingNetwork network = new ParkingNetwork(lots(2, 1));
+        network.getLot(1).holdBack(VehicleType.FUEL, 1);
+        assertEquals(0, network.findLot(network.tryParkVehicle(1, VehicleType.FUEL).getTicket().getNumericId()));
+        assertEquals(ParkingResult.Status.NO_SPACE_AVAILABLE, network.tryParkVehicle(1, VehicleType.FUEL).getStatus());
+        assertEquals(0, network.getFreeLotCount(VehicleType.FUEL));
+
+        network.getLot(1).holdBack(VehicleType.FUEL, -1);
+        assertEquals(1, network.findLot(network.tryParkVehicle(0, VehicleType.FUEL).getTicket().getNumericId()));
+        assertEquals(ParkingResult.Status.NO_SPACE_AVAILABLE, network.tryParkVehicle(0, VehicleType.FUEL).getStatus());
+
+        network.getLot(0).setCapacity(VehicleType.FUEL, 2);
+        assertEquals(0, network.findLot(network.tryParkVehicle(1, VehicleType.FUEL).getTicket().getNumericId()));
+        assertEquals(0, network.getFreeLotCount(VehicleType.FUEL));
+    }
+
+    /**
+     * Tests concurrent check-ins and check-outs from several threads: no slot is lost or taken twice, and the free
+     * lots match the occupancy of the lots once the threads are done
+     * @throws InvalidCapacityException if the capacity is negative
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void parkAndRemoveConcurrently() throws InvalidCapacityException, InterruptedException {
+        ParkingNetwork network = new ParkingNetwork(lots(70, 2));
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger parked = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    List<Ticket> tickets = new ArrayList<>();
+                    for (int i = 0; i < 5000; i++) {
+                        Ticket ticket = network.tryParkVehicle((thread * 9 + i) % 70, VehicleType.FUEL).getTicket();
+                        if (ticket != null) {
+                            tickets.add(ticket);
+                        }
+                        if (tickets.size() > 20 || (ticket == null && !tickets.isEmpty())) {
+                            if (!network.tryRemoveVehicle(tickets.remove(0).getNumericId()).isSuccess()) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    }
+                    parked.addAndGet(tickets.size());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(0, errors.get());
+        assertEquals(parked.get(), network.getOccupancy(VehicleType.FUEL));
+        int freeLots = 0;
+        for (int lot = 0; lot < network.getLotCount(); lot++) {
+            if (network.getLot(lot).getOccupancy(VehicleType.FUEL) < 2) {
+                freeLots++;
+            }
+        }
+        assertEquals(freeLots, network.getFreeLotCount(VehicleType.FUEL));
+        for (int i = parked.get(); i < network.getCapacity(VehicleType.FUEL); i++) {
+            assertNotNull(network.parkVehicle(VehicleType.FUEL));
+        }
+        assertEquals(0, network.getFreeLotCount(VehicleType.FUEL));
+    }
+}
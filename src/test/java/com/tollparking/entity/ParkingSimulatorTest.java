@@ -0,0 +1,134 @@
+package com.tollparking.entity;
+
+import com.tollparking.billing.PricingPerHourPolicy;
+import com.tollparking.enums.VehicleType;
+import com.tollparking.simulation.ParkingSimulator;
+import com.tollparking.simulation.SimulationReport;
+import com.tollparking.simulation.TrafficTrace;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the replay of traffic traces in virtual time
+ */
+public class ParkingSimulatorTest {
+
+    /**
+     * The date of the first arrival of the traces
+     */
+    private static final Instant START = Instant.parse("2020-10-03T08:00:00Z");
+
+    /**
+     * Tests the replay of a recorded trace: occupancy, refusals, slots freed before being taken again, and revenue
+     * @throws Exception if the simulation fails
+     */
+    @Test
+    public void replayRecordedTrace() throws Exception {
+        Parking parking = new Parking(2, 1, 0, new PricingPerHourPolicy(new BigDecimal(2)));
+        Clock systemClock = parking.getClock();
+        TrafficTrace trace = TrafficTrace.read(new StringReader(
+                "# arrival,vehicle type,stay in milliseconds\n"
+                        + "2020-10-03T08:00:00Z,FUEL,3600000\n"
+                        + "2020-10-03T08:10:00Z,FUEL,1800000\n"
+                        + "2020-10-03T08:20:00Z,FUEL,600000\n"
+                        + "2020-10-03T08:30:00Z,ELECTRIC_20KW,5400000\n"
+                        + "2020-10-03T08:40:00Z,FUEL,1200000\n"));
+
+        SimulationReport report = new ParkingSimulator(parking, Duration.ofMinutes(30)).run(trace);
+
+        // the vehicle arriving at 08:20 is refused; the one arriving at 08:40 takes the slot freed at 08:40
+        assertEquals(4, report.getParkedCount());
+        assertEquals(1, report.getRejectedCount(VehicleType.FUEL));
+        assertEquals(4, report.getRemovedCount());
+        assertEquals(2, report.getPeakOccupancy(VehicleType.FUEL));
+        assertEquals(1, report.getPeakOccupancy(VehicleType.ELECTRIC_20KW));
+        // 60 + 30 + 90 + 20 minutes at 2 per hour
+        assertEquals(667, report.getRevenueInCents());
+        assertEquals(9, report.getEventCount());
+
+        // samples at 08:00, 08:30, 09:00, 09:30 and 10:00, each taken before the events of its date
+        assertEquals(5, report.getSampleCount());
+        assertEquals(Instant.parse("2020-10-03T09:30:00Z"), report.getSampleDate(3));
+        assertArrayEquals(new int[] {0, 2, 2, 0, 0}, report.getOccupancyCurve(VehicleType.FUEL));
+        assertArrayEquals(new int[] {0, 0, 1, 1, 1}, report.getOccupancyCurve(VehicleType.ELECTRIC_20KW));
+
+        assertEquals(0, parking.getOccupancy(VehicleType.FUEL));
+        assertSame(systemClock, parking.getClock());
+    }
+
+    /**
+     * Tests that a generated trace is reproducible, written and read back identically, and replayed completely
+     * @throws Exception if the simulation fails
+     */
+    @Test
+    public void replayGeneratedTrace() throws Exception {
+        Map<VehicleType, Double> mix = new EnumMap<>(VehicleType.class);
+        mix.put(VehicleType.FUEL, 0.8);
+        mix.put(VehicleType.ELECTRIC_50KW, 0.2);
+        double[] arrivalsPerHour = new double[24];
+        arrivalsPerHour[8] = 600;
+        arrivalsPerHour[9] = 200;
+        TrafficTrace trace = TrafficTrace.generate(START, Duration.ofDays(1), arrivalsPerHour, mix,
+                Duration.ofHours(2), 42);
+        TrafficTrace sameTrace = TrafficTrace.generate(START, Duration.ofDays(1), arrivalsPerHour, mix,
+                Duration.ofHours(2), 42);
+        assertTrue(trace.size() > 600 && trace.size() < 1000);
+        assertEquals(sameTrace.size(), trace.size());
+
+        StringWriter csv = new StringWriter();
+        trace.write(csv);
+        TrafficTrace readTrace = TrafficTrace.read(new StringReader(csv.toString()));
+        assertEquals(trace.size(), readTrace.size());
+        for (int i = 0; i < trace.size(); i++) {
+            assertTrue(trace.getArrivalMillis(i) >= START.toEpochMilli());
+            assertTrue(trace.getArrivalMillis(i) < START.plus(Duration.ofHours(2)).toEpochMilli());
+            assertEquals(sameTrace.getArrivalMillis(i), trace.getArrivalMillis(i));
+            assertEquals(trace.getArrivalMillis(i), readTrace.getArrivalMillis(i));
+            assertEquals(trace.getVehicleType(i), readTrace.getVehicleType(i));
+            assertEquals(trace.getStayMillis(i), readTrace.getStayMillis(i));
+        }
+
+        Parking parking = new Parking(500, 0, 50);
+        SimulationReport report = new ParkingSimulator(parking, Duration.ofMinutes(15)).run(trace);
+        assertEquals(trace.size(), report.getParkedCount() + report.getRejectedCount());
+        assertEquals(report.getParkedCount(), report.getRemovedCount());
+        assertEquals(2 * report.getParkedCount() + report.getRejectedCount(), report.getEventCount());
+        assertEquals(0, report.getRejectedCount(VehicleType.ELECTRIC_20KW));
+        assertTrue(report.getPeakOccupancy(VehicleType.ELECTRIC_50KW) <= 50);
+        assertTrue(report.getEventsPerSecond() > 0);
+
+        StringWriter occupancy = new StringWriter();
+        report.writeOccupancy(occupancy);
+        assertTrue(occupancy.toString().startsWith("date,FUEL,ELECTRIC_20KW,ELECTRIC_50KW\n2020-10-03T08:00:00Z,0,0,0\n"));
+    }
+
+    /**
+     * Tests that the arrivals of a trace must be in order
+     */
+    @Test
+    public void rejectUnorderedTrace() {
+        TrafficTrace trace = new TrafficTrace();
+        trace.add(START, VehicleType.FUEL, Duration.ofHours(1));
+        assertThrows(IllegalArgumentException.class,
+                () -> trace.add(START.minusSeconds(1), VehicleType.FUEL, Duration.ofHours(1)));
+        assertThrows(IllegalArgumentException.class, () -> TrafficTrace.read(new StringReader(
+                "2020-10-03T08:00:00Z,FUEL,60000\n2020-10-03T07:00:00Z,FUEL,60000\n")));
+        assertThrows(IllegalArgumentException.class, () -> TrafficTrace.generate(START, Duration.ofDays(1),
+                new double[2], Collections.singletonMap(VehicleType.FUEL, 1.0), Duration.ofHours(1), 0));
+    }
+}
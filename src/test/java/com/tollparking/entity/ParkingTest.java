@@ -5,18 +5,40 @@ import com.tollparking.exception.TicketNotFoundException;
 import com.tollparking.exception.InvalidCapacityException;
 import com.tollparking.billing.PricingPerHourPolicy;
 import com.tollparking.billing.PricingPerHourWithFixedAmountPolicy;
+import com.tollparking.metrics.MetricsSnapshot;
 import org.junit.jupiter.api.Test;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
 import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
-
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * ParkingTest tests the toll parking API
@@ -212,4 +234,653 @@ public class ParkingTest {
         ticket = parking.removeVehicle(ticket);
         assertEquals(new BigDecimal("16.25"), ticket.getAmount());
     }
-}
\ No newline at end of file
+
+    /**
+     * Test that several gates parking at the same time never overbook a vehicle type
+     * @throws InvalidCapacityException if the capacity is negative
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void parkVehiclesConcurrently_neverOverbook() throws InvalidCapacityException, InterruptedException {
+        Parking parking = new Parking(500, 0, 0);
+        Queue<Ticket> tickets = new ConcurrentLinkedQueue<>();
+        runOnGates(16, () -> {
+            for (int i = 0; i < 100; i++) {
+                Ticket ticket = parking.parkVehicle(VehicleType.FUEL);
+                if (ticket != null) tickets.add(ticket);
+            }
+        });
+        assertEquals(500, tickets.size());
+        assertNull(parking.parkVehicle(VehicleType.FUEL));
+    }
+
+    /**
+     * Test that several gates removing vehicles at the same time free every slot exactly once
+     * @throws InvalidCapacityException if the capacity is negative
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void removeVehiclesConcurrently_freeEachSlotOnce() throws InvalidCapacityException, InterruptedException {
+        Parking parking = new Parking(0, 400, 0);
+        Queue<Ticket> tickets = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < 400; i++) {
+            tickets.add(parking.parkVehicle(VehicleType.ELECTRIC_20KW));
+        }
+        List<Ticket> allTickets = new java.util.ArrayList<>(tickets);
+        AtomicInteger removed = new AtomicInteger();
+        runOnGates(8, () -> {
+            // every gate tries to remove every ticket: only one of them may succeed for each ticket
+            for (Ticket ticket : allTickets) {
+                try {
+                    parking.removeVehicle(ticket);
+                    removed.incrementAndGet();
+                } catch (TicketNotFoundException e) {
+                    // already removed by another gate
+                }
+            }
+        });
+        assertEquals(400, removed.get());
+        for (int i = 0; i < 400; i++) {
+            assertNotNull(parking.parkVehicle(VehicleType.ELECTRIC_20KW));
+        }
+        assertNull(parking.parkVehicle(VehicleType.ELECTRIC_20KW));
+    }
+
+    /**
+     * Test that the parking issues tickets with the configured id generator
+     * @throws InvalidCapacityException if the capacity is negative
+     * @throws TicketNotFoundException if the ticket cannot be found
+     */
+    @Test
+    public void parkVehicleWithUuidTicketIds() throws InvalidCapacityException, TicketNotFoundException {
+        Parking parking = new Parking(2, 0, 0);
+        assertTrue(parking.parkVehicle(VehicleType.FUEL).hasNumericId());
+        parking.setTicketIdGenerator(new UuidTicketIdGenerator());
+        Ticket ticket = parking.parkVehicle(VehicleType.FUEL);
+        assertEquals(36, ticket.getId().length());
+        assertNotNull(parking.removeVehicle(ticket));
+    }
+
+    /**
+     * Test that a vehicle can be removed with only the numeric id scanned from its ticket
+     * @throws InvalidCapacityException if the capacity is negative
+     * @throws TicketNotFoundException if the ticket cannot be found
+     */
+    @Test
+    public void removeVehicleByNumericId() throws InvalidCapacityException, TicketNotFoundException {
+        Parking parking = new Parking(2, 0, 0);
+        Ticket ticket = parking.parkVehicle(VehicleType.FUEL);
+        assertEquals(ticket, parking.findTicket(ticket.getNumericId()));
+        Ticket billedTicket = parking.removeVehicle(ticket.getNumericId());
+        assertTrue(billedTicket == ticket);
+        assertNotNull(billedTicket.getEndDate());
+        assertEquals(0, parking.getOccupancy(VehicleType.FUEL));
+        assertNull(parking.findTicket(ticket.getNumericId()));
+        assertThrows(TicketNotFoundException.class, () -> parking.removeVehicle(ticket.getNumericId()));
+    }
+
+    /**
+     * Test that a vehicle can be removed with the id printed on its ticket, numeric or not
+     * @throws InvalidCapacityException if the capacity is negative
+     * @throws TicketNotFoundException if the ticket cannot be found
+     */
+    @Test
+    public void removeVehicleByPrintedId() throws InvalidCapacityException, TicketNotFoundException {
+        Parking parking = new Parking(2, 0, 0);
+        Ticket numericTicket = parking.parkVehicle(VehicleType.FUEL);
+        parking.setTicketIdGenerator(new UuidTicketIdGenerator());
+        Ticket uuidTicket = parking.parkVehicle(VehicleType.FUEL);
+
+        assertEquals(uuidTicket, parking.findTicket(uuidTicket.getId()));
+        assertTrue(parking.removeVehicle(numericTicket.getId()) == numericTicket);
+        assertTrue(parking.removeVehicle(uuidTicket.getId()) == uuidTicket);
+        assertEquals(0, parking.getOccupancy(VehicleType.FUEL));
+        assertThrows(TicketNotFoundException.class, () -> parking.removeVehicle("NON_EXISTENT"));
+        assertThrows(TicketNotFoundException.class, () -> parking.removeVehicle((String) null));
+    }
+
+    /**
+     * Test that each vehicle gets its own slot of its vehicle type and that the slot is freed when it leaves
+     * @throws InvalidCapacityException if the capacity is negative
+     * @throws TicketNotFoundException if the ticket cannot be found
+     */
+    @Test
+    public void parkVehicleInNumberedSlot() throws InvalidCapacityException, TicketNotFoundException {
+        Parking parking = new Parking(2, 1, 0);
+        Ticket first = parking.parkVehicle(VehicleType.FUEL);
+        Ticket second = parking.parkVehicle(VehicleType.FUEL);
+        Ticket electric = parking.parkVehicle(VehicleType.ELECTRIC_20KW);
+        assertEquals(0, electric.getSlotNumber());
+        assertTrue(first.getSlotNumber() >= 0 && first.getSlotNumber() < 2);
+        assertEquals(1, first.getSlotNumber() + second.getSlotNumber());
+        assertTrue(parking.isSlotOccupied(VehicleType.ELECTRIC_20KW, 0));
+
+        parking.removeVehicle(new Ticket(electric.getNumericId(), VehicleType.ELECTRIC_20KW));
+        assertFalse(parking.isSlotOccupied(VehicleType.ELECTRIC_20KW, 0));
+        parking.removeVehicle(first.getNumericId());
+        assertFalse(parking.isSlotOccupied(VehicleType.FUEL, first.getSlotNumber()));
+        assertEquals(first.getSlotNumber(), parking.parkVehicle(VehicleType.FUEL).getSlotNumber());
+    }
+
+    /**
+     * Test that a batch of vehicles is parked in order until the places of each vehicle type run out
+     * @throws InvalidCapacityException if the capacity is negative
+     */
+    @Test
+    public void parkVehiclesInBatch() throws InvalidCapacityException {
+        Parking parking = new Parking(2, 1, 0);
+        List<Ticket> tickets = parking.parkVehicles(Arrays.asList(VehicleType.FUEL, VehicleType.ELECTRIC_20KW,
+                VehicleType.FUEL, null, VehicleType.FUEL, VehicleType.ELECTRIC_50KW, VehicleType.ELECTRIC_20KW));
+
+        assertEquals(7, tickets.size());
+        assertEquals(VehicleType.FUEL, tickets.get(0).getVehicleType());
+        assertEquals(VehicleType.ELECTRIC_20KW, tickets.get(1).getVehicleType());
+        assertEquals(VehicleType.FUEL, tickets.get(2).getVehicleType());
+        assertNull(tickets.get(3));
+        assertNull(tickets.get(4));
+        assertNull(tickets.get(5));
+        assertNull(tickets.get(6));
+        assertTrue(tickets.get(0).getSlotNumber() != tickets.get(2).getSlotNumber());
+        assertEquals(2, parking.getOccupancy(VehicleType.FUEL));
+        assertEquals(1, parking.getOccupancy(VehicleType.ELECTRIC_20KW));
+        assertNull(parking.parkVehicle(VehicleType.FUEL));
+    }
+
+    /**
+     * Test that a batch of vehicles is billed at the same end date and that unknown tickets are reported one by one
+     * @throws InvalidCapacityException if the capacity is negative
+     */
+    @Test
+    public void removeVehiclesInBatch() throws InvalidCapacityException {
+        Parking parking = new Parking(3, 0, 0, new PricingPerHourPolicy(new BigDecimal(2)));
+        List<Ticket> parked = parking.parkVehicles(Arrays.asList(VehicleType.FUEL, VehicleType.FUEL, VehicleType.FUEL));
+        parked.get(0).setStartDate(Instant.now().minus(30, ChronoUnit.MINUTES));
+
+        List<Ticket> billed = parking.removeVehicles(Arrays.asList(parked.get(0), new Ticket("NON_EXISTENT", VehicleType.FUEL),
+                parked.get(1), parked.get(1)));
+
+        assertEquals(4, billed.size());
+        assertEquals(new BigDecimal("1.00"), billed.get(0).getAmount());
+        assertNull(billed.get(1));
+        assertEquals(billed.get(0).getEndDate(), billed.get(2).getEndDate());
+        assertNull(billed.get(3));
+        assertEquals(1, parking.getOccupancy(VehicleType.FUEL));
+        assertFalse(parking.isSlotOccupied(VehicleType.FUEL, parked.get(0).getSlotNumber()));
+        assertTrue(parking.isSlotOccupied(VehicleType.FUEL, parked.get(2).getSlotNumber()));
+    }
+
+    /**
+     * Test that no vehicle of a batch is parked when a listener fails
+     * @throws InvalidCapacityException if the capacity is negative
+     */
+    @Test
+    public void parkVehiclesInBatch_listenerFails() throws InvalidCapacityException {
+        Parking parking = new Parking(2, 0, 0);
+        AtomicInteger notifications = new AtomicInteger();
+        parking.addListener(new ParkingListener() {
+            @Override
+            public void vehicleParked(Ticket ticket) {
+                if (notifications.incrementAndGet() == 2) {
+                    throw new IllegalStateException("listener failure");
+                }
+            }
+        });
+        assertThrows(IllegalStateException.class, () -> parking.parkVehicles(Arrays.asList(VehicleType.FUEL, VehicleType.FUEL)));
+        assertEquals(0, parking.getOccupancy(VehicleType.FUEL));
+        assertTrue(parking.getOpenTickets().isEmpty());
+        assertFalse(parking.isSlotOccupied(VehicleType.FUEL, 0));
+    }
+
+    /**
+     * Test that the metrics count the check-ins, refusals, check-outs and revenue and are readable through JMX
+     * @throws Exception if the parking cannot be created or the metrics cannot be read through JMX
+     */
+    @Test
+    public void readMetrics() throws Exception {
+        Parking parking = new Parking(1, 2, 0, new PricingPerHourPolicy(new BigDecimal(2)));
+        parking.getMetrics().setLatencyTracked(true);
+        MetricsSnapshot before = parking.getMetrics().snapshot();
+        Ticket ticket = parking.parkVehicle(VehicleType.FUEL);
+        assertNull(parking.parkVehicle(VehicleType.FUEL));
+        parking.parkVehicles(Arrays.asList(VehicleType.ELECTRIC_20KW, VehicleType.ELECTRIC_20KW, VehicleType.ELECTRIC_20KW));
+        ticket.setStartDate(Instant.now().minus(90, ChronoUnit.MINUTES));
+        parking.removeVehicle(ticket);
+        MetricsSnapshot after = parking.getMetrics().snapshot();
+
+        assertEquals(0, after.getOccupancy(VehicleType.FUEL));
+        assertEquals(2, after.getOccupancy(VehicleType.ELECTRIC_20KW));
+        assertEquals(2, after.getCapacity(VehicleType.ELECTRIC_20KW));
+        assertEquals(1, after.getParkedCount(VehicleType.FUEL));
+        assertEquals(2, after.getParkedCount(VehicleType.ELECTRIC_20KW));
+        assertEquals(2, after.getRejectedCount());
+        assertEquals(1, after.getRemovedCount());
+        assertEquals(300, after.getRevenueInCents());
+        assertEquals(2, after.getParkLatency().getCount());
+        assertEquals(1, after.getRemoveLatency().getCount());
+        assertEquals(1, after.getPriceLatency().getCount());
+        assertTrue(after.getParkRate(before) > 0);
+
+        ObjectName name = parking.getMetrics().registerMBean("readMetrics");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(300L, server.getAttribute(name, "RevenueInCents"));
+            assertEquals(3L, server.getAttribute(name, "ParkedCount"));
+            CompositeData removeLatency = (CompositeData) server.getAttribute(name, "RemoveLatency");
+            assertEquals(1L, removeLatency.get("count"));
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+
+    /**
+     * Tests that the tickets are dated by the clock of the parking
+     * @throws InvalidCapacityException if the capacity is negative
+     * @throws TicketNotFoundException if the ticket cannot be found
+     */
+    @Test
+    public void datesTicketsWithClock() throws InvalidCapacityException, TicketNotFoundException {
+        Parking parking = new Parking(2, 0, 0, new PricingPerHourPolicy(new BigDecimal(2)));
+        Instant arrival = Instant.parse("2020-10-03T10:00:00Z");
+        parking.setClock(Clock.fixed(arrival, ZoneOffset.UTC));
+        Ticket ticket = parking.parkVehicle(VehicleType.FUEL);
+        assertEquals(arrival, ticket.getStartDate());
+        assertEquals(arrival, parking.parkVehicles(Arrays.asList(VehicleType.FUEL)).get(0).getStartDate());
+
+        Instant departure = arrival.plus(90, ChronoUnit.MINUTES);
+        parking.setClock(Clock.fixed(departure, ZoneOffset.UTC));
+        Ticket billed = parking.removeVehicle(ticket);
+        assertEquals(departure, billed.getEndDate());
+        assertEquals(new BigDecimal("3.00"), billed.getAmount());
+        assertThrows(NullPointerException.class, () -> parking.setClock(null));
+    }
+
+    /**
+     * Tests a pricing policy per vehicle type, changed while vehicles are parked
+     * @throws InvalidCapacityException if the capacity is negative
+     * @throws TicketNotFoundException if a ticket cannot be found
+     */
+    @Test
+    public void billWithVehicleTypePolicy() throws InvalidCapacityException, TicketNotFoundException {
+        PricingPerHourPolicy standard = new PricingPerHourPolicy(new BigDecimal(2));
+        Parking parking = new Parking(2, 0, 2, standard);
+        PricingPerHourPolicy fastCharge = new PricingPerHourPolicy(new BigDecimal(5));
+        parking.setPricingPolicy(VehicleType.ELECTRIC_50KW, fastCharge);
+        assertEquals(standard, parking.getPricingPolicy(VehicleType.FUEL));
+        assertEquals(fastCharge, parking.getPricingPolicy(VehicleType.ELECTRIC_50KW));
+
+        Ticket fuel = parking.parkVehicle(VehicleType.FUEL);
+        Ticket electric = parking.parkVehicle(VehicleType.ELECTRIC_50KW);
+        fuel.setStartDate(Instant.now().minus(60, ChronoUnit.MINUTES));
+        electric.setStartDate(fuel.getStartDate());
+        assertEquals(new BigDecimal("2.00"), parking.removeVehicle(fuel).getAmount());
+        assertEquals(new BigDecimal("5.00"), parking.removeVehicle(electric).getAmount());
+
+        parking.setPricingPolicy(new PricingPerHourPolicy(new BigDecimal(1)));
+        List<Ticket> batch = parking.parkVehicles(Arrays.asList(VehicleType.FUEL, VehicleType.ELECTRIC_50KW));
+        for (Ticket ticket : batch) {
+            ticket.setStartDate(Instant.now().minus(60, ChronoUnit.MINUTES));
+        }
+        for (Ticket ticket : parking.removeVehicles(batch)) {
+            assertEquals(new BigDecimal("1.00"), ticket.getAmount());
+        }
+        assertThrows(NullPointerException.class, () -> parking.setPricingPolicy(VehicleType.FUEL, null));
+    }
+
+    /**
+     * Tests the outcomes of the non-throwing check-in and check-out
+     * @throws InvalidCapacityException if the capacity is negative
+     */
+    @Test
+    public void parkAndRemoveWithResults() throws InvalidCapacityException {
+        Parking parking = new Parking(1, 0, 0);
+        ParkingResult parked = parking.tryParkVehicle(VehicleType.FUEL);
+        assertEquals(ParkingResult.Status.PARKED, parked.getStatus());
+        assertTrue(parked.isSuccess());
+        assertEquals(ParkingResult.Status.NO_SPACE_AVAILABLE, parking.tryParkVehicle(VehicleType.FUEL).getStatus());
+        assertEquals(ParkingResult.Status.NO_SPACE_AVAILABLE, parking.tryParkVehicle(VehicleType.ELECTRIC_20KW).getStatus());
+        assertEquals(ParkingResult.Status.INVALID_VEHICLE_TYPE, parking.tryParkVehicle(null).getStatus());
+
+        Ticket ticket = parked.getTicket();
+        ParkingResult removed = parking.tryRemoveVehicle(ticket.getNumericId());
+        assertEquals(ParkingResult.Status.REMOVED, removed.getStatus());
+        assertEquals(ticket, removed.getTicket());
+        assertNotNull(removed.getTicket().getAmount());
+
+        // a ticket read twice by the scanner
+        ParkingResult readTwice = parking.tryRemoveVehicle(ticket.getNumericId());
+        assertEquals(ParkingResult.Status.TICKET_NOT_FOUND, readTwice.getStatus());
+        assertFalse(readTwice.isSuccess());
+        assertNull(readTwice.getTicket());
+        assertEquals(ParkingResult.Status.TICKET_NOT_FOUND, parking.tryRemoveVehicle(ticket).getStatus());
+        assertEquals(ParkingResult.Status.TICKET_NOT_FOUND, parking.tryRemoveVehicle(ticket.getId()).getStatus());
+        assertEquals(ParkingResult.Status.TICKET_NOT_FOUND, parking.tryRemoveVehicle((String) null).getStatus());
+        assertEquals(0, parking.getOccupancy(VehicleType.FUEL));
+    }
+
+    /**
+     * Tests that the exceptions of the tickets not found are thrown without stack trace
+     * @throws InvalidCapacityException if the capacity is negative
+     */
+    @Test
+    public void removeUnknownTicketWithoutStackTrace() throws InvalidCapacityException {
+        Parking parking = new Parking(1, 0, 0);
+        for (int i = 0; i < 100; i++) {
+            TicketNotFoundException e = assertThrows(TicketNotFoundException.class, () -> parking.removeVehicle(42L));
+            assertEquals(0, e.getStackTrace().length);
+        }
+    }
+
+    /**
+     * Tests that a ticket carrying the id of a parked vehicle but another vehicle type or start date frees no place
+     * of the other type and is billed from the check-in recorded by the parking
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void removeWithAlteredTicket() throws Exception {
+        Parking parking = new Parking(1, 1, 0, new PricingPerHourPolicy(BigDecimal.TEN));
+        Instant checkIn = Instant.parse("2020-10-03T10:00:00Z");
+        parking.setClock(Clock.fixed(checkIn, ZoneOffset.UTC));
+        Ticket parked = parking.parkVehicle(VehicleType.FUEL);
+        parking.parkVehicle(VehicleType.ELECTRIC_20KW);
+
+        Ticket otherType = new Ticket(parked.getNumericId(), VehicleType.ELECTRIC_20KW, checkIn);
+        assertEquals(ParkingResult.Status.TICKET_NOT_FOUND, parking.tryRemoveVehicle(otherType).getStatus());
+        assertNull(parking.removeVehicles(Arrays.asList(otherType)).get(0));
+        assertEquals(1, parking.getOccupancy(VehicleType.FUEL));
+        assertEquals(1, parking.getOccupancy(VehicleType.ELECTRIC_20KW));
+        assertNull(parking.parkVehicle(VehicleType.ELECTRIC_20KW));
+
+        parking.setClock(Clock.fixed(checkIn.plus(3, ChronoUnit.HOURS), ZoneOffset.UTC));
+        Ticket laterStart = new Ticket(parked.getNumericId(), VehicleType.FUEL, checkIn.plus(2, ChronoUnit.HOURS));
+        Ticket billed = parking.tryRemoveVehicle(laterStart).getTicket();
+        assertEquals(checkIn, billed.getStartDate());
+        assertEquals(0, new BigDecimal("30").compareTo(billed.getAmount()));
+        assertEquals(0, parking.getOccupancy(VehicleType.FUEL));
+        assertEquals(1, parking.getOccupancy(VehicleType.ELECTRIC_20KW));
+    }
+
+    /**
+     * Tests that the vehicles waiting for a full vehicle type are admitted in order of arrival, each in the place of
+     * a removed vehicle, and that a vehicle arriving while others wait is refused
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void admitWaitingVehiclesInOrder() throws Exception {
+        Parking parking = new Parking(1, 0, 0);
+        Ticket parked = parking.parkVehicle(VehicleType.FUEL);
+        CompletableFuture<ParkingResult> first = parking.tryParkVehicleAsync(VehicleType.FUEL, Duration.ofMinutes(1));
+        CompletableFuture<ParkingResult> second = parking.tryParkVehicleAsync(VehicleType.FUEL, Duration.ofMinutes(1));
+        assertFalse(first.isDone());
+        assertEquals(2, parking.getWaitingCount(VehicleType.FUEL));
+
+        parking.removeVehicle(parked);
+        assertEquals(ParkingResult.Status.PARKED, first.getNow(null).getStatus());
+        assertFalse(second.isDone());
+        assertEquals(1, parking.getOccupancy(VehicleType.FUEL));
+        assertEquals(ParkingResult.Status.NO_SPACE_AVAILABLE, parking.tryParkVehicle(VehicleType.FUEL).getStatus());
+        assertNull(parking.parkVehicles(Arrays.asList(VehicleType.FUEL)).get(0));
+
+        parking.removeVehicle(first.get().getTicket());
+        Ticket secondTicket = second.get(1, TimeUnit.SECONDS).getTicket();
+        assertTrue(parking.isSlotOccupied(VehicleType.FUEL, secondTicket.getSlotNumber()));
+        assertEquals(0, parking.getWaitingCount(VehicleType.FUEL));
+        parking.removeVehicles(Arrays.asList(secondTicket));
+        assertNotNull(parking.parkVehicle(VehicleType.FUEL));
+    }
+
+    /**
+     * Tests the vehicles that stop waiting: after their timeout, when the queue is full, or when their future is
+     * cancelled - the slot then goes to the next vehicle
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void giveUpWaiting() throws Exception {
+        Parking parking = new Parking(1, 0, 0);
+        parking.setMaxWaiters(2);
+        Ticket parked = parking.parkVehicle(VehicleType.FUEL);
+
+        ParkingResult timedOut = parking.tryParkVehicleAsync(VehicleType.FUEL, Duration.ofMillis(20)).get(1, TimeUnit.SECONDS);
+        assertEquals(ParkingResult.Status.NO_SPACE_AVAILABLE, timedOut.getStatus());
+        assertEquals(0, parking.getWaitingCount(VehicleType.FUEL));
+        assertNull(parking.parkVehicle(VehicleType.FUEL, Duration.ofMillis(10)));
+
+        CompletableFuture<ParkingResult> cancelled = parking.tryParkVehicleAsync(VehicleType.FUEL, Duration.ofMinutes(1));
+        CompletableFuture<ParkingResult> waiting = parking.tryParkVehicleAsync(VehicleType.FUEL, Duration.ofMinutes(1));
+        assertEquals(ParkingResult.Status.NO_SPACE_AVAILABLE,
+                parking.tryParkVehicleAsync(VehicleType.FUEL, Duration.ofMinutes(1)).getNow(null).getStatus());
+        assertEquals(ParkingResult.Status.NO_SPACE_AVAILABLE,
+                parking.tryParkVehicleAsync(VehicleType.FUEL, Duration.ZERO).getNow(null).getStatus());
+        assertTrue(cancelled.cancel(false));
+        assertEquals(1, parking.getWaitingCount(VehicleType.FUEL));
+
+        parking.removeVehicle(parked);
+        assertEquals(ParkingResult.Status.PARKED, waiting.getNow(null).getStatus());
+        assertEquals(1, parking.getOccupancy(VehicleType.FUEL));
+        assertEquals(ParkingResult.Status.INVALID_VEHICLE_TYPE,
+                parking.tryParkVehicleAsync(null, Duration.ofMinutes(1)).getNow(null).getStatus());
+    }
+
+    /**
+     * Tests that the timeout of a vehicle admitted or cancelled before it is over is removed from the timer, so long
+     * timeouts do not pile up
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void cancelTimeoutOfAdmittedVehicles() throws Exception {
+        Parking parking = new Parking(100, 0, 0);
+        List<Ticket> parked = parking.parkVehicles(Collections.nCopies(100, VehicleType.FUEL));
+        int scheduled = Parking.getScheduledWaitTimeouts();
+        List<CompletableFuture<ParkingResult>> waiting = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            waiting.add(parking.tryParkVehicleAsync(VehicleType.FUEL, Duration.ofHours(1)));
+        }
+        assertEquals(scheduled + 100, Parking.getScheduledWaitTimeouts());
+
+        assertTrue(waiting.get(99).cancel(false));
+        parking.removeVehicles(parked.subList(0, 99));
+        for (CompletableFuture<ParkingResult> future : waiting.subList(0, 99)) {
+            assertEquals(ParkingResult.Status.PARKED, future.getNow(null).getStatus());
+        }
+        assertEquals(scheduled, Parking.getScheduledWaitTimeouts());
+    }
+
+    /**
+     * Tests gates blocked waiting for slots freed by other gates: every vehicle is parked once and no slot is lost
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void waitForSlotsConcurrently() throws Exception {
+        Parking parking = new Parking(3, 0, 0);
+        AtomicInteger errors = new AtomicInteger();
+        runOnGates(8, () -> {
+            try {
+                for (int i = 0; i < 500; i++) {
+                    Ticket ticket = parking.parkVehicle(VehicleType.FUEL, Duration.ofSeconds(10));
+                    if (ticket == null) {
+                        errors.incrementAndGet();
+                    } else {
+                        parking.removeVehicle(ticket);
+                    }
+                }
+            } catch (InterruptedException | TicketNotFoundException e) {
+                errors.incrementAndGet();
+            }
+        });
+        assertEquals(0, errors.get());
+        assertEquals(0, parking.getOccupancy(VehicleType.FUEL));
+        assertEquals(0, parking.getWaitingCount(VehicleType.FUEL));
+        assertEquals(4000, parking.getMetrics().snapshot().getParkedCount(VehicleType.FUEL));
+    }
+
+    /**
+     * Tests that a shrink removes the free places at once and the occupied ones as their vehicles leave, before the
+     * waiting vehicles, and that a growth cancels the pending shrink first
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void growAndShrinkCapacity() throws Exception {
+        Parking parking = new Parking(4, 0, 0);
+        Ticket first = parking.parkVehicle(VehicleType.FUEL);
+        Ticket second = parking.parkVehicle(VehicleType.FUEL);
+        Ticket third = parking.parkVehicle(VehicleType.FUEL);
+        parking.setCapacity(VehicleType.FUEL, 1);
+        assertEquals(3, parking.getCapacity(VehicleType.FUEL));
+        assertEquals(2, parking.getPendingShrink(VehicleType.FUEL));
+        assertTrue(parking.isSlotOccupied(VehicleType.FUEL, third.getSlotNumber()));
+
+        CompletableFuture<ParkingResult> waiting = parking.tryParkVehicleAsync(VehicleType.FUEL, Duration.ofMinutes(1));
+        parking.removeVehicle(first);
+        assertFalse(waiting.isDone());
+        assertEquals(2, parking.getCapacity(VehicleType.FUEL));
+        parking.removeVehicles(Arrays.asList(third));
+        assertEquals(1, parking.getCapacity(VehicleType.FUEL));
+        assertEquals(0, parking.getPendingShrink(VehicleType.FUEL));
+        assertFalse(waiting.isDone());
+
+        parking.setCapacity(VehicleType.FUEL, 3);
+        assertEquals(ParkingResult.Status.PARKED, waiting.getNow(null).getStatus());
+        assertTrue(waiting.get().getTicket().getSlotNumber() < 3);
+        assertNotNull(parking.parkVehicle(VehicleType.FUEL));
+        assertNull(parking.parkVehicle(VehicleType.FUEL));
+
+        parking.setCapacity(VehicleType.FUEL, 0);
+        parking.setCapacity(VehicleType.FUEL, 2);
+        assertEquals(3, parking.getCapacity(VehicleType.FUEL));
+        assertEquals(1, parking.getPendingShrink(VehicleType.FUEL));
+        parking.removeVehicle(second);
+        assertEquals(2, parking.getCapacity(VehicleType.FUEL));
+        assertEquals(2, parking.getOccupancy(VehicleType.FUEL));
+        assertThrows(InvalidCapacityException.class, () -> parking.setCapacity(VehicleType.FUEL, -1));
+    }
+
+    /**
+     * Tests that the slots moved to another vehicle type are added to it as they are freed
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void moveCapacityBetweenTypes() throws Exception {
+        Parking parking = new Parking(3, 0, 0);
+        Ticket first = parking.parkVehicle(VehicleType.FUEL);
+        parking.parkVehicle(VehicleType.FUEL);
+        parking.moveCapacity(VehicleType.FUEL, VehicleType.ELECTRIC_50KW, 2);
+        assertEquals(2, parking.getCapacity(VehicleType.FUEL));
+        assertEquals(1, parking.getCapacity(VehicleType.ELECTRIC_50KW));
+
+        CompletableFuture<ParkingResult> charger =
+                parking.tryParkVehicleAsync(VehicleType.ELECTRIC_50KW, Duration.ofMinutes(1));
+        assertEquals(ParkingResult.Status.PARKED, charger.getNow(null).getStatus());
+        charger = parking.tryParkVehicleAsync(VehicleType.ELECTRIC_50KW, Duration.ofMinutes(1));
+        assertFalse(charger.isDone());
+        parking.removeVehicle(first);
+        assertEquals(1, parking.getCapacity(VehicleType.FUEL));
+        assertEquals(2, parking.getCapacity(VehicleType.ELECTRIC_50KW));
+        assertEquals(ParkingResult.Status.PARKED, charger.getNow(null).getStatus());
+        assertNull(parking.parkVehicle(VehicleType.FUEL));
+
+        assertThrows(InvalidCapacityException.class,
+                () -> parking.moveCapacity(VehicleType.FUEL, VehicleType.ELECTRIC_20KW, 2));
+    }
+
+    /**
+     * Tests that a slot moved to a type that moves its own slots on is forwarded, whatever vehicle leaves first, and
+     * that a growth of the type does not cancel its move
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void chainCapacityMoves() throws Exception {
+        for (boolean fuelLeavesFirst : new boolean[] {true, false}) {
+            Parking parking = new Parking(1, 1, 0);
+            Ticket fuel = parking.parkVehicle(VehicleType.FUEL);
+            Ticket charging = parking.parkVehicle(VehicleType.ELECTRIC_20KW);
+            parking.moveCapacity(VehicleType.FUEL, VehicleType.ELECTRIC_20KW, 1);
+            parking.moveCapacity(VehicleType.ELECTRIC_20KW, VehicleType.ELECTRIC_50KW, 1);
+            parking.removeVehicle(fuelLeavesFirst ? fuel : charging);
+            parking.removeVehicle(fuelLeavesFirst ? charging : fuel);
+            assertEquals(0, parking.getCapacity(VehicleType.FUEL));
+            assertEquals(1, parking.getCapacity(VehicleType.ELECTRIC_20KW));
+            assertEquals(1, parking.getCapacity(VehicleType.ELECTRIC_50KW));
+            assertEquals(0, parking.getPendingShrink(VehicleType.ELECTRIC_20KW));
+        }
+
+        Parking parking = new Parking(0, 1, 0);
+        Ticket charging = parking.parkVehicle(VehicleType.ELECTRIC_20KW);
+        parking.moveCapacity(VehicleType.ELECTRIC_20KW, VehicleType.ELECTRIC_50KW, 1);
+        parking.setCapacity(VehicleType.ELECTRIC_20KW, 1);
+        assertEquals(1, parking.getPendingShrink(VehicleType.ELECTRIC_20KW));
+        Ticket second = parking.parkVehicle(VehicleType.ELECTRIC_20KW);
+        assertTrue(second.getSlotNumber() >= 0 && second.getSlotNumber() != charging.getSlotNumber());
+        parking.removeVehicle(charging);
+        assertEquals(1, parking.getCapacity(VehicleType.ELECTRIC_20KW));
+        assertEquals(1, parking.getCapacity(VehicleType.ELECTRIC_50KW));
+    }
+
+    /**
+     * Tests gates checking vehicles in and out while the capacity is shrunk and grown back: no vehicle is parked
+     * beyond the capacity and no place is lost
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void changeCapacityConcurrently() throws Exception {
+        Parking parking = new Parking(10, 0, 0);
+        AtomicInteger errors = new AtomicInteger();
+        Thread operator = new Thread(() -> {
+            try {
+                for (int i = 0; i < 1_000; i++) {
+                    parking.setCapacity(VehicleType.FUEL, (i % 2 == 0) ? 2 : 10);
+                }
+                parking.setCapacity(VehicleType.FUEL, 2);
+            } catch (InvalidCapacityException e) {
+                errors.incrementAndGet();
+            }
+        });
+        operator.start();
+        runOnGates(8, () -> {
+            try {
+                for (int i = 0; i < 2_000; i++) {
+                    Ticket ticket = parking.parkVehicle(VehicleType.FUEL);
+                    if (ticket != null) {
+                        if (ticket.getSlotNumber() == SlotAllocator.NO_SLOT) {
+                            errors.incrementAndGet();
+                        }
+                        parking.removeVehicle(ticket);
+                    }
+                }
+            } catch (TicketNotFoundException e) {
+                errors.incrementAndGet();
+            }
+        });
+        operator.join();
+        assertEquals(0, errors.get());
+        assertEquals(0, parking.getOccupancy(VehicleType.FUEL));
+        assertEquals(2, parking.getCapacity(VehicleType.FUEL));
+        assertEquals(0, parking.getPendingShrink(VehicleType.FUEL));
+        assertNotNull(parking.parkVehicle(VehicleType.FUEL));
+        assertNotNull(parking.parkVehicle(VehicleType.FUEL));
+        assertNull(parking.parkVehicle(VehicleType.FUEL));
+    }
+
+    /**
+     * Runs the same task on several threads that all start at the same time
+     * @param gates the number of threads
+     * @param task the task run by every thread
+     * @throws InterruptedException if the test is interrupted
+     */
+    private static void runOnGates(int gates, Runnable task) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(gates);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < gates; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                task.run();
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+    }
+}
@@ -7,6 +7,8 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import org.junit.jupiter.api.Test;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
 import com.tollparking.billing.PricingPerHourWithFixedAmountPolicy;
 import com.tollparking.exception.InvalidAmountException;
 import com.tollparking.exception.InvalidDateException;
@@ -91,4 +93,51 @@ public class PricingPerHourWithFixedAmountPolicyTest {
         assertEquals(new java.math.BigDecimal("245.33"), pricing.calculatePrice(startDate, endDate));
     }
 
+    /**
+     * Test billing in cents for 9 minutes
+     */
+    @Test
+    public void billCustomerInCents_9minutes()  {
+        PricingPerHourWithFixedAmountPolicy pricing = new PricingPerHourWithFixedAmountPolicy(new BigDecimal("16.23"), new BigDecimal("9.99"));
+        Instant startDate = Instant.now();
+        Instant endDate = startDate.plus(9, ChronoUnit.MINUTES);
+        assertEquals(1242L, pricing.calculatePriceInCents(startDate, endDate));
+    }
+
+    /**
+     * Test that the long arithmetic gives the same result as the BigDecimal formula for random amounts and stays
+     */
+    @Test
+    public void billCustomer_sameResultAsBigDecimalFormula()  {
+        Random random = new Random(42);
+        Instant startDate = Instant.parse("2020-10-03T10:12:35Z");
+        for (int i = 0; i < 10_000; i++) {
+            BigDecimal pricePerHour = BigDecimal.valueOf(random.nextInt(100_000), random.nextInt(5));
+            BigDecimal fixedAmount = BigDecimal.valueOf(random.nextInt(10_000), random.nextInt(7));
+            long minutes = random.nextInt(60 * 24 * 365);
+            PricingPerHourWithFixedAmountPolicy pricing = new PricingPerHourWithFixedAmountPolicy(pricePerHour, fixedAmount);
+            Instant endDate = startDate.plus(minutes, ChronoUnit.MINUTES);
+
+            BigDecimal expected = pricePerHour.divide(new BigDecimal("60"), 6, RoundingMode.HALF_UP)
+                    .multiply(new BigDecimal(minutes)).add(fixedAmount).setScale(2, RoundingMode.HALF_UP);
+            assertEquals(expected, pricing.calculatePrice(startDate, endDate));
+            assertEquals(expected.unscaledValue().longValue(), pricing.calculatePriceInCents(startDate, endDate));
+        }
+    }
+
+    /**
+     * Test billing with amounts too large or too precise for the long arithmetic
+     */
+    @Test
+    public void billCustomer_amountsOutsideLongRange()  {
+        Instant startDate = Instant.parse("2020-10-03T10:12:35Z");
+        Instant endDate = startDate.plus(2, ChronoUnit.MINUTES);
+        PricingPerHourWithFixedAmountPolicy precise = new PricingPerHourWithFixedAmountPolicy(new BigDecimal("60"), new BigDecimal("0.0000004"));
+        assertEquals(new BigDecimal("2.00"), precise.calculatePrice(startDate, endDate));
+        assertEquals(200L, precise.calculatePriceInCents(startDate, endDate));
+
+        PricingPerHourWithFixedAmountPolicy large = new PricingPerHourWithFixedAmountPolicy(new BigDecimal("6E+18"), BigDecimal.ZERO);
+        assertEquals(new BigDecimal("2E+17").setScale(2), large.calculatePrice(startDate, endDate));
+        assertThrows(ArithmeticException.class, () -> large.calculatePriceInCents(startDate, endDate));
+    }
 }
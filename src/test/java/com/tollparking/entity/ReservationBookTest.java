@@ -0,0 +1,142 @@
+package com.tollparking.entity;
+
+import com.tollparking.enums.VehicleType;
+import com.tollparking.simulation.VirtualClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the ReservationBook and its ReservationIndex
+ * @link com.tollparking.entity.ReservationBook
+ */
+public class ReservationBookTest {
+
+    /**
+     * Test that random range additions and range maximums give the same result as an array of counts
+     */
+    @Test
+    public void indexMatchesArray() {
+        ReservationIndex index = new ReservationIndex(64);
+        int[] counts = new int[64];
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            int from = random.nextInt(64);
+            int to = from + random.nextInt(65 - from);
+            if (random.nextBoolean()) {
+                int delta = random.nextInt(3) - 1;
+                index.add(from, to, delta);
+                for (int j = from; j < to; j++) {
+                    counts[j] += delta;
+                }
+            } else {
+                int expected = (from == to) ? 0 : Integer.MIN_VALUE;
+                for (int j = from; j < to; j++) {
+                    expected = Math.max(expected, counts[j]);
+                }
+                assertEquals(expected, index.max(from, to));
+            }
+        }
+    }
+
+    /**
+     * Test that a window cannot hold more reservations than slots, and that cancelling a reservation frees its window
+     * @throws Exception if the parking cannot be created
+     */
+    @Test
+    public void bookWindows() throws Exception {
+        VirtualClock clock = new VirtualClock(Instant.parse("2020-10-03T10:00:00Z"));
+        Parking parking = new Parking(0, 0, 2);
+        parking.setClock(clock);
+        ReservationBook book = ReservationBook.open(parking, Duration.ofDays(30));
+        Instant two = Instant.parse("2020-10-05T14:00:00Z");
+        Instant four = Instant.parse("2020-10-05T16:00:00Z");
+
+        assertNotNull(book.reserve(VehicleType.ELECTRIC_50KW, two, four));
+        Reservation second = book.reserve(VehicleType.ELECTRIC_50KW, two.plus(Duration.ofHours(1)), four);
+        assertNotNull(second);
+        assertFalse(book.isAvailable(VehicleType.ELECTRIC_50KW, four.minusSeconds(1), four.plusSeconds(3600)));
+        assertNull(book.reserve(VehicleType.ELECTRIC_50KW, two.minusSeconds(3600), four.minusSeconds(1)));
+        assertTrue(book.isAvailable(VehicleType.ELECTRIC_50KW, four, four.plusSeconds(3600)));
+        assertTrue(book.isAvailable(VehicleType.ELECTRIC_50KW, two.minusSeconds(3600), two));
+        assertNull(book.reserve(VehicleType.FUEL, two, four));
+
+        assertTrue(book.cancel(second.getId()));
+        assertFalse(book.cancel(second.getId()));
+        assertNotNull(book.reserve(VehicleType.ELECTRIC_50KW, two.minusSeconds(3600), four.minusSeconds(1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> book.reserve(VehicleType.ELECTRIC_50KW, two, two.plus(Duration.ofDays(40))));
+        assertThrows(IllegalArgumentException.class, () -> book.isAvailable(VehicleType.ELECTRIC_50KW, four, two));
+    }
+
+    /**
+     * Test that a reservation holds back a place from the walk-in vehicles during its window, that it is redeemed
+     * for a ticket once, and that the place of a no-show is given back at the end of its window
+     * @throws Exception if the parking cannot be created
+     */
+    @Test
+    public void holdBackAndRedeem() throws Exception {
+        VirtualClock clock = new VirtualClock(Instant.parse("2020-10-03T10:00:00Z"));
+        Parking parking = new Parking(0, 0, 2);
+        parking.setClock(clock);
+        ReservationBook book = ReservationBook.open(parking, Duration.ofDays(30));
+        Instant start = clock.instant().plus(Duration.ofHours(1));
+        Reservation redeemed = book.reserve(VehicleType.ELECTRIC_50KW, start, start.plus(Duration.ofHours(2)));
+        Reservation missed = book.reserve(VehicleType.ELECTRIC_50KW, start, start.plus(Duration.ofHours(1)));
+        assertNull(book.redeem(redeemed.getId()));
+
+        clock.advance(Duration.ofHours(1));
+        book.refresh();
+        assertEquals(0, parking.getOccupancy(VehicleType.ELECTRIC_50KW));
+        assertNull(parking.parkVehicle(VehicleType.ELECTRIC_50KW));
+        Ticket ticket = book.redeem(redeemed.getId());
+        assertNotNull(ticket);
+        assertEquals(VehicleType.ELECTRIC_50KW, ticket.getVehicleType());
+        assertNull(book.redeem(redeemed.getId()));
+        assertFalse(book.cancel(redeemed.getId()));
+        assertNull(parking.parkVehicle(VehicleType.ELECTRIC_50KW));
+
+        clock.advance(Duration.ofHours(1));
+        book.refresh();
+        assertEquals(1, book.getNoShowCount());
+        assertNull(book.getReservation(missed.getId()));
+        assertNotNull(parking.parkVehicle(VehicleType.ELECTRIC_50KW));
+        book.close();
+    }
+
+    /**
+     * Test that the place freed by a walk-in vehicle goes to the reservation holding it back, not to a vehicle
+     * waiting at the gate
+     * @throws Exception if the parking cannot be created
+     */
+    @Test
+    public void keepHeldBackPlaceFromWaiters() throws Exception {
+        VirtualClock clock = new VirtualClock(Instant.parse("2020-10-03T10:00:00Z"));
+        Parking parking = new Parking(0, 0, 1);
+        parking.setClock(clock);
+        ReservationBook book = ReservationBook.open(parking, Duration.ofDays(30));
+        Ticket walkIn = parking.parkVehicle(VehicleType.ELECTRIC_50KW);
+        Reservation reservation = book.reserve(VehicleType.ELECTRIC_50KW, clock.instant(),
+                clock.instant().plus(Duration.ofHours(1)));
+        book.refresh();
+        CompletableFuture<ParkingResult> waiting =
+                parking.tryParkVehicleAsync(VehicleType.ELECTRIC_50KW, Duration.ofMinutes(1));
+
+        parking.removeVehicle(walkIn);
+        assertFalse(waiting.isDone());
+        assertEquals(0, parking.getOccupancy(VehicleType.ELECTRIC_50KW));
+        assertNotNull(book.redeem(reservation.getId()));
+        waiting.cancel(false);
+        book.close();
+    }
+}
@@ -0,0 +1,121 @@
+package com.tollparking.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the SlotAllocator
+ * @link com.tollparking.entity.SlotAllocator
+ */
+public class SlotAllocatorTest {
+
+    /**
+     * Test that every slot is allocated once and that no slot is allocated past the last one
+     */
+    @Test
+    public void allocateEachSlotOnce() {
+        SlotAllocator allocator = new SlotAllocator(70);
+        BitSet allocated = new BitSet();
+        for (int i = 0; i < 70; i++) {
+            int slot = allocator.allocate();
+            assertTrue(slot >= 0 && slot < 70);
+            assertFalse(allocated.get(slot));
+            allocated.set(slot);
+        }
+        assertEquals(SlotAllocator.NO_SLOT, allocator.allocate());
+        assertEquals(SlotAllocator.NO_SLOT, new SlotAllocator(0).allocate());
+    }
+
+    /**
+     * Test that a freed slot is allocated again and that a slot cannot be freed or occupied twice
+     */
+    @Test
+    public void releaseAndOccupySlots() {
+        SlotAllocator allocator = new SlotAllocator(128);
+        assertTrue(allocator.occupy(100));
+        assertFalse(allocator.occupy(100));
+        assertFalse(allocator.occupy(128));
+        assertTrue(allocator.isOccupied(100));
+        assertTrue(allocator.release(100));
+        assertFalse(allocator.release(100));
+        assertFalse(allocator.isOccupied(100));
+
+        while (allocator.allocate() != SlotAllocator.NO_SLOT) {
+            // fill every slot
+        }
+        assertTrue(allocator.release(7));
+        assertEquals(7, allocator.allocate());
+    }
+
+    /**
+     * Test that gates allocating and freeing slots at the same time never get the same slot
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void allocateConcurrently() throws InterruptedException {
+        SlotAllocator allocator = new SlotAllocator(1_000);
+        ConcurrentLinkedQueue<Integer> slots = new ConcurrentLinkedQueue<>();
+        AtomicInteger failedReleases = new AtomicInteger();
+        ExecutorService gates = Executors.newFixedThreadPool(8);
+        for (int gate = 0; gate < 8; gate++) {
+            gates.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    int slot = allocator.allocate();
+                    if (slot == SlotAllocator.NO_SLOT) {
+                        continue;
+                    }
+                    if (i % 2 != 0) {
+                        slots.add(slot);
+                    } else if (!allocator.release(slot)) {
+                        failedReleases.incrementAndGet();
+                    }
+                }
+            });
+        }
+        gates.shutdown();
+        assertTrue(gates.awaitTermination(30, TimeUnit.SECONDS));
+
+        BitSet allocated = new BitSet();
+        for (int slot : slots) {
+            assertFalse(allocated.get(slot));
+            allocated.set(slot);
+            assertTrue(allocator.isOccupied(slot));
+        }
+        assertEquals(1_000, slots.size());
+        assertEquals(0, failedReleases.get());
+    }
+
+    /**
+     * Test that slots opened at runtime are allocated, that the closed slots keep their vehicles and are only given
+     * once the open slots are full
+     */
+    @Test
+    public void resizeSlots() {
+        SlotAllocator allocator = new SlotAllocator(70);
+        while (allocator.allocate() != SlotAllocator.NO_SLOT) {
+            // fill every slot
+        }
+        allocator.resize(5_000);
+        assertEquals(70, allocator.allocate());
+        assertTrue(allocator.occupy(4_999));
+        assertFalse(allocator.occupy(5_000));
+
+        allocator.resize(10);
+        assertEquals(10, allocator.getSlotCount());
+        assertTrue(allocator.isOccupied(4_999));
+        assertTrue(allocator.release(4_999));
+        assertTrue(allocator.release(5));
+        assertEquals(5, allocator.allocate());
+        assertEquals(71, allocator.allocate());
+    }
+}
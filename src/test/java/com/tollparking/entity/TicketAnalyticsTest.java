@@ -0,0 +1,173 @@
+package com.tollparking.entity;
+
+import com.tollparking.analytics.RevenueRollup;
+import com.tollparking.analytics.TicketAnalytics;
+import com.tollparking.analytics.TicketHistory;
+import com.tollparking.billing.PricingPerHourPolicy;
+import com.tollparking.enums.VehicleType;
+import com.tollparking.journal.AuditLog;
+import com.tollparking.simulation.VirtualClock;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the TicketHistory and the RevenueRollup
+ * @link com.tollparking.analytics.TicketAnalytics
+ */
+public class TicketAnalyticsTest {
+
+    /**
+     * Paris, where the clocks go back on 2020-10-25
+     */
+    private static final ZoneId PARIS = ZoneId.of("Europe/Paris");
+
+    /**
+     * Adds the same ticket to a history and a rollup
+     * @param history the history
+     * @param rollup the rollup
+     * @param vehicleType the vehicle type
+     * @param start the start date
+     * @param end the end date
+     * @param amountInCents the amount in cents
+     */
+    private static void add(TicketHistory history, RevenueRollup rollup, VehicleType vehicleType, String start,
+                            String end, long amountInCents) {
+        long startSecond = Instant.parse(start).getEpochSecond();
+        long endSecond = Instant.parse(end).getEpochSecond();
+        history.add(vehicleType, startSecond, endSecond, amountInCents);
+        rollup.add(vehicleType, startSecond, endSecond, amountInCents);
+    }
+
+    /**
+     * Test the hourly and daily revenue, the check-outs and the turnover, the tickets counting at their check-out
+     * in the days of Paris, one of them having 25 hours
+     */
+    @Test
+    public void revenueByHourAndDay() {
+        TicketHistory history = new TicketHistory();
+        RevenueRollup rollup = new RevenueRollup();
+        add(history, rollup, VehicleType.FUEL, "2020-10-24T20:00:00Z", "2020-10-24T21:59:59Z", 500);
+        add(history, rollup, VehicleType.FUEL, "2020-10-24T20:00:00Z", "2020-10-24T22:00:00Z", 300);
+        add(history, rollup, VehicleType.FUEL, "2020-10-25T00:30:00Z", "2020-10-25T01:10:00Z", 200);
+        add(history, rollup, VehicleType.ELECTRIC_50KW, "2020-10-25T08:00:00Z", "2020-10-25T22:59:00Z", 1200);
+        add(history, rollup, VehicleType.ELECTRIC_50KW, "2020-10-25T08:00:00Z", "2020-10-25T23:00:00Z", 100);
+
+        for (TicketAnalytics analytics : new TicketAnalytics[]{history, rollup}) {
+            long[][] hourly = analytics.getHourlyRevenue(LocalDate.of(2020, 10, 25), PARIS);
+            assertEquals(25, hourly[VehicleType.FUEL.ordinal()].length);
+            assertEquals(300, hourly[VehicleType.FUEL.ordinal()][0]);
+            assertEquals(200, hourly[VehicleType.FUEL.ordinal()][3]);
+            assertEquals(1200, hourly[VehicleType.ELECTRIC_50KW.ordinal()][24]);
+            assertEquals(0, hourly[VehicleType.ELECTRIC_20KW.ordinal()][2]);
+
+            long[][] daily = analytics.getDailyRevenue(LocalDate.of(2020, 10, 24), LocalDate.of(2020, 10, 27), PARIS);
+            assertArrayEquals(new long[]{500, 500, 0}, daily[VehicleType.FUEL.ordinal()]);
+            assertArrayEquals(new long[]{0, 1200, 100}, daily[VehicleType.ELECTRIC_50KW.ordinal()]);
+            assertArrayEquals(new long[]{1, 2, 0},
+                    analytics.getDailyCheckOuts(LocalDate.of(2020, 10, 24), LocalDate.of(2020, 10, 27), PARIS)[0]);
+            assertEquals(0.75, analytics.getTurnover(VehicleType.FUEL, LocalDate.of(2020, 10, 24),
+                    LocalDate.of(2020, 10, 26), PARIS, 2));
+
+            assertThrows(IllegalArgumentException.class, () -> analytics.getDailyRevenue(LocalDate.of(2020, 10, 24),
+                    LocalDate.of(2020, 10, 24), PARIS));
+            assertThrows(IllegalArgumentException.class, () -> analytics.getTurnover(VehicleType.FUEL,
+                    LocalDate.of(2020, 10, 24), LocalDate.of(2020, 10, 26), PARIS, 0));
+        }
+
+        rollup.removeBefore(Instant.parse("2020-10-25T00:00:00Z"));
+        assertArrayEquals(new long[]{0, 200}, rollup.getDailyRevenue(LocalDate.of(2020, 10, 24),
+                LocalDate.of(2020, 10, 26), PARIS)[VehicleType.FUEL.ordinal()]);
+    }
+
+    /**
+     * Test the parallel aggregation of many tickets against a sequential sum, and the exact and approximate dwell
+     * time percentiles
+     */
+    @Test
+    public void aggregateManyTickets() {
+        TicketHistory history = new TicketHistory(16);
+        RevenueRollup rollup = new RevenueRollup();
+        Random random = new Random(42);
+        long start = Instant.parse("2020-01-01T00:00:00Z").getEpochSecond();
+        long[] expected = new long[31];
+        List<Long> fuelDwellTimes = new ArrayList<>();
+        for (int i = 0; i < 500_000; i++) {
+            VehicleType vehicleType = VehicleType.values()[random.nextInt(3)];
+            long arrival = start + random.nextInt(30 * 86400);
+            long dwell = random.nextInt(36000);
+            if (vehicleType == VehicleType.FUEL) {
+                fuelDwellTimes.add(dwell);
+            }
+            long amount = random.nextInt(2000);
+            history.add(vehicleType, arrival, arrival + dwell, amount);
+            rollup.add(vehicleType, arrival, arrival + dwell, amount);
+            if (vehicleType == VehicleType.ELECTRIC_20KW) {
+                expected[(int) ((arrival + dwell - start) / 86400)] += amount;
+            }
+        }
+        assertEquals(500_000, history.size());
+
+        long[][] daily = history.getDailyRevenue(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 2, 1), ZoneOffset.UTC);
+        assertArrayEquals(expected, daily[VehicleType.ELECTRIC_20KW.ordinal()]);
+        assertArrayEquals(daily[VehicleType.ELECTRIC_20KW.ordinal()], rollup.getDailyRevenue(LocalDate.of(2020, 1, 1),
+                LocalDate.of(2020, 2, 1), ZoneOffset.UTC)[VehicleType.ELECTRIC_20KW.ordinal()]);
+
+        Collections.sort(fuelDwellTimes);
+        long median = fuelDwellTimes.get((fuelDwellTimes.size() + 1) / 2 - 1);
+        assertEquals(median, history.getDwellPercentile(VehicleType.FUEL, 50));
+        assertEquals(fuelDwellTimes.get((int) Math.ceil(0.99 * fuelDwellTimes.size()) - 1),
+                history.getDwellPercentile(VehicleType.FUEL, 99));
+        assertEquals(fuelDwellTimes.get(0), history.getDwellPercentile(VehicleType.FUEL, 0));
+        long approximate = rollup.getDwellPercentile(VehicleType.FUEL, 50);
+        assertTrue(Math.abs(approximate - median) <= median * 0.04, "p50 " + approximate);
+        assertEquals(0, new TicketHistory().getDwellPercentile(VehicleType.FUEL, 50));
+    }
+
+    /**
+     * Test the rollup counting the check-outs of a parking and the history read from its audit log
+     * @param directory a temporary directory
+     * @throws Exception if the parking cannot be created or the log cannot be written
+     */
+    @Test
+    public void analyseParkingCheckOuts(@TempDir Path directory) throws Exception {
+        VirtualClock clock = new VirtualClock(Instant.parse("2020-10-03T10:00:00Z"));
+        Parking parking = new Parking(10, 10, 0, new PricingPerHourPolicy(new BigDecimal("2.00")));
+        parking.setClock(clock);
+        RevenueRollup rollup = new RevenueRollup();
+        parking.addListener(rollup);
+        AuditLog auditLog = AuditLog.open(directory, parking);
+        Ticket fuel = parking.parkVehicle(VehicleType.FUEL);
+        Ticket electric = parking.parkVehicle(VehicleType.ELECTRIC_20KW);
+        clock.advance(Duration.ofHours(3));
+        parking.removeVehicle(fuel);
+        clock.advance(Duration.ofHours(1));
+        parking.removeVehicle(electric);
+        auditLog.close();
+
+        TicketHistory history = TicketHistory.fromAuditLog(directory);
+        assertEquals(2, history.size());
+        for (TicketAnalytics analytics : new TicketAnalytics[]{history, rollup}) {
+            long[][] hourly = analytics.getHourlyRevenue(LocalDate.of(2020, 10, 3), ZoneOffset.UTC);
+            assertEquals(600, hourly[VehicleType.FUEL.ordinal()][13]);
+            assertEquals(800, hourly[VehicleType.ELECTRIC_20KW.ordinal()][14]);
+        }
+        assertEquals(14400, history.getDwellPercentile(VehicleType.ELECTRIC_20KW, 100));
+    }
+}
@@ -0,0 +1,122 @@
+package com.tollparking.entity;
+
+import com.tollparking.billing.PricingPerHourPolicy;
+import com.tollparking.enums.VehicleType;
+import com.tollparking.simulation.VirtualClock;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the TicketSweeper and its OpenTicketIndex
+ * @link TicketSweeper.class
+ */
+public class TicketSweeperTest {
+
+    /**
+     * Test that the expired tickets are flagged once, and forgotten when their vehicle leaves
+     * @throws Exception if the parking cannot be created
+     */
+    @Test
+    public void flagExpiredTickets() throws Exception {
+        VirtualClock clock = new VirtualClock(Instant.parse("2020-10-03T10:00:00Z"));
+        Parking parking = new Parking(10, 10, 0);
+        parking.setClock(clock);
+        Ticket restored = new Ticket(12345L, VehicleType.FUEL, Instant.parse("2020-09-01T08:00:00Z"));
+        parking.restoreTickets(List.of(restored));
+        TicketSweeper sweeper = TicketSweeper.open(parking, Duration.ofDays(7), false);
+
+        Ticket old = parking.parkVehicle(VehicleType.FUEL);
+        clock.advance(Duration.ofDays(3));
+        Ticket recent = parking.parkVehicle(VehicleType.ELECTRIC_20KW);
+        Ticket left = parking.parkVehicle(VehicleType.FUEL);
+        assertEquals(List.of(restored), sweeper.sweep());
+
+        clock.advance(Duration.ofDays(4).plusMinutes(1));
+        parking.removeVehicle(left);
+        assertEquals(List.of(old), sweeper.sweep());
+        assertEquals(Set.of(restored, old), Set.copyOf(sweeper.getFlaggedTickets()));
+        assertEquals(3, parking.getOccupancy(VehicleType.FUEL) + parking.getOccupancy(VehicleType.ELECTRIC_20KW));
+
+        parking.removeVehicle(old);
+        assertEquals(Set.of(restored), Set.copyOf(sweeper.getFlaggedTickets()));
+        clock.advance(Duration.ofDays(3));
+        assertEquals(List.of(recent), sweeper.sweep());
+        assertTrue(sweeper.sweep().isEmpty());
+        assertEquals(0, sweeper.getCheckedOutCount());
+        sweeper.close();
+    }
+
+    /**
+     * Test that the expired tickets are checked out and billed until the sweep, freeing their slot
+     * @throws Exception if the parking cannot be created
+     */
+    @Test
+    public void checkOutExpiredTickets() throws Exception {
+        VirtualClock clock = new VirtualClock(Instant.parse("2020-10-03T10:00:00Z"));
+        Parking parking = new Parking(2, 0, 0, new PricingPerHourPolicy(new BigDecimal("1.00")));
+        parking.setClock(clock);
+        TicketSweeper sweeper = TicketSweeper.open(parking, Duration.ofHours(24), true);
+        Ticket abandoned = parking.parkVehicle(VehicleType.FUEL);
+        clock.advance(Duration.ofHours(20));
+        Ticket parked = parking.parkVehicle(VehicleType.FUEL);
+        assertEquals(null, parking.parkVehicle(VehicleType.FUEL));
+
+        clock.advance(Duration.ofHours(5));
+        List<Ticket> swept = sweeper.sweep();
+        assertEquals(List.of(abandoned), swept);
+        assertEquals(new BigDecimal("25.00"), swept.get(0).getAmount());
+        assertEquals(1, sweeper.getCheckedOutCount());
+        assertNotNull(parking.parkVehicle(VehicleType.FUEL));
+        assertNotNull(parking.findTicket(parked.getNumericId()));
+        assertThrows(IllegalArgumentException.class, () -> TicketSweeper.open(parking, Duration.ZERO, true));
+        sweeper.close();
+    }
+
+    /**
+     * Test that a sweep visits only the expired tickets of a parking with many vehicles, and that the background
+     * sweeps check them out
+     * @throws Exception if the parking cannot be created or the thread is interrupted
+     */
+    @Test
+    public void sweepOnlyExpiredTickets() throws Exception {
+        VirtualClock clock = new VirtualClock(Instant.parse("2020-10-03T10:00:00Z"));
+        Parking parking = new Parking(100_000, 0, 0);
+        parking.setClock(clock);
+        TicketSweeper sweeper = TicketSweeper.open(parking, Duration.ofDays(1), true);
+        List<Ticket> tickets = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            tickets.add(parking.parkVehicle(VehicleType.FUEL));
+            clock.advance(Duration.ofSeconds(1));
+        }
+
+        OpenTicketIndex index = new OpenTicketIndex();
+        tickets.forEach(index::add);
+        int[] visited = {0};
+        index.pollBefore(OpenTicketIndex.minuteOf(tickets.get(600)), ticket -> visited[0]++);
+        assertEquals(600, visited[0]);
+        index.add(tickets.get(0));
+        assertEquals(1, index.pollBefore(OpenTicketIndex.minuteOf(tickets.get(600)), ticket -> { }));
+
+        clock.setInstant(tickets.get(1200).getStartDate().plus(Duration.ofDays(1)));
+        sweeper.start(Duration.ofMillis(10));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (sweeper.getCheckedOutCount() < 1200 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        sweeper.close();
+        assertEquals(1200, sweeper.getCheckedOutCount());
+        assertEquals(98_800, parking.getOccupancy(VehicleType.FUEL));
+    }
+}
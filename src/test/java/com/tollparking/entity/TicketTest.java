@@ -95,4 +95,46 @@ public class TicketTest {
         t.setAmount(new BigDecimal("10.00"));
         assertEquals("id: id1 startDate: 2020-10-03T10:12:35Z endDate: 2020-10-03T12:30:35Z amount: 10.00", t.toString());
     }
+
+    /**
+     * Tests that the amount and the amount in cents stay consistent
+     */
+    @Test
+    public void amountInCentsTest() {
+        Ticket t = new Ticket(42L, VehicleType.FUEL);
+        assertEquals(0, t.getAmountInCents());
+        t.setAmountInCents(1625);
+        assertEquals(new BigDecimal("16.25"), t.getAmount());
+        assertEquals(1625, t.getAmountInCents());
+        t.setAmount(new BigDecimal("1.005"));
+        assertEquals(101, t.getAmountInCents());
+        t.setAmount(null);
+        assertEquals(0, t.getAmountInCents());
+    }
+
+    /**
+     * Tests the equality and the hash code of tickets with a numeric id
+     */
+    @Test
+    public void numericTicketsEqualityTest() {
+        Ticket t1 = new Ticket(42L, VehicleType.FUEL);
+        Ticket t2 = new Ticket(42L, VehicleType.FUEL);
+        Ticket t3 = new Ticket(43L, VehicleType.FUEL);
+        Ticket t4 = new Ticket("42", VehicleType.FUEL);
+        assertTrue(t1.equals(t2) && t2.equals(t1));
+        assertTrue(t1.hashCode() == t2.hashCode());
+        assertFalse(t1.equals(t3));
+        assertFalse(t1.equals(t4) || t4.equals(t1));
+        assertEquals("42", t1.getId());
+    }
+
+    /**
+     * Test the toString method of a ticket with a numeric id
+     */
+    @Test
+    public void numericTicket_toStringTest() {
+        Ticket t = new Ticket(42L, VehicleType.ELECTRIC_50KW);
+        t.setStartDate(Instant.parse("2020-10-03T10:12:35Z"));
+        assertEquals("id: 42 startDate: 2020-10-03T10:12:35Z endDate: null amount: null", t.toString());
+    }
 }
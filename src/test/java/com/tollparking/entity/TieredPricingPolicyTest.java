@@ -0,0 +1,218 @@
+package com.tollparking.entity;
+
+import com.tollparking.billing.TieredPricingPolicy;
+import com.tollparking.enums.VehicleType;
+import com.tollparking.exception.InvalidAmountException;
+import com.tollparking.exception.InvalidDateException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests the TieredPricingPolicy
+ * @link com.tollparking.billing.TieredPricingPolicy
+ */
+public class TieredPricingPolicyTest {
+
+    /**
+     * A Monday at 10:00 UTC
+     */
+    private static final Instant MONDAY = Instant.parse("2020-10-05T10:00:00Z");
+
+    /**
+     * Tests a first hour at a fixed price, then each started quarter of an hour
+     */
+    @Test
+    public void billFirstHourThenQuarters() {
+        TieredPricingPolicy pricing = TieredPricingPolicy.builder()
+                .firstPeriod(Duration.ofHours(1), new BigDecimal("2.00"))
+                .increment(Duration.ofMinutes(15))
+                .hourlyRate(new BigDecimal("2.40"))
+                .build();
+        assertEquals(new BigDecimal("2.00"), pricing.calculatePrice(MONDAY, MONDAY));
+        assertEquals(new BigDecimal("2.00"), pricing.calculatePrice(MONDAY, MONDAY.plus(60, ChronoUnit.MINUTES)));
+        assertEquals(new BigDecimal("2.60"), pricing.calculatePrice(MONDAY, MONDAY.plus(61, ChronoUnit.MINUTES)));
+        assertEquals(new BigDecimal("2.60"), pricing.calculatePrice(MONDAY, MONDAY.plus(75, ChronoUnit.MINUTES)));
+        assertEquals(320, pricing.calculatePriceInCents(MONDAY, MONDAY.plus(76, ChronoUnit.MINUTES)));
+    }
+
+    /**
+     * Tests the night and weekend rates, including a night crossing midnight and the end of the week
+     */
+    @Test
+    public void billNightAndWeekendRates() {
+        TieredPricingPolicy pricing = TieredPricingPolicy.builder()
+                .hourlyRate(new BigDecimal("2.40"))
+                .hourlyRate(EnumSet.allOf(DayOfWeek.class), LocalTime.of(20, 0), LocalTime.of(7, 0), new BigDecimal("1.00"))
+                .hourlyRate(EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY), LocalTime.MIDNIGHT, LocalTime.MIDNIGHT,
+                        new BigDecimal("1.20"))
+                .build();
+        Instant mondayEvening = Instant.parse("2020-10-05T19:00:00Z");
+        assertEquals(new BigDecimal("3.40"), pricing.calculatePrice(mondayEvening, mondayEvening.plus(2, ChronoUnit.HOURS)));
+        // 11 night hours and 2 day hours
+        assertEquals(new BigDecimal("15.80"), pricing.calculatePrice(mondayEvening, mondayEvening.plus(13, ChronoUnit.HOURS)));
+        Instant saturday = Instant.parse("2020-10-10T10:00:00Z");
+        assertEquals(new BigDecimal("3.60"), pricing.calculatePrice(saturday, saturday.plus(3, ChronoUnit.HOURS)));
+        // Sunday 23:00 to Monday 01:00: the weekend window overrides the night window, then the Monday night
+        Instant sunday = Instant.parse("2020-10-11T23:00:00Z");
+        assertEquals(new BigDecimal("2.20"), pricing.calculatePrice(sunday, sunday.plus(2, ChronoUnit.HOURS)));
+    }
+
+    /**
+     * Tests the time-of-day rates in a time zone other than UTC
+     */
+    @Test
+    public void billNightRatesInTimeZone() {
+        TieredPricingPolicy pricing = TieredPricingPolicy.builder()
+                .zone(ZoneId.of("Europe/Paris"))
+                .hourlyRate(new BigDecimal("2.40"))
+                .hourlyRate(EnumSet.allOf(DayOfWeek.class), LocalTime.of(20, 0), LocalTime.of(7, 0), new BigDecimal("1.00"))
+                .build();
+        // 19:00 in Paris in October is 17:00 UTC
+        Instant evening = Instant.parse("2020-10-05T17:00:00Z");
+        assertEquals(new BigDecimal("3.40"), pricing.calculatePrice(evening, evening.plus(2, ChronoUnit.HOURS)));
+    }
+
+    /**
+     * Tests the daily cap on short and long stays
+     */
+    @Test
+    public void capEachDay() {
+        TieredPricingPolicy pricing = TieredPricingPolicy.builder()
+                .hourlyRate(new BigDecimal("2.40"))
+                .dailyCap(new BigDecimal("20.00"))
+                .build();
+        assertEquals(new BigDecimal("20.00"), pricing.calculatePrice(MONDAY, MONDAY.plus(10, ChronoUnit.HOURS)));
+        assertEquals(new BigDecimal("20.00"), pricing.calculatePrice(MONDAY, MONDAY.plus(24, ChronoUnit.HOURS)));
+        assertEquals(new BigDecimal("34.40"), pricing.calculatePrice(MONDAY, MONDAY.plus(30, ChronoUnit.HOURS)));
+        assertEquals(new BigDecimal("212.00"),
+                pricing.calculatePrice(MONDAY, MONDAY.plus(10, ChronoUnit.DAYS).plus(5, ChronoUnit.HOURS)));
+        assertEquals(new BigDecimal("7300.00"), pricing.calculatePrice(MONDAY, MONDAY.plus(365, ChronoUnit.DAYS)));
+    }
+
+    /**
+     * Tests the rates set for some vehicle types only
+     */
+    @Test
+    public void billVehicleTypeRates() {
+        TieredPricingPolicy pricing = TieredPricingPolicy.builder()
+                .hourlyRate(new BigDecimal("2.40"))
+                .forVehicleTypes(VehicleType.ELECTRIC_50KW)
+                .hourlyRate(new BigDecimal("3.60"))
+                .build();
+        Instant end = MONDAY.plus(1, ChronoUnit.HOURS);
+        assertEquals(new BigDecimal("2.40"), pricing.calculatePrice(VehicleType.FUEL, MONDAY, end));
+        assertEquals(new BigDecimal("2.40"), pricing.calculatePrice(VehicleType.ELECTRIC_20KW, MONDAY, end));
+        assertEquals(new BigDecimal("3.60"), pricing.calculatePrice(VehicleType.ELECTRIC_50KW, MONDAY, end));
+        assertEquals(360, pricing.calculatePriceInCents(VehicleType.ELECTRIC_50KW, MONDAY, end));
+        assertEquals(new BigDecimal("2.40"), pricing.calculatePrice(MONDAY, end));
+    }
+
+    /**
+     * Tests the vehicle type rates when a parking bills a vehicle
+     * @throws Exception if the vehicle cannot be parked or removed
+     */
+    @Test
+    public void parkingBillsVehicleTypeRates() throws Exception {
+        TieredPricingPolicy pricing = TieredPricingPolicy.builder()
+                .hourlyRate(new BigDecimal("2.40"))
+                .forVehicleTypes(VehicleType.ELECTRIC_20KW)
+                .hourlyRate(new BigDecimal("3.00"))
+                .build();
+        Parking parking = new Parking(1, 1, 0, pricing);
+        Ticket fuel = parking.parkVehicle(VehicleType.FUEL);
+        Ticket electric = parking.parkVehicle(VehicleType.ELECTRIC_20KW);
+        fuel.setStartDate(Instant.now().minus(2, ChronoUnit.HOURS));
+        electric.setStartDate(fuel.getStartDate());
+        assertEquals(new BigDecimal("4.80"), parking.removeVehicle(fuel).getAmount());
+        assertEquals(new BigDecimal("6.00"), parking.removeVehicle(electric).getAmount());
+    }
+
+    /**
+     * Compares the compiled table with a minute by minute calculation on random stays of up to 20 days
+     */
+    @Test
+    public void matchMinuteByMinutePrice() {
+        TieredPricingPolicy pricing = TieredPricingPolicy.builder()
+                .firstPeriod(Duration.ofMinutes(30), new BigDecimal("1.50"))
+                .increment(Duration.ofMinutes(15))
+                .hourlyRate(new BigDecimal("2.45"))
+                .hourlyRate(EnumSet.allOf(DayOfWeek.class), LocalTime.of(21, 30), LocalTime.of(6, 0), new BigDecimal("0.85"))
+                .hourlyRate(EnumSet.of(DayOfWeek.SUNDAY), LocalTime.of(8, 0), LocalTime.of(20, 0), new BigDecimal("1.10"))
+                .dailyCap(new BigDecimal("25.00"))
+                .build();
+        Random random = new Random(7);
+        for (int i = 0; i < 300; i++) {
+            Instant start = MONDAY.plus(random.nextInt(14 * 24 * 60), ChronoUnit.MINUTES).plusSeconds(random.nextInt(60));
+            Instant end = start.plus(random.nextInt(20 * 24 * 60), ChronoUnit.MINUTES).plusSeconds(random.nextInt(60));
+            assertEquals(expectedPrice(start, end), pricing.calculatePrice(start, end), "stay from " + start + " to " + end);
+        }
+    }
+
+    /**
+     * Tests invalid amounts, durations and dates
+     */
+    @Test
+    public void rejectInvalidRules() {
+        assertThrows(InvalidAmountException.class, () -> TieredPricingPolicy.builder().hourlyRate(new BigDecimal("-1")));
+        assertThrows(InvalidAmountException.class, () -> TieredPricingPolicy.builder().dailyCap(new BigDecimal("-1")));
+        assertThrows(IllegalArgumentException.class, () -> TieredPricingPolicy.builder().increment(Duration.ofSeconds(30)));
+        assertThrows(IllegalArgumentException.class,
+                () -> TieredPricingPolicy.builder().firstPeriod(Duration.ofHours(25), BigDecimal.ONE));
+        TieredPricingPolicy pricing = TieredPricingPolicy.builder().build();
+        assertThrows(InvalidDateException.class, () -> pricing.calculatePrice(MONDAY, null));
+        assertThrows(InvalidDateException.class, () -> pricing.calculatePrice(MONDAY, MONDAY.minusSeconds(60)));
+        assertEquals(BigDecimal.ZERO.setScale(2), pricing.calculatePrice(MONDAY, MONDAY.plus(3, ChronoUnit.DAYS)));
+    }
+
+    /**
+     * Prices a stay minute by minute with the rules of matchMinuteByMinutePrice
+     * @param start the start of the stay
+     * @param end the end of the stay
+     * @return the price with 2 decimals
+     */
+    private static BigDecimal expectedPrice(Instant start, Instant end) {
+        long minutes = Duration.between(start, end).toMinutes();
+        long billed = (minutes <= 30) ? 30 : 30 + (minutes - 30 + 14) / 15 * 15;
+        BigDecimal cap = new BigDecimal("25.00");
+        BigDecimal total = BigDecimal.ZERO;
+        BigDecimal day = BigDecimal.ZERO;
+        for (long minute = 0; minute < billed; minute++) {
+            if (minute > 0 && minute % (24 * 60) == 0) {
+                total = total.add(day.min(cap));
+                day = BigDecimal.ZERO;
+            }
+            if (minute == 0) {
+                day = day.add(new BigDecimal("1.50"));
+            }
+            if (minute >= 30) {
+                ZonedDateTime time = start.plus(minute, ChronoUnit.MINUTES).atZone(ZoneOffset.UTC);
+                int minuteOfDay = time.getHour() * 60 + time.getMinute();
+                BigDecimal rate = new BigDecimal("2.45");
+                if (minuteOfDay >= 21 * 60 + 30 || minuteOfDay < 6 * 60) {
+                    rate = new BigDecimal("0.85");
+                }
+                if (time.getDayOfWeek() == DayOfWeek.SUNDAY && minuteOfDay >= 8 * 60 && minuteOfDay < 20 * 60) {
+                    rate = new BigDecimal("1.10");
+                }
+                day = day.add(rate.divide(new BigDecimal("60"), 6, RoundingMode.HALF_UP));
+            }
+        }
+        total = total.add(day.min(cap));
+        return total.setScale(2, RoundingMode.HALF_UP);
+    }
+}